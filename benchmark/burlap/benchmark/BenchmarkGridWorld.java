@@ -0,0 +1,69 @@
+package burlap.benchmark;
+
+import burlap.debugtools.DPrint;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.GridWorldTerminalFunction;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.SADomain;
+import burlap.oomdp.singleagent.common.UniformCostRF;
+
+
+/**
+ * The grid world problem shared by the benchmarks: an open width x width grid with stochastic movement (0.8 probability
+ * of moving in the intended direction), the agent starting in the bottom left corner, a -1 reward per step and a terminal
+ * goal in the top right corner. When the width is 11, the four rooms map is used instead of an open grid.
+ * @author James MacGlashan
+ *
+ */
+public class BenchmarkGridWorld {
+
+	public final SADomain				domain;
+	public final RewardFunction			rf;
+	public final TerminalFunction		tf;
+	public final State					initialState;
+	public final int					width;
+
+
+	/**
+	 * Creates the problem and turns off all debug printing so that it does not affect the measurements.
+	 * @param width the width and height of the grid
+	 */
+	public BenchmarkGridWorld(int width){
+
+		DPrint.toggleUniversal(false);
+		this.width = width;
+
+		GridWorldDomain gw = new GridWorldDomain(width, width);
+		if(width == 11){
+			gw.setMapToFourRooms();
+		}
+		gw.setProbSucceedTransitionDynamics(0.8);
+		this.domain = (SADomain)gw.generateDomain();
+		this.rf = new UniformCostRF();
+		this.tf = new GridWorldTerminalFunction(width-1, width-1);
+
+		this.initialState = GridWorldDomain.getOneAgentOneLocationState(this.domain);
+		GridWorldDomain.setAgent(this.initialState, 0, 0);
+		GridWorldDomain.setLocation(this.initialState, 0, width-1, width-1);
+
+	}
+
+
+	/**
+	 * Returns a state with the agent in the center of the grid and the given number of location objects placed
+	 * row by row from the bottom left corner. Used by the benchmarks whose cost depends on the number of objects in a state.
+	 * @param numLocations the number of location objects
+	 * @return a state with the agent and numLocations locations.
+	 */
+	public State stateWithLocations(int numLocations){
+		State s = GridWorldDomain.getOneAgentNLocationState(this.domain, numLocations);
+		GridWorldDomain.setAgent(s, this.width/2, this.width/2);
+		for(int i = 0; i < numLocations; i++){
+			GridWorldDomain.setLocation(s, i, i % this.width, i / this.width);
+		}
+		return s;
+	}
+
+}
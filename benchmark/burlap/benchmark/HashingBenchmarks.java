@@ -0,0 +1,87 @@
+package burlap.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burlap.oomdp.core.states.PackedStateSchema;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * Benchmarks of hashing a state and comparing it to an equal state, as is done for every successor state generated during planning
+ * and every step of learning, for each combination of state representation and hashing factory. A fresh copy of the state is hashed
+ * each time so that hash codes cached by previous invocations are not reused.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmarks {
+
+	@Param({"1", "16"})
+	public int numLocations;
+
+	@Param({"mutable", "packed"})
+	public String stateType;
+
+	@Param({"simple", "simpleCached", "incremental"})
+	public String hashingFactory;
+
+	protected burlap.oomdp.core.states.State state;
+	protected HashableStateFactory factory;
+	protected burlap.oomdp.core.states.State equalState;
+
+
+	@Setup
+	public void setup(){
+		BenchmarkGridWorld problem = new BenchmarkGridWorld(11);
+		this.state = problem.stateWithLocations(this.numLocations);
+		if(this.stateType.equals("packed")){
+			this.state = new PackedStateSchema(this.state).pack(this.state);
+		}
+
+		if(this.hashingFactory.equals("simple")){
+			this.factory = new SimpleHashableStateFactory();
+		}
+		else if(this.hashingFactory.equals("simpleCached")){
+			this.factory = new SimpleHashableStateFactory(true, true);
+		}
+		else{
+			this.factory = new IncrementalHashableStateFactory();
+		}
+		this.equalState = this.state.copy();
+	}
+
+
+	@Benchmark
+	public int hashState(){
+		return this.factory.hashState(this.state.copy()).hashCode();
+	}
+
+
+	@Benchmark
+	public boolean hashAndCompare(){
+		HashableState a = this.factory.hashState(this.state.copy());
+		HashableState b = this.factory.hashState(this.equalState.copy());
+		return a.hashCode() == b.hashCode() && a.equals(b);
+	}
+
+}
@@ -0,0 +1,76 @@
+package burlap.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.learning.tdmethods.ArrayQLearning;
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * Benchmarks of {@link burlap.behavior.singleagent.learning.tdmethods.QLearning#runLearningEpisode(burlap.oomdp.singleagent.environment.Environment, int)}
+ * on grid worlds of different sizes. The agent keeps learning across invocations, so after warmup the measurement reflects
+ * the cost of episodes of a partially trained agent with a populated Q-table. Episodes are capped at 2000 steps.
+ * The implementation parameter selects between the list based {@link burlap.behavior.singleagent.learning.tdmethods.QLearning}
+ * and the array based {@link burlap.behavior.singleagent.learning.tdmethods.ArrayQLearning}.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LearningBenchmarks {
+
+	@Param({"11", "30"})
+	public int width;
+
+	@Param({"list", "array"})
+	public String implementation;
+
+	@Param({"simple", "incremental"})
+	public String hashingFactory;
+
+	protected QLearning agent;
+	protected SimulatedEnvironment env;
+
+
+	@Setup
+	public void setup(){
+		BenchmarkGridWorld problem = new BenchmarkGridWorld(this.width);
+		HashableStateFactory factory = this.hashingFactory.equals("simple") ? new SimpleHashableStateFactory() : new IncrementalHashableStateFactory();
+		if(this.implementation.equals("array")){
+			this.agent = new ArrayQLearning(problem.domain, 0.99, factory, 0., 0.1);
+		}
+		else{
+			this.agent = new QLearning(problem.domain, 0.99, factory, 0., 0.1);
+		}
+		this.env = new SimulatedEnvironment(problem.domain, problem.rf, problem.tf, problem.initialState);
+	}
+
+
+	@Benchmark
+	public EpisodeAnalysis runLearningEpisode(){
+		this.env.resetEnvironment();
+		return this.agent.runLearningEpisode(this.env, 2000);
+	}
+
+}
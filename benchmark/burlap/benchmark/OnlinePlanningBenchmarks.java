@@ -0,0 +1,73 @@
+package burlap.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCT;
+import burlap.behavior.singleagent.planning.stochastic.sparsesampling.SparseSampling;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * Benchmarks of planning from the initial state of grid worlds of different sizes with the sample based planners
+ * {@link burlap.behavior.singleagent.planning.stochastic.sparsesampling.SparseSampling} (horizon 4, 2 samples per transition)
+ * and {@link burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCT} (horizon 30, 500 rollouts). No search tree is
+ * reused between invocations: sparse sampling is reset before each invocation and UCT builds a new tree each time it plans.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnlinePlanningBenchmarks {
+
+	@Param({"11", "30"})
+	public int width;
+
+	@Param({"simple", "incremental"})
+	public String hashingFactory;
+
+	protected BenchmarkGridWorld problem;
+	protected SparseSampling ss;
+	protected UCT uct;
+
+
+	@Setup
+	public void setup(){
+		this.problem = new BenchmarkGridWorld(this.width);
+		HashableStateFactory factory = this.hashingFactory.equals("simple") ? new SimpleHashableStateFactory() : new IncrementalHashableStateFactory();
+		this.ss = new SparseSampling(this.problem.domain, this.problem.rf, this.problem.tf, 0.99, factory, 4, 2);
+		this.uct = new UCT(this.problem.domain, this.problem.rf, this.problem.tf, 0.99, factory, 30, 500, 2);
+	}
+
+
+	@Benchmark
+	public Policy sparseSampling(){
+		this.ss.resetSolver();
+		return this.ss.planFromState(this.problem.initialState);
+	}
+
+
+	@Benchmark
+	public Policy uct(){
+		return this.uct.planFromState(this.problem.initialState);
+	}
+
+}
@@ -0,0 +1,93 @@
+package burlap.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ParallelValueIteration;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * Benchmarks of planning from scratch with {@link burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration}
+ * and {@link burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration} on grid worlds of different
+ * sizes. The planner is reset before each invocation, so the time includes finding the reachable states. The backend parameter
+ * selects between the map based implementation, the compiled array dynamics, and (for value iteration) the
+ * parallel implementation.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanningBenchmarks {
+
+	@Param({"11", "30", "60"})
+	public int width;
+
+	@Param({"map", "compiled", "parallel"})
+	public String backend;
+
+	@Param({"simple", "incremental"})
+	public String hashingFactory;
+
+	protected BenchmarkGridWorld problem;
+	protected ValueIteration vi;
+	protected PolicyIteration pi;
+
+
+	@Setup
+	public void setup(){
+		this.problem = new BenchmarkGridWorld(this.width);
+		HashableStateFactory factory = this.hashingFactory.equals("simple") ? new SimpleHashableStateFactory() : new IncrementalHashableStateFactory();
+
+		if(this.backend.equals("parallel")){
+			this.vi = new ParallelValueIteration(this.problem.domain, this.problem.rf, this.problem.tf, 0.99, factory, 0.001, 1000);
+		}
+		else{
+			this.vi = new ValueIteration(this.problem.domain, this.problem.rf, this.problem.tf, 0.99, factory, 0.001, 1000);
+			this.vi.toggleUseCompiledDynamics(this.backend.equals("compiled"));
+		}
+
+		//policy iteration has no parallel sweep; its parallel backend is the compiled backend with parallel reachability
+		this.pi = new PolicyIteration(this.problem.domain, this.problem.rf, this.problem.tf, 0.99, factory, 0.001, 100, 100);
+		this.pi.toggleUseCompiledDynamics(!this.backend.equals("map"));
+		if(this.backend.equals("parallel")){
+			this.pi.setReachabilityParallelism(Runtime.getRuntime().availableProcessors());
+			this.vi.setReachabilityParallelism(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+
+	@Benchmark
+	public Policy valueIteration(){
+		this.vi.resetSolver();
+		return this.vi.planFromState(this.problem.initialState);
+	}
+
+
+	@Benchmark
+	public Policy policyIteration(){
+		this.pi.resetSolver();
+		return this.pi.planFromState(this.problem.initialState);
+	}
+
+}
@@ -0,0 +1,76 @@
+package burlap.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.oomdp.core.TransitionProbability;
+import burlap.oomdp.core.states.PackedStateSchema;
+import burlap.oomdp.singleagent.GroundedAction;
+
+
+/**
+ * Benchmarks of copying a state and of sampling and enumerating grid world transitions, for each state representation.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmarks {
+
+	@Param({"1", "16"})
+	public int numLocations;
+
+	@Param({"mutable", "packed"})
+	public String stateType;
+
+	protected burlap.oomdp.core.states.State state;
+	protected GroundedAction north;
+
+
+	@Setup
+	public void setup(){
+		BenchmarkGridWorld problem = new BenchmarkGridWorld(11);
+		this.state = problem.stateWithLocations(this.numLocations);
+		if(this.stateType.equals("packed")){
+			this.state = new PackedStateSchema(this.state).pack(this.state);
+		}
+
+		this.north = problem.domain.getAction(GridWorldDomain.ACTIONNORTH).getAssociatedGroundedAction();
+	}
+
+
+	@Benchmark
+	public burlap.oomdp.core.states.State copyState(){
+		return this.state.copy();
+	}
+
+
+	@Benchmark
+	public burlap.oomdp.core.states.State sampleTransition(){
+		return this.north.executeIn(this.state);
+	}
+
+
+	@Benchmark
+	public List<TransitionProbability> enumerateTransitions(){
+		return this.north.getTransitions(this.state);
+	}
+
+}
@@ -3,12 +3,19 @@ package burlap.assignment4.util;
 import burlap.assignment4.BasicGridWorld;
 import burlap.behavior.policy.Policy;
 import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.policy.EpsilonGreedy;
 import burlap.behavior.singleagent.auxiliary.StateReachability;
+import burlap.behavior.singleagent.auxiliary.performance.HyperParameterSweep;
 import burlap.behavior.singleagent.auxiliary.valuefunctionvis.ValueFunctionVisualizerGUI;
+import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.tdmethods.ArrayQLearning;
 import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.behavior.singleagent.planning.stochastic.DPIterationListener;
+import burlap.behavior.singleagent.planning.stochastic.ValueFunctionSnapshot;
 import burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration;
 import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
 import burlap.behavior.valuefunction.ValueFunction;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
 import burlap.domain.singleagent.gridworld.GridWorldDomain;
 import burlap.oomdp.core.Domain;
 import burlap.oomdp.core.TerminalFunction;
@@ -17,16 +24,19 @@ import burlap.oomdp.singleagent.RewardFunction;
 import burlap.oomdp.singleagent.SADomain;
 import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
 import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
 import burlap.oomdp.statehashing.SimpleHashableStateFactory;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class AnalysisRunner {
 
-	final SimpleHashableStateFactory hashingFactory = new SimpleHashableStateFactory();
+	final SimpleHashableStateFactory hashingFactory = new IncrementalHashableStateFactory();
 
 	private int MAX_ITERATIONS;
 	private int NUM_INTERVALS;
@@ -43,68 +53,92 @@ public class AnalysisRunner {
 
 	}
 	public void runValueIteration(BasicGridWorld gen, Domain domain,
-			State initialState, RewardFunction rf, TerminalFunction tf, boolean showPolicyMap) {
+			final State initialState, final RewardFunction rf, final TerminalFunction tf, boolean showPolicyMap) {
 		System.out.println("//Value Iteration Analysis//");
-		ValueIteration vi = null;
-		Policy p = null;
-		EpisodeAnalysis ea = null;
-		int increment = MAX_ITERATIONS/NUM_INTERVALS;
-		for(int numIterations = increment;numIterations<=MAX_ITERATIONS;numIterations+=increment ){
-			long startTime = System.nanoTime();
-			vi = new ValueIteration(
-					domain,
-					rf,
-					tf,
-					0.99,
-					hashingFactory,
-					-1, numIterations); //Added a very high delta number in order to guarantee that value iteration occurs the max number of iterations
-										   //for comparison with the other algorithms.
-	
-			// run planning from our initial state
-			p = vi.planFromState(initialState);
-			AnalysisAggregator.addMillisecondsToFinishValueIteration((int) (System.nanoTime()-startTime)/1000000);
-
-			// evaluate the policy with one roll out visualize the trajectory
-			ea = p.evaluateBehavior(initialState, rf, tf);
-			AnalysisAggregator.addValueIterationReward(calcRewardInEpisode(ea));
-			AnalysisAggregator.addStepsToFinishValueIteration(ea.numTimeSteps());
-		}
+		final int increment = MAX_ITERATIONS/NUM_INTERVALS;
+		ValueIteration vi = new ValueIteration(
+				domain,
+				rf,
+				tf,
+				0.99,
+				hashingFactory,
+				-1, MAX_ITERATIONS); //Added a very high delta number in order to guarantee that value iteration occurs the max number of iterations
+									   //for comparison with the other algorithms.
+
+		// find the state space once; each budget's time is the reachability time plus the time of its iterations
+		long startTime = System.nanoTime();
+		vi.performReachabilityFrom(initialState);
+		final long reachabilityTime = System.nanoTime() - startTime;
+
+		// a single run of value iteration yields the policy of every iteration budget
+		final List<ValueFunctionSnapshot> budgets = new ArrayList<ValueFunctionSnapshot>();
+		vi.addIterationListener(new DPIterationListener() {
+			@Override
+			public void iterationComplete(ValueFunctionSnapshot snapshot) {
+				if(snapshot.getIteration() % increment != 0){
+					return;
+				}
+				AnalysisAggregator.addMillisecondsToFinishValueIteration((int) ((reachabilityTime + snapshot.getPlanningTime())/1000000));
+
+				// evaluate the policy with one roll out
+				EpisodeAnalysis ea = snapshot.getGreedyPolicy().evaluateBehavior(initialState, rf, tf);
+				AnalysisAggregator.addValueIterationReward(calcRewardInEpisode(ea));
+				AnalysisAggregator.addStepsToFinishValueIteration(ea.numTimeSteps());
+				budgets.add(snapshot);
+			}
+		});
+		vi.runVI(MAX_ITERATIONS - MAX_ITERATIONS%increment);
+
+		ValueFunctionSnapshot last = budgets.get(budgets.size()-1);
+		Policy p = last.getGreedyPolicy();
 		
 //		Visualizer v = gen.getVisualizer();
 //		new EpisodeSequenceVisualizer(v, domain, Arrays.asList(ea));
 		MapPrinter.printPolicyMap(vi.getAllStates(), p, gen.getMap());
 		System.out.println("\n\n");
 		if(showPolicyMap){
-			simpleValueFunctionVis((ValueFunction)vi, p, initialState, domain, hashingFactory);
+			simpleValueFunctionVis(last.getValueFunction(), p, initialState, domain, hashingFactory);
 		}
 	}
 
 	public void runPolicyIteration(BasicGridWorld gen, Domain domain,
-			State initialState, RewardFunction rf, TerminalFunction tf, boolean showPolicyMap) {
+			final State initialState, final RewardFunction rf, final TerminalFunction tf, boolean showPolicyMap) {
 		System.out.println("//Policy Iteration Analysis//");
-		PolicyIteration pi = null;
-		Policy p = null;
-		EpisodeAnalysis ea = null;
-		int increment = MAX_ITERATIONS/NUM_INTERVALS;
-		for(int numIterations = increment;numIterations<=MAX_ITERATIONS;numIterations+=increment ){
-			long startTime = System.nanoTime();
-			pi = new PolicyIteration(
-					domain,
-					rf,
-					tf,
-					0.99,
-					hashingFactory,
-					-1, 1, numIterations);
-	
-			// run planning from our initial state
-			p = pi.planFromState(initialState);
-			AnalysisAggregator.addMillisecondsToFinishPolicyIteration((int) (System.nanoTime()-startTime)/1000000);
-
-			// evaluate the policy with one roll out visualize the trajectory
-			ea = p.evaluateBehavior(initialState, rf, tf);
-			AnalysisAggregator.addPolicyIterationReward(calcRewardInEpisode(ea));
-			AnalysisAggregator.addStepsToFinishPolicyIteration(ea.numTimeSteps());
-		}
+		final int increment = MAX_ITERATIONS/NUM_INTERVALS;
+		PolicyIteration pi = new PolicyIteration(
+				domain,
+				rf,
+				tf,
+				0.99,
+				hashingFactory,
+				-1, -1, 1, MAX_ITERATIONS);
+
+		// find the state space once; each budget's time is the reachability time plus the time of its iterations
+		long startTime = System.nanoTime();
+		pi.performReachabilityFrom(initialState);
+		final long reachabilityTime = System.nanoTime() - startTime;
+
+		// a single run of policy iteration yields the policy of every iteration budget
+		final List<ValueFunctionSnapshot> budgets = new ArrayList<ValueFunctionSnapshot>();
+		pi.addIterationListener(new DPIterationListener() {
+			@Override
+			public void iterationComplete(ValueFunctionSnapshot snapshot) {
+				if(snapshot.getIteration() % increment != 0){
+					return;
+				}
+				AnalysisAggregator.addMillisecondsToFinishPolicyIteration((int) ((reachabilityTime + snapshot.getPlanningTime())/1000000));
+
+				// evaluate the policy with one roll out
+				EpisodeAnalysis ea = snapshot.getGreedyPolicy().evaluateBehavior(initialState, rf, tf);
+				AnalysisAggregator.addPolicyIterationReward(calcRewardInEpisode(ea));
+				AnalysisAggregator.addStepsToFinishPolicyIteration(ea.numTimeSteps());
+				budgets.add(snapshot);
+			}
+		});
+		pi.runPolicyIteration(MAX_ITERATIONS - MAX_ITERATIONS%increment);
+
+		ValueFunctionSnapshot last = budgets.get(budgets.size()-1);
+		Policy p = last.getGreedyPolicy();
 
 //		Visualizer v = gen.getVisualizer();
 //		new EpisodeSequenceVisualizer(v, domain, Arrays.asList(ea));
@@ -115,7 +149,7 @@ public class AnalysisRunner {
 
 		//visualize the value function and policy.
 		if(showPolicyMap){
-			simpleValueFunctionVis(pi, p, initialState, domain, hashingFactory);
+			simpleValueFunctionVis(last.getValueFunction(), p, initialState, domain, hashingFactory);
 		}
 	}
 
@@ -130,52 +164,61 @@ public class AnalysisRunner {
 
 	}
 	
-	public void runQLearning(BasicGridWorld gen, Domain domain,
+	public void runQLearning(BasicGridWorld gen, final Domain domain,
 			State initialState, RewardFunction rf, TerminalFunction tf,
 			SimulatedEnvironment env, boolean showPolicyMap) throws FileNotFoundException {
 		System.out.println("//Q Learning Analysis//");
 
-		QLearning agent = null;
-		Policy p = null;
-		EpisodeAnalysis ea = null;
 		int increment = MAX_ITERATIONS/NUM_INTERVALS;
 		String dir = "c:/bench/ML-Reinforcement/data/";
-		PrintWriter pw = new PrintWriter(new File(dir+"QTrainData.csv"));
-        pw.write("Learning Rate, Gamma, Reward \n");
-
 
+		// every configuration learns in its own copy of the environment with its own seeded random generator
+		HyperParameterSweep sweep = new HyperParameterSweep(env.copyFactory(), new HyperParameterSweep.ConfigurationAgentFactory() {
+			@Override
+			public LearningAgent generateAgent(HyperParameterSweep.Configuration c, Random rand) {
+				EpsilonGreedy learningPolicy = new EpsilonGreedy(c.getEpsilon());
+				learningPolicy.setRandomGenerator(rand);
+				ArrayQLearning agent = new ArrayQLearning(domain, c.getGamma(), hashingFactory, c.getQInit(), c.getLearningRate(), learningPolicy, Integer.MAX_VALUE);
+				learningPolicy.setSolver(agent);
+				return agent;
+			}
+		});
+		sweep.setLearningRates(range(.1, 1, .05));
+		sweep.setGammas(range(.1, 1, .05));
+		sweep.addQInitialization("0.99", new ValueFunctionInitialization.ConstantValueFunctionInitialization(0.99));
+		int [] budgets = new int[MAX_ITERATIONS/increment];
+		for(int i = 0; i < budgets.length; i++){
+			budgets[i] = (i+1)*increment;
+		}
+		sweep.setEpisodeBudgets(budgets);
+		sweep.setParallelism(Runtime.getRuntime().availableProcessors());
 
-		for(double  lr = .1; lr<=1; lr+=.05) {
-		for(double gamma = .1; gamma<=1; gamma+=.05){
-		for(int numIterations = increment;numIterations<=MAX_ITERATIONS;numIterations+=increment ) {
-			long startTime = System.nanoTime();
-            StringBuilder sb = new StringBuilder();
-			agent = new QLearning(
-					domain,
-					gamma,
-					hashingFactory,
-					0.99, lr);
+		// results are checkpointed after each configuration, so an interrupted sweep resumes where it stopped;
+		// the file is not QTrainData.csv so that the output of older runs is never mistaken for a checkpoint
+		List<HyperParameterSweep.Result> results = sweep.run(dir + "QTrainSweep.csv");
 
-			for (int i = 0; i < numIterations; i++) {
-				ea = agent.runLearningEpisode(env);
-				env.resetEnvironment();
+		HyperParameterSweep.Result best = null;
+		for(HyperParameterSweep.Result r : results){
+			AnalysisAggregator.addQLearningReward(r.getLastEpisodeReward());
+			AnalysisAggregator.addMillisecondsToFinishQLearning((int) r.getMilliseconds());
+			AnalysisAggregator.addStepsToFinishQLearning(r.getLastEpisodeSteps()+1); //the number of states in the episode, as recorded for the planners
+			if(r.getEpisodes() == budgets[budgets.length-1] && (best == null || r.getAverageEpisodeReward() > best.getAverageEpisodeReward())){
+				best = r;
 			}
-			agent.initializeForPlanning(rf, tf, 1);
-			p = agent.planFromState(initialState);
-            sb.append(lr);
-            sb.append(", ");
-            sb.append(gamma);
-            sb.append(", ");
-            sb.append(calcRewardInEpisode(ea));
-            sb.append("\n");
-            pw.write(sb.toString());
-            System.out.println(lr + " " + gamma);
-			AnalysisAggregator.addQLearningReward(calcRewardInEpisode(ea));
-			AnalysisAggregator.addMillisecondsToFinishQLearning((int) (System.nanoTime() - startTime) / 1000000);
-			AnalysisAggregator.addStepsToFinishQLearning(ea.numTimeSteps());
-		}}
 		}
-        pw.close();
+
+		// retrain the configuration with the best average reward to show its policy
+		HyperParameterSweep.Configuration c = best.getConfiguration();
+		System.out.println("Best configuration: " + c);
+		EpsilonGreedy learningPolicy = new EpsilonGreedy(c.getEpsilon());
+		ArrayQLearning agent = new ArrayQLearning(domain, c.getGamma(), hashingFactory, c.getQInit(), c.getLearningRate(), learningPolicy, Integer.MAX_VALUE);
+		learningPolicy.setSolver(agent);
+		for(int i = 0; i < best.getEpisodes(); i++){
+			agent.runLearningEpisode(env);
+			env.resetEnvironment();
+		}
+		agent.initializeForPlanning(rf, tf, 1);
+		Policy p = agent.planFromState(initialState);
 		MapPrinter.printPolicyMap(getAllStates(domain,rf,tf,initialState), p, gen.getMap());
 		System.out.println("\n\n");
 
@@ -185,6 +228,18 @@ public class AnalysisRunner {
 		}
 
 	}
+
+	private static double [] range(double start, double end, double step){
+		List<Double> values = new ArrayList<Double>();
+		for(double v = start; v <= end; v += step){
+			values.add(v);
+		}
+		double [] result = new double[values.size()];
+		for(int i = 0; i < result.length; i++){
+			result[i] = values.get(i);
+		}
+		return result;
+	}
 	
 	private static List<State> getAllStates(Domain domain,
 			 RewardFunction rf, TerminalFunction tf,State initialState){
@@ -193,7 +248,7 @@ public class AnalysisRunner {
 				rf,
 				tf,
 				0.99,
-				new SimpleHashableStateFactory(),
+				new IncrementalHashableStateFactory(),
 				.5, 100);
 		vi.planFromState(initialState);
 
@@ -2,8 +2,10 @@ package burlap.assignment4.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import burlap.assignment4.BasicGridWorld;
+import burlap.debugtools.RandomFactory;
 import burlap.oomdp.core.Domain;
 import burlap.oomdp.core.TransitionProbability;
 import burlap.oomdp.core.objects.ObjectInstance;
@@ -17,6 +19,7 @@ public class Movement extends SimpleAction implements FullActionModel {
 	//0: north; 1: south; 2:east; 3: west
 	protected double [] directionProbs = new double[4];
 	protected int[][] map;
+	protected Random rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 
 	public Movement(String actionName, Domain domain, int direction, int[][] map){
 		super(actionName, domain);
@@ -39,7 +42,7 @@ public class Movement extends SimpleAction implements FullActionModel {
 		int curY = agent.getIntValForAttribute(BasicGridWorld.ATTY);
 
 		//sample directon with random roll
-		double r = Math.random();
+		double r = this.rand.nextDouble();
 		double sumProb = 0.;
 		int dir = 0;
 		for(int i = 0; i < this.directionProbs.length; i++){
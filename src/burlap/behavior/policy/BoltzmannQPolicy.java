@@ -4,6 +4,7 @@ import burlap.behavior.singleagent.MDPSolverInterface;
 import burlap.behavior.valuefunction.QFunction;
 import burlap.behavior.valuefunction.QValue;
 import burlap.datastructures.BoltzmannDistribution;
+import burlap.debugtools.RandomFactory;
 import burlap.oomdp.core.AbstractGroundedAction;
 import burlap.oomdp.core.AbstractObjectParameterizedGroundedAction;
 import burlap.oomdp.core.states.State;
@@ -11,6 +12,7 @@ import burlap.oomdp.core.states.State;
 import javax.management.RuntimeErrorException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 
 /**
@@ -24,6 +26,11 @@ public class BoltzmannQPolicy extends Policy implements SolverDerivedPolicy {
 
 	protected QFunction qplanner;
 	double								temperature;
+
+	/**
+	 * The random generator used to sample actions. By default, the calling thread's {@link burlap.debugtools.RandomFactory#POLICYSTREAM} stream.
+	 */
+	protected Random					rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	
 	
 	/**
@@ -50,9 +57,37 @@ public class BoltzmannQPolicy extends Policy implements SolverDerivedPolicy {
 		this.temperature = temperature;
 	}
 	
+	/**
+	 * Returns the random generator used to sample actions.
+	 * @return the random generator used to sample actions.
+	 */
+	public Random getRandomGenerator() {
+		return rand;
+	}
+
+	/**
+	 * Sets the random generator used to sample actions.
+	 * @param rand the random generator used to sample actions.
+	 */
+	public void setRandomGenerator(Random rand) {
+		this.rand = rand;
+	}
+
 	@Override
 	public AbstractGroundedAction getAction(State s) {
-		return this.sampleFromActionDistribution(s);
+		List<ActionProb> probs = this.getActionDistributionForState(s);
+		if(probs.size() == 0){
+			throw new PolicyUndefinedException();
+		}
+		double roll = this.rand.nextDouble();
+		double sump = 0.;
+		for(ActionProb ap : probs){
+			sump += ap.pSelection;
+			if(roll < sump){
+				return ap.ga;
+			}
+		}
+		throw new RuntimeException("Tried to sample policy action distribution, but it did not sum to 1.");
 	}
 
 	@Override
@@ -37,7 +37,7 @@ public class EpsilonGreedy extends Policy implements SolverDerivedPolicy {
 	public EpsilonGreedy(double epsilon) {
 		qplanner = null;
 		this.epsilon = epsilon;
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	}
 	
 	/**
@@ -48,10 +48,18 @@ public class EpsilonGreedy extends Policy implements SolverDerivedPolicy {
 	public EpsilonGreedy(QFunction planner, double epsilon) {
 		qplanner = planner;
 		this.epsilon = epsilon;
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	}
 
 	
+	/**
+	 * Returns the {@link burlap.behavior.valuefunction.QFunction} this policy is derived from.
+	 * @return the {@link burlap.behavior.valuefunction.QFunction} this policy is derived from.
+	 */
+	public QFunction getQFunction() {
+		return qplanner;
+	}
+
 	/**
 	 * Returns the epsilon value, where epsilon is the probability of taking a random action.
 	 * @return the epsilon value
@@ -68,6 +76,24 @@ public class EpsilonGreedy extends Policy implements SolverDerivedPolicy {
 		this.epsilon = epsilon;
 	}
 
+
+	/**
+	 * Returns the random generator used for action selection.
+	 * @return the random generator used for action selection.
+	 */
+	public Random getRandomGenerator(){
+		return this.rand;
+	}
+
+
+	/**
+	 * Sets the random generator used for action selection.
+	 * @param rand the random generator used for action selection.
+	 */
+	public void setRandomGenerator(Random rand){
+		this.rand = rand;
+	}
+
 	@Override
 	public void setSolver(MDPSolverInterface solver){
 		
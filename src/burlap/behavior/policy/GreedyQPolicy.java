@@ -29,7 +29,7 @@ public class GreedyQPolicy extends Policy implements SolverDerivedPolicy {
 	
 	public GreedyQPolicy(){
 		qplanner = null;
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	}
 	
 	
@@ -39,7 +39,7 @@ public class GreedyQPolicy extends Policy implements SolverDerivedPolicy {
 	 */
 	public GreedyQPolicy(QFunction planner){
 		qplanner = planner;
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	}
 	
 	@Override
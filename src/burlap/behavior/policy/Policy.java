@@ -234,7 +234,7 @@ public abstract class Policy {
 	 * @return an {@link AbstractGroundedAction} to take
 	 */
 	protected AbstractGroundedAction sampleFromActionDistribution(State s){
-		Random rand = RandomFactory.getMapped(0);
+		Random rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 		double roll = rand.nextDouble();
 		List <ActionProb> probs = this.getActionDistributionForState(s);
 		if(probs == null || probs.size() == 0){
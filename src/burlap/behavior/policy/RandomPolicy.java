@@ -32,7 +32,7 @@ public class RandomPolicy extends Policy{
 	/**
 	 * The random factory used to randomly select actions.
 	 */
-	protected Random rand = RandomFactory.getMapped(0);
+	protected Random rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 
 
 	/**
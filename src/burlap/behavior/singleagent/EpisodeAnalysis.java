@@ -646,7 +646,15 @@ public class EpisodeAnalysis {
 	}
 	
 	
-	private static GroundedAction getGAFromSpaceDelimGAString(Domain d, String str){
+	/**
+	 * Returns the {@link burlap.oomdp.singleagent.GroundedAction} represented by a space delimited string, as produced by
+	 * {@link burlap.oomdp.singleagent.GroundedAction#toString()}. If the domain does not have the action, a {@link burlap.oomdp.singleagent.common.NullAction}
+	 * with the same name is used in its place.
+	 * @param d the domain of the action
+	 * @param str the string representation of the grounded action
+	 * @return the {@link burlap.oomdp.singleagent.GroundedAction} represented by the string.
+	 */
+	public static GroundedAction getGAFromSpaceDelimGAString(Domain d, String str){
 
 		//handle option annotated grounded actions
 		if(str.startsWith("*")){
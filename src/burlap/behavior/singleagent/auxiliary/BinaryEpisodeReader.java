@@ -0,0 +1,447 @@
+package burlap.behavior.singleagent.auxiliary;
+
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.ObjectClass;
+import burlap.oomdp.core.objects.MutableObjectInstance;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.states.MutableState;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.GroundedAction;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+
+/**
+ * Reads the episodes of a file written by {@link burlap.behavior.singleagent.auxiliary.BinaryEpisodeWriter}. The file is memory mapped and
+ * episodes are decoded one at a time as they are iterated, so files with far more episodes than fit in memory can be processed. Files larger
+ * than the mapping window are mapped one window at a time.
+ * <p/>
+ * States are decoded into {@link burlap.oomdp.core.states.MutableState} objects with {@link burlap.oomdp.core.objects.MutableObjectInstance}
+ * objects of the given {@link burlap.oomdp.core.Domain}. The schema stored in the file is matched to the domain's object classes by class and
+ * attribute name, so values of attributes that the domain no longer defines are skipped. Actions are parsed from their stored string representation
+ * in the same way as YAML episode files. An episode that was not ended before the file was closed (or that is still being written) is not returned.
+ * <p/>
+ * Each call to {@link #iterator()} starts a new pass over the file. The mapping of an iterator is released when it is exhausted or closed.
+ * Episodes can also be converted to YAML episode files with {@link #convertToEpisodeFiles(String, burlap.oomdp.core.Domain, String, String)}.
+ * @author James MacGlashan
+ *
+ */
+public class BinaryEpisodeReader implements Iterable<EpisodeAnalysis> {
+
+	/**
+	 * The default maximum number of bytes mapped at once
+	 */
+	public static final int DEFAULTWINDOW = 1 << 26;
+
+
+	/**
+	 * The episode file
+	 */
+	protected File file;
+
+	/**
+	 * The domain of the episodes
+	 */
+	protected Domain domain;
+
+	/**
+	 * The maximum number of bytes mapped at once
+	 */
+	protected int window = DEFAULTWINDOW;
+
+
+	/**
+	 * Initializes.
+	 * @param path the path of the binary episode file
+	 * @param domain the domain of the episodes
+	 */
+	public BinaryEpisodeReader(String path, Domain domain){
+		this.file = new File(path);
+		this.domain = domain;
+	}
+
+
+	/**
+	 * Sets the maximum number of bytes of the file that are mapped into memory at once. A mapping is always large enough to hold the
+	 * largest single record.
+	 * @param window the maximum number of bytes mapped at once
+	 */
+	public void setMappingWindow(int window){
+		this.window = window;
+	}
+
+
+	/**
+	 * Reads all episodes of a binary episode file into a list.
+	 * @param path the path of the binary episode file
+	 * @param domain the domain of the episodes
+	 * @return a list of all episodes in the file
+	 */
+	public static List<EpisodeAnalysis> readAll(String path, Domain domain){
+		List<EpisodeAnalysis> episodes = new ArrayList<EpisodeAnalysis>();
+		for(EpisodeAnalysis ea : new BinaryEpisodeReader(path, domain)){
+			episodes.add(ea);
+		}
+		return episodes;
+	}
+
+
+	/**
+	 * Writes each episode of a binary episode file to its own YAML episode file, named "baseFileName{index}.episode" in the given directory,
+	 * as done by {@link burlap.behavior.singleagent.EpisodeAnalysis#writeEpisodesToDisk(java.util.List, String, String)}. Only one episode is
+	 * held in memory at a time.
+	 * @param binaryPath the path of the binary episode file
+	 * @param domain the domain of the episodes
+	 * @param directoryPath the directory in which to write the YAML episode files
+	 * @param baseFileName the base file name to use for the episode files
+	 * @return the number of episodes converted
+	 */
+	public static int convertToEpisodeFiles(String binaryPath, Domain domain, String directoryPath, String baseFileName){
+		if(!directoryPath.endsWith("/")){
+			directoryPath += "/";
+		}
+		int i = 0;
+		for(EpisodeAnalysis ea : new BinaryEpisodeReader(binaryPath, domain)){
+			ea.writeToFile(directoryPath + baseFileName + i);
+			i++;
+		}
+		return i;
+	}
+
+
+	@Override
+	public EpisodeIterator iterator() {
+		return new EpisodeIterator();
+	}
+
+
+	/**
+	 * An iterator over the episodes of the file, which decodes each episode when it is requested.
+	 */
+	public class EpisodeIterator implements Iterator<EpisodeAnalysis>, Closeable {
+
+		protected RandomAccessFile raf;
+		protected FileChannel channel;
+		protected long size;
+		protected long base = 0;
+		protected MappedByteBuffer buf;
+
+		protected ObjectClass [] classes;
+		protected String [][] attributeNames;
+		protected Attribute.AttributeType [][] attributeTypes;
+		protected boolean [][] attributeKnown;
+
+		protected List<GroundedAction> actions = new ArrayList<GroundedAction>();
+		protected List<String> names = new ArrayList<String>();
+
+		protected EpisodeAnalysis next;
+		protected boolean done = false;
+
+
+		protected EpisodeIterator(){
+			try {
+				this.raf = new RandomAccessFile(BinaryEpisodeReader.this.file, "r");
+				this.channel = this.raf.getChannel();
+				this.size = this.channel.size();
+				this.map(0);
+				this.readSchema();
+			} catch(IOException e) {
+				this.close();
+				throw new RuntimeException("Could not read binary episode file " + BinaryEpisodeReader.this.file.getPath(), e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(this.next == null && !this.done){
+				this.next = this.readEpisode();
+				if(this.next == null){
+					this.done = true;
+					this.close();
+				}
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public EpisodeAnalysis next() {
+			if(!this.hasNext()){
+				throw new NoSuchElementException();
+			}
+			EpisodeAnalysis ea = this.next;
+			this.next = null;
+			return ea;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Releases the file; subsequent calls to {@link #hasNext()} return false.
+		 */
+		@Override
+		public void close() {
+			this.done = true;
+			this.buf = null;
+			try {
+				if(this.raf != null){
+					this.raf.close();
+				}
+			} catch(IOException e) {
+				//nothing more can be done
+			}
+		}
+
+
+		/**
+		 * Reads the schema header and matches it to the domain's object classes.
+		 * @throws IOException if the header cannot be read
+		 */
+		protected void readSchema() throws IOException{
+			if(this.readInt() != BinaryEpisodeWriter.MAGIC){
+				throw new IOException("Not a binary episode file.");
+			}
+			int version = this.readInt();
+			if(version != BinaryEpisodeWriter.VERSION){
+				throw new IOException("Unsupported binary episode file version " + version);
+			}
+			int nc = this.readInt();
+			this.classes = new ObjectClass[nc];
+			this.attributeNames = new String[nc][];
+			this.attributeTypes = new Attribute.AttributeType[nc][];
+			this.attributeKnown = new boolean[nc][];
+			for(int i = 0; i < nc; i++){
+				String cname = this.readString();
+				ObjectClass oc = BinaryEpisodeReader.this.domain.getObjectClass(cname);
+				this.classes[i] = oc;
+				int na = this.readInt();
+				this.attributeNames[i] = new String[na];
+				this.attributeTypes[i] = new Attribute.AttributeType[na];
+				this.attributeKnown[i] = new boolean[na];
+				for(int j = 0; j < na; j++){
+					this.attributeNames[i][j] = this.readString();
+					this.attributeTypes[i][j] = Attribute.AttributeType.fromInt(this.readInt());
+					this.attributeKnown[i][j] = oc != null && oc.hasAttribute(this.attributeNames[i][j]);
+				}
+			}
+		}
+
+
+		/**
+		 * Reads records until the next episode is complete.
+		 * @return the next complete episode, or null if there are no more.
+		 */
+		protected EpisodeAnalysis readEpisode(){
+			EpisodeAnalysis ea = null;
+			try {
+				while(this.available(1)){
+					byte tag = this.buf.get();
+					if(tag == BinaryEpisodeWriter.TAGACTION){
+						this.actions.add(EpisodeAnalysis.getGAFromSpaceDelimGAString(BinaryEpisodeReader.this.domain, this.readString()));
+					}
+					else if(tag == BinaryEpisodeWriter.TAGOBJECTNAME){
+						this.names.add(this.readString());
+					}
+					else if(tag == BinaryEpisodeWriter.TAGEPISODE){
+						ea = new EpisodeAnalysis(this.readState());
+					}
+					else if(tag == BinaryEpisodeWriter.TAGSTEP){
+						int a = this.readInt();
+						double r = this.readDouble();
+						State s = this.readState();
+						if(ea == null){
+							throw new IOException("Episode step found outside of an episode.");
+						}
+						ea.recordTransitionTo(this.actions.get(a).copy(), s, r);
+					}
+					else if(tag == BinaryEpisodeWriter.TAGEND){
+						if(ea != null){
+							return ea;
+						}
+					}
+					else{
+						throw new IOException("Unknown record tag " + tag);
+					}
+				}
+			} catch(EOFException e) {
+				//the last episode was not completed
+			} catch(IOException e) {
+				this.close();
+				throw new RuntimeException("Could not read binary episode file " + BinaryEpisodeReader.this.file.getPath(), e);
+			}
+			return null;
+		}
+
+
+		/**
+		 * Reads a state.
+		 * @return the state
+		 * @throws IOException if the state cannot be read
+		 */
+		protected State readState() throws IOException{
+
+			int no = this.readInt();
+			State s = new MutableState();
+			for(int i = 0; i < no; i++){
+
+				int ci = this.readInt();
+				String name = this.names.get(this.readInt());
+				ObjectClass oc = this.classes[ci];
+				if(oc == null){
+					throw new IOException("The domain does not have object class " + ci + " of the episode file.");
+				}
+				ObjectInstance o = new MutableObjectInstance(oc, name);
+
+				String [] anames = this.attributeNames[ci];
+				Attribute.AttributeType [] types = this.attributeTypes[ci];
+				boolean [] known = this.attributeKnown[ci];
+				byte [] mask = new byte[(anames.length+7) / 8];
+				this.ensure(mask.length);
+				this.buf.get(mask);
+
+				for(int j = 0; j < anames.length; j++){
+					if((mask[j >> 3] & (1 << (j & 7))) == 0){
+						continue;
+					}
+					switch(types[j]){
+						case DISC:
+						case INT:
+						case BOOLEAN:
+							int iv = this.readInt();
+							if(known[j]){
+								o.setValue(anames[j], iv);
+							}
+							break;
+						case REAL:
+						case REALUNBOUND:
+							double dv = this.readDouble();
+							if(known[j]){
+								o.setValue(anames[j], dv);
+							}
+							break;
+						case STRING:
+							String sv = this.readString();
+							if(known[j]){
+								o.setValue(anames[j], sv);
+							}
+							break;
+						case INTARRAY:
+							int [] ia = new int[this.readInt()];
+							for(int k = 0; k < ia.length; k++){
+								ia[k] = this.readInt();
+							}
+							if(known[j]){
+								o.setValue(anames[j], ia);
+							}
+							break;
+						case DOUBLEARRAY:
+							double [] da = new double[this.readInt()];
+							for(int k = 0; k < da.length; k++){
+								da[k] = this.readDouble();
+							}
+							if(known[j]){
+								o.setValue(anames[j], da);
+							}
+							break;
+						case RELATIONAL:
+						case MULTITARGETRELATIONAL:
+							int nt = this.readInt();
+							for(int k = 0; k < nt; k++){
+								String target = this.names.get(this.readInt());
+								if(known[j]){
+									o.addRelationalTarget(anames[j], target);
+								}
+							}
+							break;
+						default:
+							throw new IOException("Unsupported attribute type " + types[j]);
+					}
+				}
+
+				s.addObject(o);
+			}
+
+			return s;
+		}
+
+
+		protected int readInt() throws IOException{
+			this.ensure(4);
+			return this.buf.getInt();
+		}
+
+		protected double readDouble() throws IOException{
+			this.ensure(8);
+			return this.buf.getDouble();
+		}
+
+		protected String readString() throws IOException{
+			int n = this.readInt();
+			this.ensure(n);
+			byte [] bytes = new byte[n];
+			this.buf.get(bytes);
+			return new String(bytes, BinaryEpisodeWriter.UTF8);
+		}
+
+
+		/**
+		 * Returns whether at least n more bytes can be read, remapping the file from the current position if needed.
+		 * @param n the number of bytes
+		 * @return true if at least n more bytes can be read; false if the file ends first.
+		 * @throws IOException if the file cannot be mapped
+		 */
+		protected boolean available(int n) throws IOException{
+			if(this.buf == null){
+				return false;
+			}
+			if(this.buf.remaining() >= n){
+				return true;
+			}
+			long pos = this.base + this.buf.position();
+			if(this.size - pos < n){
+				return false;
+			}
+			this.map(pos, n);
+			return true;
+		}
+
+
+		/**
+		 * Ensures that at least n more bytes can be read.
+		 * @param n the number of bytes
+		 * @throws IOException if the file ends first or cannot be mapped
+		 */
+		protected void ensure(int n) throws IOException{
+			if(!this.available(n)){
+				throw new EOFException();
+			}
+		}
+
+
+		protected void map(long pos) throws IOException{
+			this.map(pos, 0);
+		}
+
+
+		/**
+		 * Maps a window of the file starting at the given position.
+		 * @param pos the file position at which the window starts
+		 * @param minSize the minimum size of the window
+		 * @throws IOException if the file cannot be mapped
+		 */
+		protected void map(long pos, int minSize) throws IOException{
+			long len = Math.min(Math.max(BinaryEpisodeReader.this.window, minSize), this.size - pos);
+			this.base = pos;
+			this.buf = this.channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+		}
+
+	}
+
+}
@@ -0,0 +1,425 @@
+package burlap.behavior.singleagent.auxiliary;
+
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.datastructures.AlphanumericSorting;
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.ObjectClass;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.core.values.Value;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentObserver;
+import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+
+/**
+ * Writes episodes to a single file in a compact binary format that can be read back with {@link burlap.behavior.singleagent.auxiliary.BinaryEpisodeReader}.
+ * The file begins with a schema of the {@link burlap.oomdp.core.ObjectClass}es of the {@link burlap.oomdp.core.Domain} (the name and type of each
+ * attribute), after which each state is stored as, for each object, its class index, its name index, a bit mask of which attributes are set and
+ * the packed values of the set attributes in attribute order. Each step of an episode stores the index of its action, its reward and the next state.
+ * Action strings and object names are stored once, the first time they are used, and referred to by index afterwards. All numbers are big-endian.
+ * <p/>
+ * Episodes are streamed to disk as they are recorded, so an episode does not need to be held in memory to be written. An episode can be recorded
+ * with the {@link #startEpisode(burlap.oomdp.core.states.State)}, {@link #recordTransition(burlap.oomdp.singleagent.GroundedAction, double, burlap.oomdp.core.states.State)}
+ * and {@link #endEpisode()} methods, or an existing {@link burlap.behavior.singleagent.EpisodeAnalysis} can be written with {@link #writeEpisode(burlap.behavior.singleagent.EpisodeAnalysis)}.
+ * This class is also an {@link burlap.oomdp.singleagent.environment.EnvironmentObserver}, so the episodes of a learning agent can be recorded while it
+ * runs by wrapping its environment in an {@link burlap.oomdp.singleagent.environment.EnvironmentServer} with this writer as an observer. When observing,
+ * an episode starts with the first interaction and ends when the environment is reset.
+ * <p/>
+ * Existing YAML episode files written by {@link burlap.behavior.singleagent.EpisodeAnalysis#writeToFile(String)} can be converted with
+ * {@link #convertEpisodeFiles(String, burlap.oomdp.core.Domain, String)}. The writer must be closed with {@link #close()} when done.
+ * @author James MacGlashan
+ *
+ */
+public class BinaryEpisodeWriter implements EnvironmentObserver, Closeable {
+
+	/**
+	 * The first int of a binary episode file
+	 */
+	public static final int MAGIC = 0x42455049;
+
+	/**
+	 * The version of the binary episode format
+	 */
+	public static final int VERSION = 1;
+
+	static final byte TAGACTION = 1;
+	static final byte TAGOBJECTNAME = 2;
+	static final byte TAGEPISODE = 3;
+	static final byte TAGSTEP = 4;
+	static final byte TAGEND = 5;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+	/**
+	 * The stream to which episodes are written
+	 */
+	protected DataOutputStream out;
+
+	/**
+	 * The index of each object class in the schema
+	 */
+	protected Map<String, Integer> classIndex = new HashMap<String, Integer>();
+
+	/**
+	 * The index of each action string written so far
+	 */
+	protected Map<String, Integer> actionIds = new HashMap<String, Integer>();
+
+	/**
+	 * The index of each object name written so far
+	 */
+	protected Map<String, Integer> nameIds = new HashMap<String, Integer>();
+
+	/**
+	 * Whether an episode has been started and not yet ended
+	 */
+	protected boolean inEpisode = false;
+
+	/**
+	 * The number of completed episodes written
+	 */
+	protected int numEpisodes = 0;
+
+
+	/**
+	 * Creates a new binary episode file, replacing any existing file at the path, and writes the schema of the domain's object classes.
+	 * If the directories of the path do not exist, they will be created.
+	 * @param path the path of the file to write
+	 * @param domain the domain of the states of the episodes
+	 */
+	public BinaryEpisodeWriter(String path, Domain domain){
+
+		File f = (new File(path)).getParentFile();
+		if(f != null){
+			f.mkdirs();
+		}
+
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+
+			List<ObjectClass> classes = domain.getObjectClasses();
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			this.out.writeInt(classes.size());
+			for(int i = 0; i < classes.size(); i++){
+				ObjectClass oc = classes.get(i);
+				this.classIndex.put(oc.name, i);
+				writeString(this.out, oc.name);
+				this.out.writeInt(oc.attributeList.size());
+				for(Attribute att : oc.attributeList){
+					writeString(this.out, att.name);
+					this.out.writeInt(att.type.toInt());
+				}
+			}
+		} catch(IOException e) {
+			throw new RuntimeException("Could not create binary episode file " + path, e);
+		}
+
+	}
+
+
+	/**
+	 * Reads all YAML episode files (with the .episode extension) in a directory, as read by {@link burlap.behavior.singleagent.EpisodeAnalysis#parseFilesIntoEAList(String, burlap.oomdp.core.Domain)},
+	 * and writes them in the same order to a binary episode file. Only one episode is held in memory at a time.
+	 * @param directoryPath the directory containing the YAML episode files
+	 * @param domain the domain of the episodes
+	 * @param binaryPath the path of the binary episode file to write
+	 * @return the number of episodes converted
+	 */
+	public static int convertEpisodeFiles(String directoryPath, Domain domain, String binaryPath){
+
+		File dir = new File(directoryPath);
+		String [] children = dir.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".episode");
+			}
+		});
+		if(children == null){
+			throw new RuntimeException("Could not list episode files in " + directoryPath);
+		}
+		@SuppressWarnings("unchecked") //AlphanumericSorting is a raw Comparator that compares the toString() of its arguments
+		Comparator<String> alphanumeric = new AlphanumericSorting();
+		Arrays.sort(children, alphanumeric);
+
+		BinaryEpisodeWriter writer = new BinaryEpisodeWriter(binaryPath, domain);
+		for(String child : children){
+			writer.writeEpisode(EpisodeAnalysis.parseFileIntoEA(new File(dir, child).getPath(), domain));
+		}
+		writer.close();
+
+		return children.length;
+	}
+
+
+	/**
+	 * Writes a complete episode.
+	 * @param ea the episode to write
+	 */
+	public synchronized void writeEpisode(EpisodeAnalysis ea){
+		this.startEpisode(ea.getState(0));
+		for(int t = 0; t < ea.maxTimeStep(); t++){
+			this.recordTransition(ea.getAction(t), ea.getReward(t+1), ea.getState(t+1));
+		}
+		this.endEpisode();
+	}
+
+
+	/**
+	 * Starts a new episode. If an episode is in progress, it is ended first.
+	 * @param initialState the initial state of the episode
+	 */
+	public synchronized void startEpisode(State initialState){
+		if(this.inEpisode){
+			this.endEpisode();
+		}
+		try {
+			this.defineNames(initialState);
+			this.out.writeByte(TAGEPISODE);
+			this.writeState(initialState);
+		} catch(IOException e) {
+			throw new RuntimeException("Could not write episode", e);
+		}
+		this.inEpisode = true;
+	}
+
+
+	/**
+	 * Records a transition of the current episode.
+	 * @param ga the action taken in the last recorded state
+	 * @param r the reward received
+	 * @param nextState the state to which the transition occurred
+	 */
+	public synchronized void recordTransition(GroundedAction ga, double r, State nextState){
+
+		if(!this.inEpisode){
+			throw new RuntimeException("Cannot record a transition before an episode is started.");
+		}
+
+		try {
+			String actionString = ga.toString();
+			Integer actionId = this.actionIds.get(actionString);
+			if(actionId == null){
+				actionId = this.actionIds.size();
+				this.actionIds.put(actionString, actionId);
+				this.out.writeByte(TAGACTION);
+				writeString(this.out, actionString);
+			}
+			this.defineNames(nextState);
+
+			this.out.writeByte(TAGSTEP);
+			this.out.writeInt(actionId);
+			this.out.writeDouble(r);
+			this.writeState(nextState);
+		} catch(IOException e) {
+			throw new RuntimeException("Could not write episode", e);
+		}
+
+	}
+
+
+	/**
+	 * Ends the current episode. Does nothing if no episode is in progress.
+	 */
+	public synchronized void endEpisode(){
+		if(!this.inEpisode){
+			return;
+		}
+		try {
+			this.out.writeByte(TAGEND);
+		} catch(IOException e) {
+			throw new RuntimeException("Could not write episode", e);
+		}
+		this.inEpisode = false;
+		this.numEpisodes++;
+	}
+
+
+	/**
+	 * Returns the number of completed episodes written.
+	 * @return the number of completed episodes written.
+	 */
+	public synchronized int numEpisodes(){
+		return this.numEpisodes;
+	}
+
+
+	/**
+	 * Flushes all written data to the file.
+	 */
+	public synchronized void flush(){
+		try {
+			this.out.flush();
+		} catch(IOException e) {
+			throw new RuntimeException("Could not flush episode file", e);
+		}
+	}
+
+
+	/**
+	 * Ends any episode in progress and closes the file.
+	 */
+	@Override
+	public synchronized void close(){
+		this.endEpisode();
+		try {
+			this.out.close();
+		} catch(IOException e) {
+			throw new RuntimeException("Could not close episode file", e);
+		}
+	}
+
+
+	@Override
+	public void observeEnvironmentActionInitiation(State o, GroundedAction action) {
+		//do nothing
+	}
+
+	@Override
+	public synchronized void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+		if(!this.inEpisode){
+			this.startEpisode(eo.o);
+		}
+		this.recordTransition(eo.a, eo.r, eo.op);
+	}
+
+	@Override
+	public synchronized void observeEnvironmentReset(Environment resetEnvironment) {
+		this.endEpisode();
+	}
+
+
+	/**
+	 * Writes the definitions of any object names of a state, including relational targets, that have not been written yet.
+	 * @param s the state
+	 * @throws IOException if the definitions cannot be written
+	 */
+	protected void defineNames(State s) throws IOException{
+		for(ObjectInstance o : s.getAllObjects()){
+			this.defineName(o.getName());
+			if(o.getObjectClass().hasRelationalAttributes()){
+				for(Value v : o.getValues()){
+					Attribute.AttributeType type = v.getAttribute().type;
+					if((type == Attribute.AttributeType.RELATIONAL || type == Attribute.AttributeType.MULTITARGETRELATIONAL) && v.valueHasBeenSet()){
+						for(String target : v.getAllRelationalTargets()){
+							this.defineName(target);
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Writes the definition of an object name if it has not been written yet.
+	 * @param name the object name
+	 * @throws IOException if the definition cannot be written
+	 */
+	protected void defineName(String name) throws IOException{
+		if(!this.nameIds.containsKey(name)){
+			this.nameIds.put(name, this.nameIds.size());
+			this.out.writeByte(TAGOBJECTNAME);
+			writeString(this.out, name);
+		}
+	}
+
+
+	/**
+	 * Writes a state; all of its object names must already be defined.
+	 * @param s the state to write
+	 * @throws IOException if the state cannot be written
+	 */
+	protected void writeState(State s) throws IOException{
+
+		List<ObjectInstance> objects = s.getAllObjects();
+		this.out.writeInt(objects.size());
+		for(ObjectInstance o : objects){
+
+			ObjectClass oc = o.getObjectClass();
+			Integer ci = this.classIndex.get(oc.name);
+			if(ci == null){
+				throw new RuntimeException("Cannot write object " + o.getName() + " because its class " + oc.name + " is not in the schema of the episode file.");
+			}
+			this.out.writeInt(ci);
+			this.out.writeInt(this.nameIds.get(o.getName()));
+
+			List<Value> values = o.getValues();
+			byte [] mask = new byte[(values.size()+7) / 8];
+			for(int i = 0; i < values.size(); i++){
+				if(values.get(i).valueHasBeenSet()){
+					mask[i >> 3] |= 1 << (i & 7);
+				}
+			}
+			this.out.write(mask);
+
+			for(int i = 0; i < values.size(); i++){
+				Value v = values.get(i);
+				if(!v.valueHasBeenSet()){
+					continue;
+				}
+				switch(v.getAttribute().type){
+					case DISC:
+					case INT:
+					case BOOLEAN:
+						this.out.writeInt(v.getDiscVal());
+						break;
+					case REAL:
+					case REALUNBOUND:
+						this.out.writeDouble(v.getRealVal());
+						break;
+					case STRING:
+						writeString(this.out, v.getStringVal());
+						break;
+					case INTARRAY:
+						int [] ia = v.getIntArray();
+						this.out.writeInt(ia.length);
+						for(int x : ia){
+							this.out.writeInt(x);
+						}
+						break;
+					case DOUBLEARRAY:
+						double [] da = v.getDoubleArray();
+						this.out.writeInt(da.length);
+						for(double x : da){
+							this.out.writeDouble(x);
+						}
+						break;
+					case RELATIONAL:
+					case MULTITARGETRELATIONAL:
+						Set<String> targets = v.getAllRelationalTargets();
+						this.out.writeInt(targets.size());
+						for(String target : targets){
+							this.out.writeInt(this.nameIds.get(target));
+						}
+						break;
+					default:
+						throw new RuntimeException("Cannot write value of attribute " + v.attName() + " with type " + v.getAttribute().type);
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * Writes a string as its length in bytes followed by its UTF-8 bytes.
+	 * @param out the stream to write to
+	 * @param s the string to write
+	 * @throws IOException if the string cannot be written
+	 */
+	static void writeString(DataOutputStream out, String s) throws IOException{
+		byte [] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+}
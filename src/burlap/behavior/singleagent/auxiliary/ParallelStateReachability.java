@@ -0,0 +1,257 @@
+package burlap.behavior.singleagent.auxiliary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import burlap.behavior.singleagent.planning.stochastic.ActionTransitions;
+import burlap.behavior.singleagent.planning.stochastic.HashedTransitionProbability;
+import burlap.debugtools.DPrint;
+import burlap.oomdp.auxiliary.common.NullTermination;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A frontier-parallel breadth-first search for finding the set of states reachable from a source state. Each BFS layer
+ * is expanded by a {@link java.util.concurrent.ForkJoinPool} whose work-stealing tasks generate the
+ * {@link burlap.behavior.singleagent.planning.stochastic.ActionTransitions} of each frontier state, deduplicating successors
+ * with a concurrent visited set. The generated transitions can optionally be collected so that planners such as
+ * {@link burlap.behavior.singleagent.planning.stochastic.DynamicProgramming} can cache them without expanding the states again.
+ * <p/>
+ * Because states are expanded concurrently, the {@link burlap.oomdp.singleagent.Action} transition generation, the
+ * {@link burlap.oomdp.core.TerminalFunction} and the {@link burlap.oomdp.statehashing.HashableStateFactory} must be safe to call from multiple threads.
+ * This is true for the domains and hashing factories provided with BURLAP that do not maintain internal state.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelStateReachability {
+
+	/**
+	 * The debugID used for making calls to {@link burlap.debugtools.DPrint}. Printing is disabled for it by default.
+	 */
+	public static int							debugID = 837494;
+
+	static {
+		DPrint.toggleCode(debugID, false);
+	}
+
+	/**
+	 * The actions used to expand states.
+	 */
+	protected List<Action>						actions;
+
+	/**
+	 * The hashing factory used to index states.
+	 */
+	protected HashableStateFactory				hashingFactory;
+
+	/**
+	 * States for which this terminal function returns true are not expanded.
+	 */
+	protected TerminalFunction					tf;
+
+	/**
+	 * The pool in which frontier expansions are run.
+	 */
+	protected ForkJoinPool						pool;
+
+	/**
+	 * The number of frontier states expanded by a single task.
+	 */
+	protected int								batchSize = 64;
+
+
+	/**
+	 * Initializes with no terminal state pruning.
+	 * @param actions the actions used to expand states
+	 * @param hashingFactory the hashing factory used to index states
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelStateReachability(List<Action> actions, HashableStateFactory hashingFactory, int parallelism){
+		this(actions, hashingFactory, new NullTermination(), parallelism);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param actions the actions used to expand states
+	 * @param hashingFactory the hashing factory used to index states
+	 * @param tf states for which this terminal function returns true are not expanded
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelStateReachability(List<Action> actions, HashableStateFactory hashingFactory, TerminalFunction tf, int parallelism){
+		this.actions = actions;
+		this.hashingFactory = hashingFactory;
+		this.tf = tf;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+
+	/**
+	 * Sets the number of frontier states expanded by a single task.
+	 * @param batchSize the number of frontier states expanded by a single task.
+	 */
+	public void setBatchSize(int batchSize){
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+
+	/**
+	 * Shuts down the worker threads used by this object. This object should not be used after calling this method.
+	 */
+	public void shutdown(){
+		this.pool.shutdown();
+	}
+
+
+	/**
+	 * Returns the set of states reachable from a source state.
+	 * @param from the source state
+	 * @return the set of states reachable from a source state.
+	 */
+	public Set<HashableState> getReachableHashedStates(State from){
+		return this.getReachableHashedStates(from, Collections.<HashableState>emptySet(), null);
+	}
+
+
+	/**
+	 * Returns the set of states reachable from a source state that are not in a set of previously expanded states. States in the
+	 * previously expanded set are neither expanded nor returned. If transitionsOut is not null, the
+	 * {@link burlap.behavior.singleagent.planning.stochastic.ActionTransitions} of every expanded state are put into it. States
+	 * that are not expanded because they are terminal are returned, but have no entry in transitionsOut.
+	 * @param from the source state
+	 * @param previouslyExpanded states that have already been expanded and should be ignored
+	 * @param transitionsOut a map to which the generated transitions of each expanded state are added; may be null
+	 * @return the set of newly found reachable states.
+	 */
+	public Set<HashableState> getReachableHashedStates(State from, Set<HashableState> previouslyExpanded, Map<HashableState, List<ActionTransitions>> transitionsOut){
+
+		HashableState shi = this.hashingFactory.hashState(from);
+		if(previouslyExpanded.contains(shi)){
+			return new HashSet<HashableState>();
+		}
+
+		ConcurrentHashMap<HashableState, Boolean> visited = new ConcurrentHashMap<HashableState, Boolean>();
+		ConcurrentHashMap<HashableState, List<ActionTransitions>> transitions = transitionsOut != null ? new ConcurrentHashMap<HashableState, List<ActionTransitions>>() : null;
+		visited.put(shi, Boolean.TRUE);
+
+		List<HashableState> frontier = new ArrayList<HashableState>();
+		frontier.add(shi);
+		int depth = 0;
+		while(frontier.size() > 0){
+			ConcurrentLinkedQueue<HashableState> next = new ConcurrentLinkedQueue<HashableState>();
+			this.pool.invoke(new ExpansionTask(frontier, 0, frontier.size(), visited, previouslyExpanded, transitions, next));
+			frontier = new ArrayList<HashableState>(next);
+			depth++;
+		}
+
+		final int numUnique = visited.size();
+		final int bfsDepth = depth;
+		DPrint.cl(debugID, new Supplier<String>() {
+			@Override
+			public String get() {
+				return "Num unique: " + numUnique + "; BFS depth: " + bfsDepth;
+			}
+		});
+
+		if(transitionsOut != null){
+			transitionsOut.putAll(transitions);
+		}
+
+		return new HashSet<HashableState>(visited.keySet());
+	}
+
+
+	/**
+	 * A fork-join task that expands a range of the current frontier, splitting the range until it is no larger than the batch size.
+	 */
+	protected class ExpansionTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		protected List<HashableState> frontier;
+		protected int start;
+		protected int end;
+		protected ConcurrentHashMap<HashableState, Boolean> visited;
+		protected Set<HashableState> previouslyExpanded;
+		protected ConcurrentHashMap<HashableState, List<ActionTransitions>> transitions;
+		protected ConcurrentLinkedQueue<HashableState> next;
+
+		/**
+		 * Initializes.
+		 * @param frontier the current frontier
+		 * @param start the first frontier index to expand (inclusive)
+		 * @param end the last frontier index to expand (exclusive)
+		 * @param visited the concurrent visited set
+		 * @param previouslyExpanded states that should be ignored
+		 * @param transitions the map to which generated transitions are added; may be null
+		 * @param next the queue to which newly discovered states are added
+		 */
+		public ExpansionTask(List<HashableState> frontier, int start, int end, ConcurrentHashMap<HashableState, Boolean> visited,
+							 Set<HashableState> previouslyExpanded, ConcurrentHashMap<HashableState, List<ActionTransitions>> transitions,
+							 ConcurrentLinkedQueue<HashableState> next){
+			this.frontier = frontier;
+			this.start = start;
+			this.end = end;
+			this.visited = visited;
+			this.previouslyExpanded = previouslyExpanded;
+			this.transitions = transitions;
+			this.next = next;
+		}
+
+		@Override
+		protected void compute(){
+
+			if(this.end - this.start > ParallelStateReachability.this.batchSize){
+				int mid = (this.start + this.end) >>> 1;
+				invokeAll(new ExpansionTask(this.frontier, this.start, mid, this.visited, this.previouslyExpanded, this.transitions, this.next),
+						new ExpansionTask(this.frontier, mid, this.end, this.visited, this.previouslyExpanded, this.transitions, this.next));
+				return;
+			}
+
+			for(int i = this.start; i < this.end; i++){
+				this.expand(this.frontier.get(i));
+			}
+
+		}
+
+		protected void expand(HashableState sh){
+
+			if(ParallelStateReachability.this.tf.isTerminal(sh.s)){
+				return; //don't expand
+			}
+
+			List<GroundedAction> gas = Action.getAllApplicableGroundedActionsFromActionList(ParallelStateReachability.this.actions, sh.s);
+			List<ActionTransitions> allTransitions = new ArrayList<ActionTransitions>(gas.size());
+			for(GroundedAction ga : gas){
+				ActionTransitions at = new ActionTransitions(sh.s, ga, ParallelStateReachability.this.hashingFactory);
+				allTransitions.add(at);
+				for(HashedTransitionProbability tp : at.transitions){
+					if(!this.previouslyExpanded.contains(tp.sh) && this.visited.putIfAbsent(tp.sh, Boolean.TRUE) == null){
+						this.next.add(tp.sh);
+					}
+				}
+			}
+
+			if(this.transitions != null){
+				this.transitions.put(sh, allTransitions);
+			}
+
+		}
+
+	}
+
+}
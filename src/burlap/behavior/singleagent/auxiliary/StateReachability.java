@@ -126,4 +126,23 @@ public class StateReachability {
 		
 		return hashedStates;
 	}
+	
+	
+	/**
+	 * Returns the set of {@link burlap.oomdp.core.states.State} objects that are reachable from a source state, using a
+	 * frontier-parallel breadth-first search (see {@link ParallelStateReachability}). The domain's actions, the terminal function, and
+	 * the hashing factory must be safe to call from multiple threads.
+	 * @param from the source state
+	 * @param inDomain the domain of the state
+	 * @param usingHashFactory the state hashing factory to use for indexing states and testing equality.
+	 * @param tf a terminal function that prevents expansion from terminal states.
+	 * @param parallelism the number of worker threads to use
+	 * @return the set of {@link burlap.oomdp.core.states.State} objects that are reachable from a source state.
+	 */
+	public static Set <HashableState> getReachableHashedStates(State from, SADomain inDomain, HashableStateFactory usingHashFactory, TerminalFunction tf, int parallelism){
+		ParallelStateReachability reachability = new ParallelStateReachability(inDomain.getActions(), usingHashFactory, tf, parallelism);
+		Set <HashableState> hashedStates = reachability.getReachableHashedStates(from);
+		reachability.shutdown();
+		return hashedStates;
+	}
 }
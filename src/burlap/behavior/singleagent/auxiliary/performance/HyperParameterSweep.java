@@ -0,0 +1,604 @@
+package burlap.behavior.singleagent.auxiliary.performance;
+
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Runs a learning agent for every configuration of a grid of hyper-parameters: learning rates, discount factors, exploration epsilons and
+ * Q-value initializations ({@link burlap.behavior.valuefunction.ValueFunctionInitialization}). The agent of each configuration is generated by a
+ * {@link burlap.behavior.singleagent.auxiliary.performance.HyperParameterSweep.ConfigurationAgentFactory}, is given its own seeded {@link java.util.Random}
+ * and learns in its own {@link burlap.oomdp.singleagent.environment.Environment} generated by an {@link burlap.oomdp.singleagent.environment.EnvironmentFactory},
+ * so configurations can be run concurrently by a pool of worker threads (see {@link #setParallelism(int)}).
+ * <p/>
+ * Each configuration is run for the largest of the episode budgets set with {@link #setEpisodeBudgets(int...)}, and a {@link burlap.behavior.singleagent.auxiliary.performance.HyperParameterSweep.Result}
+ * is recorded each time the number of completed episodes reaches a budget, so a single run of a configuration yields the results of every budget.
+ * When a configuration completes, its results are appended to the csv file given to {@link #run(String)} and flushed, so the file is a checkpoint
+ * of all completed configurations. If the sweep is interrupted, running it again with the same grid and csv file will skip the configurations
+ * whose results are already in the file.
+ * <p/>
+ * Configurations are numbered in grid order, with the learning rate varying slowest and the Q-value initialization varying fastest, and the seed
+ * of configuration i is the sweep seed plus i. Each configuration also runs in its own {@link burlap.debugtools.RandomFactory.StreamContext} for the
+ * sweep seed and configuration number, so results do not depend on the number of threads as long as the agents and environments only
+ * use the random generator they are given or the random streams of {@link burlap.debugtools.RandomFactory}. Rows are written in completion order; the first column of each row is the configuration number.
+ * @author James MacGlashan
+ *
+ */
+public class HyperParameterSweep {
+
+	/**
+	 * The header of the csv file of results
+	 */
+	public static final String CSVHEADER = "configuration,learningRate,gamma,epsilon,qInit,seed,episodes,lastEpisodeReward,lastEpisodeSteps,averageEpisodeReward,totalSteps,milliseconds";
+
+
+	/**
+	 * The factory that generates the environment of each configuration
+	 */
+	protected EnvironmentFactory				environmentFactory;
+
+	/**
+	 * The factory that generates the agent of each configuration
+	 */
+	protected ConfigurationAgentFactory			agentFactory;
+
+	protected double []							learningRates = new double[]{0.1};
+	protected double []							gammas = new double[]{0.99};
+	protected double []							epsilons = new double[]{0.1};
+	protected List<String>						qInitNames = new ArrayList<String>();
+	protected List<ValueFunctionInitialization>	qInits = new ArrayList<ValueFunctionInitialization>();
+
+	/**
+	 * The numbers of episodes after which results are recorded, in increasing order
+	 */
+	protected int []							episodeBudgets = new int[]{100};
+
+	/**
+	 * The maximum number of steps of an episode; -1 for no maximum
+	 */
+	protected int								maxEpisodeSteps = -1;
+
+	/**
+	 * The seed of the first configuration
+	 */
+	protected long								seed = 0;
+
+	/**
+	 * The number of configurations run concurrently
+	 */
+	protected int								parallelism = 1;
+
+	/**
+	 * The debug code used for printing progress.
+	 */
+	protected int								debugCode = 46384;
+
+
+
+	/**
+	 * Initializes.
+	 * @param environmentFactory the factory that generates the environment of each configuration
+	 * @param agentFactory the factory that generates the agent of each configuration
+	 */
+	public HyperParameterSweep(EnvironmentFactory environmentFactory, ConfigurationAgentFactory agentFactory){
+		this.environmentFactory = environmentFactory;
+		this.agentFactory = agentFactory;
+	}
+
+
+	/**
+	 * Sets the learning rates of the grid. The default is 0.1.
+	 * @param learningRates the learning rates of the grid
+	 */
+	public void setLearningRates(double...learningRates){
+		this.learningRates = learningRates.clone();
+	}
+
+	/**
+	 * Sets the discount factors of the grid. The default is 0.99.
+	 * @param gammas the discount factors of the grid
+	 */
+	public void setGammas(double...gammas){
+		this.gammas = gammas.clone();
+	}
+
+	/**
+	 * Sets the exploration epsilons of the grid. The default is 0.1.
+	 * @param epsilons the exploration epsilons of the grid
+	 */
+	public void setEpsilons(double...epsilons){
+		this.epsilons = epsilons.clone();
+	}
+
+	/**
+	 * Adds a Q-value initialization to the grid. If none are added, a constant initialization of 0, named "0", is used.
+	 * @param name the name of the initialization used in the results; may not contain commas
+	 * @param qInit the Q-value initialization
+	 */
+	public void addQInitialization(String name, ValueFunctionInitialization qInit){
+		if(name.contains(",")){
+			throw new RuntimeException("Q-value initialization names may not contain commas: " + name);
+		}
+		this.qInitNames.add(name);
+		this.qInits.add(qInit);
+	}
+
+	/**
+	 * Sets the numbers of episodes after which the results of a configuration are recorded. Each configuration is run for the largest budget.
+	 * The default is a single budget of 100 episodes.
+	 * @param episodeBudgets the numbers of episodes after which results are recorded
+	 */
+	public void setEpisodeBudgets(int...episodeBudgets){
+		if(episodeBudgets.length == 0){
+			throw new RuntimeException("At least one episode budget is required.");
+		}
+		this.episodeBudgets = episodeBudgets.clone();
+		Arrays.sort(this.episodeBudgets);
+	}
+
+	/**
+	 * Sets the maximum number of steps of an episode. The default is -1, for no maximum.
+	 * @param maxEpisodeSteps the maximum number of steps of an episode; -1 for no maximum.
+	 */
+	public void setMaxEpisodeSteps(int maxEpisodeSteps){
+		this.maxEpisodeSteps = maxEpisodeSteps;
+	}
+
+	/**
+	 * Sets the seed of the first configuration; configuration i uses the seed plus i. The default is 0.
+	 * @param seed the seed of the first configuration
+	 */
+	public void setSeed(long seed){
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of configurations that are run concurrently. The default is 1.
+	 * @param parallelism the number of configurations that are run concurrently
+	 */
+	public void setParallelism(int parallelism){
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Returns the debug code used for printing progress.
+	 * @return the debug code used for printing progress.
+	 */
+	public int getDebugCode(){
+		return this.debugCode;
+	}
+
+	/**
+	 * Sets the debug code used for printing progress.
+	 * @param debugCode the debug code used for printing progress.
+	 */
+	public void setDebugCode(int debugCode){
+		this.debugCode = debugCode;
+	}
+
+
+	/**
+	 * Returns all configurations of the grid, in grid order.
+	 * @return all configurations of the grid, in grid order.
+	 */
+	public List<Configuration> getConfigurations(){
+
+		List<String> names = this.qInitNames;
+		List<ValueFunctionInitialization> inits = this.qInits;
+		if(names.isEmpty()){
+			names = Arrays.asList("0");
+			inits = Arrays.<ValueFunctionInitialization>asList(new ValueFunctionInitialization.ConstantValueFunctionInitialization(0.));
+		}
+
+		List<Configuration> configurations = new ArrayList<Configuration>();
+		for(double learningRate : this.learningRates){
+			for(double gamma : this.gammas){
+				for(double epsilon : this.epsilons){
+					for(int q = 0; q < names.size(); q++){
+						int index = configurations.size();
+						configurations.add(new Configuration(index, learningRate, gamma, epsilon, names.get(q), inits.get(q), this.seed + index));
+					}
+				}
+			}
+		}
+
+		return configurations;
+	}
+
+
+	/**
+	 * Runs every configuration of the grid whose results are not already in the csv file, appending the results of each configuration
+	 * to the csv file when it completes.
+	 * @param csvPath the path of the csv file of results, which is created if it does not exist
+	 * @return the results of all configurations, including those read from the csv file, ordered by configuration and episode budget.
+	 */
+	public List<Result> run(String csvPath){
+
+		final List<Configuration> configurations = this.getConfigurations();
+		Map<Integer, List<Result>> completed = this.readCheckpoint(csvPath, configurations);
+
+		List<Configuration> pending = new ArrayList<Configuration>();
+		for(Configuration c : configurations){
+			if(!completed.containsKey(c.index)){
+				pending.add(c);
+			}
+		}
+		DPrint.cf(this.debugCode, "Running %d of %d configurations.\n", pending.size(), configurations.size());
+
+		final PrintWriter out = this.openCSV(csvPath, completed, configurations);
+		final int [] numCompleted = new int[]{completed.size()};
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, Math.max(1, pending.size())));
+		try{
+
+			List<Future<List<Result>>> futures = new ArrayList<Future<List<Result>>>(pending.size());
+			for(final Configuration c : pending){
+				futures.add(executor.submit(new Callable<List<Result>>() {
+					@Override
+					public List<Result> call() throws Exception {
+						List<Result> results = HyperParameterSweep.this.runConfiguration(c);
+						synchronized(out){
+							for(Result r : results){
+								out.println(r.toCSVRow());
+							}
+							out.flush();
+							numCompleted[0]++;
+							DPrint.cf(HyperParameterSweep.this.debugCode, "Completed configuration %d/%d: %s\n", numCompleted[0], configurations.size(), c);
+						}
+						return results;
+					}
+				}));
+			}
+
+			for(int i = 0; i < pending.size(); i++){
+				completed.put(pending.get(i).index, futures.get(i).get());
+			}
+
+		} catch(InterruptedException e){
+			throw new RuntimeException("Interrupted while waiting for configurations to complete.", e);
+		} catch(ExecutionException e){
+			throw new RuntimeException("A configuration failed.", e.getCause());
+		} finally{
+			executor.shutdownNow();
+			out.close();
+		}
+
+		List<Result> all = new ArrayList<Result>();
+		for(Configuration c : configurations){
+			all.addAll(completed.get(c.index));
+		}
+
+		return all;
+	}
+
+
+	/**
+	 * Runs a single configuration for the largest episode budget.
+	 * @param c the configuration
+	 * @return the results of each episode budget
+	 */
+	protected List<Result> runConfiguration(Configuration c){
+		//domain and policy randomness drawn from RandomFactory streams is determined by the sweep seed and configuration number
+		RandomFactory.StreamContext threadContext = RandomFactory.seedThread(this.seed, c.index);
+		try{
+			Environment env = this.environmentFactory.generateEnvironment();
+			LearningAgent agent = this.agentFactory.generateAgent(c, new Random(c.seed));
+
+			List<Result> results = new ArrayList<Result>(this.episodeBudgets.length);
+			long start = System.nanoTime();
+			double rewardSum = 0.;
+			long totalSteps = 0;
+			int nextBudget = 0;
+			int maxEpisodes = this.episodeBudgets[this.episodeBudgets.length-1];
+			for(int e = 1; e <= maxEpisodes; e++){
+
+				EpisodeAnalysis ea = agent.runLearningEpisode(env, this.maxEpisodeSteps);
+				env.resetEnvironment();
+
+				double reward = 0.;
+				for(double r : ea.rewardSequence){
+					reward += r;
+				}
+				rewardSum += reward;
+				totalSteps += ea.maxTimeStep();
+
+				while(nextBudget < this.episodeBudgets.length && this.episodeBudgets[nextBudget] == e){
+					results.add(new Result(c, e, reward, ea.maxTimeStep(), rewardSum / e, totalSteps, (System.nanoTime() - start) / 1000000));
+					nextBudget++;
+				}
+
+			}
+
+			return results;
+		} finally{
+			RandomFactory.setThreadContext(threadContext);
+		}
+	}
+
+
+	/**
+	 * Reads the results of the configurations that were completed in a previous run of the sweep.
+	 * @param csvPath the path of the csv file of results
+	 * @param configurations the configurations of the grid
+	 * @return a map from configuration number to results for each configuration whose results are all in the file
+	 */
+	protected Map<Integer, List<Result>> readCheckpoint(String csvPath, List<Configuration> configurations){
+
+		Map<Integer, List<Result>> results = new HashMap<Integer, List<Result>>();
+		File file = new File(csvPath);
+		if(!file.exists()){
+			return results;
+		}
+
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8")));
+			try {
+				String header = in.readLine();
+				if(header == null){
+					return results;
+				}
+				if(!header.equals(CSVHEADER)){
+					throw new RuntimeException("The existing file " + csvPath + " is not a hyper-parameter sweep results file.");
+				}
+				String line;
+				while((line = in.readLine()) != null){
+					if(line.isEmpty()){
+						continue;
+					}
+					String [] comps = line.split(",");
+					int index = Integer.parseInt(comps[0]);
+					if(index >= configurations.size() || comps.length != 12){
+						throw new RuntimeException("The existing file " + csvPath + " is from a different hyper-parameter grid.");
+					}
+					Configuration c = configurations.get(index);
+					if(!line.startsWith(c.toCSVPrefix() + ",")){
+						throw new RuntimeException("The existing file " + csvPath + " is from a different hyper-parameter grid.");
+					}
+					List<Result> configResults = results.get(index);
+					if(configResults == null){
+						configResults = new ArrayList<Result>();
+						results.put(index, configResults);
+					}
+					configResults.add(new Result(c, Integer.parseInt(comps[6]), Double.parseDouble(comps[7]), Integer.parseInt(comps[8]),
+							Double.parseDouble(comps[9]), Long.parseLong(comps[10]), Long.parseLong(comps[11])));
+				}
+			} finally {
+				in.close();
+			}
+		} catch(IOException e) {
+			throw new RuntimeException("Could not read the existing file " + csvPath, e);
+		}
+
+		//only keep configurations with the results of every budget
+		List<Integer> incomplete = new ArrayList<Integer>();
+		for(Map.Entry<Integer, List<Result>> e : results.entrySet()){
+			List<Result> configResults = e.getValue();
+			boolean complete = configResults.size() == this.episodeBudgets.length;
+			for(int i = 0; complete && i < this.episodeBudgets.length; i++){
+				complete = configResults.get(i).episodes == this.episodeBudgets[i];
+			}
+			if(!complete){
+				incomplete.add(e.getKey());
+			}
+		}
+		for(Integer i : incomplete){
+			results.remove(i);
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Creates the csv file of results, containing the header and the rows of the given completed configurations, and returns a writer
+	 * for appending further rows.
+	 * @param csvPath the path of the csv file of results
+	 * @param completed the results of the completed configurations
+	 * @param configurations the configurations of the grid
+	 * @return a writer for appending further rows
+	 */
+	protected PrintWriter openCSV(String csvPath, Map<Integer, List<Result>> completed, List<Configuration> configurations){
+		try {
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvPath), Charset.forName("UTF-8"))));
+			out.println(CSVHEADER);
+			for(Configuration c : configurations){
+				List<Result> results = completed.get(c.index);
+				if(results != null){
+					for(Result r : results){
+						out.println(r.toCSVRow());
+					}
+				}
+			}
+			out.flush();
+			return out;
+		} catch(FileNotFoundException e) {
+			throw new RuntimeException("Could not write to " + csvPath, e);
+		}
+	}
+
+
+
+	/**
+	 * A factory that generates the learning agent of a hyper-parameter configuration.
+	 */
+	public interface ConfigurationAgentFactory {
+
+		/**
+		 * Generates a new learning agent for the given configuration. The agent should use the given random generator for any
+		 * randomness, such as exploration, so that configurations are reproducible.
+		 * @param configuration the hyper-parameter configuration
+		 * @param rand the random generator of the configuration
+		 * @return a new learning agent
+		 */
+		LearningAgent generateAgent(Configuration configuration, Random rand);
+
+	}
+
+
+	/**
+	 * A configuration of the hyper-parameter grid.
+	 */
+	public static class Configuration {
+
+		protected int							index;
+		protected double						learningRate;
+		protected double						gamma;
+		protected double						epsilon;
+		protected String						qInitName;
+		protected ValueFunctionInitialization	qInit;
+		protected long							seed;
+
+		public Configuration(int index, double learningRate, double gamma, double epsilon, String qInitName, ValueFunctionInitialization qInit, long seed){
+			this.index = index;
+			this.learningRate = learningRate;
+			this.gamma = gamma;
+			this.epsilon = epsilon;
+			this.qInitName = qInitName;
+			this.qInit = qInit;
+			this.seed = seed;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getLearningRate() {
+			return learningRate;
+		}
+
+		public double getGamma() {
+			return gamma;
+		}
+
+		public double getEpsilon() {
+			return epsilon;
+		}
+
+		public String getQInitName() {
+			return qInitName;
+		}
+
+		public ValueFunctionInitialization getQInit() {
+			return qInit;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		protected String toCSVPrefix(){
+			return this.index + "," + this.learningRate + "," + this.gamma + "," + this.epsilon + "," + this.qInitName + "," + this.seed;
+		}
+
+		@Override
+		public String toString() {
+			return "learningRate=" + this.learningRate + ", gamma=" + this.gamma + ", epsilon=" + this.epsilon + ", qInit=" + this.qInitName;
+		}
+	}
+
+
+	/**
+	 * The results of a configuration after an episode budget.
+	 */
+	public static class Result {
+
+		protected Configuration		configuration;
+		protected int				episodes;
+		protected double			lastEpisodeReward;
+		protected int				lastEpisodeSteps;
+		protected double			averageEpisodeReward;
+		protected long				totalSteps;
+		protected long				milliseconds;
+
+		public Result(Configuration configuration, int episodes, double lastEpisodeReward, int lastEpisodeSteps, double averageEpisodeReward, long totalSteps, long milliseconds){
+			this.configuration = configuration;
+			this.episodes = episodes;
+			this.lastEpisodeReward = lastEpisodeReward;
+			this.lastEpisodeSteps = lastEpisodeSteps;
+			this.averageEpisodeReward = averageEpisodeReward;
+			this.totalSteps = totalSteps;
+			this.milliseconds = milliseconds;
+		}
+
+		/**
+		 * Returns the configuration of this result.
+		 * @return the configuration of this result.
+		 */
+		public Configuration getConfiguration() {
+			return configuration;
+		}
+
+		/**
+		 * Returns the number of episodes the agent had learned for.
+		 * @return the number of episodes the agent had learned for.
+		 */
+		public int getEpisodes() {
+			return episodes;
+		}
+
+		/**
+		 * Returns the cumulative reward of the last episode.
+		 * @return the cumulative reward of the last episode.
+		 */
+		public double getLastEpisodeReward() {
+			return lastEpisodeReward;
+		}
+
+		/**
+		 * Returns the number of steps of the last episode.
+		 * @return the number of steps of the last episode.
+		 */
+		public int getLastEpisodeSteps() {
+			return lastEpisodeSteps;
+		}
+
+		/**
+		 * Returns the average cumulative reward of all episodes.
+		 * @return the average cumulative reward of all episodes.
+		 */
+		public double getAverageEpisodeReward() {
+			return averageEpisodeReward;
+		}
+
+		/**
+		 * Returns the total number of steps of all episodes.
+		 * @return the total number of steps of all episodes.
+		 */
+		public long getTotalSteps() {
+			return totalSteps;
+		}
+
+		/**
+		 * Returns the time, in milliseconds, the configuration took to learn for the number of episodes.
+		 * @return the time, in milliseconds, the configuration took to learn for the number of episodes.
+		 */
+		public long getMilliseconds() {
+			return milliseconds;
+		}
+
+		protected String toCSVRow(){
+			return this.configuration.toCSVPrefix() + "," + this.episodes + "," + this.lastEpisodeReward + "," + this.lastEpisodeSteps + ","
+					+ this.averageEpisodeReward + "," + this.totalSteps + "," + this.milliseconds;
+		}
+	}
+
+}
@@ -4,11 +4,22 @@ import burlap.behavior.singleagent.EpisodeAnalysis;
 import burlap.behavior.singleagent.learning.LearningAgent;
 import burlap.behavior.singleagent.learning.LearningAgentFactory;
 import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
 import burlap.oomdp.auxiliary.StateGenerator;
 import burlap.oomdp.singleagent.RewardFunction;
 import burlap.oomdp.singleagent.SADomain;
 import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentFactory;
 import burlap.oomdp.singleagent.environment.EnvironmentServer;
+import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -32,6 +43,17 @@ import burlap.oomdp.singleagent.environment.EnvironmentServer;
  * By default the cumulative reward per step will be plotted and if more than one trial is specified, the both the most recent trail and the trial average plot will be shown.
  * If only one trial is specified, then only the most recent trial plot will be shown. To control the kinds of plots displayed use the 
  * {@link #setUpPlottingConfiguration(int, int, int, int, TrialMode, PerformanceMetric...)} method. 
+ * <p/>
+ * Trials may be run concurrently by setting the number of threads with {@link #setTrialParallelism(int)}. In that case each trial interacts
+ * with its own {@link burlap.oomdp.singleagent.environment.Environment}, generated by an {@link burlap.oomdp.singleagent.environment.EnvironmentFactory}
+ * set with {@link #setEnvironmentFactory(burlap.oomdp.singleagent.environment.EnvironmentFactory)}. If no factory is set and the test environment is
+ * a {@link burlap.oomdp.singleagent.environment.SimulatedEnvironment}, each trial uses a new {@link burlap.oomdp.singleagent.environment.SimulatedEnvironment}
+ * with the same domain, reward function, terminal function and state generator. The data of each trial is recorded independently and given to the
+ * {@link PerformancePlotter} in trial order once the trial completes, so the plots and csv files have the same layout as a sequential experiment.
+ * The agent factories must be safe to call from multiple threads and the agents they generate must not share mutable state.
+ * <p/>
+ * For long or headless experiments, results can instead be collected with a {@link StreamingPerformanceAggregator}, set up with
+ * {@link #setUpStreamingAggregation(String, int, int)}, which keeps only running trial statistics in memory and spills the data of each trial to disk.
  * 
  * @author James MacGlashan
  *
@@ -80,6 +102,18 @@ public class LearningAlgorithmExperimenter {
 	 * The PerformancePlotter used to collect and plot results
 	 */
 	protected PerformancePlotter		plotter = null;
+
+
+	/**
+	 * The headless aggregator used to collect results instead of a {@link PerformancePlotter}, if set up with {@link #setUpStreamingAggregation(String, int, int)}
+	 */
+	protected StreamingPerformanceAggregator	aggregator = null;
+
+
+	/**
+	 * The collector of results used by the running experiment; either the plotter or the streaming aggregator
+	 */
+	protected PerformanceDataCollector	dataCollector = null;
 	
 	
 	/**
@@ -106,6 +140,25 @@ public class LearningAlgorithmExperimenter {
 	protected boolean					completedExperiment = false;
 	
 	
+	/**
+	 * The number of threads used to run trials. If 1 (the default), trials are run sequentially in the test environment.
+	 */
+	protected int						trialParallelism = 1;
+
+
+	/**
+	 * The factory used to generate the environment of each trial when trials are run concurrently. If null, copies of the test
+	 * environment are used, which requires it to be a {@link burlap.oomdp.singleagent.environment.SimulatedEnvironment}.
+	 */
+	protected EnvironmentFactory		environmentFactory = null;
+
+
+	/**
+	 * The experiment seed of the random streams of each trial. If null, trials draw from the streams of the thread that runs them.
+	 */
+	protected Long						randomStreamSeed = null;
+	
+	
 	/**
 	 * The debug code used for debug printing. This experimenter will print with the debugger the number of trials completed for each agent.
 	 */
@@ -182,6 +235,45 @@ public class LearningAlgorithmExperimenter {
 		if(this.plotter != null){
 			this.plotter.setSignificanceForCI(significance);
 		}
+		if(this.aggregator != null){
+			this.aggregator.setSignificanceForCI(significance);
+		}
+	}
+
+
+	/**
+	 * Sets up the experiment to collect results with a headless {@link burlap.behavior.singleagent.auxiliary.performance.StreamingPerformanceAggregator}
+	 * instead of a {@link PerformancePlotter}, so that no display is needed and memory does not grow with the length of the experiment.
+	 * Every step and episode is averaged separately.
+	 * Trial data is spilled to the given directory, from which csv files can be written after the experiment. Visual plots are disabled.
+	 * @param spillDirectory the directory to which trial data is spilled
+	 */
+	public void setUpStreamingAggregation(String spillDirectory){
+		this.setUpStreamingAggregation(spillDirectory, 1, 1);
+	}
+
+
+	/**
+	 * Sets up the experiment to collect results with a headless {@link burlap.behavior.singleagent.auxiliary.performance.StreamingPerformanceAggregator}
+	 * instead of a {@link PerformancePlotter}, so that no display is needed and memory does not grow with the length of the experiment.
+	 * Trial data is spilled to the given directory, from which csv files can be written after the experiment. Visual plots are disabled.
+	 * @param spillDirectory the directory to which trial data is spilled
+	 * @param stepBucketSize the number of consecutive steps averaged together in the step-wise statistics
+	 * @param episodeBucketSize the number of consecutive episodes averaged together in the episode-wise statistics
+	 */
+	public void setUpStreamingAggregation(String spillDirectory, int stepBucketSize, int episodeBucketSize){
+		this.aggregator = new StreamingPerformanceAggregator(this.agentFactories[0].getAgentName(), spillDirectory, stepBucketSize, episodeBucketSize);
+		this.aggregator.setSignificanceForCI(this.plotCISignificance);
+		this.displayPlots = false;
+	}
+
+
+	/**
+	 * Returns the streaming aggregator of this experiment, or null if it was not set up with {@link #setUpStreamingAggregation(String, int, int)}.
+	 * @return the streaming aggregator of this experiment, or null if there is none.
+	 */
+	public StreamingPerformanceAggregator getStreamingAggregator(){
+		return this.aggregator;
 	}
 	
 	
@@ -203,6 +295,41 @@ public class LearningAlgorithmExperimenter {
 	}
 	
 	
+	/**
+	 * Sets the number of threads used to run trials. If greater than 1, the trials of all agents are run concurrently, each in its own
+	 * {@link burlap.oomdp.singleagent.environment.Environment}; see {@link #setEnvironmentFactory(burlap.oomdp.singleagent.environment.EnvironmentFactory)}.
+	 * @param nThreads the number of threads used to run trials; 1 runs trials sequentially in the test environment.
+	 */
+	public void setTrialParallelism(int nThreads){
+		if(nThreads < 1){
+			throw new RuntimeException("Trial parallelism must be at least 1; received " + nThreads);
+		}
+		this.trialParallelism = nThreads;
+	}
+
+
+	/**
+	 * Sets the factory used to generate the {@link burlap.oomdp.singleagent.environment.Environment} of each trial when trials are run concurrently.
+	 * It is not needed if the test environment is a {@link burlap.oomdp.singleagent.environment.SimulatedEnvironment}.
+	 * @param environmentFactory the factory generating a new environment for each trial.
+	 */
+	public void setEnvironmentFactory(EnvironmentFactory environmentFactory){
+		this.environmentFactory = environmentFactory;
+	}
+	
+	
+	/**
+	 * Sets the experiment seed of the random streams of each trial. When set, every trial, including the generation of its agent,
+	 * runs in its own {@link burlap.debugtools.RandomFactory.StreamContext} for this seed and the trial index, so the domain and
+	 * policy randomness drawn from {@link burlap.debugtools.RandomFactory} streams is the same whether trials are run sequentially
+	 * or concurrently. The i-th trial of every agent uses the same streams.
+	 * @param seed the experiment seed of the random streams of each trial
+	 */
+	public void setRandomStreamSeed(long seed){
+		this.randomStreamSeed = seed;
+	}
+
+
 	/**
 	 * Starts the experiment and runs all trails for all agents.
 	 */
@@ -213,29 +340,45 @@ public class LearningAlgorithmExperimenter {
 			return;
 		}
 		
-		if(this.plotter == null){
+		if(this.aggregator != null){
+			this.dataCollector = this.aggregator;
+		}
+		else{
+			
+			if(this.plotter == null){
+				
+				TrialMode trialMode = TrialMode.MOSTRECENTANDAVERAGE;
+				if(this.nTrials == 1){
+					trialMode = TrialMode.MOSTRECENTTTRIALONLY;
+				}
+				
+				this.plotter = new PerformancePlotter(this.agentFactories[0].getAgentName(), 500, 250, 2, 500, trialMode);
+					
+			}
+			
 			
-			TrialMode trialMode = TrialMode.MOSTRECENTANDAVERAGE;
-			if(this.nTrials == 1){
-				trialMode = TrialMode.MOSTRECENTTTRIALONLY;
+			if(this.displayPlots){
+				this.plotter.startGUI();
 			}
 			
-			this.plotter = new PerformancePlotter(this.agentFactories[0].getAgentName(), 500, 250, 2, 500, trialMode);
-				
+			this.dataCollector = this.plotter;
+			
+		}
+
+		if(this.trialParallelism > 1){
+			this.runTrialsConcurrently();
+			this.dataCollector.endAllAgents();
+			this.completedExperiment = true;
+			return;
 		}
-		
 		
 		//this.domain.addActionObserverForAllAction(plotter);
-		this.environmentSever = new EnvironmentServer(this.testEnvironment, plotter);
-		
-		if(this.displayPlots){
-			this.plotter.startGUI();
-		}
+		this.environmentSever = new EnvironmentServer(this.testEnvironment, this.dataCollector);
 		
 		for(int i = 0; i < this.agentFactories.length; i++){
 			
 			if(i > 0){
-				this.plotter.startNewAgent(this.agentFactories[i].getAgentName());
+				this.dataCollector.startNewAgent(this.agentFactories[i].getAgentName());
 			}
 
 			if(this.testEnvironment instanceof ExperimentalEnvironment){
@@ -243,19 +386,24 @@ public class LearningAlgorithmExperimenter {
 			}
 			for(int j = 0; j < this.nTrials; j++){
 				
-				DPrint.cl(this.debugCode, "Beginning " + this.agentFactories[i].getAgentName() + " trial " + (j+1) + "/" + this.nTrials);
+				DPrint.cf(this.debugCode, "Beginning %s trial %d/%d\n", this.agentFactories[i].getAgentName(), j+1, this.nTrials);
 				
-				if(this.trialLengthIsInEpisodes){
-					this.runEpisodeBoundTrial(this.agentFactories[i]);
-				}
-				else{
-					this.runStepBoundTrial(this.agentFactories[i]);
+				RandomFactory.StreamContext threadContext = this.enterTrialStreams(j);
+				try{
+					if(this.trialLengthIsInEpisodes){
+						this.runEpisodeBoundTrial(this.agentFactories[i]);
+					}
+					else{
+						this.runStepBoundTrial(this.agentFactories[i]);
+					}
+				} finally{
+					this.exitTrialStreams(threadContext);
 				}
 			}
 			
 		}
 		
-		this.plotter.endAllAgents();
+		this.dataCollector.endAllAgents();
 		
 		this.completedExperiment = true;
 		
@@ -274,7 +422,7 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
-		this.plotter.writeStepAndEpisodeDataToCSV(pathAndBaseNameToUse);
+		this.dataCollector.writeStepAndEpisodeDataToCSV(pathAndBaseNameToUse);
 	}
 	
 	
@@ -289,7 +437,7 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
-		this.plotter.writeStepDataToCSV(filePath);
+		this.dataCollector.writeStepDataToCSV(filePath);
 	}
 	
 	
@@ -304,7 +452,7 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
-		this.plotter.writeEpisodeDataToCSV(filePath);
+		this.dataCollector.writeEpisodeDataToCSV(filePath);
 	}
 	
 	
@@ -317,21 +465,21 @@ public class LearningAlgorithmExperimenter {
 		
 		//temporarily disable plotter data collection to avoid possible contamination for any actions taken by the agent generation
 		//(e.g., if there is pre-test training)
-		this.plotter.toggleDataCollection(false);
+		this.dataCollector.toggleDataCollection(false);
 
 		LearningAgent agent = agentFactory.generateAgent();
 		
-		this.plotter.toggleDataCollection(true); //turn it back on to begin
+		this.dataCollector.toggleDataCollection(true); //turn it back on to begin
 		
-		this.plotter.startNewTrial();
+		this.dataCollector.startNewTrial();
 		
 		for(int i = 0; i < this.trialLength; i++){
 			agent.runLearningEpisode(this.environmentSever);
-			this.plotter.endEpisode();
+			this.dataCollector.endEpisode();
 			this.environmentSever.resetEnvironment();
 		}
 		
-		this.plotter.endTrial();
+		this.dataCollector.endTrial();
 		
 	}
 	
@@ -344,26 +492,166 @@ public class LearningAlgorithmExperimenter {
 		
 		//temporarily disable plotter data collection to avoid possible contamination for any actions taken by the agent generation
 		//(e.g., if there is pre-test training)
-		this.plotter.toggleDataCollection(false);
+		this.dataCollector.toggleDataCollection(false);
 		
 		LearningAgent agent = agentFactory.generateAgent();
 		
-		this.plotter.toggleDataCollection(true); //turn it back on to begin
+		this.dataCollector.toggleDataCollection(true); //turn it back on to begin
 		
-		this.plotter.startNewTrial();
+		this.dataCollector.startNewTrial();
 		
 		int stepsRemaining = this.trialLength;
 		while(stepsRemaining > 0){
 			EpisodeAnalysis ea = agent.runLearningEpisode(this.environmentSever, stepsRemaining);
 			stepsRemaining -= ea.numTimeSteps()-1; //-1  because we want to subtract the number of actions, not the number of states seen
-			this.plotter.endEpisode();
+			this.dataCollector.endEpisode();
 			this.environmentSever.resetEnvironment();
 		}
 		
-		this.plotter.endTrial();
+		this.dataCollector.endTrial();
 		
 	}
 	
 	
 	
+	/**
+	 * Runs the trials of all agents concurrently with {@link #trialParallelism} threads and gives the data of each completed trial to the
+	 * plotter in agent and trial order.
+	 */
+	protected void runTrialsConcurrently(){
+
+		final EnvironmentFactory envFactory = this.trialEnvironmentFactory();
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.trialParallelism);
+		List<List<Future<PerformanceDataCollector.TrialRecorder>>> results = new ArrayList<List<Future<PerformanceDataCollector.TrialRecorder>>>(this.agentFactories.length);
+		try{
+
+			for(int i = 0; i < this.agentFactories.length; i++){
+				final LearningAgentFactory agentFactory = this.agentFactories[i];
+				List<Future<PerformanceDataCollector.TrialRecorder>> agentResults = new ArrayList<Future<PerformanceDataCollector.TrialRecorder>>(this.nTrials);
+				for(int j = 0; j < this.nTrials; j++){
+					final int trial = j;
+					agentResults.add(executor.submit(new Callable<PerformanceDataCollector.TrialRecorder>() {
+						@Override
+						public PerformanceDataCollector.TrialRecorder call() throws Exception {
+							DPrint.cf(LearningAlgorithmExperimenter.this.debugCode, "Beginning %s trial %d/%d\n", agentFactory.getAgentName(), trial+1, LearningAlgorithmExperimenter.this.nTrials);
+							RandomFactory.StreamContext threadContext = LearningAlgorithmExperimenter.this.enterTrialStreams(trial);
+							try{
+								return LearningAlgorithmExperimenter.this.runIndependentTrial(agentFactory, envFactory.generateEnvironment(),
+										LearningAlgorithmExperimenter.this.dataCollector.newTrialRecorder(agentFactory.getAgentName()));
+							} finally{
+								LearningAlgorithmExperimenter.this.exitTrialStreams(threadContext);
+							}
+						}
+					}));
+				}
+				results.add(agentResults);
+			}
+
+			for(int i = 0; i < this.agentFactories.length; i++){
+				if(i > 0){
+					this.dataCollector.startNewAgent(this.agentFactories[i].getAgentName());
+				}
+				for(Future<PerformanceDataCollector.TrialRecorder> f : results.get(i)){
+					this.dataCollector.addCompletedTrial(f.get());
+				}
+			}
+
+		} catch(InterruptedException e){
+			throw new RuntimeException("Interrupted while waiting for experiment trials to complete.", e);
+		} catch(ExecutionException e){
+			throw new RuntimeException("An experiment trial failed.", e.getCause());
+		} finally{
+			executor.shutdownNow();
+		}
+
+	}
+
+
+	/**
+	 * Runs a single trial for an agent generated by the given factory in the given environment, recording its data with the given recorder rather
+	 * than the current trial of the data collector. Trial length is interpreted as episodes or steps according to {@link #trialLengthIsInEpisodes}.
+	 * @param agentFactory the agent factory used to generate the agent to test.
+	 * @param env the environment used only by this trial
+	 * @param recorder the recorder of the trial's data
+	 * @return the recorder of the trial's data.
+	 */
+	protected PerformanceDataCollector.TrialRecorder runIndependentTrial(LearningAgentFactory agentFactory, Environment env, PerformanceDataCollector.TrialRecorder recorder){
+
+		if(env instanceof ExperimentalEnvironment){
+			((ExperimentalEnvironment)env).startNewExperiment();
+		}
+
+		//the agent is generated before the recorder is attached so that any pre-test training is not recorded
+		LearningAgent agent = agentFactory.generateAgent();
+
+		EnvironmentServer server = new EnvironmentServer(env, recorder);
+
+		if(this.trialLengthIsInEpisodes){
+			for(int i = 0; i < this.trialLength; i++){
+				agent.runLearningEpisode(server);
+				recorder.endEpisode();
+				server.resetEnvironment();
+			}
+		}
+		else{
+			int stepsRemaining = this.trialLength;
+			while(stepsRemaining > 0){
+				EpisodeAnalysis ea = agent.runLearningEpisode(server, stepsRemaining);
+				stepsRemaining -= ea.numTimeSteps()-1; //-1  because we want to subtract the number of actions, not the number of states seen
+				recorder.endEpisode();
+				server.resetEnvironment();
+			}
+		}
+
+		return recorder;
+	}
+
+
+	/**
+	 * Makes the random stream context of the given trial the context of the calling thread, if a {@link #randomStreamSeed} is set.
+	 * @param trial the index of the trial
+	 * @return the previous context of the calling thread; null if no random stream seed is set.
+	 */
+	protected RandomFactory.StreamContext enterTrialStreams(int trial){
+		if(this.randomStreamSeed == null){
+			return null;
+		}
+		return RandomFactory.seedThread(this.randomStreamSeed, trial);
+	}
+
+
+	/**
+	 * Restores the context of the calling thread returned by {@link #enterTrialStreams(int)}.
+	 * @param threadContext the previous context of the calling thread; null if no random stream seed is set.
+	 */
+	protected void exitTrialStreams(RandomFactory.StreamContext threadContext){
+		if(threadContext != null){
+			RandomFactory.setThreadContext(threadContext);
+		}
+	}
+
+
+	/**
+	 * Returns the factory used to generate the environment of each concurrently run trial.
+	 * @return the factory used to generate the environment of each concurrently run trial.
+	 */
+	protected EnvironmentFactory trialEnvironmentFactory(){
+
+		if(this.environmentFactory != null){
+			return this.environmentFactory;
+		}
+
+		if(!(this.testEnvironment instanceof SimulatedEnvironment)){
+			throw new RuntimeException("Trials can only be run concurrently in their own copy of the test environment; set an EnvironmentFactory or use a SimulatedEnvironment.");
+		}
+
+		return ((SimulatedEnvironment)this.testEnvironment).copyFactory();
+
+	}
+
+
+	
+	
+	
 }
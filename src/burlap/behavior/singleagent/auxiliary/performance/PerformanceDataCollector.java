@@ -0,0 +1,103 @@
+package burlap.behavior.singleagent.auxiliary.performance;
+
+import burlap.oomdp.singleagent.environment.EnvironmentObserver;
+
+
+/**
+ * An interface for classes that collect the performance data of learning agents over a sequence of trials, such as
+ * {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter} and
+ * {@link burlap.behavior.singleagent.auxiliary.performance.StreamingPerformanceAggregator}. Rewards are observed as an
+ * {@link burlap.oomdp.singleagent.environment.EnvironmentObserver} and the start and end of trials, episodes and agents
+ * are signaled with the methods of this interface, as is done by {@link burlap.behavior.singleagent.auxiliary.performance.LearningAlgorithmExperimenter}.
+ * <p/>
+ * Trials run concurrently in their own environments are recorded by a separate {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector.TrialRecorder}
+ * returned by {@link #newTrialRecorder(String)}, which is then given back to the collector with {@link #addCompletedTrial(burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector.TrialRecorder)}
+ * in the order in which the trials should be recorded.
+ * @author James MacGlashan
+ *
+ */
+public interface PerformanceDataCollector extends EnvironmentObserver {
+
+	/**
+	 * Toggle whether performance data observed from the environment is recorded or not
+	 * @param collectData true if observed data should be recorded; false if not.
+	 */
+	void toggleDataCollection(boolean collectData);
+
+	/**
+	 * Informs the collector that a new trial of the current agent is beginning.
+	 */
+	void startNewTrial();
+
+	/**
+	 * Informs the collector that all data for the last episode has been collected.
+	 */
+	void endEpisode();
+
+	/**
+	 * Informs the collector that all data for the current trial as been collected.
+	 */
+	void endTrial();
+
+	/**
+	 * Informs the collector that data collection for a new agent should begin.
+	 * @param agentName the name of the agent
+	 */
+	void startNewAgent(String agentName);
+
+	/**
+	 * Informs the collector that all data for all agents has been collected.
+	 */
+	void endAllAgents();
+
+	/**
+	 * Returns a new recorder for a trial of the given agent that is run independently of this collector's current trial.
+	 * This method may be called from any thread.
+	 * @param agentName the name of the agent whose trial will be recorded
+	 * @return a new {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector.TrialRecorder}
+	 */
+	TrialRecorder newTrialRecorder(String agentName);
+
+	/**
+	 * Records a completed trial of the current agent that was recorded by a recorder returned by {@link #newTrialRecorder(String)}.
+	 * @param trial the recorder of the completed trial
+	 */
+	void addCompletedTrial(TrialRecorder trial);
+
+	/**
+	 * Writes the step-wise and episode-wise data to CSV files.
+	 * The episode-wise data will be saved to the file <pathAndBaseNameToUse>Episodes.csv. The step-wise data will
+	 * be saved to the file <pathAndBaseNameToUse>Steps.csv
+	 * @param pathAndBaseNameToUse the base path and file name for the epsidoe-wise and step-wise csv files.
+	 */
+	void writeStepAndEpisodeDataToCSV(String pathAndBaseNameToUse);
+
+	/**
+	 * Writes the step-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	void writeStepDataToCSV(String filePath);
+
+	/**
+	 * Writes the episode-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	void writeEpisodeDataToCSV(String filePath);
+
+
+	/**
+	 * Records the rewards of a single trial run in its own {@link burlap.oomdp.singleagent.environment.Environment}.
+	 * Rewards are observed as an {@link burlap.oomdp.singleagent.environment.EnvironmentObserver}, regardless of whether
+	 * the collector that created it is collecting data.
+	 */
+	interface TrialRecorder extends EnvironmentObserver {
+
+		/**
+		 * Informs the recorder that all data for the last episode has been collected.
+		 */
+		void endEpisode();
+	}
+
+}
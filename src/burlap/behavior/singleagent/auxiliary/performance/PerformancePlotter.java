@@ -3,7 +3,6 @@ package burlap.behavior.singleagent.auxiliary.performance;
 import burlap.oomdp.core.states.State;
 import burlap.oomdp.singleagent.GroundedAction;
 import burlap.oomdp.singleagent.environment.Environment;
-import burlap.oomdp.singleagent.environment.EnvironmentObserver;
 import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
 import org.apache.commons.math3.distribution.TDistribution;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -56,7 +55,7 @@ import java.util.List;
  * @author James MacGlashan
  *
  */
-public class PerformancePlotter extends JFrame implements EnvironmentObserver {
+public class PerformancePlotter extends JFrame implements PerformanceDataCollector {
 
 	private static final long serialVersionUID = 1L;
 	
@@ -327,6 +326,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * Toggle whether performance data collected from the action observation is recorded or not
 	 * @param collectData true if data collected should be plotted; false if not.
 	 */
+	@Override
 	public void toggleDataCollection(boolean collectData){
 		this.collectData = collectData;
 	}
@@ -365,6 +365,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	/**
 	 * Informs the plotter that all data for the last episode has been collected.
 	 */
+	@Override
 	synchronized public void endEpisode(){
 		this.curTrial.setupForNewEpisode();
 		this.curEpisode++;
@@ -374,6 +375,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	/**
 	 * Informs the plotter that a new trial of the current agent is beginning.
 	 */
+	@Override
 	synchronized public void startNewTrial(){
 
 		if(this.curTimeStep > 0){
@@ -392,12 +394,12 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	/**
 	 * Informs the plotter that all data for the current trial as been collected.
 	 */
+	@Override
 	public void endTrial(){
 		
 
 		this.trialUpdateComplete.b = false;
 		this.updateTimeSeries();
-		this.agentTrials.get(this.curAgentName).add(curTrial);
 		
 			
 		//wait until it's updated before allowing anything else to happen
@@ -412,8 +414,43 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 			this.trialUpdateComplete.notifyAll();
 			
 		}
+
+		//record the trial after the update so that any pending agent change on the event thread has been applied
+		synchronized (this) {
+			this.agentTrials.get(this.curAgentName).add(curTrial);
+		}
 		
 	}
+
+
+	@Override
+	public TrialRecorder newTrialRecorder(String agentName){
+		return new TrialDataRecorder();
+	}
+
+
+	/**
+	 * Informs the plotter of a trial of the current agent whose data was collected elsewhere, such as by a trial run
+	 * concurrently with its own {@link burlap.oomdp.singleagent.environment.Environment}. The trial is plotted as the most recent
+	 * trial and recorded exactly as if it had been collected through this plotter between calls to {@link #startNewTrial()}
+	 * and {@link #endTrial()}. All episodes of the trial must have been completed.
+	 * @param trial the recorder of the completed trial, which must have been returned by {@link #newTrialRecorder(String)}
+	 */
+	@Override
+	public void addCompletedTrial(TrialRecorder trial){
+
+		Trial data = ((TrialDataRecorder)trial).trial;
+
+		synchronized (this) {
+			this.startNewTrial();
+			this.curTrial = data;
+			this.curTimeStep = data.cumulativeStepReward.size();
+			this.curEpisode = data.totalEpisodes;
+		}
+
+		this.endTrial();
+
+	}
 	
 	
 	/**
@@ -421,6 +458,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * If the current agent is already set to the agent name provided, then a warning message is printed and nothing changes.
 	 * @param agentName the name of the agent
 	 */
+	@Override
 	synchronized public void startNewAgent(final String agentName){
 		
 		if(this.curAgentName.equals(agentName)){
@@ -463,6 +501,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * Informs the plotter that all data for all agents has been collected.
 	 * Will also cause the average plots for the last agent's data to be plotted.
 	 */
+	@Override
 	synchronized public void endAllAgents(){
 		
 		SwingUtilities.invokeLater(new Runnable() {
@@ -495,6 +534,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * be saved to the file <pathAndBaseNameToUse>Steps.csv
 	 * @param pathAndBaseNameToUse the base path and file name for the epsidoe-wise and step-wise csv files.
 	 */
+	@Override
 	public void writeStepAndEpisodeDataToCSV(String pathAndBaseNameToUse){
 		
 		if(pathAndBaseNameToUse.endsWith(".csv")){
@@ -544,6 +584,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * If the file path does not include the .csv extension, it will automatically be added.
 	 * @param filePath the path to the csv file to write to.
 	 */
+	@Override
 	public void writeStepDataToCSV(String filePath){
 		
 		if(!filePath.endsWith(".csv")){
@@ -582,6 +623,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * If the file path does not include the .csv extension, it will automatically be added.
 	 * @param filePath the path to the csv file to write to.
 	 */
+	@Override
 	public void writeEpisodeDataToCSV(String filePath){
 		
 		if(!filePath.endsWith(".csv")){
@@ -725,10 +767,11 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 			@Override
 			public void run() {
 				
-				if(PerformancePlotter.this.trialMode.mostRecentTrialEnabled()){
-					synchronized (PerformancePlotter.this) {
+				synchronized (PerformancePlotter.this) {
+					
+					synchronized (PerformancePlotter.this.trialUpdateComplete) {
 						
-						synchronized (PerformancePlotter.this.trialUpdateComplete) {
+						if(PerformancePlotter.this.trialMode.mostRecentTrialEnabled()){
 							
 							if(PerformancePlotter.this.needsClearing){
 								PerformancePlotter.this.curAgentDatasets.clearNonAverages();
@@ -749,14 +792,15 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 								PerformancePlotter.this.lastEpisode = PerformancePlotter.this.curEpisode;
 							}
 							
-							
-							PerformancePlotter.this.trialUpdateComplete.b = true;
-							PerformancePlotter.this.trialUpdateComplete.notifyAll();
-							
 						}
 						
+						//always signal completion so that endTrial does not wait forever when only averages are plotted
+						PerformancePlotter.this.trialUpdateComplete.b = true;
+						PerformancePlotter.this.trialUpdateComplete.notifyAll();
 						
 					}
+					
+					
 				}
 				
 				
@@ -1036,7 +1080,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * @author James MacGlashan
 	 *
 	 */
-	protected class Trial{
+	protected static class Trial{
 		
 		/**
 		 * Stores the cumulative reward by step
@@ -1154,6 +1198,39 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	}
 	
 	
+	/**
+	 * A {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector.TrialRecorder} that records the rewards of a single
+	 * trial into a {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter.Trial}.
+	 */
+	protected static class TrialDataRecorder implements TrialRecorder{
+
+		/**
+		 * The recorded trial data
+		 */
+		protected Trial trial = new Trial();
+
+		@Override
+		public void observeEnvironmentActionInitiation(State o, GroundedAction action) {
+			//do nothing
+		}
+
+		@Override
+		public void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+			this.trial.stepIncrement(eo.r);
+		}
+
+		@Override
+		public void observeEnvironmentReset(Environment resetEnvironment) {
+			//do nothing
+		}
+
+		@Override
+		public void endEpisode() {
+			this.trial.setupForNewEpisode();
+		}
+	}
+	
+	
 	/**
 	 * A datastructure for maintain the plot series data in the current agent
 	 * @author James MacGlashan
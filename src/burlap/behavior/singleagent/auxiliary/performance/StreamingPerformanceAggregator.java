@@ -0,0 +1,1087 @@
+package burlap.behavior.singleagent.auxiliary.performance;
+
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
+import org.apache.commons.math3.distribution.TDistribution;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.DefaultDrawingSupplier;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
+import org.jfree.data.xy.YIntervalSeries;
+import org.jfree.data.xy.YIntervalSeriesCollection;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A headless {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector} for long experiments. Rather than retaining
+ * the full step-wise and episode-wise series of every trial in memory like {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter},
+ * this class maintains, for each agent and {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceMetric}, a running mean and variance
+ * across trials (using Welford's algorithm) for each time bucket, and streams the series of each trial to spill files on disk.
+ * A time bucket is a block of consecutive steps (for the cumulative reward by step metric) or episodes (for all other metrics); each trial contributes
+ * the mean of its values in the bucket as a single observation. With bucket sizes of 1, the statistics are the same as the trial averages of
+ * {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter}. Memory use therefore depends only on the number of buckets, not on the
+ * number of trials.
+ * <p/>
+ * Each trial is spilled to its own subdirectory of the spill directory, with one binary file per series (a column of big-endian doubles
+ * or ints), and a manifest file lists the completed trials in order. The csv files written by {@link #writeStepAndEpisodeDataToCSV(String)} are
+ * read back from the spill files and have the same content as those written by {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter}.
+ * A spill directory can be reloaded after the experiment with {@link #load(String, int, int)}, for example to write csv files or render plots
+ * with different bucket sizes. Plots of the trial averages with confidence intervals can be created with {@link #createAverageChart(PerformanceMetric)}
+ * and saved as images with {@link #saveAverageCharts(String, int, int, PerformanceMetric...)}, neither of which needs a display.
+ * <p/>
+ * Statistics include only trials that have been completed and recorded; a trial in progress contributes nothing until it ends.
+ * Averages are only reported for the buckets to which every completed trial of an agent contributed.
+ * @author James MacGlashan
+ *
+ */
+public class StreamingPerformanceAggregator implements PerformanceDataCollector {
+
+	/**
+	 * The name of the file listing the completed trials in the spill directory
+	 */
+	public static final String MANIFESTFILE = "manifest.txt";
+
+
+	/**
+	 * The directory to which trial data is spilled
+	 */
+	protected File spillDirectory;
+
+	/**
+	 * The number of consecutive steps averaged together in the step-wise statistics
+	 */
+	protected int stepBucketSize;
+
+	/**
+	 * The number of consecutive episodes averaged together in the episode-wise statistics
+	 */
+	protected int episodeBucketSize;
+
+	/**
+	 * The significance used for confidence intervals
+	 */
+	protected double significance = 0.05;
+
+	/**
+	 * Whether the data from observed interactions is being collected
+	 */
+	protected boolean collectData = false;
+
+	/**
+	 * The name of the current agent being tested
+	 */
+	protected String curAgentName;
+
+	/**
+	 * The recorder of the current trial
+	 */
+	protected SpillTrialRecorder curTrial;
+
+	/**
+	 * The spill directories of the completed trials of each agent, in the order in which they were recorded
+	 */
+	protected Map<String, List<SpilledTrial>> agentTrials = new HashMap<String, List<SpilledTrial>>();
+
+	/**
+	 * The names of the agents in the order in which they were started
+	 */
+	protected List<String> agentNames = new ArrayList<String>();
+
+	/**
+	 * The running statistics of each agent
+	 */
+	protected Map<String, AgentStatistics> agentStatistics = new HashMap<String, AgentStatistics>();
+
+	/**
+	 * The id of the next trial spill directory
+	 */
+	protected AtomicInteger nextTrialId = new AtomicInteger();
+
+
+	/**
+	 * Cached critical values of the t distribution for different degrees of freedom
+	 */
+	private static final Map<Integer, Double> cachedCriticalValues = new HashMap<Integer, Double>();
+
+
+
+	/**
+	 * Initializes with every step and episode averaged separately.
+	 * @param firstAgentName the name of the first agent whose performance will be measured.
+	 * @param spillDirectory the directory to which trial data is spilled; it is created if it does not exist and must not already contain spilled trials.
+	 */
+	public StreamingPerformanceAggregator(String firstAgentName, String spillDirectory){
+		this(firstAgentName, spillDirectory, 1, 1);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param firstAgentName the name of the first agent whose performance will be measured.
+	 * @param spillDirectory the directory to which trial data is spilled; it is created if it does not exist and must not already contain spilled trials.
+	 * @param stepBucketSize the number of consecutive steps averaged together in the step-wise statistics
+	 * @param episodeBucketSize the number of consecutive episodes averaged together in the episode-wise statistics
+	 */
+	public StreamingPerformanceAggregator(String firstAgentName, String spillDirectory, int stepBucketSize, int episodeBucketSize){
+		this(spillDirectory, stepBucketSize, episodeBucketSize);
+		if(new File(this.spillDirectory, MANIFESTFILE).exists()){
+			throw new RuntimeException("Spill directory " + spillDirectory + " already contains trials; use a new directory or continue from it with StreamingPerformanceAggregator.load");
+		}
+		this.curAgentName = firstAgentName;
+		this.initializeAgent(firstAgentName);
+	}
+
+
+	/**
+	 * Initializes the spill directory and bucket sizes without any agent.
+	 * @param spillDirectory the directory to which trial data is spilled
+	 * @param stepBucketSize the number of consecutive steps averaged together in the step-wise statistics
+	 * @param episodeBucketSize the number of consecutive episodes averaged together in the episode-wise statistics
+	 */
+	protected StreamingPerformanceAggregator(String spillDirectory, int stepBucketSize, int episodeBucketSize){
+
+		if(stepBucketSize < 1 || episodeBucketSize < 1){
+			throw new RuntimeException("Bucket sizes must be at least 1; received " + stepBucketSize + " and " + episodeBucketSize);
+		}
+
+		this.spillDirectory = new File(spillDirectory);
+		if(!this.spillDirectory.isDirectory() && !this.spillDirectory.mkdirs()){
+			throw new RuntimeException("Could not create spill directory " + spillDirectory);
+		}
+		this.stepBucketSize = stepBucketSize;
+		this.episodeBucketSize = episodeBucketSize;
+
+	}
+
+
+	/**
+	 * Reloads the trials listed in the manifest of a spill directory written by a previous aggregator, recomputing the statistics of each agent
+	 * with the given bucket sizes. The returned aggregator can write csv files and create plots; further trials recorded with it are added to the
+	 * same spill directory.
+	 * @param spillDirectory the spill directory of a previous aggregator
+	 * @param stepBucketSize the number of consecutive steps averaged together in the step-wise statistics
+	 * @param episodeBucketSize the number of consecutive episodes averaged together in the episode-wise statistics
+	 * @return an aggregator of the spilled trials
+	 */
+	public static StreamingPerformanceAggregator load(String spillDirectory, int stepBucketSize, int episodeBucketSize){
+
+		StreamingPerformanceAggregator aggregator = new StreamingPerformanceAggregator(spillDirectory, stepBucketSize, episodeBucketSize);
+
+		File manifest = new File(aggregator.spillDirectory, MANIFESTFILE);
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(manifest));
+			String line;
+			int maxId = -1;
+			while((line = in.readLine()) != null){
+				if(line.length() == 0){
+					continue;
+				}
+				String [] comps = line.split("\t", 4);
+				SpilledTrial trial = new SpilledTrial(new File(aggregator.spillDirectory, comps[0]), Integer.parseInt(comps[1]), Integer.parseInt(comps[2]));
+				String agentName = comps[3];
+				maxId = Math.max(maxId, Integer.parseInt(comps[0].substring(5)));
+
+				aggregator.initializeAgent(agentName);
+				aggregator.curAgentName = agentName;
+				aggregator.reaccumulate(agentName, trial);
+				aggregator.agentTrials.get(agentName).add(trial);
+				aggregator.agentStatistics.get(agentName).numTrials++;
+			}
+			in.close();
+			aggregator.nextTrialId.set(maxId+1);
+		} catch(IOException e) {
+			throw new RuntimeException("Could not read spill manifest " + manifest.getAbsolutePath(), e);
+		}
+
+		return aggregator;
+	}
+
+
+	/**
+	 * Sets the significance used for confidence intervals.
+	 * The default is 0.05, which corresponds to a 95% confidence interval.
+	 * @param significance the significance used for confidence intervals.
+	 */
+	public void setSignificanceForCI(double significance){
+		this.significance = significance;
+	}
+
+
+	/**
+	 * Returns the directory to which trial data is spilled.
+	 * @return the directory to which trial data is spilled.
+	 */
+	public File getSpillDirectory(){
+		return this.spillDirectory;
+	}
+
+
+	/**
+	 * Returns the names of the agents in the order in which they were started.
+	 * @return the names of the agents.
+	 */
+	public List<String> getAgentNames(){
+		synchronized(this){
+			return new ArrayList<String>(this.agentNames);
+		}
+	}
+
+
+	@Override
+	public void toggleDataCollection(boolean collectData) {
+		this.collectData = collectData;
+	}
+
+	@Override
+	public void observeEnvironmentActionInitiation(State o, GroundedAction action) {
+		//do nothing
+	}
+
+	@Override
+	public void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+		if(!this.collectData || this.curTrial == null){
+			return;
+		}
+		this.curTrial.observeEnvironmentInteraction(eo);
+	}
+
+	@Override
+	public void observeEnvironmentReset(Environment resetEnvironment) {
+		//do nothing
+	}
+
+	@Override
+	public void startNewTrial() {
+		if(this.curTrial != null){
+			this.curTrial.close();
+		}
+		this.curTrial = (SpillTrialRecorder)this.newTrialRecorder(this.curAgentName);
+	}
+
+	@Override
+	public void endEpisode() {
+		if(this.curTrial != null){
+			this.curTrial.endEpisode();
+		}
+	}
+
+	@Override
+	public void endTrial() {
+		if(this.curTrial == null){
+			return;
+		}
+		this.addCompletedTrial(this.curTrial);
+		this.curTrial = null;
+	}
+
+	@Override
+	public void startNewAgent(String agentName) {
+
+		if(this.curAgentName.equals(agentName)){
+			System.out.println("Already recording data for: " + agentName + "; noting to change from startNewAgent method call.");
+			return;
+		}
+
+		synchronized(this) {
+			this.curAgentName = agentName;
+			this.initializeAgent(agentName);
+		}
+	}
+
+	@Override
+	public void endAllAgents() {
+		if(this.curTrial != null){
+			this.curTrial.close();
+			this.curTrial = null;
+		}
+	}
+
+	@Override
+	public TrialRecorder newTrialRecorder(String agentName) {
+		synchronized(this){
+			this.initializeAgent(agentName);
+		}
+		return new SpillTrialRecorder(new File(this.spillDirectory, "trial" + this.nextTrialId.getAndIncrement()), agentName,
+				this.stepBucketSize, this.episodeBucketSize);
+	}
+
+	/**
+	 * Records a completed trial and adds its bucket averages to the statistics of its agent. Until then, a trial's values are kept by
+	 * its recorder, so trials that are still running or that are never completed do not affect the statistics.
+	 * The trial is recorded for the agent whose name was given when its recorder was created, which is normally the current agent.
+	 * @param trial the recorder of the completed trial, which must have been returned by {@link #newTrialRecorder(String)}
+	 */
+	@Override
+	public void addCompletedTrial(TrialRecorder trial) {
+
+		SpillTrialRecorder recorder = (SpillTrialRecorder)trial;
+		recorder.close();
+
+		synchronized(this) {
+
+			AgentStatistics stats = this.agentStatistics.get(recorder.agentName);
+			stats.merge(recorder.csrAcc, recorder.episodeAcc);
+			stats.numTrials++;
+			this.agentTrials.get(recorder.agentName).add(recorder.spilled);
+
+			File manifest = new File(this.spillDirectory, MANIFESTFILE);
+			try {
+				BufferedWriter out = new BufferedWriter(new FileWriter(manifest, true));
+				out.write(recorder.spilled.directory.getName() + "\t" + recorder.spilled.numSteps + "\t" + recorder.spilled.numEpisodes + "\t" + recorder.agentName + "\n");
+				out.close();
+			} catch(IOException e) {
+				throw new RuntimeException("Could not write to spill manifest " + manifest.getAbsolutePath(), e);
+			}
+
+		}
+
+	}
+
+
+	/**
+	 * Returns the trial averages of a metric for an agent, for each bucket to which every completed trial of the agent contributed.
+	 * Each row of the returned array is of the form {bucketStart, mean, lowerBound, upperBound}, where bucketStart is the index of the first step or
+	 * episode of the bucket. If there is only one trial, the bounds are equal to the mean.
+	 * @param agentName the name of the agent
+	 * @param metric the performance metric
+	 * @return the trial averages of the metric for each bucket.
+	 */
+	public double [][] getAverages(String agentName, PerformanceMetric metric){
+
+		AgentStatistics stats;
+		synchronized(this){
+			stats = this.agentStatistics.get(agentName);
+		}
+		if(stats == null){
+			throw new RuntimeException("No data has been recorded for agent " + agentName);
+		}
+
+		int bucketSize = metric == PerformanceMetric.CUMULATIVEREWARDPERSTEP ? this.stepBucketSize : this.episodeBucketSize;
+		RunningStatistics rs = stats.metrics[metric.ordinal()];
+		synchronized(rs){
+			int n = 0;
+			while(n < rs.size && rs.n[n] >= stats.numTrials && stats.numTrials > 0){
+				n++;
+			}
+			double [][] result = new double[n][];
+			for(int i = 0; i < n; i++){
+				double [] ci = getCI(rs.n[i], rs.mean[i], rs.m2[i], this.significance);
+				result[i] = new double[]{i*bucketSize, ci[0], ci[1], ci[2]};
+			}
+			return result;
+		}
+
+	}
+
+
+	/**
+	 * Returns the number of completed trials recorded for an agent.
+	 * @param agentName the name of the agent
+	 * @return the number of completed trials recorded for the agent.
+	 */
+	public int numTrials(String agentName){
+		synchronized(this){
+			AgentStatistics stats = this.agentStatistics.get(agentName);
+			return stats == null ? 0 : stats.numTrials;
+		}
+	}
+
+
+	/**
+	 * Creates a chart of the trial averages of a metric for every agent, with a shaded confidence interval, in the style of the average plots
+	 * of {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter}.
+	 * @param metric the performance metric to plot
+	 * @return a chart of the trial averages of the metric.
+	 */
+	public JFreeChart createAverageChart(PerformanceMetric metric){
+
+		YIntervalSeriesCollection collection = new YIntervalSeriesCollection();
+		for(String agentName : this.getAgentNames()){
+			YIntervalSeries series = new YIntervalSeries(agentName);
+			for(double [] row : this.getAverages(agentName, metric)){
+				series.add(row[0], row[1], row[2], row[3]);
+			}
+			collection.addSeries(series);
+		}
+
+		String [] labels = chartLabels(metric);
+		JFreeChart chart = ChartFactory.createXYLineChart("Average " + labels[0], labels[1], labels[2], collection);
+		((XYPlot)chart.getPlot()).setRenderer(this.createDeviationRenderer());
+
+		return chart;
+	}
+
+
+	/**
+	 * Saves a PNG image of the average chart of each given metric to the given directory. The image of each metric is named
+	 * after the metric; for example, CUMULATIVEREWARDPERSTEP.png.
+	 * @param directory the directory in which to save the images
+	 * @param width the width of each image
+	 * @param height the height of each image
+	 * @param metrics the metrics to plot; if none are given, the cumulative reward by step is plotted
+	 */
+	public void saveAverageCharts(String directory, int width, int height, PerformanceMetric...metrics){
+
+		if(metrics.length == 0){
+			metrics = new PerformanceMetric[]{PerformanceMetric.CUMULATIVEREWARDPERSTEP};
+		}
+
+		File dir = new File(directory);
+		if(!dir.isDirectory() && !dir.mkdirs()){
+			throw new RuntimeException("Could not create directory " + directory);
+		}
+
+		for(PerformanceMetric m : metrics){
+			File f = new File(dir, m.name() + ".png");
+			try {
+				ChartUtilities.saveChartAsPNG(f, this.createAverageChart(m), width, height);
+			} catch(IOException e) {
+				throw new RuntimeException("Could not save chart to " + f.getAbsolutePath(), e);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Writes the trial averages of all metrics for all agents to a csv file with the columns agent, metric, bucketStart, mean, lowerCI and upperCI.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	public void writeAveragesToCSV(String filePath){
+
+		if(!filePath.endsWith(".csv")){
+			filePath = filePath + ".csv";
+		}
+
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(filePath));
+			out.write("agent,metric,bucketStart,mean,lowerCI,upperCI\n");
+			for(String agentName : this.getAgentNames()){
+				for(PerformanceMetric m : PerformanceMetric.values()){
+					for(double [] row : this.getAverages(agentName, m)){
+						out.write(agentName + "," + m.name() + "," + (int)row[0] + "," + row[1] + "," + row[2] + "," + row[3] + "\n");
+					}
+				}
+			}
+			out.close();
+		} catch(Exception e) {
+			System.err.println("Could not write csv file to: " + filePath);
+			e.printStackTrace();
+		}
+
+	}
+
+
+	@Override
+	public void writeStepAndEpisodeDataToCSV(String pathAndBaseNameToUse) {
+
+		if(pathAndBaseNameToUse.endsWith(".csv")){
+			pathAndBaseNameToUse = pathAndBaseNameToUse.substring(0, pathAndBaseNameToUse.length()-4);
+		}
+
+		this.writeStepDataToCSV(pathAndBaseNameToUse + "Steps.csv");
+		this.writeEpisodeDataToCSV(pathAndBaseNameToUse + "Episodes.csv");
+
+	}
+
+	@Override
+	public void writeStepDataToCSV(String filePath) {
+
+		if(!filePath.endsWith(".csv")){
+			filePath = filePath + ".csv";
+		}
+
+		try {
+			BufferedWriter outStep = new BufferedWriter(new FileWriter(filePath));
+			outStep.write("agent,trial,step,cumulativeReward\n");
+
+			synchronized(this) {
+				for(Map.Entry<String, List<SpilledTrial>> e : this.agentTrials.entrySet()){
+					String aname = e.getKey();
+					List<SpilledTrial> trials = e.getValue();
+					for(int i = 0; i < trials.size(); i++){
+						SpilledTrial trial = trials.get(i);
+						DataInputStream in = trial.open(SpillTrialRecorder.CUMULATIVESTEPREWARD);
+						for(int j = 0; j < trial.numSteps; j++){
+							outStep.write(aname+","+i+","+j+","+in.readDouble()+"\n");
+						}
+						in.close();
+					}
+				}
+			}
+
+			outStep.close();
+
+		} catch(Exception e) {
+			System.err.println("Could not write csv file to: " + filePath);
+			e.printStackTrace();
+		}
+
+	}
+
+	@Override
+	public void writeEpisodeDataToCSV(String filePath) {
+
+		if(!filePath.endsWith(".csv")){
+			filePath = filePath + ".csv";
+		}
+
+		try {
+			BufferedWriter outEpisode = new BufferedWriter(new FileWriter(filePath));
+			outEpisode.write("agent,trial,episode,cumulativeReward,averageReward,cumulativeSteps,numSteps\n");
+
+			synchronized(this) {
+				for(Map.Entry<String, List<SpilledTrial>> e : this.agentTrials.entrySet()){
+					String aname = e.getKey();
+					List<SpilledTrial> trials = e.getValue();
+					for(int i = 0; i < trials.size(); i++){
+						SpilledTrial trial = trials.get(i);
+						DataInputStream cer = trial.open(SpillTrialRecorder.CUMULATIVEEPISODEREWARD);
+						DataInputStream aer = trial.open(SpillTrialRecorder.AVERAGEEPISODEREWARD);
+						DataInputStream cse = trial.open(SpillTrialRecorder.CUMULATIVESTEPEPISODE);
+						DataInputStream se = trial.open(SpillTrialRecorder.STEPEPISODE);
+						for(int j = 0; j < trial.numEpisodes; j++){
+							outEpisode.write(aname+","+i+","+j);
+							outEpisode.write(","+cer.readDouble());
+							outEpisode.write(","+aer.readDouble());
+							outEpisode.write(","+(double)cse.readInt());
+							outEpisode.write(","+(double)se.readInt());
+							outEpisode.write("\n");
+						}
+						cer.close();
+						aer.close();
+						cse.close();
+						se.close();
+					}
+				}
+			}
+
+			outEpisode.close();
+
+		} catch(Exception e) {
+			System.err.println("Could not write csv file to: " + filePath);
+			e.printStackTrace();
+		}
+
+	}
+
+
+	/**
+	 * Creates the trial list and statistics of an agent if they do not already exist.
+	 * @param agentName the name of the agent
+	 */
+	protected void initializeAgent(String agentName){
+		if(!this.agentTrials.containsKey(agentName)){
+			this.agentTrials.put(agentName, new ArrayList<SpilledTrial>());
+			this.agentStatistics.put(agentName, new AgentStatistics());
+			this.agentNames.add(agentName);
+		}
+	}
+
+
+	/**
+	 * Adds the values of a spilled trial to the statistics of an agent.
+	 * @param agentName the name of the agent
+	 * @param trial the spilled trial
+	 * @throws IOException if the spill files cannot be read
+	 */
+	protected void reaccumulate(String agentName, SpilledTrial trial) throws IOException{
+
+		AgentStatistics stats = this.agentStatistics.get(agentName);
+
+		DataInputStream in = trial.open(SpillTrialRecorder.CUMULATIVESTEPREWARD);
+		BucketAccumulator csr = new BucketAccumulator(this.stepBucketSize);
+		for(int j = 0; j < trial.numSteps; j++){
+			csr.add(in.readDouble());
+		}
+		csr.finish();
+		in.close();
+
+		DataInputStream cer = trial.open(SpillTrialRecorder.CUMULATIVEEPISODEREWARD);
+		DataInputStream aer = trial.open(SpillTrialRecorder.AVERAGEEPISODEREWARD);
+		DataInputStream mer = trial.open(SpillTrialRecorder.MEDIANEPISODEREWARD);
+		DataInputStream cse = trial.open(SpillTrialRecorder.CUMULATIVESTEPEPISODE);
+		DataInputStream se = trial.open(SpillTrialRecorder.STEPEPISODE);
+		BucketAccumulator [] acc = AgentStatistics.episodeAccumulators(this.episodeBucketSize);
+		for(int j = 0; j < trial.numEpisodes; j++){
+			acc[0].add(cer.readDouble());
+			acc[1].add(aer.readDouble());
+			acc[2].add(mer.readDouble());
+			acc[3].add(cse.readInt());
+			acc[4].add(se.readInt());
+		}
+		for(BucketAccumulator a : acc){
+			a.finish();
+		}
+		cer.close();
+		aer.close();
+		mer.close();
+		cse.close();
+		se.close();
+
+		stats.merge(csr, acc);
+
+	}
+
+
+	/**
+	 * Creates the renderer used for the average plots, which fills the confidence interval with a translucent version of the series color.
+	 * @return the renderer used for the average plots.
+	 */
+	protected DeviationRenderer createDeviationRenderer(){
+		DeviationRenderer renderer = new DeviationRenderer(true, false);
+
+		for(int i = 0; i < DefaultDrawingSupplier.DEFAULT_PAINT_SEQUENCE.length; i++){
+			Color c = (Color)DefaultDrawingSupplier.DEFAULT_PAINT_SEQUENCE[i];
+			Color nc = new Color(c.getRed(), c.getGreen(), c.getBlue(), 100);
+			renderer.setSeriesFillPaint(i, nc);
+		}
+
+		return renderer;
+	}
+
+
+	/**
+	 * Returns the title, x-axis label and y-axis label of the plot of a metric.
+	 * @param metric the performance metric
+	 * @return an array of the form {title, xlab, ylab}
+	 */
+	protected static String [] chartLabels(PerformanceMetric metric){
+		switch(metric){
+			case CUMULATIVEREWARDPERSTEP: return new String[]{"Cumulative Reward", "Time Step", "Cumulative Reward"};
+			case CUMULTAIVEREWARDPEREPISODE: return new String[]{"Cumulative Reward", "Episode", "Cumulative Reward"};
+			case AVERAGEEPISODEREWARD: return new String[]{"Average Reward", "Episode", "Average Reward"};
+			case MEDIANEPISODEREWARD: return new String[]{"Median Reward", "Episode", "Median Reward"};
+			case CUMULATIVESTEPSPEREPISODE: return new String[]{"Cumulative Steps", "Episode", "Cumulative Steps"};
+			default: return new String[]{"Number of Steps", "Episode", "Number of Steps"};
+		}
+	}
+
+
+	/**
+	 * Returns the confidence interval of a mean for the specified significance level
+	 * @param n the number of observations
+	 * @param mean the mean of the observations
+	 * @param m2 the sum of squared differences from the mean
+	 * @param significanceLevel the significance level required
+	 * @return a double array of length three in the form: {mean, lowerBound, upperBound}
+	 */
+	public static double [] getCI(long n, double mean, double m2, double significanceLevel){
+
+		if(n < 2){
+			return new double[]{mean, mean, mean};
+		}
+
+		Double critD;
+		synchronized(cachedCriticalValues){
+			critD = cachedCriticalValues.get((int)n-1);
+			if(critD == null){
+				TDistribution tdist = new TDistribution(n-1);
+				critD = tdist.inverseCumulativeProbability(1. - (significanceLevel/2.));
+				cachedCriticalValues.put((int)n-1, critD);
+			}
+		}
+		double sd = Math.sqrt(m2 / (n-1));
+		double width = critD * sd / Math.sqrt(n);
+		return new double[]{mean, mean-width, mean+width};
+	}
+
+
+
+
+	/**
+	 * Running means and variances across trials for each bucket of a single metric, maintained with Welford's algorithm.
+	 */
+	protected static class RunningStatistics{
+
+		/**
+		 * The number of observations of each bucket
+		 */
+		protected long [] n = new long[16];
+
+		/**
+		 * The mean of each bucket
+		 */
+		protected double [] mean = new double[16];
+
+		/**
+		 * The sum of squared differences from the mean of each bucket
+		 */
+		protected double [] m2 = new double[16];
+
+		/**
+		 * The number of buckets with observations
+		 */
+		protected int size = 0;
+
+
+		/**
+		 * Adds an observation to a bucket.
+		 * @param bucket the bucket index
+		 * @param x the observed value
+		 */
+		public synchronized void add(int bucket, double x){
+			if(bucket >= this.n.length){
+				int nl = Math.max(this.n.length*2, bucket+1);
+				this.n = Arrays.copyOf(this.n, nl);
+				this.mean = Arrays.copyOf(this.mean, nl);
+				this.m2 = Arrays.copyOf(this.m2, nl);
+			}
+			this.size = Math.max(this.size, bucket+1);
+			long count = ++this.n[bucket];
+			double delta = x - this.mean[bucket];
+			this.mean[bucket] += delta / count;
+			this.m2[bucket] += delta * (x - this.mean[bucket]);
+		}
+
+		/**
+		 * Adds one observation to each of the first buckets.
+		 * @param xs the observed value of each bucket
+		 * @param numBuckets the number of buckets with an observation
+		 */
+		public synchronized void addAll(double [] xs, int numBuckets){
+			for(int i = 0; i < numBuckets; i++){
+				this.add(i, xs[i]);
+			}
+		}
+
+	}
+
+
+	/**
+	 * The running statistics of all metrics of an agent and its number of completed trials.
+	 */
+	protected static class AgentStatistics{
+
+		/**
+		 * The running statistics of each metric, indexed by the metric's ordinal
+		 */
+		protected RunningStatistics [] metrics;
+
+		/**
+		 * The number of completed trials
+		 */
+		protected int numTrials = 0;
+
+		public AgentStatistics(){
+			this.metrics = new RunningStatistics[PerformanceMetric.values().length];
+			for(int i = 0; i < this.metrics.length; i++){
+				this.metrics[i] = new RunningStatistics();
+			}
+		}
+
+		/**
+		 * The episode-wise metrics, in the order of the accumulators returned by {@link #episodeAccumulators(int)}
+		 */
+		protected static final PerformanceMetric [] EPISODEMETRICS = new PerformanceMetric[]{
+				PerformanceMetric.CUMULTAIVEREWARDPEREPISODE,
+				PerformanceMetric.AVERAGEEPISODEREWARD,
+				PerformanceMetric.MEDIANEPISODEREWARD,
+				PerformanceMetric.CUMULATIVESTEPSPEREPISODE,
+				PerformanceMetric.STEPSPEREPISODE
+		};
+
+		/**
+		 * Returns new accumulators for the episode-wise metrics in the order: cumulative reward, average reward, median reward,
+		 * cumulative steps, steps.
+		 * @param bucketSize the number of consecutive episodes in a bucket
+		 * @return new accumulators for the episode-wise metrics.
+		 */
+		protected static BucketAccumulator [] episodeAccumulators(int bucketSize){
+			BucketAccumulator [] acc = new BucketAccumulator[EPISODEMETRICS.length];
+			for(int i = 0; i < acc.length; i++){
+				acc[i] = new BucketAccumulator(bucketSize);
+			}
+			return acc;
+		}
+
+		/**
+		 * Adds the finished bucket averages of one trial to the running statistics.
+		 * @param stepAcc the accumulator of the trial's cumulative step reward
+		 * @param episodeAcc the accumulators of the trial's episode-wise metrics, as returned by {@link #episodeAccumulators(int)}
+		 */
+		protected void merge(BucketAccumulator stepAcc, BucketAccumulator [] episodeAcc){
+			this.metrics[PerformanceMetric.CUMULATIVEREWARDPERSTEP.ordinal()].addAll(stepAcc.averages, stepAcc.bucket);
+			for(int i = 0; i < EPISODEMETRICS.length; i++){
+				this.metrics[EPISODEMETRICS[i].ordinal()].addAll(episodeAcc[i].averages, episodeAcc[i].bucket);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Averages the consecutive values of one metric of a single trial within each bucket and keeps each bucket's average once the bucket
+	 * is complete, so that they can be added to the running statistics when the trial is complete.
+	 */
+	protected static class BucketAccumulator{
+
+		protected int bucketSize;
+		protected int count = 0;
+		protected int bucket = 0;
+		protected double sum = 0.;
+		protected double [] averages = new double[16];
+
+		public BucketAccumulator(int bucketSize){
+			this.bucketSize = bucketSize;
+		}
+
+		/**
+		 * Adds the next value of the metric.
+		 * @param v the next value
+		 */
+		public void add(double v){
+			this.sum += v;
+			this.count++;
+			if(this.count == this.bucketSize){
+				this.finish();
+			}
+		}
+
+		/**
+		 * Keeps the average of the values of the current bucket, if any, and begins the next bucket.
+		 */
+		public void finish(){
+			if(this.count == 0){
+				return;
+			}
+			if(this.bucket == this.averages.length){
+				this.averages = Arrays.copyOf(this.averages, this.averages.length*2);
+			}
+			this.averages[this.bucket] = this.sum / this.count;
+			this.bucket++;
+			this.count = 0;
+			this.sum = 0.;
+		}
+
+	}
+
+
+	/**
+	 * The spill directory and length of a completed trial. The number of steps includes the steps of a final episode that was not ended.
+	 */
+	protected static class SpilledTrial{
+
+		protected File directory;
+		protected int numSteps;
+		protected int numEpisodes;
+
+		public SpilledTrial(File directory, int numSteps, int numEpisodes){
+			this.directory = directory;
+			this.numSteps = numSteps;
+			this.numEpisodes = numEpisodes;
+		}
+
+		/**
+		 * Opens a column of this trial for reading.
+		 * @param column the name of the column file
+		 * @return a stream of the column's values
+		 * @throws IOException if the column cannot be opened
+		 */
+		public DataInputStream open(String column) throws IOException{
+			return new DataInputStream(new BufferedInputStream(new FileInputStream(new File(this.directory, column)), 1 << 16));
+		}
+
+	}
+
+
+	/**
+	 * A {@link burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector.TrialRecorder} that streams each series of a trial
+	 * to its own file and keeps the trial's bucket averages until the trial is added to the aggregator. The series are computed in the same
+	 * way as those of {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter}.
+	 */
+	protected static class SpillTrialRecorder implements TrialRecorder{
+
+		public static final String CUMULATIVESTEPREWARD = "cumulativeStepReward";
+		public static final String CUMULATIVEEPISODEREWARD = "cumulativeEpisodeReward";
+		public static final String AVERAGEEPISODEREWARD = "averageEpisodeReward";
+		public static final String MEDIANEPISODEREWARD = "medianEpisodeReward";
+		public static final String CUMULATIVESTEPEPISODE = "cumulativeStepEpisode";
+		public static final String STEPEPISODE = "stepEpisode";
+
+		protected String agentName;
+		protected SpilledTrial spilled;
+		protected boolean closed = false;
+
+		protected DataOutputStream csrOut;
+		protected DataOutputStream cerOut;
+		protected DataOutputStream aerOut;
+		protected DataOutputStream merOut;
+		protected DataOutputStream cseOut;
+		protected DataOutputStream seOut;
+
+		protected BucketAccumulator csrAcc;
+		protected BucketAccumulator [] episodeAcc;
+
+		protected double cumulativeStepReward = 0.;
+		protected boolean hasStep = false;
+		protected double cumulativeEpisodeReward = 0.;
+		protected int cumulativeSteps = 0;
+
+		protected double curEpisodeReward = 0.;
+		protected int curEpisodeSteps = 0;
+		protected double [] curEpisodeRewards = new double[64];
+
+
+		public SpillTrialRecorder(File directory, String agentName, int stepBucketSize, int episodeBucketSize){
+
+			this.agentName = agentName;
+			this.spilled = new SpilledTrial(directory, 0, 0);
+			if(!directory.isDirectory() && !directory.mkdirs()){
+				throw new RuntimeException("Could not create trial spill directory " + directory.getAbsolutePath());
+			}
+
+			this.csrOut = this.create(CUMULATIVESTEPREWARD);
+			this.cerOut = this.create(CUMULATIVEEPISODEREWARD);
+			this.aerOut = this.create(AVERAGEEPISODEREWARD);
+			this.merOut = this.create(MEDIANEPISODEREWARD);
+			this.cseOut = this.create(CUMULATIVESTEPEPISODE);
+			this.seOut = this.create(STEPEPISODE);
+
+			this.csrAcc = new BucketAccumulator(stepBucketSize);
+			this.episodeAcc = AgentStatistics.episodeAccumulators(episodeBucketSize);
+
+		}
+
+
+		@Override
+		public void observeEnvironmentActionInitiation(State o, GroundedAction action) {
+			//do nothing
+		}
+
+		@Override
+		public void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+
+			double r = eo.r;
+			double v = r;
+			if(this.hasStep){
+				v += this.cumulativeStepReward;
+			}
+			this.cumulativeStepReward = v;
+			this.hasStep = true;
+
+			try {
+				this.csrOut.writeDouble(v);
+			} catch(IOException e) {
+				throw new RuntimeException("Could not write trial spill file in " + this.spilled.directory.getAbsolutePath(), e);
+			}
+			this.csrAcc.add(v);
+			this.spilled.numSteps++;
+
+			this.curEpisodeReward += r;
+			if(this.curEpisodeSteps == this.curEpisodeRewards.length){
+				this.curEpisodeRewards = Arrays.copyOf(this.curEpisodeRewards, this.curEpisodeRewards.length*2);
+			}
+			this.curEpisodeRewards[this.curEpisodeSteps] = r;
+			this.curEpisodeSteps++;
+
+		}
+
+		@Override
+		public void observeEnvironmentReset(Environment resetEnvironment) {
+			//do nothing
+		}
+
+		@Override
+		public void endEpisode() {
+
+			double cer = this.curEpisodeReward;
+			if(this.spilled.numEpisodes > 0){
+				cer += this.cumulativeEpisodeReward;
+			}
+			this.cumulativeEpisodeReward = cer;
+			this.cumulativeSteps += this.curEpisodeSteps;
+
+			double avgER = this.curEpisodeReward / (double)this.curEpisodeSteps;
+
+			Arrays.sort(this.curEpisodeRewards, 0, this.curEpisodeSteps);
+			double med = 0.;
+			if(this.curEpisodeSteps > 0){
+				int n2 = this.curEpisodeSteps / 2;
+				if(this.curEpisodeSteps % 2 == 0){
+					med = (this.curEpisodeRewards[n2] + this.curEpisodeRewards[n2-1]) / 2.;
+				}
+				else{
+					med = this.curEpisodeRewards[n2];
+				}
+			}
+
+			try {
+				this.cerOut.writeDouble(cer);
+				this.aerOut.writeDouble(avgER);
+				this.merOut.writeDouble(med);
+				this.cseOut.writeInt(this.cumulativeSteps);
+				this.seOut.writeInt(this.curEpisodeSteps);
+			} catch(IOException e) {
+				throw new RuntimeException("Could not write trial spill file in " + this.spilled.directory.getAbsolutePath(), e);
+			}
+
+			this.episodeAcc[0].add(cer);
+			this.episodeAcc[1].add(avgER);
+			this.episodeAcc[2].add(med);
+			this.episodeAcc[3].add(this.cumulativeSteps);
+			this.episodeAcc[4].add(this.curEpisodeSteps);
+
+			this.spilled.numEpisodes++;
+
+			this.curEpisodeReward = 0.;
+			this.curEpisodeSteps = 0;
+
+		}
+
+
+		/**
+		 * Flushes the spill files and the statistics of the last incomplete buckets. Does nothing if already closed.
+		 */
+		public void close(){
+
+			if(this.closed){
+				return;
+			}
+			this.closed = true;
+
+			this.csrAcc.finish();
+			for(BucketAccumulator a : this.episodeAcc){
+				a.finish();
+			}
+
+			try {
+				this.csrOut.close();
+				this.cerOut.close();
+				this.aerOut.close();
+				this.merOut.close();
+				this.cseOut.close();
+				this.seOut.close();
+			} catch(IOException e) {
+				throw new RuntimeException("Could not close trial spill files in " + this.spilled.directory.getAbsolutePath(), e);
+			}
+
+		}
+
+
+		/**
+		 * Creates a column file of this trial.
+		 * @param column the name of the column
+		 * @return the stream to which the column's values are written
+		 */
+		protected DataOutputStream create(String column){
+			try {
+				return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(this.spilled.directory, column)), 1 << 16));
+			} catch(IOException e) {
+				throw new RuntimeException("Could not create trial spill file in " + this.spilled.directory.getAbsolutePath(), e);
+			}
+		}
+
+	}
+
+}
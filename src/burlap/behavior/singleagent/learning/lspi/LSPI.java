@@ -41,7 +41,8 @@ import burlap.oomdp.singleagent.RewardFunction;
  * set the dataset to use using the {@link #setDataset(SARSData)} method and then you can run LSPI on it using the {@link #runPolicyIteration(int, double)} method. LSPI requires
  * initialize a matrix to an identity matrix multiplied by some large positive constant (see the reference for more information).
  * By default this constant is 100, but you can change it with the {@link #setIdentityScalar(double)}
- * method.
+ * method. The LSTDQ system is solved by a {@link SparseLSTDQ} object that works on the sparse features of each sample; it can be
+ * switched to accumulating and factorizing the system matrix in parallel with the {@link #getLSTDQSolver()} method.
  * <p/>
  * If you do use the {@link #planFromState(State)} method, you should first initialize the parameters for it using the
  * {@link #initializeForPlanning(burlap.oomdp.singleagent.RewardFunction, burlap.oomdp.core.TerminalFunction, int, SARSCollector)} or
@@ -94,6 +95,11 @@ public class LSPI extends MDPSolver implements QFunction, LearningAgent, Planner
 	 */
 	protected double												identityScalar = 100.;
 	
+	/**
+	 * The solver of the LSTDQ system
+	 */
+	protected SparseLSTDQ											lstdqSolver = new SparseLSTDQ();
+	
 	/**
 	 * The last weight values set from LSTDQ
 	 */
@@ -269,6 +275,23 @@ public class LSPI extends MDPSolver implements QFunction, LearningAgent, Planner
 		this.identityScalar = identityScalar;
 	}
 
+
+	/**
+	 * Returns the solver of the LSTDQ system, whose solve mode and parallelism can be changed.
+	 * @return the solver of the LSTDQ system
+	 */
+	public SparseLSTDQ getLSTDQSolver() {
+		return lstdqSolver;
+	}
+
+	/**
+	 * Sets the solver of the LSTDQ system.
+	 * @param lstdqSolver the solver of the LSTDQ system
+	 */
+	public void setLSTDQSolver(SparseLSTDQ lstdqSolver) {
+		this.lstdqSolver = lstdqSolver;
+	}
+
 	
 	/**
 	 * Gets the number of SARS samples that will be gathered by the {@link #planFromState(State)} method.
@@ -407,31 +430,12 @@ public class LSPI extends MDPSolver implements QFunction, LearningAgent, Planner
 		}
 		
 		int nf = this.featureDatabase.numberOfFeatures();
-		SimpleMatrix B = SimpleMatrix.identity(nf).scale(this.identityScalar);
-		SimpleMatrix b = new SimpleMatrix(nf, 1);
-		
-		
-		
+		List<SparseLSTDQ.Sample> samples = new ArrayList<SparseLSTDQ.Sample>(features.size());
 		for(int i = 0; i < features.size(); i++){
-
-			SimpleMatrix phi = this.phiConstructor(features.get(i).sActionFeatures, nf);
-			SimpleMatrix phiPrime = this.phiConstructor(features.get(i).sPrimeActionFeatures, nf);
-			double r = this.dataset.get(i).r;
-			
-
-			SimpleMatrix numerator = B.mult(phi).mult(phi.minus(phiPrime.scale(gamma)).transpose()).mult(B);
-			SimpleMatrix denomenatorM = phi.minus(phiPrime.scale(this.gamma)).transpose().mult(B).mult(phi);
-			double denomenator = denomenatorM.get(0) + 1;
-			
-			B = B.minus(numerator.scale(1./denomenator));
-			b = b.plus(phi.scale(r));
-			
-			//DPrint.cl(0, "updated matrix for row " + i + "/" + features.size());
-			
+			samples.add(this.lstdqSolver.sample(this.actionFeatures(features.get(i).sActionFeatures), this.actionFeatures(features.get(i).sPrimeActionFeatures), this.dataset.get(i).r, nf));
 		}
-		
-		
-		SimpleMatrix w = B.mult(b);
+
+		SimpleMatrix w = new SimpleMatrix(nf, 1, true, this.lstdqSolver.solve(samples, nf, this.gamma, this.identityScalar));
 		
 		this.vfa = new LinearVFA(this.featureDatabase);
 		for(int i = 0; i < nf; i++){
@@ -471,6 +475,18 @@ public class LSPI extends MDPSolver implements QFunction, LearningAgent, Planner
 	}
 	
 	
+	/**
+	 * Returns the nonzero state-action features of the single action in a feature query result.
+	 * @param features the state-action features of one action
+	 * @return the nonzero state-action features
+	 */
+	protected List<StateFeature> actionFeatures(List<ActionFeaturesQuery> features){
+		if(features.size() != 1){
+			throw new RuntimeException("Expected only one actions's set of features.");
+		}
+		return features.get(0).features;
+	}
+	
 	/**
 	 * Constructs the state-action feature vector as a {@link SimpleMatrix}.
 	 * @param features the state-action features that have non-zero values
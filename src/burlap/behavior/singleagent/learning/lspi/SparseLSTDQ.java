@@ -0,0 +1,511 @@
+package burlap.behavior.singleagent.learning.lspi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+
+import burlap.behavior.singleagent.vfa.StateFeature;
+
+
+/**
+ * Solves the LSTDQ system of {@link LSPI} using the sparse state-action features of each sample directly. Each sample is stored
+ * as the ids and values of its nonzero features, and the solver works in a single nf x nf matrix that is allocated once and reused
+ * for every call while the number of features does not change, so solving does not allocate per-sample temporaries. Two modes are supported.
+ * <br/><br/>
+ * {@link SolveMode#SHERMAN_MORRISON} maintains the inverse matrix B with an in-place rank-1 Sherman-Morrison update per sample,
+ * starting from B = identityScalar * I, exactly as in the original LSTDQ formulation [1]. The products B * phi and
+ * (phi - gamma * phi')^T * B only touch the columns and rows of the nonzero features, so a sample costs O(nf * nnz) to form the update
+ * and one O(nf^2) pass over B to apply it.
+ * <br/><br/>
+ * {@link SolveMode#BATCH} accumulates A = I / identityScalar + sum phi (phi - gamma * phi')^T and b = sum r * phi, which costs O(nnz^2) per sample,
+ * and then solves A w = b once with an LU factorization. With a parallelism greater than one, the rows of A are divided among worker threads,
+ * each of which accumulates the outer products of every sample into the rows it owns; every element of A is therefore summed in sample
+ * order and the result does not depend on the parallelism. In exact arithmetic both modes compute the same weights; the batch mode is
+ * much faster when there are many more samples than features.
+ * <br/><br/>
+ * 1. Lagoudakis, Michail G., and Ronald Parr. "Least-squares policy iteration." The Journal of Machine Learning Research 4 (2003): 1107-1149.
+ * @author James MacGlashan
+ *
+ */
+public class SparseLSTDQ {
+
+	/**
+	 * The way in which the LSTDQ system is solved.
+	 */
+	public enum SolveMode{
+		/**
+		 * Incrementally update the inverse matrix with a Sherman-Morrison update per sample.
+		 */
+		SHERMAN_MORRISON,
+
+		/**
+		 * Accumulate the system matrix, possibly in parallel, and solve it once with an LU factorization.
+		 */
+		BATCH
+	}
+
+
+	/**
+	 * The solve mode; default is {@link SolveMode#SHERMAN_MORRISON}.
+	 */
+	protected SolveMode					mode = SolveMode.SHERMAN_MORRISON;
+
+	/**
+	 * The number of worker threads used to accumulate the system matrix in {@link SolveMode#BATCH} mode.
+	 */
+	protected int						parallelism = 1;
+
+	/**
+	 * The pool in which the system matrix is accumulated; created lazily.
+	 */
+	protected ForkJoinPool				pool;
+
+	/**
+	 * The number of features for which the working arrays are allocated
+	 */
+	protected int						nf = -1;
+
+	/**
+	 * The nf x nf working matrix, stored in row-major order
+	 */
+	protected double []					matrix;
+
+	/**
+	 * Working vectors of size nf
+	 */
+	protected double []					u;
+	protected double []					v;
+	protected double []					dense;
+
+	/**
+	 * Working feature id list and marks of size nf
+	 */
+	protected int []					ids;
+	protected boolean []				marked;
+
+
+	/**
+	 * Initializes in {@link SolveMode#SHERMAN_MORRISON} mode.
+	 */
+	public SparseLSTDQ(){
+
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param mode the solve mode
+	 * @param parallelism the number of worker threads used to accumulate the system matrix in {@link SolveMode#BATCH} mode.
+	 */
+	public SparseLSTDQ(SolveMode mode, int parallelism){
+		this.mode = mode;
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Returns the solve mode.
+	 * @return the solve mode.
+	 */
+	public SolveMode getSolveMode(){
+		return this.mode;
+	}
+
+	/**
+	 * Sets the solve mode.
+	 * @param mode the solve mode.
+	 */
+	public void setSolveMode(SolveMode mode){
+		this.mode = mode;
+	}
+
+
+	/**
+	 * Returns the number of worker threads used to accumulate the system matrix in {@link SolveMode#BATCH} mode.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+
+
+	/**
+	 * Sets the number of worker threads used to accumulate the system matrix in {@link SolveMode#BATCH} mode.
+	 * @param parallelism the number of worker threads.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Creates the sparse representation of a sample. If a feature id occurs more than once in a feature list, its last value is used.
+	 * @param phi the nonzero state-action features of the sample
+	 * @param phiPrime the nonzero state-action features of the next state and the action selected in it by the policy being evaluated
+	 * @param r the reward of the sample
+	 * @param nf the total number of state-action features
+	 * @return the sparse representation of the sample
+	 */
+	public Sample sample(List<StateFeature> phi, List<StateFeature> phiPrime, double r, int nf){
+		this.allocate(nf);
+		Sample sample = new Sample();
+		sample.r = r;
+		int n = this.gather(phi);
+		sample.phiIds = Arrays.copyOf(this.ids, n);
+		sample.phiValues = this.collect(n);
+		n = this.gather(phiPrime);
+		sample.phiPrimeIds = Arrays.copyOf(this.ids, n);
+		sample.phiPrimeValues = this.collect(n);
+		return sample;
+	}
+
+
+	/**
+	 * Solves the LSTDQ system for a set of samples.
+	 * @param samples the samples
+	 * @param nf the total number of state-action features
+	 * @param gamma the discount factor
+	 * @param identityScalar the scalar of the initial inverse matrix; the system matrix is regularized by the identity divided by this value.
+	 * @return the weight of each feature
+	 */
+	public double [] solve(List<Sample> samples, int nf, double gamma, double identityScalar){
+		this.allocate(nf);
+		if(this.mode == SolveMode.BATCH){
+			return this.solveBatch(samples, gamma, identityScalar);
+		}
+		return this.solveShermanMorrison(samples, gamma, identityScalar);
+	}
+
+
+	/**
+	 * Solves by maintaining the inverse matrix with a Sherman-Morrison update per sample.
+	 * @param samples the samples
+	 * @param gamma the discount factor
+	 * @param identityScalar the scalar of the initial inverse matrix
+	 * @return the weight of each feature
+	 */
+	protected double [] solveShermanMorrison(List<Sample> samples, double gamma, double identityScalar){
+
+		int nf = this.nf;
+		double [] B = this.matrix;
+		double [] u = this.u;
+		double [] v = this.v;
+		Arrays.fill(B, 0.);
+		for(int i = 0; i < nf; i++){
+			B[i*nf + i] = identityScalar;
+		}
+		double [] b = new double[nf];
+
+		for(Sample sample : samples){
+
+			int [] phiIds = sample.phiIds;
+			double [] phiValues = sample.phiValues;
+
+			//u = B * phi
+			for(int i = 0; i < nf; i++){
+				int row = i*nf;
+				double sum = 0.;
+				for(int t = 0; t < phiIds.length; t++){
+					sum += B[row + phiIds[t]] * phiValues[t];
+				}
+				u[i] = sum;
+			}
+
+			//v = (phi - gamma * phi')^T * B
+			Arrays.fill(v, 0.);
+			int dn = this.difference(sample, gamma);
+			for(int t = 0; t < dn; t++){
+				int k = this.ids[t];
+				double dk = this.dense[k];
+				this.dense[k] = 0.;
+				this.marked[k] = false;
+				if(dk == 0.){
+					continue;
+				}
+				int row = k*nf;
+				for(int j = 0; j < nf; j++){
+					v[j] += dk * B[row + j];
+				}
+			}
+
+			double denominator = 1.;
+			for(int t = 0; t < phiIds.length; t++){
+				denominator += v[phiIds[t]] * phiValues[t];
+			}
+
+			//B = B - u v^T / denominator
+			for(int i = 0; i < nf; i++){
+				if(u[i] == 0.){
+					continue;
+				}
+				double c = u[i] / denominator;
+				int row = i*nf;
+				for(int j = 0; j < nf; j++){
+					B[row + j] -= c * v[j];
+				}
+			}
+
+			for(int t = 0; t < phiIds.length; t++){
+				b[phiIds[t]] += sample.r * phiValues[t];
+			}
+
+		}
+
+		double [] w = new double[nf];
+		for(int i = 0; i < nf; i++){
+			int row = i*nf;
+			double sum = 0.;
+			for(int j = 0; j < nf; j++){
+				sum += B[row + j] * b[j];
+			}
+			w[i] = sum;
+		}
+
+		return w;
+	}
+
+
+	/**
+	 * Solves by accumulating the system matrix and factorizing it once.
+	 * @param samples the samples
+	 * @param gamma the discount factor
+	 * @param identityScalar the scalar of the initial inverse matrix
+	 * @return the weight of each feature
+	 */
+	protected double [] solveBatch(List<Sample> samples, double gamma, double identityScalar){
+
+		int nf = this.nf;
+		double [] A = this.matrix;
+		Arrays.fill(A, 0.);
+		for(int i = 0; i < nf; i++){
+			A[i*nf + i] = 1. / identityScalar;
+		}
+		double [] b = new double[nf];
+
+		if(this.parallelism > 1 && samples.size() > 1){
+			if(this.pool == null){
+				this.pool = new ForkJoinPool(this.parallelism);
+			}
+			final List<AccumulateTask> tasks = new ArrayList<AccumulateTask>(this.parallelism);
+			for(int p = 0; p < this.parallelism; p++){
+				tasks.add(new AccumulateTask(samples, A, b, nf, gamma, p, this.parallelism));
+			}
+			this.pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+		else{
+			accumulate(samples, A, b, nf, gamma, 0, 1);
+		}
+
+		DenseMatrix64F Am = DenseMatrix64F.wrap(nf, nf, A);
+		DenseMatrix64F bm = DenseMatrix64F.wrap(nf, 1, b);
+		DenseMatrix64F wm = new DenseMatrix64F(nf, 1);
+		LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.linear(nf);
+		if(!solver.setA(Am)){
+			throw new RuntimeException("The LSTDQ system matrix is singular; increase the identity scalar or collect more samples.");
+		}
+		solver.solve(bm, wm);
+
+		return wm.getData();
+	}
+
+
+	/**
+	 * Accumulates the outer products and reward vector of every sample into the rows of A and b owned by one worker.
+	 * Row i is owned by worker i % numWorkers.
+	 * @param samples the samples
+	 * @param A the row-major system matrix
+	 * @param b the reward vector
+	 * @param nf the number of features
+	 * @param gamma the discount factor
+	 * @param worker the index of the worker
+	 * @param numWorkers the number of workers
+	 */
+	protected static void accumulate(List<Sample> samples, double [] A, double [] b, int nf, double gamma, int worker, int numWorkers){
+		for(Sample sample : samples){
+			int [] phiIds = sample.phiIds;
+			double [] phiValues = sample.phiValues;
+			for(int t = 0; t < phiIds.length; t++){
+				int i = phiIds[t];
+				if(i % numWorkers != worker){
+					continue;
+				}
+				double pi = phiValues[t];
+				int row = i*nf;
+				for(int s = 0; s < phiIds.length; s++){
+					A[row + phiIds[s]] += pi * phiValues[s];
+				}
+				double gpi = gamma * pi;
+				for(int s = 0; s < sample.phiPrimeIds.length; s++){
+					A[row + sample.phiPrimeIds[s]] -= gpi * sample.phiPrimeValues[s];
+				}
+				b[i] += sample.r * pi;
+			}
+		}
+	}
+
+
+	/**
+	 * Allocates the working arrays if the number of features has changed.
+	 * @param nf the number of features
+	 */
+	protected void allocate(int nf){
+		if(nf == this.nf){
+			return;
+		}
+		this.nf = nf;
+		this.matrix = new double[nf*nf];
+		this.u = new double[nf];
+		this.v = new double[nf];
+		this.dense = new double[nf];
+		this.ids = new int[nf];
+		this.marked = new boolean[nf];
+	}
+
+
+	/**
+	 * Gathers the distinct ids of a feature list into the id working list and their (last) values into the dense working vector.
+	 * @param features the features
+	 * @return the number of distinct ids
+	 */
+	protected int gather(List<StateFeature> features){
+		int n = 0;
+		for(StateFeature f : features){
+			if(!this.marked[f.id]){
+				this.marked[f.id] = true;
+				this.ids[n] = f.id;
+				n++;
+			}
+			this.dense[f.id] = f.value;
+		}
+		return n;
+	}
+
+
+	/**
+	 * Collects the values of the first n ids of the id working list and clears the dense working vector and marks.
+	 * @param n the number of ids
+	 * @return the values of the ids
+	 */
+	protected double [] collect(int n){
+		double [] values = new double[n];
+		for(int t = 0; t < n; t++){
+			int id = this.ids[t];
+			values[t] = this.dense[id];
+			this.dense[id] = 0.;
+			this.marked[id] = false;
+		}
+		return values;
+	}
+
+
+	/**
+	 * Computes phi - gamma * phi' of a sample into the dense working vector and its ids into the id working list. The caller must clear the
+	 * dense working vector and marks of the returned ids.
+	 * @param sample the sample
+	 * @param gamma the discount factor
+	 * @return the number of ids
+	 */
+	protected int difference(Sample sample, double gamma){
+		int n = 0;
+		for(int t = 0; t < sample.phiIds.length; t++){
+			int id = sample.phiIds[t];
+			if(!this.marked[id]){
+				this.marked[id] = true;
+				this.ids[n] = id;
+				n++;
+			}
+			this.dense[id] += sample.phiValues[t];
+		}
+		for(int t = 0; t < sample.phiPrimeIds.length; t++){
+			int id = sample.phiPrimeIds[t];
+			if(!this.marked[id]){
+				this.marked[id] = true;
+				this.ids[n] = id;
+				n++;
+			}
+			this.dense[id] -= gamma * sample.phiPrimeValues[t];
+		}
+		return n;
+	}
+
+
+	/**
+	 * A sample with sparse state-action features.
+	 */
+	public static class Sample{
+
+		/**
+		 * The ids of the nonzero state-action features
+		 */
+		public int [] phiIds;
+
+		/**
+		 * The values of the nonzero state-action features
+		 */
+		public double [] phiValues;
+
+		/**
+		 * The ids of the nonzero next state-action features
+		 */
+		public int [] phiPrimeIds;
+
+		/**
+		 * The values of the nonzero next state-action features
+		 */
+		public double [] phiPrimeValues;
+
+		/**
+		 * The reward
+		 */
+		public double r;
+
+	}
+
+
+	/**
+	 * Accumulates the rows of the system matrix owned by one worker.
+	 */
+	protected static class AccumulateTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		List<Sample> samples;
+		double [] A;
+		double [] b;
+		int nf;
+		double gamma;
+		int worker;
+		int numWorkers;
+
+		public AccumulateTask(List<Sample> samples, double [] A, double [] b, int nf, double gamma, int worker, int numWorkers){
+			this.samples = samples;
+			this.A = A;
+			this.b = b;
+			this.nf = nf;
+			this.gamma = gamma;
+			this.worker = worker;
+			this.numWorkers = numWorkers;
+		}
+
+		@Override
+		protected void compute() {
+			accumulate(this.samples, this.A, this.b, this.nf, this.gamma, this.worker, this.numWorkers);
+		}
+	}
+
+}
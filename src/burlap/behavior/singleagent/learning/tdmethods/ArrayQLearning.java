@@ -0,0 +1,281 @@
+package burlap.behavior.singleagent.learning.tdmethods;
+
+import java.util.List;
+import java.util.Random;
+
+import burlap.behavior.policy.EpsilonGreedy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.options.Option;
+import burlap.behavior.singleagent.options.support.EnvironmentOptionOutcome;
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A {@link QLearning} implementation that stores its Q-values in an {@link ArrayQTable} rather than in lists of
+ * {@link burlap.behavior.valuefunction.QValue} objects. Actions are resolved to int indices once, so a learning step performs
+ * one table lookup for the current state and one for the next state, and the update writes directly into a primitive array.
+ * <p/>
+ * When the learning policy is an {@link burlap.behavior.policy.EpsilonGreedy} policy derived from this object (the default), action selection is
+ * performed directly on the table, using the policy's random generator, so that {@link #runLearningEpisode(burlap.oomdp.singleagent.environment.Environment, int)}
+ * does not allocate any objects other than those created by the environment, state hashing, and the episode record.
+ * Any other learning policy is queried through the standard {@link burlap.behavior.policy.Policy} interface.
+ * <p/>
+ * Because the {@link ArrayQTable} stores one entry per action, this class only supports domains whose actions are not parameterized.
+ * The {@link burlap.behavior.valuefunction.QValue} objects returned by {@link #getQs(burlap.oomdp.core.states.State)} and
+ * {@link #getQ(burlap.oomdp.core.states.State, burlap.oomdp.core.AbstractGroundedAction)} are copies; modifying them does not change the table.
+ * @author James MacGlashan
+ *
+ */
+public class ArrayQLearning extends QLearning {
+
+	/**
+	 * The Q-value table; created lazily so that actions added after construction are included.
+	 */
+	protected ArrayQTable											qTable;
+
+	/**
+	 * The number of rows for which the Q-value table initially allocates space.
+	 */
+	protected int													initialCapacity = 1024;
+
+
+	/**
+	 * Initializes with a 0.1 epsilon greedy policy, the same Q-value initialization everywhere, and no limit on the number of steps
+	 * the agent can take in an episode.
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory to use for Q-lookups
+	 * @param qInit the initial Q-value to user everywhere
+	 * @param learningRate the learning rate
+	 */
+	public ArrayQLearning(Domain domain, double gamma, HashableStateFactory hashingFactory,
+						  double qInit, double learningRate) {
+		super(domain, gamma, hashingFactory, qInit, learningRate);
+	}
+
+
+	/**
+	 * Initializes. Note that if the provided policy is derived from the Q-value of this learning agent (as it should be),
+	 * you may need to set the policy to point to this object after call this constructor.
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory to use for Q-lookups
+	 * @param qInit a {@link burlap.behavior.valuefunction.ValueFunctionInitialization} object that can be used to initialize the Q-values.
+	 * @param learningRate the learning rate
+	 * @param learningPolicy the learning policy to follow during a learning episode.
+	 * @param maxEpisodeSize the maximum number of steps the agent will take in a learning episode for the agent stops trying.
+	 */
+	public ArrayQLearning(Domain domain, double gamma, HashableStateFactory hashingFactory,
+						  ValueFunctionInitialization qInit, double learningRate, Policy learningPolicy, int maxEpisodeSize) {
+		super(domain, gamma, hashingFactory, qInit, learningRate, learningPolicy, maxEpisodeSize);
+	}
+
+
+	/**
+	 * Sets the number of states for which the Q-value table initially allocates space. Only has an effect before learning begins
+	 * or after the solver is reset.
+	 * @param initialCapacity the number of states for which space is initially allocated.
+	 */
+	public void setInitialCapacity(int initialCapacity){
+		this.initialCapacity = initialCapacity;
+	}
+
+
+	/**
+	 * Returns the Q-value table, creating it if necessary.
+	 * @return the Q-value table.
+	 */
+	public ArrayQTable getQTable(){
+		if(this.qTable == null){
+			this.qTable = new ArrayQTable(this.actions, this.qInitFunction, this.initialCapacity);
+		}
+		return this.qTable;
+	}
+
+
+	/**
+	 * Adds an additional action the solver can use. Any previously learned Q-values are discarded.
+	 * @param a the action to add.
+	 */
+	@Override
+	public void addNonDomainReferencedAction(Action a){
+		super.addNonDomainReferencedAction(a);
+		this.qTable = null;
+	}
+
+
+	/**
+	 * Sets the action set the solver can use. Any previously learned Q-values are discarded.
+	 * @param actions the actions the solver can use.
+	 */
+	@Override
+	public void setActions(List<Action> actions){
+		super.setActions(actions);
+		this.qTable = null;
+	}
+
+
+	@Override
+	public void setQInitFunction(ValueFunctionInitialization qInit){
+		super.setQInitFunction(qInit);
+		if(this.qTable != null){
+			this.qTable.setQInit(qInit);
+		}
+	}
+
+
+	@Override
+	protected List<QValue> getQs(HashableState s) {
+		ArrayQTable table = this.getQTable();
+		return table.getQs(table.rowFor(s));
+	}
+
+
+	@Override
+	protected QValue getQ(HashableState s, GroundedAction a) {
+		ArrayQTable table = this.getQTable();
+		int row = table.rowFor(s);
+		int ai = table.actionIndex(a);
+		if(ai == -1 || !table.isApplicable(row, ai)){
+			return null; //no action for this state indexed
+		}
+		return new QValue(s.s, table.groundedAction(ai), table.q(row, ai));
+	}
+
+
+	@Override
+	protected double getMaxQ(HashableState s){
+		ArrayQTable table = this.getQTable();
+		return table.maxQ(table.rowFor(s));
+	}
+
+
+	/**
+	 * Returns a {@link QLearningStateNode} holding copies of the Q-values stored in the {@link ArrayQTable} for the given state,
+	 * adding the state to the table if necessary. Changes to the returned node do not affect the table.
+	 * @param s the hashed state
+	 * @return a {@link QLearningStateNode} with the state's current Q-values.
+	 */
+	@Override
+	protected QLearningStateNode getStateNode(HashableState s){
+		ArrayQTable table = this.getQTable();
+		QLearningStateNode node = new QLearningStateNode(s);
+		node.qEntry.addAll(table.getQs(table.rowFor(s)));
+		return node;
+	}
+
+
+	/**
+	 * Returns whether the learning policy is an {@link burlap.behavior.policy.EpsilonGreedy} policy derived from this object,
+	 * in which case actions are selected directly from the Q-value table.
+	 * @return true if actions are selected directly from the Q-value table; false otherwise.
+	 */
+	protected boolean selectsActionsFromTable(){
+		return this.learningPolicy instanceof EpsilonGreedy && ((EpsilonGreedy)this.learningPolicy).getQFunction() == this;
+	}
+
+
+	@Override
+	public EpisodeAnalysis runLearningEpisode(Environment env, int maxSteps) {
+
+		this.toggleShouldAnnotateOptionDecomposition(shouldAnnotateOptions);
+
+		ArrayQTable table = this.getQTable();
+		boolean tableSelection = this.selectsActionsFromTable();
+		double epsilon = tableSelection ? ((EpsilonGreedy)this.learningPolicy).getEpsilon() : 0.;
+		Random rand = tableSelection ? ((EpsilonGreedy)this.learningPolicy).getRandomGenerator() : null;
+
+		State initialState = env.getCurrentObservation();
+
+		EpisodeAnalysis ea = new EpisodeAnalysis(initialState);
+		HashableState curState = this.stateHash(initialState);
+		eStepCounter = 0;
+
+		maxQChangeInLastEpisode = 0.;
+		while(!env.isInTerminalState() && (eStepCounter < maxSteps || maxSteps == -1)){
+
+			int row = table.rowFor(curState);
+			int ai;
+			if(tableSelection){
+				ai = rand.nextDouble() <= epsilon ? table.randomAction(row, rand) : table.greedyAction(row, rand);
+			}
+			else{
+				ai = table.actionIndex(this.learningPolicy.getAction(curState.s));
+				if(ai == -1){
+					throw new RuntimeException("The learning policy selected an action that is not in the Q-value table.");
+				}
+			}
+			GroundedAction action = table.groundedAction(ai);
+
+			EnvironmentOutcome eo = action.executeIn(env);
+
+
+			HashableState nextState = this.stateHash(eo.op);
+			double maxQ = 0.;
+
+			if(!eo.terminated){
+				maxQ = table.maxQ(table.rowFor(nextState));
+			}
+
+			//manage option specifics
+			double r = eo.r;
+			double discount = eo instanceof EnvironmentOptionOutcome ? ((EnvironmentOptionOutcome)eo).discount : this.gamma;
+			int stepInc = eo instanceof EnvironmentOptionOutcome ? ((EnvironmentOptionOutcome)eo).numSteps : 1;
+			eStepCounter += stepInc;
+
+			if(action.action.isPrimitive() || !this.shouldAnnotateOptions){
+				ea.recordTransitionTo(action, nextState.s, r);
+			}
+			else{
+				ea.appendAndMergeEpisodeAnalysis(((Option)action.action).getLastExecutionResults());
+			}
+
+
+
+			double oldQ = table.q(row, ai);
+
+			//update Q-value
+			double newQ = oldQ + this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState.s, action) * (r + (discount * maxQ) - oldQ);
+			table.setQ(row, ai, newQ);
+
+			double deltaQ = Math.abs(oldQ - newQ);
+			if(deltaQ > maxQChangeInLastEpisode){
+				maxQChangeInLastEpisode = deltaQ;
+			}
+
+			//move on polling environment for its current state in case it changed during processing
+			curState = this.stateHash(env.getCurrentObservation());
+			this.totalNumberOfSteps++;
+
+
+		}
+
+		if(episodeHistory.size() >= numEpisodesToStore){
+			episodeHistory.poll();
+		}
+		episodeHistory.offer(ea);
+
+		return ea;
+
+	}
+
+
+	@Override
+	public void resetSolver(){
+		super.resetSolver();
+		if(this.qTable != null){
+			this.qTable.clear();
+		}
+	}
+
+}
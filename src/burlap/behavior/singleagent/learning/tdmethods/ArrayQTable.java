@@ -0,0 +1,367 @@
+package burlap.behavior.singleagent.learning.tdmethods;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.oomdp.core.AbstractGroundedAction;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.statehashing.HashableState;
+
+
+/**
+ * A tabular Q-function that stores the Q-values of each state in a contiguous row of a single double array. Actions are
+ * resolved to int indices once when the table is created, so the Q-values of a state-action pair can be read and written
+ * with a single state lookup and no allocation. Each state is assigned a row the first time it is queried with {@link #rowFor(burlap.oomdp.statehashing.HashableState)},
+ * at which point the applicability of each action in the state is recorded and the Q-values are initialized from a
+ * {@link burlap.behavior.valuefunction.ValueFunctionInitialization}.
+ * <p/>
+ * Because every row has one entry per action, this table only supports domains whose actions are not parameterized.
+ * @author James MacGlashan
+ *
+ */
+public class ArrayQTable {
+
+	/**
+	 * The actions, in index order.
+	 */
+	protected List<Action>						actions;
+
+	/**
+	 * The grounded action of each action index.
+	 */
+	protected GroundedAction []					groundedActions;
+
+	/**
+	 * Map from action names to action indices.
+	 */
+	protected Map<String, Integer>				actionIndex;
+
+	/**
+	 * Map from hashed states to row indices.
+	 */
+	protected Map<HashableState, Integer>		stateIndex;
+
+	/**
+	 * The hashed state of each row.
+	 */
+	protected HashableState []					states;
+
+	/**
+	 * The Q-values; the Q-value of action a in row r is stored at index r*numActions + a.
+	 */
+	protected double []							qValues;
+
+	/**
+	 * Whether each action is applicable in the state of each row; indexed like {@link #qValues}.
+	 */
+	protected boolean []						applicable;
+
+	/**
+	 * The number of rows in use.
+	 */
+	protected int								numStates;
+
+	/**
+	 * The number of actions.
+	 */
+	protected int								numActions;
+
+	/**
+	 * The Q-value initialization used for new rows.
+	 */
+	protected ValueFunctionInitialization		qInit;
+
+
+	/**
+	 * Initializes.
+	 * @param actions the actions for which Q-values are stored. None may be parameterized.
+	 * @param qInit the Q-value initialization used for new rows
+	 * @param initialCapacity the number of rows for which space is initially allocated
+	 */
+	public ArrayQTable(List<Action> actions, ValueFunctionInitialization qInit, int initialCapacity){
+
+		this.actions = new ArrayList<Action>(actions);
+		this.numActions = actions.size();
+		this.groundedActions = new GroundedAction[this.numActions];
+		this.actionIndex = new HashMap<String, Integer>(this.numActions*2);
+		for(int i = 0; i < this.numActions; i++){
+			Action a = this.actions.get(i);
+			if(a.isParameterized()){
+				throw new RuntimeException("ArrayQTable does not support parameterized actions; action " + a.getName() + " is parameterized.");
+			}
+			this.groundedActions[i] = a.getAssociatedGroundedAction();
+			this.actionIndex.put(a.getName(), i);
+		}
+
+		this.qInit = qInit;
+		int capacity = Math.max(1, initialCapacity);
+		this.stateIndex = new HashMap<HashableState, Integer>(capacity*2);
+		this.states = new HashableState[capacity];
+		this.qValues = new double[capacity*this.numActions];
+		this.applicable = new boolean[capacity*this.numActions];
+		this.numStates = 0;
+
+	}
+
+
+	/**
+	 * Sets the Q-value initialization used for rows created after this call.
+	 * @param qInit the Q-value initialization
+	 */
+	public void setQInit(ValueFunctionInitialization qInit){
+		this.qInit = qInit;
+	}
+
+
+	/**
+	 * Returns the number of actions.
+	 * @return the number of actions.
+	 */
+	public int numActions(){
+		return this.numActions;
+	}
+
+
+	/**
+	 * Returns the number of rows (states) stored.
+	 * @return the number of rows (states) stored.
+	 */
+	public int numStates(){
+		return this.numStates;
+	}
+
+
+	/**
+	 * Returns the index of the given action, or -1 if it is not in this table.
+	 * @param ga the grounded action
+	 * @return the index of the given action, or -1 if it is not in this table.
+	 */
+	public int actionIndex(AbstractGroundedAction ga){
+		Integer ind = this.actionIndex.get(ga.actionName());
+		if(ind == null){
+			return -1;
+		}
+		return ind;
+	}
+
+
+	/**
+	 * Returns the grounded action with the given index. The same instance is returned on each call.
+	 * @param a the action index
+	 * @return the grounded action with the given index.
+	 */
+	public GroundedAction groundedAction(int a){
+		return this.groundedActions[a];
+	}
+
+
+	/**
+	 * Returns the hashed state stored in the given row.
+	 * @param row the row index
+	 * @return the hashed state stored in the given row.
+	 */
+	public HashableState state(int row){
+		return this.states[row];
+	}
+
+
+	/**
+	 * Returns the row of the given hashed state, or -1 if it has no row.
+	 * @param sh the hashed state
+	 * @return the row of the given hashed state, or -1 if it has no row.
+	 */
+	public int existingRow(HashableState sh){
+		Integer row = this.stateIndex.get(sh);
+		if(row == null){
+			return -1;
+		}
+		return row;
+	}
+
+
+	/**
+	 * Returns the row of the given hashed state, creating and initializing it if it does not exist.
+	 * @param sh the hashed state
+	 * @return the row of the given hashed state.
+	 */
+	public int rowFor(HashableState sh){
+
+		Integer row = this.stateIndex.get(sh);
+		if(row != null){
+			return row;
+		}
+
+		if(this.numStates == this.states.length){
+			int capacity = this.states.length*2;
+			this.states = Arrays.copyOf(this.states, capacity);
+			this.qValues = Arrays.copyOf(this.qValues, capacity*this.numActions);
+			this.applicable = Arrays.copyOf(this.applicable, capacity*this.numActions);
+		}
+
+		int r = this.numStates;
+		int offset = r*this.numActions;
+		int nApplicable = 0;
+		for(int a = 0; a < this.numActions; a++){
+			GroundedAction ga = this.groundedActions[a];
+			boolean app = ga.applicableInState(sh.s);
+			this.applicable[offset+a] = app;
+			if(app){
+				this.qValues[offset+a] = this.qInit.qValue(sh.s, ga);
+				nApplicable++;
+			}
+			else{
+				this.qValues[offset+a] = Double.NEGATIVE_INFINITY;
+			}
+		}
+		if(nApplicable == 0){
+			throw new RuntimeException("No possible actions in this state, cannot continue Q-learning");
+		}
+
+		this.states[r] = sh;
+		this.stateIndex.put(sh, r);
+		this.numStates++;
+
+		return r;
+	}
+
+
+	/**
+	 * Returns whether the given action is applicable in the state of the given row.
+	 * @param row the row index
+	 * @param a the action index
+	 * @return true if the action is applicable; false otherwise.
+	 */
+	public boolean isApplicable(int row, int a){
+		return this.applicable[row*this.numActions + a];
+	}
+
+
+	/**
+	 * Returns the Q-value of the given row and action.
+	 * @param row the row index
+	 * @param a the action index
+	 * @return the Q-value.
+	 */
+	public double q(int row, int a){
+		return this.qValues[row*this.numActions + a];
+	}
+
+
+	/**
+	 * Sets the Q-value of the given row and action.
+	 * @param row the row index
+	 * @param a the action index
+	 * @param q the new Q-value
+	 */
+	public void setQ(int row, int a, double q){
+		this.qValues[row*this.numActions + a] = q;
+	}
+
+
+	/**
+	 * Returns the maximum Q-value over the applicable actions of the given row.
+	 * @param row the row index
+	 * @return the maximum Q-value.
+	 */
+	public double maxQ(int row){
+		int offset = row*this.numActions;
+		double max = Double.NEGATIVE_INFINITY;
+		for(int a = 0; a < this.numActions; a++){
+			if(this.applicable[offset+a] && this.qValues[offset+a] > max){
+				max = this.qValues[offset+a];
+			}
+		}
+		return max;
+	}
+
+
+	/**
+	 * Returns the index of an applicable action with the maximum Q-value in the given row, breaking ties uniformly randomly.
+	 * @param row the row index
+	 * @param rand the random number generator used to break ties
+	 * @return the index of a greedy action.
+	 */
+	public int greedyAction(int row, Random rand){
+		int offset = row*this.numActions;
+		double max = Double.NEGATIVE_INFINITY;
+		int selected = -1;
+		int nTies = 0;
+		for(int a = 0; a < this.numActions; a++){
+			if(!this.applicable[offset+a]){
+				continue;
+			}
+			double q = this.qValues[offset+a];
+			if(selected == -1 || q > max){
+				max = q;
+				selected = a;
+				nTies = 1;
+			}
+			else if(q == max){
+				//reservoir sample among tied actions
+				nTies++;
+				if(rand.nextInt(nTies) == 0){
+					selected = a;
+				}
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Returns the index of an applicable action of the given row selected uniformly at random.
+	 * @param row the row index
+	 * @param rand the random number generator
+	 * @return the index of a random applicable action.
+	 */
+	public int randomAction(int row, Random rand){
+		int offset = row*this.numActions;
+		int selected = -1;
+		int n = 0;
+		for(int a = 0; a < this.numActions; a++){
+			if(this.applicable[offset+a]){
+				n++;
+				if(rand.nextInt(n) == 0){
+					selected = a;
+				}
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Returns new {@link burlap.behavior.valuefunction.QValue} objects for the applicable actions of the given row. Changes to the returned
+	 * objects do not affect this table.
+	 * @param row the row index
+	 * @return the Q-values of the applicable actions.
+	 */
+	public List<QValue> getQs(int row){
+		int offset = row*this.numActions;
+		List<QValue> qs = new ArrayList<QValue>(this.numActions);
+		for(int a = 0; a < this.numActions; a++){
+			if(this.applicable[offset+a]){
+				qs.add(new QValue(this.states[row].s, this.groundedActions[a], this.qValues[offset+a]));
+			}
+		}
+		return qs;
+	}
+
+
+	/**
+	 * Removes all rows from this table.
+	 */
+	public void clear(){
+		this.stateIndex.clear();
+		Arrays.fill(this.states, 0, this.numStates, null);
+		this.numStates = 0;
+	}
+
+}
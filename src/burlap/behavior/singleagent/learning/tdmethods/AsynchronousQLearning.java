@@ -0,0 +1,310 @@
+package burlap.behavior.singleagent.learning.tdmethods;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import burlap.behavior.valuefunction.QFunction;
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.oomdp.core.AbstractGroundedAction;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentFactory;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * Asynchronous Q-learning in which a number of {@link ConcurrentQLearning} workers learn at the same time, each on its own thread
+ * and in its own {@link burlap.oomdp.singleagent.environment.Environment} generated by an
+ * {@link burlap.oomdp.singleagent.environment.EnvironmentFactory}, and all update one shared {@link ConcurrentQTable}.
+ * Workers claim episodes from a shared budget until it is exhausted, so a call to {@link #runEpisodes(int)} runs exactly the requested number of episodes
+ * in total regardless of how fast each worker is.
+ * <p/>
+ * This object is a {@link burlap.behavior.valuefunction.QFunction} that reads the live table, so a {@link burlap.behavior.policy.GreedyQPolicy}
+ * over it follows the values as they are being learned. To evaluate a fixed Q-function while learning continues,
+ * use {@link #snapshot()}, which returns a consistent copy of the table.
+ * <p/>
+ * If a random stream seed is set with {@link #setRandomStreamSeed(long)}, each worker draws from the {@link burlap.debugtools.RandomFactory}
+ * streams of its own trial, so the action selection of each worker is seeded independently. Because the workers' updates interleave
+ * in an order determined by thread scheduling, learning with more than one worker is not in general reproducible.
+ * @author James MacGlashan
+ *
+ */
+public class AsynchronousQLearning implements QFunction {
+
+	/**
+	 * The factory that generates the environment of each worker
+	 */
+	protected EnvironmentFactory				environmentFactory;
+
+	/**
+	 * The hashing factory used for Q-lookups
+	 */
+	protected HashableStateFactory				hashingFactory;
+
+	/**
+	 * The shared Q-value table
+	 */
+	protected ConcurrentQTable					qTable;
+
+	/**
+	 * The learning workers
+	 */
+	protected List<ConcurrentQLearning>			workers;
+
+	/**
+	 * The environment of each worker
+	 */
+	protected List<Environment>					environments;
+
+	/**
+	 * The stream context of each worker, or null if no random stream seed is set
+	 */
+	protected RandomFactory.StreamContext []	workerContexts;
+
+	/**
+	 * The maximum number of steps of a learning episode; -1 for no limit
+	 */
+	protected int								maxEpisodeSize = -1;
+
+	/**
+	 * The total number of episodes run by all workers
+	 */
+	protected AtomicInteger						numEpisodesRun = new AtomicInteger();
+
+	/**
+	 * The debug code used for printing progress
+	 */
+	protected int								debugCode = 47381;
+
+
+	/**
+	 * Initializes with a 0.1 epsilon greedy learning policy for each worker.
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory to use for Q-lookups
+	 * @param qInit the Q-value initialization
+	 * @param learningRate the learning rate
+	 * @param environmentFactory the factory that generates the environment of each worker
+	 * @param numWorkers the number of workers
+	 */
+	public AsynchronousQLearning(Domain domain, double gamma, HashableStateFactory hashingFactory, ValueFunctionInitialization qInit,
+								 double learningRate, EnvironmentFactory environmentFactory, int numWorkers){
+
+		if(numWorkers < 1){
+			throw new RuntimeException("AsynchronousQLearning requires at least one worker.");
+		}
+
+		this.environmentFactory = environmentFactory;
+		this.hashingFactory = hashingFactory;
+		this.qTable = new ConcurrentQTable(domain.getActions(), qInit, numWorkers);
+		this.workers = new ArrayList<ConcurrentQLearning>(numWorkers);
+		this.environments = new ArrayList<Environment>(numWorkers);
+		for(int i = 0; i < numWorkers; i++){
+			this.workers.add(this.createWorker(i, domain, gamma, learningRate));
+			this.environments.add(environmentFactory.generateEnvironment());
+		}
+	}
+
+
+	/**
+	 * Creates a worker that learns in the shared table. Override to use different worker settings, such as a different learning policy.
+	 * @param i the index of the worker
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param learningRate the learning rate
+	 * @return the worker
+	 */
+	protected ConcurrentQLearning createWorker(int i, Domain domain, double gamma, double learningRate){
+		return new ConcurrentQLearning(domain, gamma, this.hashingFactory, this.qTable, learningRate);
+	}
+
+
+	/**
+	 * Returns the learning workers, whose settings (e.g., learning rate or learning policy) may be changed between calls to {@link #runEpisodes(int)}.
+	 * @return the learning workers
+	 */
+	public List<ConcurrentQLearning> getWorkers(){
+		return this.workers;
+	}
+
+
+	/**
+	 * Returns the shared Q-value table.
+	 * @return the shared Q-value table.
+	 */
+	public ConcurrentQTable getQTable(){
+		return this.qTable;
+	}
+
+
+	/**
+	 * Sets the maximum number of steps of a learning episode.
+	 * @param maxEpisodeSize the maximum number of steps of a learning episode; -1 for no limit
+	 */
+	public void setMaxEpisodeSize(int maxEpisodeSize){
+		this.maxEpisodeSize = maxEpisodeSize;
+	}
+
+
+	/**
+	 * Sets the seed from which the {@link burlap.debugtools.RandomFactory} stream context of each worker is derived; worker i draws from
+	 * the streams of trial i. The contexts persist across calls to {@link #runEpisodes(int)}.
+	 * @param seed the experiment seed of the workers' streams
+	 */
+	public void setRandomStreamSeed(long seed){
+		this.workerContexts = new RandomFactory.StreamContext[this.workers.size()];
+		for(int i = 0; i < this.workerContexts.length; i++){
+			this.workerContexts[i] = new RandomFactory.StreamContext(seed, i);
+		}
+	}
+
+
+	/**
+	 * Returns the total number of learning episodes run by all workers.
+	 * @return the total number of learning episodes run by all workers.
+	 */
+	public int getNumEpisodesRun(){
+		return this.numEpisodesRun.get();
+	}
+
+
+	/**
+	 * Returns the debug code used for printing progress.
+	 * @return the debug code used for printing progress.
+	 */
+	public int getDebugCode(){
+		return this.debugCode;
+	}
+
+
+	/**
+	 * Sets the debug code used for printing progress.
+	 * @param debugCode the debug code used for printing progress.
+	 */
+	public void setDebugCode(int debugCode){
+		this.debugCode = debugCode;
+	}
+
+
+	/**
+	 * Runs learning episodes on all workers at once until the given number of episodes have been run in total. Each worker resets its
+	 * environment after each of its episodes.
+	 * @param numEpisodes the total number of episodes to run
+	 */
+	public void runEpisodes(final int numEpisodes){
+
+		final AtomicInteger claimed = new AtomicInteger();
+		int n = this.workers.size();
+		ExecutorService executor = Executors.newFixedThreadPool(n);
+		try{
+
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(n);
+			for(int i = 0; i < n; i++){
+				final int wi = i;
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return AsynchronousQLearning.this.runWorker(wi, claimed, numEpisodes);
+					}
+				}));
+			}
+
+			for(Future<Integer> f : futures){
+				f.get();
+			}
+
+		} catch(InterruptedException e){
+			throw new RuntimeException("Interrupted while waiting for learning workers to complete.", e);
+		} catch(ExecutionException e){
+			throw new RuntimeException("A learning worker failed.", e.getCause());
+		} finally{
+			executor.shutdownNow();
+		}
+
+		DPrint.cf(this.debugCode, "Ran %d episodes; %d episodes in total; %d states in Q-table\n", numEpisodes, this.numEpisodesRun.get(), this.qTable.numStates());
+
+	}
+
+
+	/**
+	 * Runs learning episodes with one worker until the shared episode budget is exhausted.
+	 * @param wi the index of the worker
+	 * @param claimed the number of episodes claimed by all workers
+	 * @param numEpisodes the episode budget
+	 * @return the number of episodes run by the worker
+	 */
+	protected int runWorker(int wi, AtomicInteger claimed, int numEpisodes){
+		RandomFactory.StreamContext threadContext = this.workerContexts != null ? RandomFactory.setThreadContext(this.workerContexts[wi]) : null;
+		try{
+			ConcurrentQLearning worker = this.workers.get(wi);
+			Environment env = this.environments.get(wi);
+			int run = 0;
+			while(claimed.getAndIncrement() < numEpisodes){
+				worker.runLearningEpisode(env, this.maxEpisodeSize);
+				env.resetEnvironment();
+				this.numEpisodesRun.incrementAndGet();
+				run++;
+			}
+			return run;
+		} finally{
+			if(threadContext != null){
+				RandomFactory.setThreadContext(threadContext);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns a consistent copy of the shared Q-value table, which can be evaluated while learning continues.
+	 * @return a consistent copy of the shared Q-value table
+	 */
+	public ConcurrentQTable.Snapshot snapshot(){
+		return this.qTable.snapshot(this.hashingFactory);
+	}
+
+
+	/**
+	 * Clears the shared Q-value table and the episode history of each worker.
+	 */
+	public void resetSolver(){
+		this.qTable.clear();
+		for(ConcurrentQLearning w : this.workers){
+			w.resetSolver();
+		}
+		this.numEpisodesRun.set(0);
+	}
+
+
+	@Override
+	public List<QValue> getQs(State s) {
+		return this.qTable.getQs(this.qTable.rowFor(this.hashingFactory.hashState(s)), s);
+	}
+
+
+	@Override
+	public QValue getQ(State s, AbstractGroundedAction a) {
+		ConcurrentQTable.Row row = this.qTable.rowFor(this.hashingFactory.hashState(s));
+		int ai = this.qTable.actionIndex(row, s, a);
+		if(ai == -1){
+			return null;
+		}
+		return new QValue(s, this.qTable.action(row, ai, s), this.qTable.q(row, ai));
+	}
+
+
+	@Override
+	public double value(State s) {
+		return QFunction.QFunctionHelper.getOptimalValue(this, s);
+	}
+
+}
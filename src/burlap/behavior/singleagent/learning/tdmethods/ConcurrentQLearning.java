@@ -0,0 +1,267 @@
+package burlap.behavior.singleagent.learning.tdmethods;
+
+import java.util.List;
+import java.util.Random;
+
+import burlap.behavior.policy.EpsilonGreedy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.options.Option;
+import burlap.behavior.singleagent.options.support.EnvironmentOptionOutcome;
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A {@link QLearning} implementation that stores its Q-values in a {@link ConcurrentQTable} that may be shared with other
+ * {@link ConcurrentQLearning} instances learning at the same time on other threads, each interacting with its own
+ * {@link burlap.oomdp.singleagent.environment.Environment}. Every Q-value update is an atomic compare-and-set on the shared table,
+ * so the updates of different workers interleave without locks and without being lost. See {@link AsynchronousQLearning} for
+ * a class that runs a set of workers over a shared table.
+ * <p/>
+ * When the learning policy is an {@link burlap.behavior.policy.EpsilonGreedy} policy derived from this object (the default), action selection is
+ * performed directly on the table rows with the policy's random generator, which by default draws from the calling thread's
+ * {@link burlap.debugtools.RandomFactory#POLICYSTREAM} stream. The {@link burlap.behavior.valuefunction.QValue} objects returned
+ * by {@link #getQs(burlap.oomdp.core.states.State)} and {@link #getQ(burlap.oomdp.core.states.State, burlap.oomdp.core.AbstractGroundedAction)}
+ * are copies; modifying them does not change the table.
+ * <p/>
+ * An instance itself should only run one learning episode at a time; its episode history and step counters are not shared.
+ * {@link #resetSolver()} resets only those; the shared Q-value table is cleared with {@link ConcurrentQTable#clear()}.
+ * @author James MacGlashan
+ *
+ */
+public class ConcurrentQLearning extends QLearning {
+
+	/**
+	 * The Q-value table, which may be shared with other instances
+	 */
+	protected ConcurrentQTable										qTable;
+
+
+	/**
+	 * Initializes with a 0.1 epsilon greedy policy and no limit on the number of steps the agent can take in an episode.
+	 * The Q-value initialization is that of the table.
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory to use for Q-lookups
+	 * @param qTable the Q-value table, which may be shared with other instances
+	 * @param learningRate the learning rate
+	 */
+	public ConcurrentQLearning(Domain domain, double gamma, HashableStateFactory hashingFactory,
+							   ConcurrentQTable qTable, double learningRate) {
+		super(domain, gamma, hashingFactory, qTable.qInit, learningRate, null, Integer.MAX_VALUE);
+		this.learningPolicy = new EpsilonGreedy(this, 0.1);
+		this.qTable = qTable;
+	}
+
+
+	/**
+	 * Initializes. Note that if the provided policy is derived from the Q-value of this learning agent (as it should be),
+	 * you may need to set the policy to point to this object after call this constructor.
+	 * @param domain the domain in which to learn
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory to use for Q-lookups
+	 * @param qTable the Q-value table, which may be shared with other instances
+	 * @param learningRate the learning rate
+	 * @param learningPolicy the learning policy to follow during a learning episode.
+	 * @param maxEpisodeSize the maximum number of steps the agent will take in a learning episode for the agent stops trying.
+	 */
+	public ConcurrentQLearning(Domain domain, double gamma, HashableStateFactory hashingFactory,
+							   ConcurrentQTable qTable, double learningRate, Policy learningPolicy, int maxEpisodeSize) {
+		super(domain, gamma, hashingFactory, qTable.qInit, learningRate, learningPolicy, maxEpisodeSize);
+		this.qTable = qTable;
+	}
+
+
+	/**
+	 * Returns the Q-value table.
+	 * @return the Q-value table.
+	 */
+	public ConcurrentQTable getQTable(){
+		return this.qTable;
+	}
+
+
+	/**
+	 * Not supported; the actions are those of the shared {@link ConcurrentQTable}.
+	 * @param a the action to add.
+	 */
+	@Override
+	public void addNonDomainReferencedAction(Action a){
+		throw new RuntimeException("ConcurrentQLearning uses the actions of its ConcurrentQTable; actions cannot be added.");
+	}
+
+
+	/**
+	 * Not supported; the Q-value initialization is that of the shared {@link ConcurrentQTable}.
+	 * @param qInit the Q-value initialization
+	 */
+	@Override
+	public void setQInitFunction(ValueFunctionInitialization qInit){
+		throw new RuntimeException("ConcurrentQLearning uses the Q-value initialization of its ConcurrentQTable.");
+	}
+
+
+	@Override
+	protected List<QValue> getQs(HashableState s) {
+		return this.qTable.getQs(this.qTable.rowFor(s), s.s);
+	}
+
+
+	@Override
+	protected QValue getQ(HashableState s, GroundedAction a) {
+		ConcurrentQTable.Row row = this.qTable.rowFor(s);
+		int ai = this.qTable.actionIndex(row, s.s, a);
+		if(ai == -1){
+			return null; //no action for this state indexed
+		}
+		return new QValue(s.s, this.qTable.action(row, ai, s.s), this.qTable.q(row, ai));
+	}
+
+
+	@Override
+	protected double getMaxQ(HashableState s){
+		return this.qTable.maxQ(this.qTable.rowFor(s));
+	}
+
+
+	/**
+	 * Returns a {@link QLearningStateNode} holding copies of the Q-values stored in the {@link ConcurrentQTable} for the given state,
+	 * adding the state to the table if necessary. Changes to the returned node do not affect the table.
+	 * @param s the hashed state
+	 * @return a {@link QLearningStateNode} with the state's current Q-values.
+	 */
+	@Override
+	protected QLearningStateNode getStateNode(HashableState s){
+		QLearningStateNode node = new QLearningStateNode(s);
+		node.qEntry.addAll(this.getQs(s));
+		return node;
+	}
+
+
+	/**
+	 * Returns whether the learning policy is an {@link burlap.behavior.policy.EpsilonGreedy} policy derived from this object,
+	 * in which case actions are selected directly from the Q-value table.
+	 * @return true if actions are selected directly from the Q-value table; false otherwise.
+	 */
+	protected boolean selectsActionsFromTable(){
+		return this.learningPolicy instanceof EpsilonGreedy && ((EpsilonGreedy)this.learningPolicy).getQFunction() == this;
+	}
+
+
+	/**
+	 * Returns the index of an action in a row with the maximum Q-value, breaking ties uniformly at random.
+	 * @param row the row
+	 * @param rand the random generator used to break ties
+	 * @return the index of a greedy action
+	 */
+	protected int greedyAction(ConcurrentQTable.Row row, Random rand){
+		int best = 0;
+		int numBest = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		for(int a = 0; a < row.actions.length; a++){
+			double q = this.qTable.q(row, a);
+			if(q > max){
+				max = q;
+				best = a;
+				numBest = 1;
+			}
+			else if(q == max){
+				numBest++;
+				if(rand.nextInt(numBest) == 0){
+					best = a;
+				}
+			}
+		}
+		return best;
+	}
+
+
+	@Override
+	public EpisodeAnalysis runLearningEpisode(Environment env, int maxSteps) {
+
+		this.toggleShouldAnnotateOptionDecomposition(shouldAnnotateOptions);
+
+		ConcurrentQTable table = this.qTable;
+		boolean tableSelection = this.selectsActionsFromTable();
+		double epsilon = tableSelection ? ((EpsilonGreedy)this.learningPolicy).getEpsilon() : 0.;
+		Random rand = tableSelection ? ((EpsilonGreedy)this.learningPolicy).getRandomGenerator() : null;
+
+		State initialState = env.getCurrentObservation();
+
+		EpisodeAnalysis ea = new EpisodeAnalysis(initialState);
+		HashableState curState = this.stateHash(initialState);
+		eStepCounter = 0;
+
+		maxQChangeInLastEpisode = 0.;
+		while(!env.isInTerminalState() && (eStepCounter < maxSteps || maxSteps == -1)){
+
+			ConcurrentQTable.Row row = table.rowFor(curState);
+			int ai;
+			if(tableSelection){
+				ai = rand.nextDouble() <= epsilon ? rand.nextInt(row.actions.length) : this.greedyAction(row, rand);
+			}
+			else{
+				ai = table.actionIndex(row, curState.s, this.learningPolicy.getAction(curState.s));
+				if(ai == -1){
+					throw new RuntimeException("The learning policy selected an action that is not applicable in the Q-value table.");
+				}
+			}
+			GroundedAction action = table.action(row, ai, curState.s);
+
+			EnvironmentOutcome eo = action.executeIn(env);
+
+
+			HashableState nextState = this.stateHash(eo.op);
+			double maxQ = 0.;
+
+			if(!eo.terminated){
+				maxQ = table.maxQ(table.rowFor(nextState));
+			}
+
+			//manage option specifics
+			double r = eo.r;
+			double discount = eo instanceof EnvironmentOptionOutcome ? ((EnvironmentOptionOutcome)eo).discount : this.gamma;
+			int stepInc = eo instanceof EnvironmentOptionOutcome ? ((EnvironmentOptionOutcome)eo).numSteps : 1;
+			eStepCounter += stepInc;
+
+			if(action.action.isPrimitive() || !this.shouldAnnotateOptions){
+				ea.recordTransitionTo(action, nextState.s, r);
+			}
+			else{
+				ea.appendAndMergeEpisodeAnalysis(((Option)action.action).getLastExecutionResults());
+			}
+
+
+			//update Q-value atomically in the shared table
+			double alpha = this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState.s, action);
+			double deltaQ = table.update(row, ai, alpha, r + (discount * maxQ));
+			if(deltaQ > maxQChangeInLastEpisode){
+				maxQChangeInLastEpisode = deltaQ;
+			}
+
+			//move on polling environment for its current state in case it changed during processing
+			curState = this.stateHash(env.getCurrentObservation());
+			this.totalNumberOfSteps++;
+
+
+		}
+
+		if(episodeHistory.size() >= numEpisodesToStore){
+			episodeHistory.poll();
+		}
+		episodeHistory.offer(ea);
+
+		return ea;
+
+	}
+
+}
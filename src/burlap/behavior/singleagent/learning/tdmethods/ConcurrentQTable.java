@@ -0,0 +1,395 @@
+package burlap.behavior.singleagent.learning.tdmethods;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import burlap.behavior.valuefunction.QFunction;
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.oomdp.core.AbstractGroundedAction;
+import burlap.oomdp.core.AbstractObjectParameterizedGroundedAction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A tabular Q-function that can be read and updated by many threads at once, for asynchronous (Hogwild style) Q-learning with
+ * {@link ConcurrentQLearning} workers. States are indexed in a {@link java.util.concurrent.ConcurrentHashMap} and the Q-values of
+ * each state are stored in a {@link java.util.concurrent.atomic.AtomicLongArray} of double bits, so updates are lock-free
+ * compare-and-set operations: concurrent updates to the same Q-value are never lost, and updates to different Q-values never wait on each other.
+ * <p/>
+ * Updates and row creation are also guarded by one of a set of striped read-write locks, chosen by the updating thread. Any number of
+ * threads hold read locks at once, and a thread only contends for its stripe with the threads that map to the same stripe. {@link #snapshot(HashableStateFactory)}
+ * acquires the write lock of every stripe, so the {@link Snapshot} it returns is a consistent copy of the table in which no update
+ * is partially applied, and can be evaluated with a {@link burlap.behavior.policy.GreedyQPolicy} while learning continues.
+ * <p/>
+ * Unlike {@link ArrayQTable}, the actions of each state are the grounded actions applicable in it, so parameterized actions are supported.
+ * The actions of a row are grounded to the state that created it; use {@link #action(Row, int, State)} to get an action grounded to the
+ * state in which it will be taken, which may name its objects differently if the domain is object identifier independent.
+ * @author James MacGlashan
+ *
+ */
+public class ConcurrentQTable {
+
+	/**
+	 * The actions for which Q-values are stored
+	 */
+	protected List<Action>							actions;
+
+	/**
+	 * The Q-value initialization used for new rows
+	 */
+	protected ValueFunctionInitialization			qInit;
+
+	/**
+	 * The rows of each hashed state
+	 */
+	protected ConcurrentHashMap<HashableState, Row>	rows = new ConcurrentHashMap<HashableState, Row>();
+
+	/**
+	 * The striped locks that separate updates from snapshots
+	 */
+	protected ReentrantReadWriteLock []				stripes;
+
+
+	/**
+	 * Initializes with one lock stripe per available processor.
+	 * @param actions the actions for which Q-values are stored
+	 * @param qInit the Q-value initialization used for new rows
+	 */
+	public ConcurrentQTable(List<Action> actions, ValueFunctionInitialization qInit){
+		this(actions, qInit, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param actions the actions for which Q-values are stored
+	 * @param qInit the Q-value initialization used for new rows
+	 * @param numStripes the number of lock stripes; at least the number of updating threads avoids contention between them
+	 */
+	public ConcurrentQTable(List<Action> actions, ValueFunctionInitialization qInit, int numStripes){
+		this.actions = new ArrayList<Action>(actions);
+		this.qInit = qInit;
+		this.stripes = new ReentrantReadWriteLock[Math.max(1, numStripes)];
+		for(int i = 0; i < this.stripes.length; i++){
+			this.stripes[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+
+	/**
+	 * Returns the actions for which Q-values are stored.
+	 * @return the actions for which Q-values are stored.
+	 */
+	public List<Action> getActions(){
+		return this.actions;
+	}
+
+
+	/**
+	 * Returns the number of states in the table.
+	 * @return the number of states in the table.
+	 */
+	public int numStates(){
+		return this.rows.size();
+	}
+
+
+	/**
+	 * Returns the row of a hashed state, creating and initializing it if it does not exist. If threads create the row of the same state
+	 * at once, they all receive the row created first.
+	 * @param sh the hashed state
+	 * @return the row of the hashed state
+	 */
+	public Row rowFor(HashableState sh){
+		Row row = this.rows.get(sh);
+		if(row != null){
+			return row;
+		}
+
+		List<GroundedAction> gas = Action.getAllApplicableGroundedActionsFromActionList(this.actions, sh.s);
+		if(gas.size() == 0){
+			throw new RuntimeException("No possible actions in this state, cannot continue Q-learning");
+		}
+		row = new Row(sh, gas.toArray(new GroundedAction[gas.size()]));
+		for(int a = 0; a < row.actions.length; a++){
+			row.values.set(a, Double.doubleToRawLongBits(this.qInit.qValue(sh.s, row.actions[a])));
+		}
+
+		ReentrantReadWriteLock.ReadLock lock = this.stripe().readLock();
+		lock.lock();
+		try{
+			Row existing = this.rows.putIfAbsent(sh, row);
+			return existing != null ? existing : row;
+		}finally{
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Returns the Q-value of an action in a row.
+	 * @param row the row
+	 * @param a the index of the action in the row
+	 * @return the Q-value
+	 */
+	public double q(Row row, int a){
+		return Double.longBitsToDouble(row.values.get(a));
+	}
+
+
+	/**
+	 * Returns the maximum Q-value of a row.
+	 * @param row the row
+	 * @return the maximum Q-value of the row
+	 */
+	public double maxQ(Row row){
+		double max = Double.NEGATIVE_INFINITY;
+		for(int a = 0; a < row.actions.length; a++){
+			double q = this.q(row, a);
+			if(q > max){
+				max = q;
+			}
+		}
+		return max;
+	}
+
+
+	/**
+	 * Moves the Q-value of an action in a row toward a target: q = q + learningRate * (target - q). The update is applied
+	 * atomically with respect to other updates of the same Q-value and to snapshots.
+	 * @param row the row
+	 * @param a the index of the action in the row
+	 * @param learningRate the learning rate
+	 * @param target the target value
+	 * @return the absolute change in the Q-value
+	 */
+	public double update(Row row, int a, double learningRate, double target){
+		ReentrantReadWriteLock.ReadLock lock = this.stripe().readLock();
+		lock.lock();
+		try{
+			while(true){
+				long oldBits = row.values.get(a);
+				double oldQ = Double.longBitsToDouble(oldBits);
+				double newQ = oldQ + learningRate * (target - oldQ);
+				if(row.values.compareAndSet(a, oldBits, Double.doubleToRawLongBits(newQ))){
+					return Math.abs(newQ - oldQ);
+				}
+			}
+		}finally{
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Returns the index of an action in a row, translating object parameters to the row's state if the domain is object identifier independent.
+	 * @param row the row
+	 * @param s the state in which the action was selected
+	 * @param ga the action
+	 * @return the index of the action in the row; -1 if the action is not applicable in the row's state.
+	 */
+	public int actionIndex(Row row, State s, AbstractGroundedAction ga){
+		AbstractGroundedAction translated = AbstractObjectParameterizedGroundedAction.Helper.translateParameters(ga, s, row.s.s);
+		for(int a = 0; a < row.actions.length; a++){
+			if(row.actions[a].equals(translated)){
+				return a;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Returns an action of a row with its object parameters translated to a given state, which matters if the domain is object identifier independent.
+	 * This is the reverse of the translation of {@link #actionIndex(Row, State, AbstractGroundedAction)}.
+	 * @param row the row
+	 * @param a the index of the action in the row
+	 * @param s the state in which the action is taken
+	 * @return the action grounded to s
+	 */
+	public GroundedAction action(Row row, int a, State s){
+		return (GroundedAction)AbstractObjectParameterizedGroundedAction.Helper.translateParameters(row.actions[a], row.s.s, s);
+	}
+
+
+	/**
+	 * Returns copies of the Q-values of a row.
+	 * @param row the row
+	 * @param s the state to which the returned Q-values refer
+	 * @return copies of the Q-values of the row
+	 */
+	public List<QValue> getQs(Row row, State s){
+		List<QValue> qs = new ArrayList<QValue>(row.actions.length);
+		for(int a = 0; a < row.actions.length; a++){
+			qs.add(new QValue(s, this.action(row, a, s), this.q(row, a)));
+		}
+		return qs;
+	}
+
+
+	/**
+	 * Returns a consistent copy of the table. Updates wait while the copy is made.
+	 * @param hashingFactory the hashing factory with which the snapshot looks up states; it should be the one used to hash the states of this table
+	 * @return a consistent copy of the table
+	 */
+	public Snapshot snapshot(HashableStateFactory hashingFactory){
+		for(ReentrantReadWriteLock stripe : this.stripes){
+			stripe.writeLock().lock();
+		}
+		try{
+			Map<HashableState, Row> copy = new HashMap<HashableState, Row>(this.rows.size()*2);
+			for(Row row : this.rows.values()){
+				Row rc = new Row(row.s, row.actions);
+				for(int a = 0; a < row.actions.length; a++){
+					rc.values.set(a, row.values.get(a));
+				}
+				copy.put(row.s, rc);
+			}
+			return new Snapshot(this.actions, this.qInit, hashingFactory, copy);
+		}finally{
+			for(int i = this.stripes.length-1; i >= 0; i--){
+				this.stripes[i].writeLock().unlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Removes all states from the table.
+	 */
+	public void clear(){
+		for(ReentrantReadWriteLock stripe : this.stripes){
+			stripe.writeLock().lock();
+		}
+		try{
+			this.rows.clear();
+		}finally{
+			for(int i = this.stripes.length-1; i >= 0; i--){
+				this.stripes[i].writeLock().unlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the lock stripe of the calling thread.
+	 * @return the lock stripe of the calling thread.
+	 */
+	protected ReentrantReadWriteLock stripe(){
+		return this.stripes[(int)(Thread.currentThread().getId() % this.stripes.length)];
+	}
+
+
+	/**
+	 * The Q-values of one state.
+	 */
+	public static class Row{
+
+		/**
+		 * The hashed state
+		 */
+		public final HashableState s;
+
+		/**
+		 * The grounded actions applicable in the state
+		 */
+		public final GroundedAction [] actions;
+
+		/**
+		 * The double bits of the Q-value of each action
+		 */
+		protected final AtomicLongArray values;
+
+		public Row(HashableState s, GroundedAction [] actions){
+			this.s = s;
+			this.actions = actions;
+			this.values = new AtomicLongArray(actions.length);
+		}
+
+		/**
+		 * Returns the number of actions in this row.
+		 * @return the number of actions in this row.
+		 */
+		public int numActions(){
+			return this.actions.length;
+		}
+	}
+
+
+	/**
+	 * An immutable copy of a {@link ConcurrentQTable}. The Q-values of states that were not in the table when the copy was made
+	 * are given by the table's Q-value initialization.
+	 */
+	public static class Snapshot implements QFunction{
+
+		protected List<Action> actions;
+		protected ValueFunctionInitialization qInit;
+		protected HashableStateFactory hashingFactory;
+		protected Map<HashableState, Row> rows;
+
+		public Snapshot(List<Action> actions, ValueFunctionInitialization qInit, HashableStateFactory hashingFactory, Map<HashableState, Row> rows){
+			this.actions = actions;
+			this.qInit = qInit;
+			this.hashingFactory = hashingFactory;
+			this.rows = rows;
+		}
+
+		/**
+		 * Returns the number of states in this snapshot.
+		 * @return the number of states in this snapshot.
+		 */
+		public int numStates(){
+			return this.rows.size();
+		}
+
+		@Override
+		public List<QValue> getQs(State s) {
+			Row row = this.rows.get(this.hashingFactory.hashState(s));
+			if(row == null){
+				List<GroundedAction> gas = Action.getAllApplicableGroundedActionsFromActionList(this.actions, s);
+				List<QValue> qs = new ArrayList<QValue>(gas.size());
+				for(GroundedAction ga : gas){
+					qs.add(new QValue(s, ga, this.qInit.qValue(s, ga)));
+				}
+				return qs;
+			}
+			List<QValue> qs = new ArrayList<QValue>(row.actions.length);
+			for(int a = 0; a < row.actions.length; a++){
+				AbstractGroundedAction ga = AbstractObjectParameterizedGroundedAction.Helper.translateParameters(row.actions[a], row.s.s, s);
+				qs.add(new QValue(s, ga, Double.longBitsToDouble(row.values.get(a))));
+			}
+			return qs;
+		}
+
+		@Override
+		public QValue getQ(State s, AbstractGroundedAction a) {
+			Row row = this.rows.get(this.hashingFactory.hashState(s));
+			if(row == null){
+				return new QValue(s, a, this.qInit.qValue(s, a));
+			}
+			AbstractGroundedAction translated = AbstractObjectParameterizedGroundedAction.Helper.translateParameters(a, s, row.s.s);
+			for(int i = 0; i < row.actions.length; i++){
+				if(row.actions[i].equals(translated)){
+					return new QValue(s, a, Double.longBitsToDouble(row.values.get(i)));
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public double value(State s) {
+			return QFunction.QFunctionHelper.getOptimalValue(this, s);
+		}
+	}
+
+}
@@ -0,0 +1,512 @@
+package burlap.behavior.singleagent.planning.stochastic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import burlap.behavior.policy.Policy;
+import burlap.behavior.policy.Policy.ActionProb;
+import burlap.behavior.singleagent.options.Option;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.statehashing.HashableState;
+
+
+/**
+ * A frozen, array-based representation of the tabular transition dynamics cached by a {@link DynamicProgramming} instance.
+ * Each {@link burlap.oomdp.statehashing.HashableState} is assigned a dense int index and the transitions of every state-action pair are
+ * stored in compressed sparse row (CSR) form: the state-action pairs of state i are the indices
+ * [stateActionOffsets[i], stateActionOffsets[i+1]) and the transitions of state-action pair j are the indices
+ * [transitionOffsets[j], transitionOffsets[j+1]) of the {@link #successors} and {@link #probabilities} arrays.
+ * <p/>
+ * The expected reward of each state-action pair is computed once when the dynamics are compiled, so that a Bellman backup is reduced to
+ * q = r(s,a) + d(s,a) * sum_{s'} p(s'|s,a) v(s'), where d(s,a) is the discount factor for primitive actions and 1 for
+ * {@link burlap.behavior.singleagent.options.Option}s (whose transition probabilities are already discounted). Value function
+ * sweeps therefore run purely over primitive arrays without any hashing, boxing, or reward function calls.
+ * <p/>
+ * Because expected rewards are precomputed, the reward function and transition dynamics are assumed to be stationary
+ * for the lifetime of the compiled object. If they change, the dynamics should be recompiled.
+ * @author James MacGlashan
+ *
+ */
+public class CompiledTransitionDynamics {
+
+	/**
+	 * The hashed states, indexed by their dense int index.
+	 */
+	protected HashableState []					states;
+
+	/**
+	 * Map from hashed states to their dense int index. Built on the first call to {@link #stateIndex(HashableState)},
+	 * since compiling and sweeping do not need it.
+	 */
+	protected volatile Map<HashableState, Integer>	stateIndex;
+
+	/**
+	 * Whether each state is a terminal state.
+	 */
+	protected boolean []						terminal;
+
+	/**
+	 * The state-action pairs of state i are the indices [stateActionOffsets[i], stateActionOffsets[i+1]).
+	 */
+	protected int []							stateActionOffsets;
+
+	/**
+	 * The grounded action of each state-action pair.
+	 */
+	protected GroundedAction []					actions;
+
+	/**
+	 * The precomputed expected immediate reward of each state-action pair.
+	 */
+	protected double []							expectedRewards;
+
+	/**
+	 * The discount applied to the expected next state value of each state-action pair.
+	 */
+	protected double []							discounts;
+
+	/**
+	 * The transitions of state-action pair j are the indices [transitionOffsets[j], transitionOffsets[j+1]).
+	 */
+	protected int []							transitionOffsets;
+
+	/**
+	 * The successor state index of each transition.
+	 */
+	protected int []							successors;
+
+	/**
+	 * The probability of each transition.
+	 */
+	protected double []							probabilities;
+
+	/**
+	 * The current value function estimate, indexed by state index.
+	 */
+	protected double []							values;
+
+
+
+	/**
+	 * Compiles the transition dynamics of the given {@link DynamicProgramming} instance for the given set of states. Any successor
+	 * state that is not in the provided collection will be added and expanded as well, so the compiled state space is closed
+	 * under the transition dynamics. Terminal states are not expanded and always have a value of zero.
+	 * The initial values are taken from the current value function of the {@link DynamicProgramming} instance.
+	 * @param dp the {@link DynamicProgramming} instance whose (cached) transition dynamics will be compiled
+	 * @param sourceStates the states to compile
+	 */
+	public CompiledTransitionDynamics(DynamicProgramming dp, Collection<HashableState> sourceStates){
+
+		//the index map is only needed while compiling; sweeps work purely on indices
+		Map<HashableState, Integer> indices = new HashMap<HashableState, Integer>(sourceStates.size()*2);
+		List<HashableState> orderedStates = new ArrayList<HashableState>(sourceStates.size());
+		for(HashableState sh : sourceStates){
+			if(!indices.containsKey(sh)) {
+				indices.put(sh, orderedStates.size());
+				orderedStates.add(sh);
+			}
+		}
+
+		//build straight into primitive arrays that grow as states are discovered, so no boxed intermediate lists are created
+		int sCap = Math.max(orderedStates.size(), 16);
+		boolean [] terminals = new boolean[sCap];
+		int [] saOffsets = new int[sCap+1];
+		int saCap = sCap * 2;
+		GroundedAction [] gas = new GroundedAction[saCap];
+		double [] rewards = new double[saCap];
+		double [] discountList = new double[saCap];
+		int [] tOffsets = new int[saCap+1];
+		int tCap = saCap * 2;
+		int [] succ = new int[tCap];
+		double [] probs = new double[tCap];
+		int nsa = 0;
+		int nTransitions = 0;
+
+		//states discovered as successors are appended to orderedStates and expanded in turn, closing the compiled state space
+		for(int i = 0; i < orderedStates.size(); i++){
+
+			if(i >= sCap){
+				sCap = Math.max(sCap*2, orderedStates.size());
+				terminals = Arrays.copyOf(terminals, sCap);
+				saOffsets = Arrays.copyOf(saOffsets, sCap+1);
+			}
+
+			HashableState sh = orderedStates.get(i);
+			boolean isTerminal = dp.getTF().isTerminal(sh.s);
+			terminals[i] = isTerminal;
+			saOffsets[i] = nsa;
+
+			if(isTerminal){
+				continue;
+			}
+
+			List<ActionTransitions> transitions = dp.getActionsTransitions(sh);
+			for(ActionTransitions at : transitions){
+
+				if(nsa >= saCap){
+					saCap *= 2;
+					gas = Arrays.copyOf(gas, saCap);
+					rewards = Arrays.copyOf(rewards, saCap);
+					discountList = Arrays.copyOf(discountList, saCap);
+					tOffsets = Arrays.copyOf(tOffsets, saCap+1);
+				}
+
+				tOffsets[nsa] = nTransitions;
+				gas[nsa] = at.ga;
+
+				if(at.ga.action instanceof Option){
+					rewards[nsa] = ((Option)at.ga.action).getExpectedRewards(sh.s, at.ga);
+					discountList[nsa] = 1.;
+				}
+				else{
+					double r = 0.;
+					for(HashedTransitionProbability tp : at.transitions){
+						r += tp.p * dp.getRF().reward(sh.s, at.ga, tp.sh.s);
+					}
+					rewards[nsa] = r;
+					discountList[nsa] = dp.getGamma();
+				}
+				nsa++;
+
+				int needed = nTransitions + at.transitions.size();
+				if(needed > tCap){
+					tCap = Math.max(tCap*2, needed);
+					succ = Arrays.copyOf(succ, tCap);
+					probs = Arrays.copyOf(probs, tCap);
+				}
+
+				for(HashedTransitionProbability tp : at.transitions){
+					Integer ind = indices.get(tp.sh);
+					if(ind == null){
+						ind = orderedStates.size();
+						indices.put(tp.sh, ind);
+						orderedStates.add(tp.sh);
+					}
+					succ[nTransitions] = ind;
+					probs[nTransitions] = tp.p;
+					nTransitions++;
+				}
+
+			}
+
+		}
+
+		//trim to the final sizes
+		int n = orderedStates.size();
+		this.states = orderedStates.toArray(new HashableState[n]);
+		this.terminal = Arrays.copyOf(terminals, n);
+		this.stateActionOffsets = Arrays.copyOf(saOffsets, n+1);
+		this.stateActionOffsets[n] = nsa;
+		this.values = new double[n];
+
+		this.actions = Arrays.copyOf(gas, nsa);
+		this.expectedRewards = Arrays.copyOf(rewards, nsa);
+		this.discounts = Arrays.copyOf(discountList, nsa);
+		this.transitionOffsets = Arrays.copyOf(tOffsets, nsa+1);
+		this.transitionOffsets[nsa] = nTransitions;
+
+		this.successors = Arrays.copyOf(succ, nTransitions);
+		this.probabilities = Arrays.copyOf(probs, nTransitions);
+
+		this.loadValues(dp);
+
+	}
+
+
+	/**
+	 * Returns the number of compiled states.
+	 * @return the number of compiled states.
+	 */
+	public int numStates(){
+		return this.states.length;
+	}
+
+
+	/**
+	 * Returns the number of compiled state-action pairs.
+	 * @return the number of compiled state-action pairs.
+	 */
+	public int numStateActions(){
+		return this.actions.length;
+	}
+
+
+	/**
+	 * Returns the dense index of the given hashed state, or -1 if the state was not compiled.
+	 * @param sh the hashed state
+	 * @return the dense index of the state, or -1 if the state was not compiled.
+	 */
+	public int stateIndex(HashableState sh){
+		if(this.stateIndex == null){
+			Map<HashableState, Integer> indices = new HashMap<HashableState, Integer>(this.states.length*2);
+			for(int i = 0; i < this.states.length; i++){
+				indices.put(this.states[i], i);
+			}
+			this.stateIndex = indices;
+		}
+		Integer ind = this.stateIndex.get(sh);
+		if(ind == null){
+			return -1;
+		}
+		return ind;
+	}
+
+
+	/**
+	 * Returns the hashed state with the given index.
+	 * @param i the state index
+	 * @return the hashed state with the given index.
+	 */
+	public HashableState state(int i){
+		return this.states[i];
+	}
+
+
+	/**
+	 * Returns whether the state with the given index is terminal.
+	 * @param i the state index
+	 * @return true if the state is terminal; false otherwise.
+	 */
+	public boolean isTerminal(int i){
+		return this.terminal[i];
+	}
+
+
+	/**
+	 * Returns the value function array that sweeps operate on. Modifications to the returned array modify this object's values.
+	 * @return the value function array, indexed by state index.
+	 */
+	public double [] getValues(){
+		return this.values;
+	}
+
+
+	/**
+	 * Sets the value function array that sweeps operate on. The array is used directly, not copied.
+	 * @param values the value function array, indexed by state index.
+	 */
+	public void setValues(double [] values){
+		if(values.length != this.states.length){
+			throw new RuntimeException("Value array length (" + values.length + ") does not match the number of compiled states (" + this.states.length + ").");
+		}
+		this.values = values;
+	}
+
+
+	/**
+	 * Sets this object's values to the current value function estimate of the given {@link DynamicProgramming} instance.
+	 * @param dp the {@link DynamicProgramming} instance from which to read values
+	 */
+	public void loadValues(DynamicProgramming dp){
+		for(int i = 0; i < this.states.length; i++){
+			this.values[i] = dp.value(this.states[i]);
+		}
+	}
+
+
+	/**
+	 * Writes this object's values into the given value function map.
+	 * @param valueFunction the value function map to which values will be written.
+	 */
+	public void writeValues(Map<HashableState, Double> valueFunction){
+		for(int i = 0; i < this.states.length; i++){
+			valueFunction.put(this.states[i], this.values[i]);
+		}
+	}
+
+
+	/**
+	 * Computes the Q-value of the state-action pair with the given index using the given value function.
+	 * @param sa the state-action pair index
+	 * @param v the value function array, indexed by state index
+	 * @return the Q-value
+	 */
+	public double q(int sa, double [] v){
+		double sum = 0.;
+		int end = this.transitionOffsets[sa+1];
+		for(int t = this.transitionOffsets[sa]; t < end; t++){
+			sum += this.probabilities[t] * v[this.successors[t]];
+		}
+		return this.expectedRewards[sa] + this.discounts[sa] * sum;
+	}
+
+
+	/**
+	 * Computes the Bellman backup (max over actions) of the state with the given index using the given value function, without
+	 * storing the result. Terminal states always have a value of zero.
+	 * @param s the state index
+	 * @param v the value function array, indexed by state index
+	 * @return the backed up value
+	 */
+	public double backup(int s, double [] v){
+		if(this.terminal[s]){
+			return 0.;
+		}
+		double maxQ = Double.NEGATIVE_INFINITY;
+		int end = this.stateActionOffsets[s+1];
+		for(int sa = this.stateActionOffsets[s]; sa < end; sa++){
+			double q = this.q(sa, v);
+			if(q > maxQ){
+				maxQ = q;
+			}
+		}
+		return maxQ;
+	}
+
+
+	/**
+	 * Computes the Bellman backup (max over actions) of the state with the given index for a block of states that is being
+	 * updated in place. The values of successor states with an index in [blockStart, blockEnd) are read from
+	 * blockValues; the values of all other successor states are read from outsideValues.
+	 * Terminal states always have a value of zero.
+	 * @param s the state index
+	 * @param blockValues the value function array to use for successors inside the block
+	 * @param outsideValues the value function array to use for successors outside the block
+	 * @param blockStart the first state index of the block (inclusive)
+	 * @param blockEnd the last state index of the block (exclusive)
+	 * @return the backed up value
+	 */
+	public double blockBackup(int s, double [] blockValues, double [] outsideValues, int blockStart, int blockEnd){
+		if(this.terminal[s]){
+			return 0.;
+		}
+		double maxQ = Double.NEGATIVE_INFINITY;
+		int saEnd = this.stateActionOffsets[s+1];
+		for(int sa = this.stateActionOffsets[s]; sa < saEnd; sa++){
+			double sum = 0.;
+			int end = this.transitionOffsets[sa+1];
+			for(int t = this.transitionOffsets[sa]; t < end; t++){
+				int sp = this.successors[t];
+				double vp = sp >= blockStart && sp < blockEnd ? blockValues[sp] : outsideValues[sp];
+				sum += this.probabilities[t] * vp;
+			}
+			double q = this.expectedRewards[sa] + this.discounts[sa] * sum;
+			if(q > maxQ){
+				maxQ = q;
+			}
+		}
+		return maxQ;
+	}
+
+
+	/**
+	 * Computes the fixed-policy Bellman backup of the state with the given index using the given value function, without
+	 * storing the result. Terminal states always have a value of zero.
+	 * @param s the state index
+	 * @param v the value function array, indexed by state index
+	 * @param policyProbs the probability of each state-action pair under the policy being evaluated (see {@link #policyProbabilities(Policy)})
+	 * @return the backed up value
+	 */
+	public double fixedPolicyBackup(int s, double [] v, double [] policyProbs){
+		if(this.terminal[s]){
+			return 0.;
+		}
+		double weightedQ = 0.;
+		int end = this.stateActionOffsets[s+1];
+		for(int sa = this.stateActionOffsets[s]; sa < end; sa++){
+			double pp = policyProbs[sa];
+			if(pp == 0.){
+				continue; //doesn't contribute
+			}
+			weightedQ += pp * this.q(sa, v);
+		}
+		return weightedQ;
+	}
+
+
+	/**
+	 * Performs one in-place Bellman sweep over all compiled states, in index order.
+	 * @return the maximum change in the value function.
+	 */
+	public double sweep(){
+		double delta = 0.;
+		for(int s = 0; s < this.values.length; s++){
+			double v = this.values[s];
+			double nv = this.backup(s, this.values);
+			this.values[s] = nv;
+			delta = Math.max(Math.abs(nv - v), delta);
+		}
+		return delta;
+	}
+
+
+	/**
+	 * Performs one in-place fixed-policy Bellman sweep over all compiled states, in index order.
+	 * @param policyProbs the probability of each state-action pair under the policy being evaluated (see {@link #policyProbabilities(Policy)})
+	 * @return the maximum change in the value function.
+	 */
+	public double fixedPolicySweep(double [] policyProbs){
+		double delta = 0.;
+		for(int s = 0; s < this.values.length; s++){
+			double v = this.values[s];
+			double nv = this.fixedPolicyBackup(s, this.values, policyProbs);
+			this.values[s] = nv;
+			delta = Math.max(Math.abs(nv - v), delta);
+		}
+		return delta;
+	}
+
+
+	/**
+	 * Returns the probability of each compiled state-action pair under the given policy. Terminal states are not queried.
+	 * @param p the policy
+	 * @return an array of action selection probabilities, indexed by state-action pair index.
+	 */
+	public double [] policyProbabilities(Policy p){
+		double [] probs = new double[this.actions.length];
+		for(int s = 0; s < this.states.length; s++){
+			int start = this.stateActionOffsets[s];
+			int end = this.stateActionOffsets[s+1];
+			if(this.terminal[s] || start == end){
+				continue;
+			}
+			List<ActionProb> distribution = p.getActionDistributionForState(this.states[s].s);
+			for(int sa = start; sa < end; sa++){
+				probs[sa] = Policy.getProbOfActionGivenDistribution(this.actions[sa], distribution);
+			}
+		}
+		return probs;
+	}
+
+
+	/**
+	 * Returns the probability of each compiled state-action pair under the policy that is greedy with respect to the given value function,
+	 * with ties broken uniformly, as done by {@link burlap.behavior.policy.GreedyQPolicy}. Unlike {@link #policyProbabilities(Policy)},
+	 * the Q-values are computed from the compiled arrays, so no states are hashed.
+	 * @param v the value function array, indexed by state index
+	 * @return an array of action selection probabilities, indexed by state-action pair index.
+	 */
+	public double [] greedyPolicyProbabilities(double [] v){
+		double [] probs = new double[this.actions.length];
+		for(int s = 0; s < this.states.length; s++){
+			int start = this.stateActionOffsets[s];
+			int end = this.stateActionOffsets[s+1];
+			if(this.terminal[s] || start == end){
+				continue;
+			}
+			double maxQ = Double.NEGATIVE_INFINITY;
+			int numMax = 0;
+			for(int sa = start; sa < end; sa++){
+				double q = this.q(sa, v);
+				probs[sa] = q;
+				if(q == maxQ){
+					numMax++;
+				}
+				else if(q > maxQ){
+					maxQ = q;
+					numMax = 1;
+				}
+			}
+			double uniformMax = 1. / numMax;
+			for(int sa = start; sa < end; sa++){
+				probs[sa] = probs[sa] == maxQ ? uniformMax : 0.;
+			}
+		}
+		return probs;
+	}
+
+}
@@ -0,0 +1,21 @@
+package burlap.behavior.singleagent.planning.stochastic;
+
+
+/**
+ * A listener that is informed each time a {@link DynamicProgramming} planner, such as {@link burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration}
+ * or {@link burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration}, completes an iteration. The listener receives an
+ * immutable {@link ValueFunctionSnapshot} of the value function after the iteration, so a single planning run can yield the value function,
+ * greedy policy and planning time of every iteration budget. Listeners are called on the planning thread and the time they take
+ * is not counted as planning time.
+ * @author James MacGlashan
+ *
+ */
+public interface DPIterationListener {
+
+	/**
+	 * Called after a planner completes an iteration.
+	 * @param snapshot the snapshot of the planner's value function after the iteration
+	 */
+	void iterationComplete(ValueFunctionSnapshot snapshot);
+
+}
@@ -9,6 +9,7 @@ import java.util.Set;
 import burlap.behavior.policy.Policy;
 import burlap.behavior.policy.Policy.ActionProb;
 import burlap.behavior.singleagent.MDPSolver;
+import burlap.behavior.singleagent.auxiliary.ParallelStateReachability;
 import burlap.behavior.singleagent.options.Option;
 import burlap.oomdp.core.*;
 import burlap.oomdp.statehashing.HashableStateFactory;
@@ -66,6 +67,39 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QFun
 	 * The value function initialization to use; defaulted to an initialization of 0 everywhere.
 	 */
 	protected ValueFunctionInitialization valueInitializer = new ValueFunctionInitialization.ConstantValueFunctionInitialization();
+
+
+	/**
+	 * A boolean toggle to indicate whether value function sweeps should be performed over a {@link CompiledTransitionDynamics}
+	 * representation of the cached transition dynamics rather than the hashed data structures. The default is false. Compiled dynamics
+	 * require cached transitions and assume the reward function and transition dynamics are stationary.
+	 */
+	protected boolean												useCompiledDynamics = false;
+
+
+	/**
+	 * The compiled transition dynamics, if they have been compiled and are still valid.
+	 */
+	protected CompiledTransitionDynamics							compiledDynamics;
+
+
+	/**
+	 * The number of threads used to find the reachable states and generate their transition dynamics. When 1 (the default), reachability
+	 * analysis is performed with a single threaded breadth-first search.
+	 */
+	protected int													reachabilityParallelism = 1;
+
+
+	/**
+	 * The listeners informed after each planning iteration.
+	 */
+	protected List<DPIterationListener>								iterationListeners = new ArrayList<DPIterationListener>();
+
+
+	/**
+	 * The total time, in nanoseconds, spent in planning iterations since the last reset, excluding the time taken by iteration listeners.
+	 */
+	protected long													planningTime = 0;
 	
 
 	
@@ -97,6 +131,8 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QFun
 		this.mapToStateIndex.clear();
 		this.valueFunction.clear();
 		this.transitionDynamics.clear();
+		this.compiledDynamics = null;
+		this.planningTime = 0;
 	}
 	
 	/**
@@ -167,6 +203,157 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QFun
 	}
 	
 	
+	/**
+	 * Sets whether value function sweeps should be performed over a compiled, array-based representation of the cached
+	 * transition dynamics (see {@link CompiledTransitionDynamics}). Compiling precomputes the expected reward of each state-action pair,
+	 * so it should only be enabled if the reward function and transition dynamics do not change over time. Compiled dynamics are
+	 * only used when transition dynamics caching is enabled.
+	 * @param useCompiledDynamics true if sweeps should use compiled transition dynamics; false if they should use the hashed data structures.
+	 */
+	public void toggleUseCompiledDynamics(boolean useCompiledDynamics){
+		this.useCompiledDynamics = useCompiledDynamics;
+		if(!useCompiledDynamics){
+			this.compiledDynamics = null;
+		}
+	}
+
+
+	/**
+	 * Returns the compiled transition dynamics for all states currently indexed by this object, compiling them first if they
+	 * have not been compiled or have been invalidated. The compiled values are synchronized with the current value function.
+	 * @return the compiled transition dynamics.
+	 */
+	public CompiledTransitionDynamics getCompiledTransitionDynamics(){
+		if(this.compiledDynamics == null){
+			this.compiledDynamics = new CompiledTransitionDynamics(this, new ArrayList<HashableState>(this.mapToStateIndex.keySet()));
+		}
+		else{
+			this.compiledDynamics.loadValues(this);
+		}
+		return this.compiledDynamics;
+	}
+
+
+	/**
+	 * Sets the number of threads used to find the reachable states and generate their transition dynamics. If greater than 1 and
+	 * transition dynamics caching is enabled, reachability analysis is performed with a {@link burlap.behavior.singleagent.auxiliary.ParallelStateReachability}
+	 * search whose generated transitions are cached directly, so the actions, terminal function and hashing factory must be safe to call from
+	 * multiple threads. Domains with {@link burlap.behavior.singleagent.options.Option}s are always searched with a single thread.
+	 * @param reachabilityParallelism the number of threads used for reachability analysis.
+	 */
+	public void setReachabilityParallelism(int reachabilityParallelism){
+		this.reachabilityParallelism = reachabilityParallelism;
+	}
+
+
+	/**
+	 * Returns the number of threads used to find the reachable states and generate their transition dynamics.
+	 * @return the number of threads used for reachability analysis.
+	 */
+	public int getReachabilityParallelism(){
+		return this.reachabilityParallelism;
+	}
+
+
+	/**
+	 * Returns whether reachability analysis should currently be performed in parallel.
+	 * @return true if reachability analysis should be performed with a {@link burlap.behavior.singleagent.auxiliary.ParallelStateReachability} search; false otherwise.
+	 */
+	protected boolean shouldUseParallelReachability(){
+		if(this.reachabilityParallelism <= 1 || !this.useCachedTransitions){
+			return false;
+		}
+		for(Action a : this.actions){
+			if(a instanceof Option){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Finds all states reachable from the input state with a {@link burlap.behavior.singleagent.auxiliary.ParallelStateReachability} search,
+	 * indexes them, and caches the transition dynamics generated during the search so that they are not generated again.
+	 * @param sih the hashed source state
+	 * @param previouslyExpanded states that have already been found and should not be expanded again
+	 * @param expansionTF states for which this terminal function returns true are not expanded
+	 */
+	protected void performParallelReachabilityFrom(HashableState sih, Set<HashableState> previouslyExpanded, TerminalFunction expansionTF){
+		ParallelStateReachability reachability = new ParallelStateReachability(this.actions, this.hashingFactory, expansionTF, this.reachabilityParallelism);
+		Map<HashableState, List<ActionTransitions>> transitions = new HashMap<HashableState, List<ActionTransitions>>();
+		Set<HashableState> found = reachability.getReachableHashedStates(sih.s, previouslyExpanded, transitions);
+		reachability.shutdown();
+		for(HashableState sh : found){
+			mapToStateIndex.put(sh, sh);
+		}
+		transitionDynamics.putAll(transitions);
+	}
+
+
+	/**
+	 * Returns whether value function sweeps should currently be performed over compiled transition dynamics.
+	 * @return true if compiled transition dynamics should be used; false otherwise.
+	 */
+	protected boolean shouldUseCompiledDynamics(){
+		return this.useCompiledDynamics && this.useCachedTransitions;
+	}
+
+
+	/**
+	 * Adds a listener that will be informed with a {@link ValueFunctionSnapshot} after each planning iteration.
+	 * @param listener the listener to add
+	 */
+	public void addIterationListener(DPIterationListener listener){
+		this.iterationListeners.add(listener);
+	}
+
+
+	/**
+	 * Removes an iteration listener.
+	 * @param listener the listener to remove
+	 */
+	public void removeIterationListener(DPIterationListener listener){
+		this.iterationListeners.remove(listener);
+	}
+
+
+	/**
+	 * Returns the total time, in nanoseconds, spent in planning iterations since the last reset. The time taken by
+	 * iteration listeners and reachability analysis is not included.
+	 * @return the total time, in nanoseconds, spent in planning iterations since the last reset.
+	 */
+	public long getPlanningTime(){
+		return this.planningTime;
+	}
+
+
+	/**
+	 * Adds the time since iterationStart to the planning time and informs any iteration listeners that an iteration
+	 * has completed. The snapshot given to listeners is taken from the compiled transition dynamics, if provided, or from
+	 * the value function otherwise.
+	 * @param iteration the number of iterations completed
+	 * @param delta the maximum change in the value function in the last iteration
+	 * @param iterationStart the {@link System#nanoTime()} at which the iteration started
+	 * @param compiled the compiled transition dynamics whose values are current, or null if the value function is current
+	 * @param greedyPolicy the greedy policy of the current values, if it has already been created; null otherwise
+	 * @return the {@link System#nanoTime()} after the listeners returned, from which the next iteration's time should be measured.
+	 */
+	protected long iterationComplete(int iteration, double delta, long iterationStart, CompiledTransitionDynamics compiled, Policy greedyPolicy){
+		this.planningTime += System.nanoTime() - iterationStart;
+		if(this.iterationListeners.isEmpty()){
+			return System.nanoTime();
+		}
+		ValueFunctionSnapshot snapshot = compiled != null ? new ValueFunctionSnapshot(this, iteration, delta, this.planningTime, compiled)
+				: new ValueFunctionSnapshot(this, iteration, delta, this.planningTime);
+		snapshot.greedyPolicy = greedyPolicy;
+		for(DPIterationListener listener : this.iterationListeners){
+			listener.iterationComplete(snapshot);
+		}
+		return System.nanoTime();
+	}
+	
+	
 	@Override
 	public List <QValue> getQs(State s){
 		
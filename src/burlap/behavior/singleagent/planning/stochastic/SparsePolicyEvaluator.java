@@ -0,0 +1,403 @@
+package burlap.behavior.singleagent.planning.stochastic;
+
+import java.util.Arrays;
+
+import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcsn;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcss;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_ipvec;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_lsolve;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_lu;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_sqr;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_usolve;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_util;
+
+
+/**
+ * Evaluates fixed policies over a {@link CompiledTransitionDynamics} by solving the linear system (I - P_pi) v = r_pi directly, rather
+ * than with repeated fixed-policy Bellman sweeps. Here P_pi(s,s') = sum_a pi(a|s) d(s,a) p(s'|s,a) is the discounted policy transition matrix and
+ * r_pi(s) = sum_a pi(a|s) r(s,a) is the expected immediate reward of the policy. Terminal states (and states with no actions) have the row v(s) = 0.
+ * <p/>
+ * The sparsity pattern of the system is the union of the successors of every action of each state, so it is the same for every policy over the
+ * same compiled dynamics. The pattern and its fill-reducing ordering are therefore computed once when this object is constructed and only the
+ * numeric values are refilled for each policy, which makes repeated evaluations in policy iteration cheap. Two solvers are supported:
+ * <ul>
+ *     <li>{@link Solver#LU}: a sparse LU factorization with threshold partial pivoting (csparsej), which computes the exact value of the policy.</li>
+ *     <li>{@link Solver#BICGSTAB}: the Jacobi-preconditioned BiCGSTAB iterative method, warm started from the current values of the compiled dynamics
+ *     and terminated when the maximum residual, which is the maximum fixed-policy Bellman error, is below a given tolerance.</li>
+ * </ul>
+ * If the system is singular, which may happen for undiscounted problems in which the policy does not reach a terminal state, the solvers report
+ * a failure and the values of the compiled dynamics are left unchanged.
+ * @author James MacGlashan
+ *
+ */
+public class SparsePolicyEvaluator {
+
+	/**
+	 * The linear solvers that may be used to evaluate policies.
+	 */
+	public enum Solver{
+		LU,
+		BICGSTAB
+	}
+
+
+	/**
+	 * The compiled dynamics whose policies are evaluated
+	 */
+	protected CompiledTransitionDynamics		dynamics;
+
+	/**
+	 * The system matrix (I - P_pi) in compressed sparse column form
+	 */
+	protected Dcs								matrix;
+
+	/**
+	 * The index into the matrix values of the (state, successor) entry of each compiled transition
+	 */
+	protected int []							transitionEntries;
+
+	/**
+	 * The index into the matrix values of the diagonal entry of each state
+	 */
+	protected int []							diagonalEntries;
+
+	/**
+	 * The right hand side r_pi of the current system
+	 */
+	protected double []							rhs;
+
+	/**
+	 * The symbolic LU analysis of the matrix pattern; computed when first needed
+	 */
+	protected Dcss								symbolic;
+
+	/**
+	 * The pivot tolerance of the LU factorization
+	 */
+	protected double							pivotTolerance = 0.1;
+
+
+
+	/**
+	 * Assembles the sparsity pattern of the policy evaluation system of the given compiled dynamics.
+	 * @param dynamics the compiled dynamics whose policies will be evaluated
+	 */
+	public SparsePolicyEvaluator(CompiledTransitionDynamics dynamics){
+
+		this.dynamics = dynamics;
+		int n = dynamics.numStates();
+
+		//the distinct columns of each row are the state itself and the successors of all of its actions
+		int [] mark = new int[n];
+		Arrays.fill(mark, -1);
+		int [] colCounts = new int[n];
+		int nnz = 0;
+		for(int s = 0; s < n; s++){
+			mark[s] = s;
+			colCounts[s]++;
+			nnz++;
+			if(dynamics.terminal[s]){
+				continue;
+			}
+			int tEnd = dynamics.transitionOffsets[dynamics.stateActionOffsets[s+1]];
+			for(int t = dynamics.transitionOffsets[dynamics.stateActionOffsets[s]]; t < tEnd; t++){
+				int sp = dynamics.successors[t];
+				if(mark[sp] != s){
+					mark[sp] = s;
+					colCounts[sp]++;
+					nnz++;
+				}
+			}
+		}
+
+		this.matrix = Dcs_util.cs_spalloc(n, n, nnz, true, false);
+		int [] next = new int[n];
+		int sum = 0;
+		for(int c = 0; c < n; c++){
+			this.matrix.p[c] = sum;
+			next[c] = sum;
+			sum += colCounts[c];
+		}
+		this.matrix.p[n] = sum;
+
+		//rows are visited in increasing order, so the row indices of each column are sorted
+		this.transitionEntries = new int[dynamics.successors.length];
+		this.diagonalEntries = new int[n];
+		int [] entryOfColumn = new int[n];
+		Arrays.fill(mark, -1);
+		for(int s = 0; s < n; s++){
+			mark[s] = s;
+			entryOfColumn[s] = next[s]++;
+			this.matrix.i[entryOfColumn[s]] = s;
+			this.diagonalEntries[s] = entryOfColumn[s];
+			if(dynamics.terminal[s]){
+				continue;
+			}
+			int tEnd = dynamics.transitionOffsets[dynamics.stateActionOffsets[s+1]];
+			for(int t = dynamics.transitionOffsets[dynamics.stateActionOffsets[s]]; t < tEnd; t++){
+				int sp = dynamics.successors[t];
+				if(mark[sp] != s){
+					mark[sp] = s;
+					entryOfColumn[sp] = next[sp]++;
+					this.matrix.i[entryOfColumn[sp]] = s;
+				}
+				this.transitionEntries[t] = entryOfColumn[sp];
+			}
+		}
+
+		this.rhs = new double[n];
+
+	}
+
+
+	/**
+	 * Returns the compiled dynamics whose policies this object evaluates.
+	 * @return the compiled dynamics whose policies this object evaluates.
+	 */
+	public CompiledTransitionDynamics getDynamics(){
+		return this.dynamics;
+	}
+
+
+	/**
+	 * Returns the number of structurally nonzero entries of the system matrix.
+	 * @return the number of structurally nonzero entries of the system matrix.
+	 */
+	public int numNonZeros(){
+		return this.matrix.p[this.matrix.n];
+	}
+
+
+	/**
+	 * Sets the pivot tolerance of the LU factorization. A tolerance of 1 is partial pivoting; smaller values prefer diagonal
+	 * pivots, which preserves sparsity. The default is 0.1.
+	 * @param pivotTolerance the pivot tolerance in (0, 1].
+	 */
+	public void setPivotTolerance(double pivotTolerance){
+		this.pivotTolerance = pivotTolerance;
+	}
+
+
+	/**
+	 * Evaluates a policy and stores its values in the compiled dynamics (see {@link CompiledTransitionDynamics#getValues()}).
+	 * @param policyProbs the probability of each state-action pair under the policy (see {@link CompiledTransitionDynamics#policyProbabilities(burlap.behavior.policy.Policy)})
+	 * @param solver the solver to use
+	 * @param tolerance for {@link Solver#BICGSTAB}, the maximum fixed-policy Bellman error at which to stop; ignored by {@link Solver#LU}
+	 * @param maxIterations for {@link Solver#BICGSTAB}, the maximum number of iterations; ignored by {@link Solver#LU}
+	 * @return the number of solver iterations performed (1 for {@link Solver#LU}), or -1 if the system could not be solved, in which case the values are unchanged.
+	 */
+	public int evaluate(double [] policyProbs, Solver solver, double tolerance, int maxIterations){
+		this.fill(policyProbs);
+		if(solver == Solver.LU){
+			return this.solveLU() ? 1 : -1;
+		}
+		return this.solveBiCGSTAB(tolerance, maxIterations);
+	}
+
+
+	/**
+	 * Sets the values of the system matrix and right hand side for a policy.
+	 * @param policyProbs the probability of each state-action pair under the policy
+	 */
+	protected void fill(double [] policyProbs){
+
+		CompiledTransitionDynamics d = this.dynamics;
+		double [] x = this.matrix.x;
+		Arrays.fill(x, 0.);
+		Arrays.fill(this.rhs, 0.);
+
+		for(int s = 0; s < this.rhs.length; s++){
+			x[this.diagonalEntries[s]] = 1.;
+			if(d.terminal[s]){
+				continue;
+			}
+			int saEnd = d.stateActionOffsets[s+1];
+			for(int sa = d.stateActionOffsets[s]; sa < saEnd; sa++){
+				double pp = policyProbs[sa];
+				if(pp == 0.){
+					continue; //doesn't contribute
+				}
+				this.rhs[s] += pp * d.expectedRewards[sa];
+				double w = pp * d.discounts[sa];
+				int tEnd = d.transitionOffsets[sa+1];
+				for(int t = d.transitionOffsets[sa]; t < tEnd; t++){
+					x[this.transitionEntries[t]] -= w * d.probabilities[t];
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * Solves the current system with a sparse LU factorization.
+	 * @return true if the system was solved; false if it is singular.
+	 */
+	protected boolean solveLU(){
+
+		int n = this.rhs.length;
+		if(this.symbolic == null){
+			this.symbolic = Dcs_sqr.cs_sqr(1, this.matrix, false);
+			if(this.symbolic == null){
+				return false;
+			}
+		}
+
+		Dcsn numeric = Dcs_lu.cs_lu(this.matrix, this.symbolic, this.pivotTolerance);
+		if(numeric == null){
+			return false;
+		}
+
+		double [] work = new double[n];
+		double [] solution = new double[n];
+		Dcs_ipvec.cs_ipvec(numeric.pinv, this.rhs, work, n);
+		Dcs_lsolve.cs_lsolve(numeric.L, work);
+		Dcs_usolve.cs_usolve(numeric.U, work);
+		Dcs_ipvec.cs_ipvec(this.symbolic.q, work, solution, n);
+
+		for(int s = 0; s < n; s++){
+			if(Double.isNaN(solution[s]) || Double.isInfinite(solution[s])){
+				return false;
+			}
+		}
+
+		System.arraycopy(solution, 0, this.dynamics.values, 0, n);
+
+		return true;
+	}
+
+
+	/**
+	 * Solves the current system with Jacobi-preconditioned BiCGSTAB, starting from the current values of the compiled dynamics.
+	 * @param tolerance the maximum residual at which to stop
+	 * @param maxIterations the maximum number of iterations
+	 * @return the number of iterations performed, or -1 if the method broke down.
+	 */
+	protected int solveBiCGSTAB(double tolerance, int maxIterations){
+
+		int n = this.rhs.length;
+		double [] x = this.dynamics.values.clone();
+
+		double [] invDiag = new double[n];
+		for(int s = 0; s < n; s++){
+			double diag = this.matrix.x[this.diagonalEntries[s]];
+			invDiag[s] = diag != 0. ? 1. / diag : 1.;
+		}
+
+		double [] r = new double[n];
+		this.multiply(x, r);
+		for(int s = 0; s < n; s++){
+			r[s] = this.rhs[s] - r[s];
+		}
+		if(maxNorm(r) < tolerance){
+			return 0;
+		}
+
+		double [] rHat = r.clone();
+		double [] p = new double[n];
+		double [] v = new double[n];
+		double [] y = new double[n];
+		double [] z = new double[n];
+		double [] t = new double[n];
+		double rho = 1., alpha = 1., omega = 1.;
+
+		int i;
+		for(i = 1; i <= maxIterations; i++){
+
+			double rhoNext = dot(rHat, r);
+			if(rhoNext == 0. || omega == 0.){
+				return -1;
+			}
+			double beta = (rhoNext / rho) * (alpha / omega);
+			rho = rhoNext;
+			for(int s = 0; s < n; s++){
+				p[s] = r[s] + beta * (p[s] - omega * v[s]);
+				y[s] = invDiag[s] * p[s];
+			}
+			this.multiply(y, v);
+			double rv = dot(rHat, v);
+			if(rv == 0.){
+				return -1;
+			}
+			alpha = rho / rv;
+
+			//r now holds the intermediate residual
+			for(int s = 0; s < n; s++){
+				r[s] -= alpha * v[s];
+			}
+			if(maxNorm(r) < tolerance){
+				for(int s = 0; s < n; s++){
+					x[s] += alpha * y[s];
+				}
+				break;
+			}
+
+			for(int s = 0; s < n; s++){
+				z[s] = invDiag[s] * r[s];
+			}
+			this.multiply(z, t);
+			double tt = dot(t, t);
+			omega = tt != 0. ? dot(t, r) / tt : 0.;
+			for(int s = 0; s < n; s++){
+				x[s] += alpha * y[s] + omega * z[s];
+				r[s] -= omega * t[s];
+			}
+
+			double norm = maxNorm(r);
+			if(Double.isNaN(norm) || Double.isInfinite(norm)){
+				return -1;
+			}
+			if(norm < tolerance){
+				break;
+			}
+
+		}
+
+		System.arraycopy(x, 0, this.dynamics.values, 0, n);
+
+		return Math.min(i, maxIterations);
+	}
+
+
+	/**
+	 * Computes out = A in for the current system matrix A.
+	 * @param in the vector to multiply
+	 * @param out the array in which the product is stored
+	 */
+	protected void multiply(double [] in, double [] out){
+		Arrays.fill(out, 0.);
+		int [] colStart = this.matrix.p;
+		int [] rows = this.matrix.i;
+		double [] vals = this.matrix.x;
+		for(int c = 0; c < in.length; c++){
+			double xc = in[c];
+			if(xc == 0.){
+				continue;
+			}
+			int end = colStart[c+1];
+			for(int k = colStart[c]; k < end; k++){
+				out[rows[k]] += vals[k] * xc;
+			}
+		}
+	}
+
+
+	protected static double dot(double [] a, double [] b){
+		double sum = 0.;
+		for(int i = 0; i < a.length; i++){
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+
+	protected static double maxNorm(double [] a){
+		double max = 0.;
+		for(double d : a){
+			max = Math.max(max, Math.abs(d));
+		}
+		return max;
+	}
+
+}
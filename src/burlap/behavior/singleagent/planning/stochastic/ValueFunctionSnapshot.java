@@ -0,0 +1,189 @@
+package burlap.behavior.singleagent.planning.stochastic;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.policy.Policy;
+import burlap.oomdp.statehashing.HashableState;
+
+import java.util.Map;
+
+
+/**
+ * An immutable snapshot of the value function of a {@link DynamicProgramming} planner after an iteration, as given to a
+ * {@link DPIterationListener}. Taking a snapshot only copies the array of state values (the states themselves are shared), so snapshots
+ * can be taken after every iteration. A {@link DynamicProgramming} value function and a {@link burlap.behavior.policy.GreedyQPolicy} for the
+ * snapshot values are only created when first requested with {@link #getValueFunction()} and {@link #getGreedyPolicy()}.
+ * @author James MacGlashan
+ *
+ */
+public class ValueFunctionSnapshot {
+
+	/**
+	 * The planner whose value function was captured
+	 */
+	protected DynamicProgramming				source;
+
+	/**
+	 * The number of iterations the planner had completed
+	 */
+	protected int								iteration;
+
+	/**
+	 * The maximum change in the value function in the last iteration
+	 */
+	protected double							delta;
+
+	/**
+	 * The total planning time, in nanoseconds, of the completed iterations
+	 */
+	protected long								planningTime;
+
+	/**
+	 * The states of the value function
+	 */
+	protected HashableState []					states;
+
+	/**
+	 * The value of each state
+	 */
+	protected double []							values;
+
+	/**
+	 * The value function of the snapshot, if it has been created
+	 */
+	protected DynamicProgramming				valueFunction;
+
+	/**
+	 * The greedy policy of the snapshot, if it has been created
+	 */
+	protected Policy							greedyPolicy;
+
+
+	/**
+	 * Initializes a snapshot of the values of the given compiled transition dynamics.
+	 * @param source the planner whose value function is captured
+	 * @param iteration the number of iterations the planner has completed
+	 * @param delta the maximum change in the value function in the last iteration
+	 * @param planningTime the total planning time, in nanoseconds, of the completed iterations
+	 * @param compiled the compiled transition dynamics whose values are captured
+	 */
+	public ValueFunctionSnapshot(DynamicProgramming source, int iteration, double delta, long planningTime, CompiledTransitionDynamics compiled){
+		this.source = source;
+		this.iteration = iteration;
+		this.delta = delta;
+		this.planningTime = planningTime;
+		this.states = compiled.states;
+		this.values = compiled.values.clone();
+	}
+
+
+	/**
+	 * Initializes a snapshot of the value function of the given planner.
+	 * @param source the planner whose value function is captured
+	 * @param iteration the number of iterations the planner has completed
+	 * @param delta the maximum change in the value function in the last iteration
+	 * @param planningTime the total planning time, in nanoseconds, of the completed iterations
+	 */
+	public ValueFunctionSnapshot(DynamicProgramming source, int iteration, double delta, long planningTime){
+		this.source = source;
+		this.iteration = iteration;
+		this.delta = delta;
+		this.planningTime = planningTime;
+		this.states = new HashableState[source.valueFunction.size()];
+		this.values = new double[this.states.length];
+		int i = 0;
+		for(Map.Entry<HashableState, Double> e : source.valueFunction.entrySet()){
+			this.states[i] = e.getKey();
+			this.values[i] = e.getValue();
+			i++;
+		}
+	}
+
+
+	/**
+	 * Returns the number of iterations the planner had completed when the snapshot was taken.
+	 * @return the number of iterations the planner had completed when the snapshot was taken.
+	 */
+	public int getIteration(){
+		return this.iteration;
+	}
+
+
+	/**
+	 * Returns the maximum change in the value function in the last iteration.
+	 * @return the maximum change in the value function in the last iteration.
+	 */
+	public double getDelta(){
+		return this.delta;
+	}
+
+
+	/**
+	 * Returns the total planning time, in nanoseconds, of the planner's completed iterations.
+	 * @return the total planning time, in nanoseconds, of the planner's completed iterations.
+	 */
+	public long getPlanningTime(){
+		return this.planningTime;
+	}
+
+
+	/**
+	 * Returns the number of states in the snapshot.
+	 * @return the number of states in the snapshot.
+	 */
+	public int numStates(){
+		return this.states.length;
+	}
+
+
+	/**
+	 * Returns the ith state of the snapshot.
+	 * @param i the state index
+	 * @return the ith state of the snapshot.
+	 */
+	public HashableState getState(int i){
+		return this.states[i];
+	}
+
+
+	/**
+	 * Returns the value of the ith state of the snapshot.
+	 * @param i the state index
+	 * @return the value of the ith state of the snapshot.
+	 */
+	public double getValue(int i){
+		return this.values[i];
+	}
+
+
+	/**
+	 * Returns a {@link DynamicProgramming} value function with the snapshot values, in the same way as {@link DynamicProgramming#getCopyOfValueFunction()}.
+	 * The value function is created when first requested.
+	 * @return a {@link DynamicProgramming} value function with the snapshot values.
+	 */
+	public synchronized DynamicProgramming getValueFunction(){
+		if(this.valueFunction == null){
+			DynamicProgramming dp = new DynamicProgramming();
+			dp.DPPInit(this.source.getDomain(), this.source.getRF(), this.source.getTF(), this.source.getGamma(), this.source.getHashingFactory());
+			dp.setValueFunctionInitialization(this.source.getValueFunctionInitialization());
+			for(int i = 0; i < this.states.length; i++){
+				dp.valueFunction.put(this.states[i], this.values[i]);
+			}
+			this.valueFunction = dp;
+		}
+		return this.valueFunction;
+	}
+
+
+	/**
+	 * Returns a {@link burlap.behavior.policy.GreedyQPolicy} for the snapshot values. The policy is created when first requested, unless
+	 * the planner already created it.
+	 * @return a {@link burlap.behavior.policy.GreedyQPolicy} for the snapshot values.
+	 */
+	public synchronized Policy getGreedyPolicy(){
+		if(this.greedyPolicy == null){
+			this.greedyPolicy = new GreedyQPolicy(this.getValueFunction());
+		}
+		return this.greedyPolicy;
+	}
+
+}
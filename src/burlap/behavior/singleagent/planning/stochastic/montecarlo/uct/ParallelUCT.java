@@ -0,0 +1,653 @@
+package burlap.behavior.singleagent.planning.stochastic.montecarlo.uct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.options.Option;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A parallel implementation of {@link burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCT} that performs rollouts
+ * on multiple worker threads. Two forms of parallelization [1] are supported, set with {@link ParallelMode}:
+ * <br/><br/>
+ * {@link ParallelMode#ROOT}: each worker builds an independent UCT tree with its own share of the rollouts. When all workers
+ * are finished, the trees are merged: nodes for the same state at the same depth are combined by summing their visit counts and
+ * the visit counts and sample returns of their actions. Workers share no data while planning. Given a fixed random
+ * generator for this planner and a rollout limit (rather than a time budget), the merged tree is reproducible, because each worker draws
+ * its tie breaking and domain random streams (see {@link burlap.debugtools.RandomFactory#seedThread(long, long)}) from seeds chosen
+ * by this planner.
+ * <br/><br/>
+ * {@link ParallelMode#TREE}: all workers perform rollouts in a single shared tree. The statistics of a state node and its
+ * action nodes are guarded by the state node's lock, so workers only contend when they pass through the same node. When a worker
+ * selects an action, it applies a virtual loss to it: the action is counted as visited with a sample return of -virtualLoss until the
+ * rollout returns and replaces it with the real sample return. This steers concurrent workers toward different branches of the tree
+ * instead of repeating the same rollout.
+ * <br/><br/>
+ * In both modes, planning stops when the maximum number of rollouts have been performed, when the time budget set with
+ * {@link #setTimeBudget(long)} has been exhausted, or when a goal is found if a goal condition was set. The resulting tree has the
+ * same structure as the tree of {@link burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCT}, so Q-values are
+ * returned in the same way and the tree can be walked with {@link burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCTTreeWalkPolicy}.
+ * The domain's actions, reward function and terminal function must be safe to use from multiple threads.
+ * <br/><br/>
+ * 1. Chaslot, Guillaume MJ-B., Mark HM Winands, and H. Jaap van Den Herik. "Parallel monte-carlo tree search." Computers and Games (2008). 60-71.
+ *
+ * @author James MacGlashan
+ *
+ */
+public class ParallelUCT extends UCT {
+
+	/**
+	 * The forms of parallelization
+	 */
+	public enum ParallelMode{
+		/**
+		 * Each worker builds an independent tree and the trees are merged when planning ends.
+		 */
+		ROOT,
+
+		/**
+		 * All workers share one tree with per node locks and virtual loss.
+		 */
+		TREE
+	}
+
+
+	/**
+	 * The form of parallelization
+	 */
+	protected ParallelMode					parallelMode;
+
+	/**
+	 * The number of worker threads
+	 */
+	protected int							parallelism;
+
+	/**
+	 * The sample return deficit temporarily applied to an action selected by a worker in {@link ParallelMode#TREE} mode
+	 */
+	protected double						virtualLoss = 1.;
+
+	/**
+	 * The pool in which the workers are run; created lazily.
+	 */
+	protected ForkJoinPool					pool;
+
+	/**
+	 * Whether any worker has found a goal
+	 */
+	protected volatile boolean				workerFoundGoal;
+
+	/**
+	 * The number of rollouts started in {@link ParallelMode#TREE} mode
+	 */
+	protected AtomicInteger					rollOutsStarted = new AtomicInteger();
+
+	/**
+	 * The number of node visits in {@link ParallelMode#TREE} mode
+	 */
+	protected AtomicInteger					sharedNumVisits = new AtomicInteger();
+
+	/**
+	 * The number of nodes in the tree in {@link ParallelMode#TREE} mode
+	 */
+	protected AtomicInteger					sharedTreeSize = new AtomicInteger();
+
+
+	/**
+	 * Initializes with one worker thread per available processor.
+	 * @param domain the domain in which to plan
+	 * @param rf the reward function to use
+	 * @param tf the terminal function to use
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory
+	 * @param horizon the planning horizon
+	 * @param nRollouts the total number of rollouts to perform across all workers; -1 for no limit, in which case a time budget should be set
+	 * @param explorationBias the exploration bias constant (suggested >2)
+	 * @param parallelMode the form of parallelization
+	 */
+	public ParallelUCT(Domain domain, RewardFunction rf, TerminalFunction tf, double gamma, HashableStateFactory hashingFactory, int horizon, int nRollouts, int explorationBias, ParallelMode parallelMode){
+		this(domain, rf, tf, gamma, hashingFactory, horizon, nRollouts, explorationBias, parallelMode, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the domain in which to plan
+	 * @param rf the reward function to use
+	 * @param tf the terminal function to use
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory
+	 * @param horizon the planning horizon
+	 * @param nRollouts the total number of rollouts to perform across all workers; -1 for no limit, in which case a time budget should be set
+	 * @param explorationBias the exploration bias constant (suggested >2)
+	 * @param parallelMode the form of parallelization
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelUCT(Domain domain, RewardFunction rf, TerminalFunction tf, double gamma, HashableStateFactory hashingFactory, int horizon, int nRollouts, int explorationBias, ParallelMode parallelMode, int parallelism){
+		super(domain, rf, tf, gamma, hashingFactory, horizon, nRollouts, explorationBias);
+		this.parallelMode = parallelMode;
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Sets the form of parallelization.
+	 * @param parallelMode the form of parallelization.
+	 */
+	public void setParallelMode(ParallelMode parallelMode){
+		this.parallelMode = parallelMode;
+	}
+
+	/**
+	 * Returns the form of parallelization.
+	 * @return the form of parallelization.
+	 */
+	public ParallelMode getParallelMode(){
+		return this.parallelMode;
+	}
+
+	/**
+	 * Sets the number of worker threads. Takes effect the next time planning is performed.
+	 * @param parallelism the number of worker threads.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets the virtual loss used in {@link ParallelMode#TREE} mode. While a worker's rollout through an action is in progress, the action
+	 * is counted as visited with a sample return of -virtualLoss. Larger values spread concurrent workers more widely across the tree.
+	 * @param virtualLoss the virtual loss.
+	 */
+	public void setVirtualLoss(double virtualLoss){
+		this.virtualLoss = virtualLoss;
+	}
+
+	/**
+	 * Returns the virtual loss used in {@link ParallelMode#TREE} mode.
+	 * @return the virtual loss used in {@link ParallelMode#TREE} mode.
+	 */
+	public double getVirtualLoss(){
+		return this.virtualLoss;
+	}
+
+	/**
+	 * Sets the random generator from which the seeds of the workers' random generators and random streams are drawn.
+	 * @param rand the random generator.
+	 */
+	public void setRandomGenerator(Random rand){
+		this.rand = rand;
+	}
+
+
+	@Override
+	public GreedyQPolicy planFromState(State initialState) {
+
+		if(this.maxRollOutsFromRoot == -1 && this.timeBudget < 0 && this.goalCondition == null){
+			throw new RuntimeException("ParallelUCT cannot plan without a rollout limit, a time budget or a goal condition.");
+		}
+
+		this.foundGoal = false;
+		this.workerFoundGoal = false;
+		this.startPlanningClock();
+		if(this.pool == null){
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+
+		if(this.parallelMode == ParallelMode.ROOT){
+			this.rootParallelPlan(initialState);
+		}
+		else{
+			this.treeParallelPlan(initialState);
+		}
+		this.foundGoal = this.workerFoundGoal;
+
+		DPrint.cf(this.debugCode, "Rollouts: %d; unique states: %d; tree size: %d; total visits: %d\n", this.numRollOutsFromRoot, this.uniqueStatesInTree.size(), this.treeSize, this.numVisits);
+
+		return new GreedyQPolicy(this);
+	}
+
+
+	/**
+	 * Plans with independent trees that are merged when all workers finish.
+	 * @param initialState the state from which to plan
+	 */
+	protected void rootParallelPlan(final State initialState){
+
+		List<Callable<UCT>> workers = new ArrayList<Callable<UCT>>(this.parallelism);
+		for(int i = 0; i < this.parallelism; i++){
+			int quota = -1;
+			if(this.maxRollOutsFromRoot != -1){
+				quota = this.maxRollOutsFromRoot / this.parallelism + (i < this.maxRollOutsFromRoot % this.parallelism ? 1 : 0);
+			}
+			final RootWorker worker = new RootWorker(quota, this.rand.nextLong());
+			final long streamSeed = this.rand.nextLong();
+			final long trial = i;
+			workers.add(new Callable<UCT>() {
+				@Override
+				public UCT call() throws Exception {
+					RandomFactory.StreamContext previous = RandomFactory.seedThread(streamSeed, trial);
+					try{
+						worker.planFromState(initialState);
+					}finally{
+						RandomFactory.setThreadContext(previous);
+					}
+					return worker;
+				}
+			});
+		}
+
+		List<UCT> trees = new ArrayList<UCT>(this.parallelism);
+		for(Future<UCT> f : this.pool.invokeAll(workers)){
+			trees.add(this.getWorkerResult(f));
+		}
+
+		this.mergeTrees(this.stateHash(initialState), trees);
+
+	}
+
+
+	/**
+	 * Plans with a single tree shared by all workers.
+	 * @param initialState the state from which to plan
+	 */
+	protected void treeParallelPlan(State initialState){
+
+		HashableState shi = this.stateHash(initialState);
+		this.root = this.stateNodeConstructor.generate(shi, 0, this.actions, this.actionNodeConstructor);
+
+		this.uniqueStatesInTree = ConcurrentHashMap.<HashableState>newKeySet();
+		this.stateDepthIndex = new CopyOnWriteArrayList<Map<HashableState, UCTStateNode>>();
+		this.statesToStateNodes = new ConcurrentHashMap<HashableState, List<UCTStateNode>>();
+		Map<HashableState, UCTStateNode> depth0Map = new ConcurrentHashMap<HashableState, UCTStateNode>();
+		depth0Map.put(shi, this.root);
+		this.stateDepthIndex.add(depth0Map);
+
+		this.rollOutsStarted.set(0);
+		this.sharedNumVisits.set(0);
+		this.sharedTreeSize.set(1);
+
+		List<Callable<Integer>> workers = new ArrayList<Callable<Integer>>(this.parallelism);
+		for(int i = 0; i < this.parallelism; i++){
+			final RollOutContext context = new RollOutContext(new Random(this.rand.nextLong()));
+			final long streamSeed = this.rand.nextLong();
+			final long trial = i;
+			workers.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					RandomFactory.StreamContext previous = RandomFactory.seedThread(streamSeed, trial);
+					int n = 0;
+					try{
+						while(!ParallelUCT.this.stopPlanning()){
+							if(ParallelUCT.this.maxRollOutsFromRoot != -1 && ParallelUCT.this.rollOutsStarted.incrementAndGet() > ParallelUCT.this.maxRollOutsFromRoot){
+								break;
+							}
+							context.foundGoalOnRollout = false;
+							ParallelUCT.this.parallelTreeRollOut(ParallelUCT.this.root, 0, ParallelUCT.this.maxHorizon, context);
+							n++;
+						}
+					}finally{
+						RandomFactory.setThreadContext(previous);
+					}
+					return n;
+				}
+			});
+		}
+
+		int rollOuts = 0;
+		for(Future<Integer> f : this.pool.invokeAll(workers)){
+			rollOuts += this.getWorkerResult(f);
+		}
+
+		this.numRollOutsFromRoot = rollOuts;
+		this.numVisits = this.sharedNumVisits.get();
+		this.treeSize = this.sharedTreeSize.get();
+
+	}
+
+
+	@Override
+	public double treeRollOut(UCTStateNode node, int depth, int childrenLeftToAdd) {
+		if(this.parallelMode == ParallelMode.TREE){
+			return this.parallelTreeRollOut(node, depth, childrenLeftToAdd, new RollOutContext(this.rand));
+		}
+		return super.treeRollOut(node, depth, childrenLeftToAdd);
+	}
+
+
+	/**
+	 * Performs a rollout in the shared tree from the given node. The statistics of each node are read and updated while
+	 * holding the node's lock and a virtual loss is applied to the selected action until the rollout through it returns.
+	 * @param node the node from which to rollout
+	 * @param depth the depth of the node
+	 * @param childrenLeftToAdd the number of new subsequent nodes that can be connected to the tree
+	 * @param context the state of the worker's current rollout
+	 * @return the sample return from rolling out from this node
+	 */
+	protected double parallelTreeRollOut(UCTStateNode node, int depth, int childrenLeftToAdd, RollOutContext context){
+
+		this.sharedNumVisits.incrementAndGet();
+
+		if(depth == this.maxHorizon){
+			return 0.;
+		}
+
+		if(this.tf.isTerminal(node.state.s)){
+			if(this.goalCondition != null && this.goalCondition.satisfies(node.state.s)){
+				this.workerFoundGoal = true;
+				context.foundGoalOnRollout = true;
+			}
+			return 0.;
+		}
+
+		UCTActionNode anode;
+		synchronized(node){
+			anode = this.selectActionNode(node, context.rand);
+			if(anode == null){
+				//no actions can be performed in this state
+				return 0.;
+			}
+			node.n++;
+			anode.n++;
+			anode.sumReturn -= this.virtualLoss;
+		}
+
+		//sample the action
+		HashableState shprime = this.stateHash(anode.action.executeIn(node.state.s));
+		double r = this.rf.reward(node.state.s, anode.action, shprime.s);
+		int depthChange = 1;
+		if(!anode.action.action.isPrimitive()){
+			Option o = (Option)anode.action.action;
+			depthChange = o.getLastNumSteps();
+		}
+
+		UCTStateNode snprime = this.queryTreeIndex(shprime, depth+depthChange);
+
+		double sampledReturn;
+		boolean shouldConnectNode = false;
+		if(snprime != null){
+
+			//then this state already exists in the tree
+			synchronized(node){
+				if(!anode.referencesSuccessor(snprime)){
+					anode.addSuccessor(snprime);
+				}
+			}
+
+			double futureReturn = this.parallelTreeRollOut(snprime, depth + depthChange, childrenLeftToAdd, context);
+			sampledReturn = r + Math.pow(this.gamma, depthChange) * futureReturn;
+
+		}
+		else{
+
+			//this state is not in the tree at this depth so create it; it is private to this worker until connected
+			snprime = this.stateNodeConstructor.generate(shprime, depth+1, this.actions, this.actionNodeConstructor);
+			shouldConnectNode = childrenLeftToAdd > 0;
+
+			double futureReturn = this.parallelTreeRollOut(snprime, depth + depthChange, childrenLeftToAdd-1, context);
+			sampledReturn = r + this.gamma * futureReturn;
+
+		}
+
+		if(shouldConnectNode || context.foundGoalOnRollout){
+			snprime = this.connectNode(snprime);
+		}
+
+		synchronized(node){
+			anode.sumReturn += this.virtualLoss + sampledReturn;
+			if(shouldConnectNode || context.foundGoalOnRollout){
+				anode.addSuccessor(snprime);
+			}
+		}
+
+		return sampledReturn;
+	}
+
+
+	/**
+	 * Connects a node to the shared tree index. If another worker already connected a node for the same state at the same depth,
+	 * that node is returned instead and the given node is discarded.
+	 * @param snode the node to connect
+	 * @return the node in the tree for the state and depth of the given node
+	 */
+	protected UCTStateNode connectNode(UCTStateNode snode){
+
+		if(this.stateDepthIndex.size() <= snode.depth){
+			synchronized(this.stateDepthIndex){
+				while(this.stateDepthIndex.size() <= snode.depth){
+					this.stateDepthIndex.add(new ConcurrentHashMap<HashableState, UCTStateNode>());
+				}
+			}
+		}
+
+		UCTStateNode existing = this.stateDepthIndex.get(snode.depth).putIfAbsent(snode.state, snode);
+		if(existing != null){
+			return existing;
+		}
+
+		synchronized(this.statesToStateNodes){
+			List<UCTStateNode> depthNodes = this.statesToStateNodes.get(snode.state);
+			if(depthNodes == null){
+				depthNodes = new ArrayList<UCTStateNode>();
+				this.statesToStateNodes.put(snode.state, depthNodes);
+			}
+			depthNodes.add(snode);
+		}
+
+		this.uniqueStatesInTree.add(snode.state);
+		this.sharedTreeSize.incrementAndGet();
+
+		return snode;
+	}
+
+
+	@Override
+	public boolean stopPlanning() {
+		if(this.parallelMode == ParallelMode.TREE){
+			if(this.workerFoundGoal || this.timeBudgetExhausted()){
+				return true;
+			}
+			return this.maxRollOutsFromRoot != -1 && this.rollOutsStarted.get() >= this.maxRollOutsFromRoot;
+		}
+		return super.stopPlanning();
+	}
+
+
+	/**
+	 * Merges independently built trees into the tree of this planner. Nodes for the same state at the same depth are combined
+	 * by summing their visit counts and the visit counts and sample returns of their actions; the successors of a combined action
+	 * are the combined nodes of the successors it has in any tree.
+	 * @param rootState the state from which the trees were built
+	 * @param trees the planners that built the trees
+	 */
+	protected void mergeTrees(HashableState rootState, List<UCT> trees){
+
+		this.stateDepthIndex = new ArrayList<Map<HashableState, UCTStateNode>>();
+		this.statesToStateNodes = new HashMap<HashableState, List<UCTStateNode>>();
+		this.uniqueStatesInTree = new HashSet<HashableState>();
+		this.numRollOutsFromRoot = 0;
+		this.numVisits = 0;
+		this.treeSize = 0;
+
+		//combine statistics
+		for(UCT tree : trees){
+			this.numRollOutsFromRoot += tree.numRollOutsFromRoot;
+			this.numVisits += tree.numVisits;
+			this.uniqueStatesInTree.addAll(tree.uniqueStatesInTree);
+			for(int d = 0; d < tree.stateDepthIndex.size(); d++){
+				for(UCTStateNode src : tree.stateDepthIndex.get(d).values()){
+					UCTStateNode merged = this.queryTreeIndex(src.state, d);
+					if(merged == null){
+						merged = this.stateNodeConstructor.generate(src.state, d, this.actions, this.actionNodeConstructor);
+						this.addNodeToIndexTree(merged);
+					}
+					merged.n += src.n;
+					for(int i = 0; i < src.actionNodes.size(); i++){
+						UCTActionNode srcAction = src.actionNodes.get(i);
+						UCTActionNode mergedAction = this.matchingActionNode(merged, srcAction, i);
+						mergedAction.n += srcAction.n;
+						mergedAction.sumReturn += srcAction.sumReturn;
+					}
+				}
+			}
+		}
+
+		//combine successors
+		for(UCT tree : trees){
+			for(int d = 0; d < tree.stateDepthIndex.size(); d++){
+				for(UCTStateNode src : tree.stateDepthIndex.get(d).values()){
+					UCTStateNode merged = this.queryTreeIndex(src.state, d);
+					for(int i = 0; i < src.actionNodes.size(); i++){
+						UCTActionNode srcAction = src.actionNodes.get(i);
+						UCTActionNode mergedAction = this.matchingActionNode(merged, srcAction, i);
+						for(UCTStateNode successor : srcAction.getAllSuccessors()){
+							UCTStateNode mergedSuccessor = this.queryTreeIndex(successor.state, successor.depth);
+							if(mergedSuccessor != null && !mergedAction.referencesSuccessor(mergedSuccessor)){
+								mergedAction.addSuccessor(mergedSuccessor);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		this.root = this.queryTreeIndex(rootState, 0);
+		if(this.root == null){
+			this.root = this.stateNodeConstructor.generate(rootState, 0, this.actions, this.actionNodeConstructor);
+			this.addNodeToIndexTree(this.root);
+		}
+
+	}
+
+
+	/**
+	 * Returns the action node of a merged node that corresponds to the action node of a source node.
+	 * @param merged the merged state node
+	 * @param srcAction the action node of the source state node
+	 * @param index the index of the action node in the source state node
+	 * @return the corresponding action node of the merged node
+	 */
+	protected UCTActionNode matchingActionNode(UCTStateNode merged, UCTActionNode srcAction, int index){
+		if(index < merged.actionNodes.size() && merged.actionNodes.get(index).action.equals(srcAction.action)){
+			return merged.actionNodes.get(index);
+		}
+		for(UCTActionNode an : merged.actionNodes){
+			if(an.action.equals(srcAction.action)){
+				return an;
+			}
+		}
+		throw new RuntimeException("ParallelUCT could not merge the trees of its workers because action " + srcAction.action.toString() + " is not applicable in all of them.");
+	}
+
+
+	/**
+	 * Returns the result of a worker, rethrowing any exception it threw as a runtime exception.
+	 * @param f the future of the worker
+	 * @param <T> the type of the worker's result
+	 * @return the result of the worker
+	 */
+	protected <T> T getWorkerResult(Future<T> f){
+		try{
+			return f.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("ParallelUCT was interrupted while waiting for its workers.", e);
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+
+	/**
+	 * The state of a worker's rollout in {@link ParallelMode#TREE} mode.
+	 */
+	protected static class RollOutContext{
+
+		/**
+		 * The random generator the worker uses to break ties
+		 */
+		Random rand;
+
+		/**
+		 * Whether the current rollout has found a goal
+		 */
+		boolean foundGoalOnRollout;
+
+		RollOutContext(Random rand){
+			this.rand = rand;
+		}
+
+	}
+
+
+	/**
+	 * A sequential UCT planner that builds one of the independent trees in {@link ParallelMode#ROOT} mode. It shares the
+	 * time budget and goal condition of the {@link ParallelUCT} planner and performs its share of the rollouts.
+	 */
+	protected class RootWorker extends UCT{
+
+		public RootWorker(int quota, long seed){
+			super(ParallelUCT.this.domain, ParallelUCT.this.rf, ParallelUCT.this.tf, ParallelUCT.this.gamma, ParallelUCT.this.hashingFactory,
+					ParallelUCT.this.maxHorizon, quota, 0);
+			this.explorationBias = ParallelUCT.this.explorationBias;
+			this.actions = ParallelUCT.this.actions;
+			this.stateNodeConstructor = ParallelUCT.this.stateNodeConstructor;
+			this.actionNodeConstructor = ParallelUCT.this.actionNodeConstructor;
+			this.goalCondition = ParallelUCT.this.goalCondition;
+			this.rand = new Random(seed);
+			this.debugCode = ParallelUCT.this.debugCode;
+		}
+
+		@Override
+		protected void startPlanningClock() {
+			this.planningDeadline = ParallelUCT.this.planningDeadline;
+		}
+
+		@Override
+		public boolean stopPlanning() {
+			if(this.foundGoal){
+				ParallelUCT.this.workerFoundGoal = true;
+			}
+			if(ParallelUCT.this.workerFoundGoal){
+				return true;
+			}
+			return super.stopPlanning();
+		}
+	}
+
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.singleagent.planning.Planner;
@@ -73,6 +74,9 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 	
 	protected Random											rand;
 	
+	protected long												timeBudget = -1;
+	protected long												planningDeadline = Long.MAX_VALUE;
+	
 	
 	
 	/**
@@ -120,6 +124,26 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 	}
 	
 	
+	/**
+	 * Sets a wall-clock budget for planning. When the budget is exhausted, no further rollouts are started, even if fewer than
+	 * the maximum number of rollouts have been performed. If the number of rollouts is unlimited (-1), the budget alone determines when
+	 * planning stops.
+	 * @param milliseconds the planning time budget in milliseconds; -1 for no time budget.
+	 */
+	public void setTimeBudget(long milliseconds){
+		this.timeBudget = milliseconds;
+	}
+	
+	
+	/**
+	 * Returns the wall-clock budget for planning in milliseconds; -1 if there is no time budget.
+	 * @return the wall-clock budget for planning in milliseconds; -1 if there is no time budget.
+	 */
+	public long getTimeBudget(){
+		return this.timeBudget;
+	}
+	
+	
 	/**
 	 * Tells the valueFunction to stop planning if a goal state is ever found.
 	 * @param gc a {@link burlap.oomdp.auxiliary.stateconditiontest.StateConditionTest} object used to specify goal states (whereever it evaluates as true).
@@ -139,6 +163,7 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 	public GreedyQPolicy planFromState(State initialState) {
 		
 		foundGoal = false;
+		this.startPlanningClock();
 		
 		treeSize = 1;
 		numVisits = 0;
@@ -167,8 +192,8 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 			numRollOutsFromRoot++;
 			
 			int nu = uniqueStatesInTree.size();
-			if(nu - lastNumUnique > 0){
-				DPrint.cl(debugCode, "" + numRollOutsFromRoot + "; unique states: " + nu  + "; tree size: " + treeSize + "; total visits: " + numVisits);
+			if(nu - lastNumUnique > 0 && DPrint.mode(debugCode)){
+				DPrint.cf(debugCode, "%d; unique states: %d; tree size: %d; total visits: %d\n", numRollOutsFromRoot, nu, treeSize, numVisits);
 				lastNumUnique = nu;
 			}
 			
@@ -176,7 +201,13 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 			
 			//System.out.println("\nRollouts: " + numRollOutsFromRoot + "; Best Action Expected Return: " + this.bestReturnAction(root).averageReturn());
 		}
-		DPrint.cl(debugCode, "\nRollouts: " + numRollOutsFromRoot + "; Best Action Expected Return: " + this.bestReturnAction(root).averageReturn());
+		final int numRollOuts = numRollOutsFromRoot;
+		DPrint.cl(debugCode, new Supplier<String>() {
+			@Override
+			public String get() {
+				return "\nRollouts: " + numRollOuts + "; Best Action Expected Return: " + UCT.this.bestReturnAction(root).averageReturn();
+			}
+		});
 
 		return new GreedyQPolicy(this);
 
@@ -245,6 +276,23 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 		this.numRollOutsFromRoot = 0;
 	}
 	
+	/**
+	 * Starts the planning time budget, if there is one.
+	 */
+	protected void startPlanningClock(){
+		this.planningDeadline = this.timeBudget < 0 ? Long.MAX_VALUE : System.nanoTime() + this.timeBudget * 1000000L;
+	}
+	
+	
+	/**
+	 * Returns true if the planning time budget has been exhausted.
+	 * @return true if the planning time budget has been exhausted; false otherwise or if there is no time budget.
+	 */
+	protected boolean timeBudgetExhausted(){
+		return this.planningDeadline != Long.MAX_VALUE && System.nanoTime() >= this.planningDeadline;
+	}
+	
+	
 	/*
 	 * Initializes data members; should be called before {@link treeRollOut(UCTStateNode, int, int)}
 	 */
@@ -275,7 +323,9 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 					foundGoalOnRollout = true;
 				}
 			}
-			DPrint.cl(debugCode, numRollOutsFromRoot + " Hit terminal at depth: " + depth);
+			if(DPrint.mode(debugCode)){ //avoid boxing the arguments on every terminal roll out when not printing
+				DPrint.cf(debugCode, "%d Hit terminal at depth: %d\n", numRollOutsFromRoot, depth);
+			}
 			return 0.;
 		}
 		
@@ -353,14 +403,17 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 	
 	/**
 	 * Returns true if rollouts and planning should cease. Planning will stop
-	 * if the valueFunction is told to terminate upon finding a goal and one was found, or if
-	 * the maximum number of rollouts have already been performed.
+	 * if the valueFunction is told to terminate upon finding a goal and one was found, if
+	 * the maximum number of rollouts have already been performed, or if the time budget has been exhausted.
 	 * @return true if rollouts and planning should cease; false otherwise.
 	 */
 	public boolean stopPlanning(){
 		if(foundGoal){
 			return true;
 		}
+		if(this.timeBudgetExhausted()){
+			return true;
+		}
 		if(maxRollOutsFromRoot == -1){
 			return false;
 		}
@@ -383,6 +436,20 @@ public class UCT extends MDPSolver implements Planner, QFunction {
 	 * @return the {@link UCTActionNode} to be taken.
 	 */
 	protected UCTActionNode selectActionNode(UCTStateNode snode){
+		return this.selectActionNode(snode, this.rand);
+	}
+	
+	
+	/**
+	 * Selections which action to take, breaking ties with the given random generator.
+	 * Unexplored actions from the node are selected first.
+	 * If all actions have been explored, then the action with the highest upper confidence Q-value
+	 * is selected, ties are broken randomly.
+	 * @param snode the UCT node from which to select an action.
+	 * @param rand the random generator used to break ties.
+	 * @return the {@link UCTActionNode} to be taken.
+	 */
+	protected UCTActionNode selectActionNode(UCTStateNode snode, Random rand){
 		
 		List <UCTActionNode> candidates = new ArrayList<UCTActionNode>();
 		
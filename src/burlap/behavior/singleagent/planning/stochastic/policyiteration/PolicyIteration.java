@@ -5,8 +5,10 @@ import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.policy.Policy;
 import burlap.behavior.singleagent.planning.Planner;
 import burlap.behavior.singleagent.planning.stochastic.ActionTransitions;
+import burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics;
 import burlap.behavior.singleagent.planning.stochastic.DynamicProgramming;
 import burlap.behavior.singleagent.planning.stochastic.HashedTransitionProbability;
+import burlap.behavior.singleagent.planning.stochastic.SparsePolicyEvaluator;
 import burlap.debugtools.DPrint;
 import burlap.oomdp.core.Domain;
 import burlap.oomdp.core.TerminalFunction;
@@ -48,6 +50,13 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	 * The current policy to be evaluated
 	 */
 	protected Policy 												evaluativePolicy;
+
+
+	/**
+	 * Whether the current evaluative policy is the greedy policy of this object's value function, in which case its action
+	 * probabilities can be computed from the compiled transition dynamics.
+	 */
+	protected boolean												evaluatingGreedyPolicy = false;
 	
 	
 	/**
@@ -65,6 +74,17 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	 * The total number of value iterations used to evaluated policies performed
 	 */
 	protected int													totalValueIterations = 0;
+
+
+	/**
+	 * The sparse linear solver used to evaluate policies, or null if policies are evaluated with fixed-policy Bellman sweeps.
+	 */
+	protected SparsePolicyEvaluator.Solver							evaluationSolver = null;
+
+	/**
+	 * The sparse policy evaluation system of the current compiled transition dynamics, which is reused across policy iterations.
+	 */
+	protected SparsePolicyEvaluator									sparseEvaluator;
 	
 	
 	/**
@@ -121,6 +141,7 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	 */
 	public void setPolicyToEvaluate(Policy p){
 		this.evaluativePolicy = p;
+		this.evaluatingGreedyPolicy = false;
 	}
 	
 	
@@ -138,6 +159,33 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	 */
 	public void recomputeReachableStates(){
 		this.foundReachableStates = false;
+		this.compiledDynamics = null;
+		this.sparseEvaluator = null;
+	}
+
+
+	/**
+	 * Sets the sparse linear solver used to evaluate policies. When set, each policy is evaluated by solving the linear system
+	 * (I - gamma P_pi) v = r_pi over the {@link burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics} of the reachable states
+	 * with a {@link burlap.behavior.singleagent.planning.stochastic.SparsePolicyEvaluator}, rather than with repeated Bellman sweeps. The
+	 * sparsity pattern of the system is assembled once and reused across policy iterations. With {@link SparsePolicyEvaluator.Solver#LU} the
+	 * evaluation is exact; with {@link SparsePolicyEvaluator.Solver#BICGSTAB} the evaluation stops when the maximum fixed-policy Bellman
+	 * error is smaller than the policy evaluation delta, or after the maximum number of evaluation iterations. If the system is singular,
+	 * policies are evaluated with Bellman sweeps instead. As with compiled dynamics, the reward function and transition dynamics
+	 * should not change over time.
+	 * @param solver the solver to use, or null to evaluate policies with Bellman sweeps (the default).
+	 */
+	public void setPolicyEvaluationSolver(SparsePolicyEvaluator.Solver solver){
+		this.evaluationSolver = solver;
+	}
+
+
+	/**
+	 * Returns the sparse linear solver used to evaluate policies, or null if policies are evaluated with Bellman sweeps.
+	 * @return the sparse linear solver used to evaluate policies, or null if policies are evaluated with Bellman sweeps.
+	 */
+	public SparsePolicyEvaluator.Solver getPolicyEvaluationSolver(){
+		return this.evaluationSolver;
 	}
 
 
@@ -166,19 +214,40 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	@Override
 	public GreedyQPolicy planFromState(State initialState) {
 
-		int iterations = 0;
 		this.initializeOptionsForExpectationComputations();
 		if(this.performReachabilityFrom(initialState)){
-			
-			double delta;
-			do{
-				delta = this.evaluatePolicy();
-				iterations++;
-				this.evaluativePolicy = new GreedyQPolicy(this.getCopyOfValueFunction());
-			}while(delta > this.maxPIDelta && iterations < maxPolicyIterations);
-			
+			this.runPolicyIteration(this.maxPolicyIterations);
 		}
 
+		return (GreedyQPolicy)this.evaluativePolicy;
+
+	}
+
+
+	/**
+	 * Continues policy iteration from the current evaluative policy for at most the given number of additional policy iterations,
+	 * stopping early if the maximum change in the value function between policy evaluations is smaller than the maximum policy iteration delta.
+	 * After each policy iteration, any {@link burlap.behavior.singleagent.planning.stochastic.DPIterationListener}s are informed with a snapshot of the
+	 * evaluated value function and its greedy policy. The reachable states must have been found with {@link #performReachabilityFrom(State)}
+	 * or {@link #planFromState(State)} first.
+	 * @param additionalIterations the maximum number of policy iterations to perform
+	 * @return the {@link burlap.behavior.policy.GreedyQPolicy} of the last evaluated value function.
+	 */
+	public GreedyQPolicy runPolicyIteration(int additionalIterations){
+
+		int iterations = 0;
+		long start = System.nanoTime();
+		double delta;
+		do{
+			delta = this.evaluatePolicy();
+			iterations++;
+			this.evaluativePolicy = new GreedyQPolicy(this.getCopyOfValueFunction());
+			this.evaluatingGreedyPolicy = true;
+			CompiledTransitionDynamics current = this.evaluationSolver != null || this.shouldUseCompiledDynamics() ? this.compiledDynamics : null;
+			start = this.iterationComplete(this.totalPolicyIterations + iterations, delta, start, current, this.evaluativePolicy);
+		}while(delta > this.maxPIDelta && iterations < additionalIterations);
+		this.planningTime += System.nanoTime() - start;
+
 		DPrint.cl(this.debugCode, "Total policy iterations: " + iterations);
 		this.totalPolicyIterations += iterations;
 
@@ -191,6 +260,7 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	public void resetSolver(){
 		super.resetSolver();
 		this.foundReachableStates = false;
+		this.sparseEvaluator = null;
 		this.totalValueIterations = 0;
 		this.totalPolicyIterations = 0;
 	}
@@ -205,6 +275,14 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use planFromState method at least once or instead.");
 		}
 		
+		if(this.evaluationSolver != null){
+			return this.evaluatePolicySparse();
+		}
+		
+		if(this.shouldUseCompiledDynamics()){
+			return this.evaluatePolicyCompiled();
+		}
+		
 		double maxChangeInPolicyEvaluation = Double.NEGATIVE_INFINITY;
 		
 		Set <HashableState> states = mapToStateIndex.keySet();
@@ -238,6 +316,75 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 	}
 	
 	
+	/**
+	 * Computes the value function under following the current evaluative policy using the
+	 * {@link burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics} of the reachable states. The policy's
+	 * action probabilities are queried once per state and the resulting values are written back into the value function.
+	 * @return the maximum single iteration change in the value function
+	 */
+	protected double evaluatePolicyCompiled(){
+		
+		CompiledTransitionDynamics compiled = this.getCompiledTransitionDynamics();
+		double [] policyProbs = compiled.policyProbabilities(this.evaluativePolicy);
+		
+		double maxChangeInPolicyEvaluation = Double.NEGATIVE_INFINITY;
+		
+		int i = 0;
+		for(i = 0; i < this.maxIterations; i++){
+			
+			double delta = compiled.fixedPolicySweep(policyProbs);
+			
+			maxChangeInPolicyEvaluation = Math.max(delta, maxChangeInPolicyEvaluation);
+			
+			if(delta < this.maxEvalDelta){
+				i++;
+				break; //approximated well enough; stop iterating
+			}
+			
+		}
+		
+		compiled.writeValues(this.valueFunction);
+		this.totalValueIterations += i;
+		
+		return maxChangeInPolicyEvaluation;
+		
+	}
+	
+	
+	/**
+	 * Computes the value function under following the current evaluative policy by solving the policy's linear system with
+	 * a {@link burlap.behavior.singleagent.planning.stochastic.SparsePolicyEvaluator}. When the evaluative policy is the greedy policy of the
+	 * last evaluation, its action probabilities are computed directly from the compiled dynamics. If the system cannot be solved,
+	 * {@link #evaluatePolicyCompiled()} is used instead. Each solve is counted as the number of solver iterations it used.
+	 * @return the maximum change in the value function
+	 */
+	protected double evaluatePolicySparse(){
+		
+		CompiledTransitionDynamics compiled = this.getCompiledTransitionDynamics();
+		if(this.sparseEvaluator == null || this.sparseEvaluator.getDynamics() != compiled){
+			this.sparseEvaluator = new SparsePolicyEvaluator(compiled);
+		}
+		double [] policyProbs = this.evaluatingGreedyPolicy ? compiled.greedyPolicyProbabilities(compiled.getValues()) : compiled.policyProbabilities(this.evaluativePolicy);
+		
+		double [] previous = compiled.getValues().clone();
+		int iterations = this.sparseEvaluator.evaluate(policyProbs, this.evaluationSolver, this.maxEvalDelta, this.maxIterations);
+		if(iterations < 0){
+			DPrint.cl(this.debugCode, "Could not solve the policy evaluation system; using Bellman sweeps.");
+			return this.evaluatePolicyCompiled();
+		}
+		
+		double [] values = compiled.getValues();
+		double delta = 0.;
+		for(int i = 0; i < values.length; i++){
+			delta = Math.max(Math.abs(values[i] - previous[i]), delta);
+		}
+		
+		compiled.writeValues(this.valueFunction);
+		this.totalValueIterations += iterations;
+		
+		return delta;
+		
+	}
 	
 	
 	
@@ -259,6 +406,13 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 		
 //		DPrint.cl(this.debugCode, "Starting reachability analysis");
 		
+		if(this.shouldUseParallelReachability()){
+			this.performParallelReachabilityFrom(sih, transitionDynamics.keySet(), this.tf);
+			this.foundReachableStates = true;
+			this.compiledDynamics = null;
+			return true;
+		}
+		
 		//add to the open list
 		LinkedList <HashableState> openList = new LinkedList<HashableState>();
 		Set <HashableState> openedSet = new HashSet<HashableState>();
@@ -301,6 +455,7 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 //		DPrint.cl(this.debugCode, "Finished reachability analysis; # states: " + mapToStateIndex.size());
 		
 		this.foundReachableStates = true;
+		this.compiledDynamics = null;
 		
 		return true;
 		
@@ -2,8 +2,12 @@ package burlap.behavior.singleagent.planning.stochastic.sparsesampling;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.policy.Policy;
@@ -39,7 +43,15 @@ import burlap.oomdp.singleagent.RewardFunction;
  * By default, this class will remember the estimated Q-value for every state from which the {@link #planFromState(State)} method was called (which will be indirectly called
  * by the Q-value query methods if it does not have the Q-value for it) and it will also remember the value of state tree nodes it computed so that they may be reused in
  * subsequent tree creations, thereby limiting the amount of additional computation required. However, if memory is scarce, the class can be told to forget all prior planning
- * results, except the Q-value estimate for the most recently planned for state, by using the {@link #forgetPreviousPlanResults} method.
+ * results, except the Q-value estimate for the most recently planned for state, by using the {@link #forgetPreviousPlanResults} method. Alternatively,
+ * the number of remembered state tree nodes can be bounded with the {@link #setMaxCachedNodes(int)} method, in which case the least recently
+ * used nodes are forgotten first.
+ * <p/>
+ * The sampled subtrees of a node can be expanded in parallel on a {@link java.util.concurrent.ForkJoinPool} by setting the number of worker threads
+ * with the {@link #setParallelism(int)} method. Nodes at or above the height set with {@link #setMinForkHeight(int)} estimate each of their
+ * sampled outcomes in a separate task; lower nodes are estimated serially by the thread that reaches them, and a node that is being estimated by one
+ * thread is waited on, rather than estimated again, by others. When planning in parallel, the domain's actions, reward function and terminal
+ * function must be safe to use from multiple threads.
  * <p/>
  * By default, the C parameter (number of state transition samples) is fixed for all nodes; however, it may also be set to use a variable C that reduces the number
  * of sampled states the further down in the tree it is according to C_i = C_0 * gamma^(2i), where i is the depth of the node from the root and gamma is the discount
@@ -104,9 +116,14 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	
 	
 	/**
-	 * The tree nodes indexed by state and height.
+	 * The tree nodes indexed by state and height. Guarded by {@link #cacheLock}.
 	 */
 	protected Map<HashedHeightState, StateNode> nodesByHeight;
+
+	/**
+	 * The lock guarding {@link #nodesByHeight}, which is replaced when the cache limit changes.
+	 */
+	protected final Object cacheLock = new Object();
 	
 	/**
 	 * The root state node Q-values that have been estimated by previous planning calls.
@@ -118,6 +135,26 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	 * The total number of pseudo-Bellman updates
 	 */
 	protected int numUpdates = 0;
+	
+	/**
+	 * The maximum number of state tree nodes remembered; -1 for no limit.
+	 */
+	protected int maxCachedNodes = -1;
+	
+	/**
+	 * The number of worker threads used to expand the tree; 1 expands it serially.
+	 */
+	protected int parallelism = 1;
+	
+	/**
+	 * The minimum height of a node whose sampled outcomes are estimated in parallel tasks.
+	 */
+	protected int minForkHeight = 2;
+	
+	/**
+	 * The pool in which the tree is expanded in parallel; created lazily.
+	 */
+	protected ForkJoinPool pool;
 
 	
 	
@@ -138,7 +175,7 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 		this.solverInit(domain, rf, tf, gamma, hashingFactory);
 		this.h = h;
 		this.c = c;
-		this.nodesByHeight = new HashMap<SparseSampling.HashedHeightState, SparseSampling.StateNode>();
+		this.nodesByHeight = new NodeCache(this.maxCachedNodes);
 		this.rootLevelQValues = new HashMap<HashableState, List<QValue>>();
 		if(this.c < 0){
 			this.computeExactValueFunction = true;
@@ -244,10 +281,70 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	public void setForgetPreviousPlanResults(boolean forgetPreviousPlanResults){
 		this.forgetPreviousPlanResults = forgetPreviousPlanResults;
 		if(this.forgetPreviousPlanResults){
-			this.nodesByHeight.clear();
+			synchronized(this.cacheLock){
+				this.nodesByHeight.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of state tree nodes remembered between and during planning. When the limit is exceeded, the least recently used node
+	 * is forgotten; if it is needed again, its value is estimated again. Nodes that are forgotten while they are being estimated are still completed.
+	 * @param maxCachedNodes the maximum number of state tree nodes remembered; -1 for no limit.
+	 */
+	public void setMaxCachedNodes(int maxCachedNodes){
+		this.maxCachedNodes = maxCachedNodes;
+		synchronized(this.cacheLock){
+			NodeCache cache = new NodeCache(maxCachedNodes);
+			cache.putAll(this.nodesByHeight);
+			this.nodesByHeight = cache;
 		}
 	}
 	
+	/**
+	 * Returns the maximum number of state tree nodes remembered.
+	 * @return the maximum number of state tree nodes remembered; -1 if there is no limit.
+	 */
+	public int getMaxCachedNodes(){
+		return this.maxCachedNodes;
+	}
+	
+	/**
+	 * Sets the number of worker threads used to expand the tree. Takes effect the next time planning is performed.
+	 * @param parallelism the number of worker threads; 1 expands the tree serially on the calling thread.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Returns the number of worker threads used to expand the tree.
+	 * @return the number of worker threads used to expand the tree.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+	
+	/**
+	 * Sets the minimum height of a node whose sampled outcomes are estimated in parallel tasks. Lower values create more, smaller tasks.
+	 * @param minForkHeight the minimum height of a node whose sampled outcomes are estimated in parallel tasks.
+	 */
+	public void setMinForkHeight(int minForkHeight){
+		this.minForkHeight = minForkHeight;
+	}
+	
+	/**
+	 * Returns the minimum height of a node whose sampled outcomes are estimated in parallel tasks.
+	 * @return the minimum height of a node whose sampled outcomes are estimated in parallel tasks.
+	 */
+	public int getMinForkHeight(){
+		return this.minForkHeight;
+	}
+	
 	/**
 	 * Sets the {@link ValueFunctionInitialization} object to use for settting the value of leaf nodes.
 	 * @param vinit the {@link ValueFunctionInitialization} object to use for settting the value of leaf nodes.
@@ -286,7 +383,9 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	 * @return the total number of state nodes that have been created.
 	 */
 	public int getNumberOfStateNodesCreated(){
-		return this.nodesByHeight.size() + this.rootLevelQValues.size();
+		synchronized(this.cacheLock){
+			return this.nodesByHeight.size() + this.rootLevelQValues.size();
+		}
 	}
 
 
@@ -311,13 +410,28 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 		DPrint.cl(this.debugCode, "Beginning Planning.");
 		int oldUpdates = this.numUpdates;
 		
-		StateNode sn = this.getStateNode(initialState, this.h);
-		rootLevelQValues.put(sh, sn.estimateQs());
+		final StateNode sn = this.getStateNode(initialState, this.h);
+		if(this.parallelism > 1){
+			if(this.pool == null){
+				this.pool = new ForkJoinPool(this.parallelism);
+			}
+			rootLevelQValues.put(sh, this.pool.invoke(new RecursiveTask<List<QValue>>() {
+				@Override
+				protected List<QValue> compute() {
+					return sn.estimateQs();
+				}
+			}));
+		}
+		else{
+			rootLevelQValues.put(sh, sn.estimateQs());
+		}
 		
 		DPrint.cl(this.debugCode, "Finished Planning with " + (this.numUpdates - oldUpdates) + " value esitmates; for a cumulative total of: " + this.numUpdates);
 		
 		if(this.forgetPreviousPlanResults){
-			this.nodesByHeight.clear();
+			synchronized(this.cacheLock){
+				this.nodesByHeight.clear();
+			}
 		}
 		
 		this.mapToStateIndex.put(sh, sh);
@@ -328,7 +442,9 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 
 	@Override
 	public void resetSolver() {
-		this.nodesByHeight.clear();
+		synchronized(this.cacheLock){
+			this.nodesByHeight.clear();
+		}
 		this.rootLevelQValues.clear();
 		this.numUpdates = 0;
 	}
@@ -408,13 +524,32 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	protected StateNode getStateNode(State s, int height){
 		HashableState sh = this.hashingFactory.hashState(s);
 		HashedHeightState hhs = new HashedHeightState(sh, height);
-		StateNode sn = this.nodesByHeight.get(hhs);
-		if(sn == null){
-			sn = new StateNode(sh, height);
-			this.nodesByHeight.put(hhs, sn);
+		synchronized(this.cacheLock){
+			StateNode sn = this.nodesByHeight.get(hhs);
+			if(sn == null){
+				sn = new StateNode(sh, height);
+				this.nodesByHeight.put(hhs, sn);
+			}
+			return sn;
 		}
-		
-		return sn;
+	}
+	
+	
+	/**
+	 * Returns whether the sampled outcomes of a node at the given height should be estimated in parallel tasks by the calling thread.
+	 * @param height the height of the node
+	 * @return true if the outcomes should be estimated in parallel tasks; false if they should be estimated serially.
+	 */
+	protected boolean forksAtHeight(int height){
+		return this.parallelism > 1 && height >= this.minForkHeight && this.pool != null && ForkJoinTask.getPool() == this.pool;
+	}
+	
+	
+	/**
+	 * Counts a pseudo-Bellman update.
+	 */
+	protected synchronized void countUpdate(){
+		this.numUpdates++;
 	}
 	
 	
@@ -443,7 +578,7 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 		/**
 		 * Whether this node has been closed.
 		 */
-		boolean closed = false;
+		volatile boolean closed = false;
 		
 		
 		/**
@@ -463,6 +598,9 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 		 */
 		public List<QValue> estimateQs(){
 			List<GroundedAction> gas = SparseSampling.this.getAllGroundedActions(this.sh.s);
+			if(this.height > 0 && SparseSampling.this.forksAtHeight(this.height)){
+				return this.estimateQsInParallel(gas);
+			}
 			List<QValue> qs = new ArrayList<QValue>(gas.size());
 			for(GroundedAction ga : gas){
 				if(this.height <= 0){
@@ -484,6 +622,79 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 			return qs;
 		}
 		
+		/**
+		 * Estimates the Q-values for this node by estimating each sampled outcome (or each transition, if the exact value function is computed)
+		 * in a separate fork-join task. The outcomes of each action are summed in the same order as they are when estimated serially.
+		 * @param gas the actions of this node
+		 * @return a {@link List} of the estiamted Q-values for each action.
+		 */
+		protected List<QValue> estimateQsInParallel(List<GroundedAction> gas){
+			
+			List<List<OutcomeTask>> tasks = new ArrayList<List<OutcomeTask>>(gas.size());
+			List<OutcomeTask> all = new ArrayList<OutcomeTask>();
+			for(GroundedAction ga : gas){
+				List<OutcomeTask> actionTasks = new ArrayList<OutcomeTask>();
+				if(!SparseSampling.this.computeExactValueFunction){
+					int c = SparseSampling.this.getCAtHeight(this.height);
+					for(int i = 0; i < c; i++){
+						actionTasks.add(new OutcomeTask(this, ga, null));
+					}
+				}
+				else{
+					if(ga.action instanceof Option){
+						throw new RuntimeException("Sparse Sampling Planner with Full Bellman updates turned on cannot work with options because it needs factored access to the depth for each option transition. Use the standard sampling mode instead.");
+					}
+					for(TransitionProbability tp : ga.getTransitions(this.sh.s)){
+						actionTasks.add(new OutcomeTask(this, ga, tp));
+					}
+				}
+				tasks.add(actionTasks);
+				all.addAll(actionTasks);
+			}
+			
+			ForkJoinTask.invokeAll(all);
+			
+			List<QValue> qs = new ArrayList<QValue>(gas.size());
+			for(int i = 0; i < gas.size(); i++){
+				double sum = 0.;
+				for(OutcomeTask t : tasks.get(i)){
+					sum += t.join();
+				}
+				if(!SparseSampling.this.computeExactValueFunction){
+					sum /= (double)tasks.get(i).size();
+				}
+				qs.add(new QValue(this.sh.s, gas.get(i), sum));
+			}
+			
+			return qs;
+		}
+		
+		
+		/**
+		 * Returns the discounted value of one sampled outcome of an action: the reward plus the discounted value of the outcome's node.
+		 * @param ga the action
+		 * @return the discounted value of a sampled outcome of the action
+		 */
+		protected double sampledOutcomeValue(GroundedAction ga){
+			
+			//execute
+			State ns = ga.executeIn(this.sh.s);
+			
+			//manage option stepsize modifications
+			int k = 1;
+			if(ga.action instanceof Option){
+				k = ((Option)ga.action).getLastNumSteps();
+			}
+			
+			//get reward; our rf will automatically do cumumative discounted if it's an option
+			double r = SparseSampling.this.rf.reward(this.sh.s, ga, ns);
+			
+			StateNode nsn = SparseSampling.this.getStateNode(ns, this.height-k);
+			
+			return r + Math.pow(SparseSampling.this.gamma, k)*nsn.estimateV();
+		}
+		
+		
 		/**
 		 * Estimates the Q-value using sampling from the transition dynamics. This is the standard Sparse Sampling procedure.
 		 * @param ga the action for which the Q-value estimate is to be returned
@@ -496,22 +707,7 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 			//generate C samples
 			int c = SparseSampling.this.getCAtHeight(this.height);
 			for(int i = 0; i < c; i++){
-				
-				//execute
-				State ns = ga.executeIn(this.sh.s);
-				
-				//manage option stepsize modifications
-				int k = 1;
-				if(ga.action instanceof Option){
-					k = ((Option)ga.action).getLastNumSteps();
-				}
-				
-				//get reward; our rf will automatically do cumumative discounted if it's an option
-				double r = SparseSampling.this.rf.reward(this.sh.s, ga, ns);
-				
-				StateNode nsn = SparseSampling.this.getStateNode(ns, this.height-k);
-				
-				sum += r + Math.pow(SparseSampling.this.gamma, k)*nsn.estimateV();
+				sum += this.sampledOutcomeValue(ga);
 			}
 			sum /= (double)c;
 			
@@ -554,13 +750,32 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 		
 		
 		/**
-		 * Returns the estimated Q-value if this node is closed, or estimates it and closes it otherwise.
+		 * Returns the estimated Q-value if this node is closed, or estimates it and closes it otherwise. Nodes whose outcomes are
+		 * estimated in parallel tasks are estimated without holding this node's lock, so that the thread estimating it can run other tasks while it
+		 * waits for its own; other nodes are estimated while holding the lock, so that concurrent requests for the same node wait for one estimate.
 		 * @return the estimated Q-value for this node.
 		 */
 		public double estimateV(){
 			if(this.closed){
 				return this.v;
 			}
+			if(SparseSampling.this.forksAtHeight(this.height)){
+				return this.computeV();
+			}
+			synchronized(this){
+				if(this.closed){
+					return this.v;
+				}
+				return this.computeV();
+			}
+		}
+		
+		
+		/**
+		 * Estimates the value of this node and closes it.
+		 * @return the estimated value of this node.
+		 */
+		protected double computeV(){
 			
 			if(SparseSampling.this.tf.isTerminal(this.sh.s)){
 				this.v = 0.;
@@ -574,7 +789,7 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 			for(QValue q : qs){
 				max = Math.max(max, q.q);
 			}
-			SparseSampling.this.numUpdates++;
+			SparseSampling.this.countUpdate();
 			this.v = max;
 			this.closed = true;
 			return max;
@@ -583,6 +798,72 @@ public class SparseSampling extends MDPSolver implements QFunction, Planner {
 	}
 	
 	
+	/**
+	 * A fork-join task that computes the discounted value of one outcome of an action in a state node: either a sampled outcome, or a
+	 * transition weighted by its probability.
+	 */
+	protected class OutcomeTask extends RecursiveTask<Double>{
+
+		private static final long serialVersionUID = 1L;
+		
+		StateNode node;
+		GroundedAction ga;
+		TransitionProbability tp;
+		
+		/**
+		 * Initializes.
+		 * @param node the state node in which the action is taken
+		 * @param ga the action
+		 * @param tp the transition whose probability weighted value is computed; null to sample an outcome
+		 */
+		public OutcomeTask(StateNode node, GroundedAction ga, TransitionProbability tp){
+			this.node = node;
+			this.ga = ga;
+			this.tp = tp;
+		}
+		
+		@Override
+		protected Double compute() {
+			if(this.tp == null){
+				return this.node.sampledOutcomeValue(this.ga);
+			}
+			double r = SparseSampling.this.rf.reward(this.node.sh.s, this.ga, this.tp.s);
+			StateNode nsn = SparseSampling.this.getStateNode(this.tp.s, this.node.height-1);
+			return this.tp.p * (r + SparseSampling.this.gamma * nsn.estimateV());
+		}
+		
+	}
+	
+	
+	/**
+	 * The state tree node cache. If it has a capacity, it is ordered by access and forgets its least recently used node when its capacity is exceeded.
+	 */
+	protected static class NodeCache extends LinkedHashMap<HashedHeightState, StateNode>{
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The maximum number of nodes; -1 for no limit
+		 */
+		protected int capacity;
+		
+		/**
+		 * Initializes.
+		 * @param capacity the maximum number of nodes; -1 for no limit
+		 */
+		public NodeCache(int capacity){
+			super(16, 0.75f, capacity > 0);
+			this.capacity = capacity;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<HashedHeightState, StateNode> eldest) {
+			return this.capacity > 0 && this.size() > this.capacity;
+		}
+		
+	}
+	
+	
 	/**
 	 * Tuple for a state and its height in a tree that can be hashed for quick retrieval.
 	 * @author James MacGlashan
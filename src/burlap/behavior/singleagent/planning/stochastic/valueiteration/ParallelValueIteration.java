@@ -0,0 +1,274 @@
+package burlap.behavior.singleagent.planning.stochastic.valueiteration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics;
+import burlap.debugtools.DPrint;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.statehashing.HashableStateFactory;
+
+
+/**
+ * A multi-threaded implementation of value iteration. After the reachable states are found, the transition dynamics are compiled
+ * into a {@link burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics} object and each sweep
+ * partitions the state index range into fixed size blocks that are backed up in parallel on a {@link java.util.concurrent.ForkJoinPool}.
+ * The maximum change in the value function is reduced across the blocks to test for termination.
+ * <p/>
+ * Two sweep modes are supported:
+ * <ul>
+ * <li>{@link SweepMode#JACOBI}: every backup reads the values from the previous sweep and writes into a second buffer. The results
+ * are bitwise identical regardless of the number of threads and are equal to those of a synchronous single-threaded sweep.</li>
+ * <li>{@link SweepMode#BLOCK_GAUSS_SEIDEL}: each block is updated in place, so backups within a block use the values already
+ * updated in the current sweep, while successors in other blocks are read from the previous sweep. This typically
+ * converges in fewer sweeps than Jacobi and, because block boundaries depend only on the block size, is also independent
+ * of the number of threads.</li>
+ * </ul>
+ * Because the dynamics are compiled, the reward function and transition dynamics must be stationary and transition
+ * dynamics caching must be enabled; if caching is disabled, planning falls back to the single-threaded {@link ValueIteration#runVI()}.
+ * The resulting values are written back into the value function, so this class returns the same {@link burlap.behavior.policy.GreedyQPolicy}
+ * and supports the same {@link burlap.behavior.valuefunction.QFunction} queries as {@link ValueIteration}.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelValueIteration extends ValueIteration {
+
+	/**
+	 * The different ways a parallel sweep can be performed.
+	 */
+	public static enum SweepMode{
+		JACOBI,
+		BLOCK_GAUSS_SEIDEL
+	}
+
+
+	/**
+	 * The sweep mode to use.
+	 */
+	protected SweepMode												sweepMode = SweepMode.JACOBI;
+
+	/**
+	 * The number of states backed up by a single task.
+	 */
+	protected int													blockSize = 512;
+
+	/**
+	 * The number of worker threads.
+	 */
+	protected int													parallelism;
+
+	/**
+	 * The pool in which sweeps are run; created lazily.
+	 */
+	protected ForkJoinPool											pool;
+
+
+	/**
+	 * Initializes with Jacobi sweeps using one worker thread per available processor.
+	 * @param domain the domain in which to plan
+	 * @param rf the reward function
+	 * @param tf the terminal state function
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param maxDelta when the maximum change in the value function is smaller than this value, VI will terminate.
+	 * @param maxIterations when the number of VI iterations exceeds this value, VI will terminate.
+	 */
+	public ParallelValueIteration(Domain domain, RewardFunction rf, TerminalFunction tf, double gamma, HashableStateFactory hashingFactory, double maxDelta, int maxIterations){
+		this(domain, rf, tf, gamma, hashingFactory, maxDelta, maxIterations, Runtime.getRuntime().availableProcessors(), SweepMode.JACOBI);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the domain in which to plan
+	 * @param rf the reward function
+	 * @param tf the terminal state function
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param maxDelta when the maximum change in the value function is smaller than this value, VI will terminate.
+	 * @param maxIterations when the number of VI iterations exceeds this value, VI will terminate.
+	 * @param parallelism the number of worker threads to use
+	 * @param sweepMode the sweep mode to use
+	 */
+	public ParallelValueIteration(Domain domain, RewardFunction rf, TerminalFunction tf, double gamma, HashableStateFactory hashingFactory, double maxDelta, int maxIterations, int parallelism, SweepMode sweepMode){
+		super(domain, rf, tf, gamma, hashingFactory, maxDelta, maxIterations);
+		this.parallelism = parallelism;
+		this.sweepMode = sweepMode;
+		this.useCompiledDynamics = true;
+	}
+
+
+	/**
+	 * Sets the sweep mode to use.
+	 * @param sweepMode the sweep mode to use.
+	 */
+	public void setSweepMode(SweepMode sweepMode){
+		this.sweepMode = sweepMode;
+	}
+
+	/**
+	 * Returns the sweep mode used.
+	 * @return the sweep mode used.
+	 */
+	public SweepMode getSweepMode(){
+		return this.sweepMode;
+	}
+
+	/**
+	 * Sets the number of states that are backed up by a single task. In {@link SweepMode#BLOCK_GAUSS_SEIDEL} mode this is
+	 * also the size of the blocks that are updated in place.
+	 * @param blockSize the number of states backed up by a single task.
+	 */
+	public void setBlockSize(int blockSize){
+		if(blockSize < 1){
+			throw new RuntimeException("Block size must be at least 1; was " + blockSize);
+		}
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Returns the number of states that are backed up by a single task.
+	 * @return the number of states that are backed up by a single task.
+	 */
+	public int getBlockSize(){
+		return this.blockSize;
+	}
+
+	/**
+	 * Sets the number of worker threads. Takes effect the next time VI is run.
+	 * @param parallelism the number of worker threads.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+
+
+	@Override
+	public int runVI(int additionalIterations){
+
+		if(!this.foundReachableStates){
+			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use the planFromState or performReachabilityFrom method at least once before calling runVI.");
+		}
+
+		if(!this.shouldUseCompiledDynamics()){
+			return super.runVI(additionalIterations);
+		}
+
+		CompiledTransitionDynamics compiled = this.getCompiledTransitionDynamics();
+		if(this.pool == null){
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+
+		double [] next = new double[compiled.numStates()];
+
+		long start = System.nanoTime();
+		int i = 0;
+		for(i = 0; i < additionalIterations; i++){
+
+			double [] prev = compiled.getValues();
+			double delta = this.pool.invoke(new SweepTask(compiled, prev, next, 0, prev.length));
+			compiled.setValues(next);
+			next = prev;
+
+			this.totalIterations++;
+			start = this.iterationComplete(this.totalIterations, delta, start, compiled, null);
+
+			if(delta < this.maxDelta){
+				i++;
+				break; //approximated well enough; stop iterating
+			}
+
+		}
+
+		compiled.writeValues(this.valueFunction);
+		this.planningTime += System.nanoTime() - start;
+
+		DPrint.cf(this.debugCode, "Passes: %d\n", i);
+
+		this.hasRunVI = true;
+
+		return i;
+
+	}
+
+
+	/**
+	 * A fork-join task that backs up the states in an index range, splitting the range in half until it is no larger than the block size.
+	 * Returns the maximum change in value over the range.
+	 */
+	protected class SweepTask extends RecursiveTask<Double>{
+
+		private static final long serialVersionUID = 1L;
+
+		protected CompiledTransitionDynamics compiled;
+		protected double [] prev;
+		protected double [] next;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param compiled the compiled transition dynamics
+		 * @param prev the values from the previous sweep
+		 * @param next the array into which new values are written
+		 * @param start the first state index to back up (inclusive)
+		 * @param end the last state index to back up (exclusive)
+		 */
+		public SweepTask(CompiledTransitionDynamics compiled, double [] prev, double [] next, int start, int end){
+			this.compiled = compiled;
+			this.prev = prev;
+			this.next = next;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Double compute(){
+
+			if(this.end - this.start > ParallelValueIteration.this.blockSize){
+				int mid = (this.start + this.end) >>> 1;
+				SweepTask left = new SweepTask(this.compiled, this.prev, this.next, this.start, mid);
+				SweepTask right = new SweepTask(this.compiled, this.prev, this.next, mid, this.end);
+				left.fork();
+				double rightDelta = right.compute();
+				double leftDelta = left.join();
+				return Math.max(leftDelta, rightDelta);
+			}
+
+			double delta = 0.;
+			if(ParallelValueIteration.this.sweepMode == SweepMode.JACOBI){
+				for(int s = this.start; s < this.end; s++){
+					double nv = this.compiled.backup(s, this.prev);
+					this.next[s] = nv;
+					delta = Math.max(Math.abs(nv - this.prev[s]), delta);
+				}
+			}
+			else{
+				System.arraycopy(this.prev, this.start, this.next, this.start, this.end - this.start);
+				for(int s = this.start; s < this.end; s++){
+					double nv = this.compiled.blockBackup(s, this.next, this.prev, this.start, this.end);
+					delta = Math.max(Math.abs(nv - this.next[s]), delta);
+					this.next[s] = nv;
+				}
+			}
+
+			return delta;
+		}
+
+	}
+
+}
@@ -100,7 +100,7 @@ public class PrioritizedSweeping extends ValueIteration{
 			
 		}
 		
-		DPrint.cl(this.debugCode, "Finished planning with " + numBackups + " Bellman backups");
+		DPrint.cf(this.debugCode, "Finished planning with %d Bellman backups\n", numBackups);
 		
 	}
 	
@@ -158,7 +158,7 @@ public class PrioritizedSweeping extends ValueIteration{
 			
 		}
 		
-		DPrint.cl(this.debugCode, "Finished reachability analysis; # states: " + mapToStateIndex.size());
+		DPrint.cf(this.debugCode, "Finished reachability analysis; # states: %d\n", mapToStateIndex.size());
 		
 		this.foundReachableStates = true;
 		this.hasRunVI = false;
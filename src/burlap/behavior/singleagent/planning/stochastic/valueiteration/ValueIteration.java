@@ -8,12 +8,14 @@ import java.util.Set;
 
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.singleagent.planning.stochastic.ActionTransitions;
+import burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics;
 import burlap.behavior.singleagent.planning.stochastic.HashedTransitionProbability;
 import burlap.behavior.singleagent.planning.stochastic.DynamicProgramming;
 import burlap.behavior.singleagent.planning.Planner;
 import burlap.oomdp.statehashing.HashableStateFactory;
 import burlap.oomdp.statehashing.HashableState;
 import burlap.debugtools.DPrint;
+import burlap.oomdp.auxiliary.common.NullTermination;
 import burlap.oomdp.core.Domain;
 import burlap.oomdp.core.states.State;
 import burlap.oomdp.core.TerminalFunction;
@@ -29,6 +31,14 @@ import burlap.oomdp.singleagent.RewardFunction;
  * that VI does not pass over non-reachable states.
  * 
  * This implementation is compatible with options.
+ * <p/>
+ * Calling {@link #toggleUseCompiledDynamics(boolean)} with true will cause VI sweeps to be performed over a
+ * {@link burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics} representation of the reachable state space,
+ * which avoids hashing and reward function calls on each sweep.
+ * <p/>
+ * VI is anytime: {@link #runVI(int)} continues VI from the current value function for a number of additional iterations, and
+ * {@link burlap.behavior.singleagent.planning.stochastic.DPIterationListener}s added with {@link #addIterationListener(burlap.behavior.singleagent.planning.stochastic.DPIterationListener)}
+ * receive a snapshot of the value function after every iteration, so a single run yields the value function and policy of every iteration budget.
  * 
  * 
  * @author James MacGlashan
@@ -63,6 +73,12 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 	
 	
 	protected boolean												hasRunVI = false;
+
+
+	/**
+	 * The total number of VI iterations performed since the last reset.
+	 */
+	protected int													totalIterations = 0;
 	
 	
 	/**
@@ -92,6 +108,7 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 	public void recomputeReachableStates(){
 		this.foundReachableStates = false;
 		this.transitionDynamics = new HashMap<HashableState, List<ActionTransitions>>();
+		this.compiledDynamics = null;
 	}
 	
 	
@@ -126,6 +143,16 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 		super.resetSolver();
 		this.foundReachableStates = false;
 		this.hasRunVI = false;
+		this.totalIterations = 0;
+	}
+
+
+	/**
+	 * Returns the total number of VI iterations performed since the last reset.
+	 * @return the total number of VI iterations performed since the last reset.
+	 */
+	public int getTotalIterations(){
+		return this.totalIterations;
 	}
 	
 	/**
@@ -135,15 +162,32 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 	 * method first and then this if it hasn't been run.
 	 */
 	public void runVI(){
+		this.runVI(this.maxIterations);
+	}
+	
+	
+	/**
+	 * Continues VI from the current value function for at most the given number of additional iterations, stopping early if the
+	 * maximum change in the value function is smaller than the maximum delta. Iteration listeners are informed after each iteration.
+	 * The {@link #performReachabilityFrom(State)} must have been performed at least once in the past or a runtime exception will be thrown.
+	 * @param additionalIterations the maximum number of iterations to perform
+	 * @return the number of iterations performed
+	 */
+	public int runVI(int additionalIterations){
 		
 		if(!this.foundReachableStates){
 			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use the planFromState or performReachabilityFrom method at least once before calling runVI.");
 		}
 		
+		if(this.shouldUseCompiledDynamics()){
+			return this.runCompiledVI(additionalIterations);
+		}
+		
 		Set <HashableState> states = mapToStateIndex.keySet();
 		
+		long start = System.nanoTime();
 		int i = 0;
-		for(i = 0; i < this.maxIterations; i++){
+		for(i = 0; i < additionalIterations; i++){
 			
 			double delta = 0.;
 			for(HashableState sh : states){
@@ -154,16 +198,61 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 				
 			}
 			
+			this.totalIterations++;
+			start = this.iterationComplete(this.totalIterations, delta, start, null, null);
+			
+			if(delta < this.maxDelta){
+				i++;
+				break; //approximated well enough; stop iterating
+			}
+			
+		}
+		this.planningTime += System.nanoTime() - start;
+		
+		DPrint.cf(this.debugCode, "Passes: %d\n", i);
+		
+		this.hasRunVI = true;
+		
+		return i;
+		
+	}
+	
+	
+	/**
+	 * Runs VI over the {@link burlap.behavior.singleagent.planning.stochastic.CompiledTransitionDynamics} of the reachable states
+	 * for at most the given number of iterations and then writes the resulting values back into the value function.
+	 * @param additionalIterations the maximum number of iterations to perform
+	 * @return the number of iterations performed
+	 */
+	protected int runCompiledVI(int additionalIterations){
+		
+		CompiledTransitionDynamics compiled = this.getCompiledTransitionDynamics();
+		
+		long start = System.nanoTime();
+		int i = 0;
+		for(i = 0; i < additionalIterations; i++){
+			
+			double delta = compiled.sweep();
+			
+			this.totalIterations++;
+			start = this.iterationComplete(this.totalIterations, delta, start, compiled, null);
+			
 			if(delta < this.maxDelta){
+				i++;
 				break; //approximated well enough; stop iterating
 			}
 			
 		}
 		
-		DPrint.cl(this.debugCode, "Passes: " + i);
+		compiled.writeValues(this.valueFunction);
+		this.planningTime += System.nanoTime() - start;
+		
+		DPrint.cf(this.debugCode, "Passes: %d\n", i);
 		
 		this.hasRunVI = true;
 		
+		return i;
+		
 	}
 	
 	
@@ -185,6 +274,15 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 		
 //		DPrint.cl(this.debugCode, "Starting reachability analysis");
 		
+		if(this.shouldUseParallelReachability()){
+			TerminalFunction expansionTF = this.stopReachabilityFromTerminalStates ? this.tf : new NullTermination();
+			this.performParallelReachabilityFrom(sih, mapToStateIndex.keySet(), expansionTF);
+			this.foundReachableStates = true;
+			this.hasRunVI = false;
+			this.compiledDynamics = null;
+			return true;
+		}
+		
 		//add to the open list
 		LinkedList <HashableState> openList = new LinkedList<HashableState>();
 		Set <HashableState> openedSet = new HashSet<HashableState>();
@@ -228,6 +326,7 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 		
 		this.foundReachableStates = true;
 		this.hasRunVI = false;
+		this.compiledDynamics = null;
 		
 		return true;
 		
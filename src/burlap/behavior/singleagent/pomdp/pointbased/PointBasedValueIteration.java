@@ -0,0 +1,790 @@
+package burlap.behavior.singleagent.pomdp.pointbased;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.MDPSolver;
+import burlap.behavior.singleagent.planning.Planner;
+import burlap.behavior.valuefunction.QFunction;
+import burlap.behavior.valuefunction.QValue;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.oomdp.core.AbstractGroundedAction;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.pomdp.CompiledPOMDPModel;
+import burlap.oomdp.singleagent.pomdp.PODomain;
+import burlap.oomdp.singleagent.pomdp.beliefstate.DenseBeliefVector;
+import burlap.oomdp.singleagent.pomdp.beliefstate.EnumerableBeliefState;
+import burlap.oomdp.singleagent.pomdp.beliefstate.tabular.HashableTabularBeliefStateFactory;
+
+
+/**
+ * A point-based value iteration planner for finite POMDPs. The value function is represented by a set of alpha vectors,
+ * stored as dense double arrays over the hidden states, and is improved by Bellman backups at a finite set of belief points.
+ * The POMDP is first compiled into a {@link burlap.oomdp.singleagent.pomdp.CompiledPOMDPModel}, so the domain must provide a
+ * {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} and an {@link burlap.oomdp.singleagent.pomdp.ObservationFunction}
+ * that can enumerate its observations, and the beliefs it plans for must be {@link burlap.oomdp.singleagent.pomdp.beliefstate.EnumerableBeliefState}s
+ * (preferably {@link burlap.oomdp.singleagent.pomdp.beliefstate.DenseBeliefVector}s, such as {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState}).
+ * <br/><br/>
+ * Belief points can be added with {@link #addBeliefPoint(double[])}; if there are none when {@link #planFromState(burlap.oomdp.core.states.State)}
+ * is called, they are collected by simulating random action trajectories from the input belief (see {@link #collectBeliefPoints(double[], int)}).
+ * Each iteration first back projects every alpha vector through every action and observation, and then performs backups according
+ * to the {@link BackupMode}:
+ * <ul>
+ * <li>{@link BackupMode#PBVI}: every belief point is backed up and the new value function is the set of resulting vectors
+ * (Pineau, Gordon and Thrun, 2003). Backups are independent and are run in parallel; the results do not depend on the number of threads.</li>
+ * <li>{@link BackupMode#PERSEUS}: belief points are sampled at random and backed up until the value of every belief point has improved,
+ * which usually requires far fewer backups than there are points (Spaan and Vlassis, 2005). The value of the remaining points is updated
+ * in parallel after each backup.</li>
+ * </ul>
+ * Alpha vectors start from a lower bound of the value function, so the value of every belief point never decreases. Iterations stop when
+ * the maximum change in the value of a belief point is less than maxDelta or after maxIterations.
+ * <br/><br/>
+ * The Q-value of an action in any belief is computed with a one step look ahead over the alpha vectors, so the planner can be used by a
+ * {@link burlap.behavior.policy.GreedyQPolicy}, and therefore by a {@link burlap.behavior.singleagent.pomdp.BeliefPolicyAgent}, like any other
+ * {@link burlap.behavior.valuefunction.QFunction}.
+ * @author James MacGlashan
+ *
+ */
+public class PointBasedValueIteration extends MDPSolver implements Planner, QFunction {
+
+	/**
+	 * The backup schemes of an iteration.
+	 */
+	public static enum BackupMode{
+		PBVI,
+		PERSEUS
+	}
+
+
+	/**
+	 * The compiled POMDP
+	 */
+	protected CompiledPOMDPModel					model;
+
+	/**
+	 * The belief points at which backups are performed
+	 */
+	protected List<double []>						beliefPoints = new ArrayList<double[]>();
+
+	/**
+	 * Keys of the belief points, used to avoid adding the same point twice
+	 */
+	protected Set<VectorKey>						beliefKeys = new HashSet<VectorKey>();
+
+	/**
+	 * The alpha vectors of the value function; null until they are initialized
+	 */
+	protected double [][]							alphaVectors = null;
+
+	/**
+	 * The index of the action of each alpha vector
+	 */
+	protected int []								alphaActions = null;
+
+	/**
+	 * The backup scheme
+	 */
+	protected BackupMode							backupMode = BackupMode.PBVI;
+
+	/**
+	 * The number of belief points collected when planning if none have been added
+	 */
+	protected int									numBeliefPoints;
+
+	/**
+	 * The maximum length of a simulated trajectory when collecting belief points
+	 */
+	protected int									beliefCollectionHorizon = 30;
+
+	/**
+	 * The value change threshold below which iterations stop
+	 */
+	protected double								maxDelta;
+
+	/**
+	 * The maximum number of iterations performed by {@link #planFromState(burlap.oomdp.core.states.State)}
+	 */
+	protected int									maxIterations;
+
+	/**
+	 * The total number of iterations performed
+	 */
+	protected int									totalIterations = 0;
+
+	/**
+	 * The number of worker threads
+	 */
+	protected int									parallelism = 1;
+
+	/**
+	 * The number of belief points (or alpha vectors) processed by a single task
+	 */
+	protected int									grainSize = 8;
+
+	/**
+	 * The worker pool; created on first use
+	 */
+	protected ForkJoinPool							pool = null;
+
+	/**
+	 * The random generator used to collect belief points and to order Perseus backups; by default, the policy stream of the calling thread
+	 */
+	protected Random								rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
+
+
+	/**
+	 * Initializes and compiles the POMDP.
+	 * @param domain the POMDP domain
+	 * @param rf the hidden state reward function
+	 * @param tf the hidden state terminal function
+	 * @param discount the discount factor
+	 * @param numBeliefPoints the number of belief points to collect when planning if none have been added
+	 * @param maxDelta the value change threshold below which iterations stop
+	 * @param maxIterations the maximum number of iterations performed when planning
+	 */
+	public PointBasedValueIteration(PODomain domain, RewardFunction rf, TerminalFunction tf, double discount, int numBeliefPoints, double maxDelta, int maxIterations){
+		this.solverInit(domain, rf, tf, discount, new HashableTabularBeliefStateFactory());
+		this.model = new CompiledPOMDPModel(domain, rf, tf);
+		this.numBeliefPoints = numBeliefPoints;
+		this.maxDelta = maxDelta;
+		this.maxIterations = maxIterations;
+	}
+
+
+	public BackupMode getBackupMode() {
+		return backupMode;
+	}
+
+	public void setBackupMode(BackupMode backupMode) {
+		this.backupMode = backupMode;
+	}
+
+	public int getBeliefCollectionHorizon() {
+		return beliefCollectionHorizon;
+	}
+
+	public void setBeliefCollectionHorizon(int beliefCollectionHorizon) {
+		this.beliefCollectionHorizon = beliefCollectionHorizon;
+	}
+
+	public void setRandomGenerator(Random rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * Sets the number of worker threads. If 1, all work is done on the calling thread.
+	 * @param parallelism the number of worker threads
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism < 1){
+			throw new RuntimeException("Parallelism must be at least 1; received " + parallelism);
+		}
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	public int getParallelism(){
+		return this.parallelism;
+	}
+
+	/**
+	 * Returns the compiled POMDP that is planned for.
+	 * @return the compiled POMDP
+	 */
+	public CompiledPOMDPModel getModel(){
+		return this.model;
+	}
+
+	/**
+	 * Returns the total number of iterations performed since the planner was created or reset.
+	 * @return the total number of iterations performed
+	 */
+	public int getTotalIterations(){
+		return this.totalIterations;
+	}
+
+	public List<double[]> getBeliefPoints(){
+		return this.beliefPoints;
+	}
+
+	/**
+	 * Returns the alpha vectors of the value function. The returned arrays should not be modified.
+	 * @return the alpha vectors of the value function
+	 */
+	public double [][] getAlphaVectors(){
+		this.initializeAlphaVectors();
+		return this.alphaVectors;
+	}
+
+	/**
+	 * Returns the action index, in the {@link #getModel()} model, of each alpha vector.
+	 * @return the action index of each alpha vector
+	 */
+	public int [] getAlphaActions(){
+		this.initializeAlphaVectors();
+		return this.alphaActions;
+	}
+
+
+	/**
+	 * Adds a belief point at which backups are performed, unless the same point was already added.
+	 * @param b the dense belief vector
+	 * @return true if the point was added; false if it already was a belief point.
+	 */
+	public boolean addBeliefPoint(double [] b){
+		if(b.length != this.model.numStates()){
+			throw new RuntimeException("Belief point has dimension " + b.length + " but the POMDP has " + this.model.numStates() + " states.");
+		}
+		double [] point = b.clone();
+		if(this.beliefKeys.add(new VectorKey(point))){
+			this.beliefPoints.add(point);
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Collects belief points by simulating trajectories of random actions from an initial belief until the given number of
+	 * points has been reached or new points stop being found. The initial belief is always added.
+	 * @param initialBelief the initial belief vector
+	 * @param n the number of belief points to reach
+	 */
+	public void collectBeliefPoints(double [] initialBelief, int n){
+
+		this.addBeliefPoint(initialBelief);
+
+		int nS = this.model.numStates();
+		int nA = this.model.numActions();
+		double [] predicted = new double[nS];
+		int failures = 0;
+		while(this.beliefPoints.size() < n && failures < 10*n){
+
+			double [] b = initialBelief.clone();
+			int s = this.model.sampleState(b, this.rand);
+			for(int t = 0; t < this.beliefCollectionHorizon && this.beliefPoints.size() < n; t++){
+				int a = this.rand.nextInt(nA);
+				int sp = this.model.sampleSuccessor(s, a, this.rand);
+				if(sp == -1){
+					break;
+				}
+				int o = this.model.sampleObservation(sp, a, this.rand);
+				double [] nb = new double[nS];
+				this.model.predict(b, a, predicted);
+				double po = this.model.correct(predicted, a, o, nb);
+				if(po <= 0.){
+					break;
+				}
+				for(int i = 0; i < nS; i++){
+					nb[i] /= po;
+				}
+				if(this.addBeliefPoint(nb)){
+					failures = 0;
+				}
+				else{
+					failures++;
+				}
+				b = nb;
+				s = sp;
+			}
+
+		}
+
+	}
+
+
+	@Override
+	public Policy planFromState(State initialState) {
+		if(this.beliefPoints.isEmpty()){
+			this.collectBeliefPoints(this.beliefVector(initialState), this.numBeliefPoints);
+		}
+		this.runIterations(this.maxIterations);
+		return new GreedyQPolicy(this);
+	}
+
+
+	/**
+	 * Runs iterations of backups at the belief points until the maximum change in the value of a belief point is less than maxDelta
+	 * or the given number of iterations have been run. Belief points must have been added or collected.
+	 * @param iterations the maximum number of iterations to run
+	 * @return the number of iterations run
+	 */
+	public int runIterations(int iterations){
+
+		if(this.beliefPoints.isEmpty()){
+			throw new RuntimeException("Cannot run point-based value iteration without belief points; add or collect belief points first.");
+		}
+		this.initializeAlphaVectors();
+
+		int nB = this.beliefPoints.size();
+		double [] values = new double[nB];
+		int [] best = new int[nB];
+		this.evaluateBeliefPoints(values, best);
+
+		int i;
+		double lastDelta = 0.;
+		for(i = 0; i < iterations; i++){
+
+			double [][][] projections = this.projectAlphaVectors();
+			double [] newValues = new double[nB];
+			if(this.backupMode == BackupMode.PBVI){
+				this.pbviIteration(projections, newValues);
+			}
+			else{
+				this.perseusIteration(projections, values, best, newValues);
+			}
+
+			double delta = 0.;
+			for(int j = 0; j < nB; j++){
+				delta = Math.max(delta, Math.abs(newValues[j] - values[j]));
+			}
+			this.totalIterations++;
+			this.evaluateBeliefPoints(values, best);
+			lastDelta = delta;
+
+			if(delta < this.maxDelta){
+				i++;
+				break;
+			}
+
+		}
+
+		DPrint.cf(this.debugCode, "Iterations: %d; %d alpha vectors; max change %f\n", i, this.alphaVectors.length, lastDelta);
+
+		return i;
+	}
+
+
+	/**
+	 * Backs up every belief point and replaces the alpha vectors with the distinct results.
+	 * @param projections the back projected alpha vectors
+	 * @param newValues the array into which the value of each belief point under its new vector is written
+	 */
+	protected void pbviIteration(final double [][][] projections, final double [] newValues){
+
+		final int nB = this.beliefPoints.size();
+		final double [][] newAlphas = new double[nB][];
+		final int [] newActions = new int[nB];
+		this.forRange(nB, new RangeBody() {
+			@Override
+			public void apply(int start, int end) {
+				int [] action = new int[1];
+				for(int j = start; j < end; j++){
+					double [] b = PointBasedValueIteration.this.beliefPoints.get(j);
+					newAlphas[j] = PointBasedValueIteration.this.backup(b, projections, action);
+					newActions[j] = action[0];
+					newValues[j] = CompiledPOMDPModel.dot(b, newAlphas[j]);
+				}
+			}
+		});
+
+		List<double[]> alphas = new ArrayList<double[]>(nB);
+		List<Integer> actions = new ArrayList<Integer>(nB);
+		Set<VectorKey> keys = new HashSet<VectorKey>(nB);
+		for(int j = 0; j < nB; j++){
+			if(keys.add(new VectorKey(newAlphas[j]))){
+				alphas.add(newAlphas[j]);
+				actions.add(newActions[j]);
+			}
+		}
+		this.setAlphaVectors(alphas, actions);
+
+	}
+
+
+	/**
+	 * Backs up randomly selected belief points until the value of every belief point has improved over its previous value.
+	 * @param projections the back projected alpha vectors
+	 * @param values the value of each belief point under the current alpha vectors
+	 * @param best the index of the current alpha vector that maximizes the value of each belief point
+	 * @param newValues the array into which the value of each belief point under the new alpha vectors is written
+	 */
+	protected void perseusIteration(double [][][] projections, final double [] values, int [] best, final double [] newValues){
+
+		final int nB = this.beliefPoints.size();
+		Arrays.fill(newValues, Double.NEGATIVE_INFINITY);
+		int [] remaining = new int[nB];
+		for(int j = 0; j < nB; j++){
+			remaining[j] = j;
+		}
+		int numRemaining = nB;
+
+		List<double[]> alphas = new ArrayList<double[]>();
+		List<Integer> actions = new ArrayList<Integer>();
+		Set<VectorKey> keys = new HashSet<VectorKey>();
+		int [] action = new int[1];
+		while(numRemaining > 0){
+
+			int j = remaining[this.rand.nextInt(numRemaining)];
+			double [] b = this.beliefPoints.get(j);
+			double [] alpha = this.backup(b, projections, action);
+			int a = action[0];
+			if(CompiledPOMDPModel.dot(b, alpha) < values[j]){
+				alpha = this.alphaVectors[best[j]];
+				a = this.alphaActions[best[j]];
+			}
+			if(keys.add(new VectorKey(alpha))){
+				alphas.add(alpha);
+				actions.add(a);
+			}
+
+			//update the value of the points that have not improved yet with the new vector
+			final double [] fAlpha = alpha;
+			final int [] fRemaining = remaining;
+			this.forRange(numRemaining, new RangeBody() {
+				@Override
+				public void apply(int start, int end) {
+					for(int k = start; k < end; k++){
+						int p = fRemaining[k];
+						newValues[p] = Math.max(newValues[p], CompiledPOMDPModel.dot(PointBasedValueIteration.this.beliefPoints.get(p), fAlpha));
+					}
+				}
+			});
+
+			int n = 0;
+			for(int k = 0; k < numRemaining; k++){
+				int p = remaining[k];
+				if(newValues[p] < values[p]){
+					remaining[n++] = p;
+				}
+			}
+			numRemaining = n;
+
+		}
+
+		//the values of the points that improved before the last vectors were added may have improved further
+		this.setAlphaVectors(alphas, actions);
+		int [] ignored = new int[nB];
+		this.evaluateBeliefPoints(newValues, ignored);
+
+	}
+
+
+	/**
+	 * Performs a point-based Bellman backup at a belief point.
+	 * @param b the belief point
+	 * @param projections the back projected alpha vectors, indexed [alpha][action*numObservations + observation]
+	 * @param action a single element array into which the index of the action of the backed up vector is written
+	 * @return the backed up alpha vector
+	 */
+	protected double [] backup(double [] b, double [][][] projections, int [] action){
+
+		int nA = this.model.numActions();
+		int nO = this.model.numObservations();
+		int nS = this.model.numStates();
+		int nK = projections.length;
+
+		double [] bestAlpha = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int a = 0; a < nA; a++){
+			double [] alpha = this.model.getExpectedRewards(a).clone();
+			for(int o = 0; o < nO; o++){
+				int ao = a*nO + o;
+				int bestK = 0;
+				double bestKValue = Double.NEGATIVE_INFINITY;
+				for(int k = 0; k < nK; k++){
+					double v = CompiledPOMDPModel.dot(b, projections[k][ao]);
+					if(v > bestKValue){
+						bestKValue = v;
+						bestK = k;
+					}
+				}
+				double [] g = projections[bestK][ao];
+				for(int s = 0; s < nS; s++){
+					alpha[s] += this.gamma * g[s];
+				}
+			}
+			double v = CompiledPOMDPModel.dot(b, alpha);
+			if(v > bestValue){
+				bestValue = v;
+				bestAlpha = alpha;
+				action[0] = a;
+			}
+		}
+
+		return bestAlpha;
+	}
+
+
+	/**
+	 * Back projects every alpha vector through every action and observation.
+	 * @return the back projected vectors, indexed [alpha][action*numObservations + observation]
+	 */
+	protected double [][][] projectAlphaVectors(){
+		final int nA = this.model.numActions();
+		final int nO = this.model.numObservations();
+		final int nS = this.model.numStates();
+		final double [][] alphas = this.alphaVectors;
+		final double [][][] projections = new double[alphas.length][nA*nO][nS];
+		this.forRange(alphas.length, new RangeBody() {
+			@Override
+			public void apply(int start, int end) {
+				for(int k = start; k < end; k++){
+					for(int a = 0; a < nA; a++){
+						for(int o = 0; o < nO; o++){
+							PointBasedValueIteration.this.model.backProject(alphas[k], a, o, projections[k][a*nO + o]);
+						}
+					}
+				}
+			}
+		});
+		return projections;
+	}
+
+
+	/**
+	 * Computes the value of every belief point under the current alpha vectors.
+	 * @param values the array into which the value of each belief point is written
+	 * @param best the array into which the index of the maximizing alpha vector of each belief point is written
+	 */
+	protected void evaluateBeliefPoints(final double [] values, final int [] best){
+		this.forRange(this.beliefPoints.size(), new RangeBody() {
+			@Override
+			public void apply(int start, int end) {
+				for(int j = start; j < end; j++){
+					double [] b = PointBasedValueIteration.this.beliefPoints.get(j);
+					double bestValue = Double.NEGATIVE_INFINITY;
+					for(int k = 0; k < PointBasedValueIteration.this.alphaVectors.length; k++){
+						double v = CompiledPOMDPModel.dot(b, PointBasedValueIteration.this.alphaVectors[k]);
+						if(v > bestValue){
+							bestValue = v;
+							best[j] = k;
+						}
+					}
+					values[j] = bestValue;
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Initializes the alpha vectors, if they have not been, to a single lower bound of the value function: the minimum
+	 * of zero and the minimum expected reward, discounted forever, in non-terminal states and zero in terminal states.
+	 */
+	protected void initializeAlphaVectors(){
+		if(this.alphaVectors != null){
+			return;
+		}
+		int nS = this.model.numStates();
+		double rmin = 0.;
+		for(int a = 0; a < this.model.numActions(); a++){
+			for(double r : this.model.getExpectedRewards(a)){
+				rmin = Math.min(rmin, r);
+			}
+		}
+		double [] alpha = new double[nS];
+		for(int s = 0; s < nS; s++){
+			alpha[s] = this.model.isTerminal(s) ? 0. : rmin / (1. - this.gamma);
+		}
+		this.alphaVectors = new double[][]{alpha};
+		this.alphaActions = new int[]{0};
+	}
+
+
+	/**
+	 * Sets the alpha vectors of the value function.
+	 * @param alphas the alpha vectors
+	 * @param actions the action index of each alpha vector
+	 */
+	protected void setAlphaVectors(List<double[]> alphas, List<Integer> actions){
+		double [][] nAlphas = alphas.toArray(new double[alphas.size()][]);
+		int [] nActions = new int[actions.size()];
+		for(int k = 0; k < nActions.length; k++){
+			nActions[k] = actions.get(k);
+		}
+		this.alphaVectors = nAlphas;
+		this.alphaActions = nActions;
+	}
+
+
+	@Override
+	public List<QValue> getQs(State s) {
+		double [] b = this.beliefVector(s);
+		List<QValue> qs = new ArrayList<QValue>(this.model.numActions());
+		for(int a = 0; a < this.model.numActions(); a++){
+			qs.add(new QValue(s, this.model.getAction(a), this.q(b, a)));
+		}
+		return qs;
+	}
+
+	@Override
+	public QValue getQ(State s, AbstractGroundedAction a) {
+		int ai = this.model.actionIndex(a);
+		if(ai == -1){
+			throw new RuntimeException("Action " + a.toString() + " is not an action of the compiled POMDP.");
+		}
+		return new QValue(s, a, this.q(this.beliefVector(s), ai));
+	}
+
+	@Override
+	public double value(State s) {
+		return this.value(this.beliefVector(s));
+	}
+
+
+	/**
+	 * Returns the value of a belief vector: the maximum of its dot product with the alpha vectors.
+	 * @param b the belief vector
+	 * @return the value of the belief
+	 */
+	public double value(double [] b){
+		this.initializeAlphaVectors();
+		double best = Double.NEGATIVE_INFINITY;
+		for(double [] alpha : this.alphaVectors){
+			best = Math.max(best, CompiledPOMDPModel.dot(b, alpha));
+		}
+		return best;
+	}
+
+
+	/**
+	 * Returns the Q-value of an action in a belief by a one step look ahead over the alpha vectors:
+	 * the expected reward plus the discounted sum over observations of the best alpha vector's value of the unnormalized updated belief.
+	 * @param b the belief vector
+	 * @param a the action index
+	 * @return the Q-value of the action in the belief
+	 */
+	public double q(double [] b, int a){
+		this.initializeAlphaVectors();
+		int nS = this.model.numStates();
+		double [] predicted = new double[nS];
+		double [] updated = new double[nS];
+		this.model.predict(b, a, predicted);
+		double future = 0.;
+		for(int o = 0; o < this.model.numObservations(); o++){
+			double po = this.model.correct(predicted, a, o, updated);
+			if(po > 0.){
+				future += this.value(updated);
+			}
+		}
+		return CompiledPOMDPModel.dot(b, this.model.getExpectedRewards(a)) + this.gamma * future;
+	}
+
+
+	/**
+	 * Returns the dense belief vector of a belief state, indexed by the states of the compiled POMDP.
+	 * @param s the belief state
+	 * @return the dense belief vector
+	 */
+	protected double [] beliefVector(State s){
+		int nS = this.model.numStates();
+		if(s instanceof DenseBeliefVector){
+			double [] b = ((DenseBeliefVector)s).getBeliefVector();
+			return b.length == nS ? b : Arrays.copyOf(b, nS);
+		}
+		if(s instanceof EnumerableBeliefState){
+			double [] b = new double[nS];
+			for(EnumerableBeliefState.StateBelief sb : ((EnumerableBeliefState)s).getStatesAndBeliefsWithNonZeroProbability()){
+				b[((PODomain)this.domain).getStateEnumerator().getEnumeratedID(sb.s)] += sb.belief;
+			}
+			return b;
+		}
+		throw new RuntimeException("PointBasedValueIteration requires an EnumerableBeliefState; received a " + s.getClass().getName());
+	}
+
+
+	@Override
+	public void resetSolver() {
+		this.beliefPoints.clear();
+		this.beliefKeys.clear();
+		this.alphaVectors = null;
+		this.alphaActions = null;
+		this.totalIterations = 0;
+	}
+
+
+	/**
+	 * Applies a body to the index range [0, n), splitting the range across the worker threads if there is more than one.
+	 * @param n the size of the range
+	 * @param body the body to apply to each sub range
+	 */
+	protected void forRange(int n, RangeBody body){
+		if(this.parallelism == 1 || n <= this.grainSize){
+			body.apply(0, n);
+			return;
+		}
+		if(this.pool == null){
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+		this.pool.invoke(new RangeTask(body, 0, n));
+	}
+
+
+	/**
+	 * A computation over a range of indices.
+	 */
+	protected static interface RangeBody{
+		void apply(int start, int end);
+	}
+
+
+	/**
+	 * A fork-join task that splits an index range in half until it is no larger than the grain size and applies a body to each part.
+	 */
+	protected class RangeTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		protected RangeBody body;
+		protected int start;
+		protected int end;
+
+		public RangeTask(RangeBody body, int start, int end){
+			this.body = body;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.end - this.start > PointBasedValueIteration.this.grainSize){
+				int mid = (this.start + this.end) >>> 1;
+				invokeAll(new RangeTask(this.body, this.start, mid), new RangeTask(this.body, mid, this.end));
+			}
+			else{
+				this.body.apply(this.start, this.end);
+			}
+		}
+	}
+
+
+	/**
+	 * A hashable key of a vector for detecting duplicates.
+	 */
+	protected static class VectorKey{
+
+		protected double [] v;
+		protected int hash;
+
+		public VectorKey(double [] v){
+			this.v = v;
+			this.hash = Arrays.hashCode(v);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof VectorKey && Arrays.equals(this.v, ((VectorKey)obj).v);
+		}
+	}
+
+}
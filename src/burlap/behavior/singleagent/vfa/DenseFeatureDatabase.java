@@ -0,0 +1,35 @@
+package burlap.behavior.singleagent.vfa;
+
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.GroundedAction;
+
+
+/**
+ * A {@link FeatureDatabase} whose state features are a fixed-length vector with ids 0 to n-1 and whose action features are a copy
+ * of the state features for each action, with ids offset by a per-action amount. Such a database can return all of its feature
+ * values in a primitive array that may be reused between queries, which lets value function approximators such as
+ * {@link burlap.behavior.singleagent.vfa.common.LinearVFA} compute values without creating a {@link StateFeature} object for each feature.
+ * @author James MacGlashan
+ *
+ */
+public interface DenseFeatureDatabase extends FeatureDatabase {
+
+	/**
+	 * Returns the values of all state features of a state, indexed by feature id. If the given array has the length of the
+	 * feature vector, the values are written into it and it is returned; otherwise a new array is returned.
+	 * @param s the state for which features should be returned
+	 * @param features an array to hold the feature values; may be null
+	 * @return the values of all state features of s
+	 */
+	double [] getDenseStateFeatures(State s, double [] features);
+
+
+	/**
+	 * Returns the id offset of the action features of an action: the action feature of an action for state feature j
+	 * has the id offset + j. Should only be called after state features have been queried at least once.
+	 * @param ga the action
+	 * @return the id offset of the action's features
+	 */
+	int getActionFeatureOffset(GroundedAction ga);
+
+}
@@ -5,6 +5,7 @@ import burlap.oomdp.core.states.State;
 import burlap.oomdp.singleagent.GroundedAction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,11 @@ import java.util.Map;
  * This class is used for general purpose linear VFA. It only needs to be provided a FeatureDatabase object that will be used to store
  * retrieve state features. For every feature returned by the feature database, this class will automatically create a weight associated with it.
  * The returned approximated value for any state is the linear combination of state features and weights.
+ * <p/>
+ * If the feature database is a {@link burlap.behavior.singleagent.vfa.DenseFeatureDatabase}, the function weights are also indexed
+ * by feature id in an array, and the values of states and state-action pairs can be computed without creating feature and
+ * result objects with {@link #stateValue(State)} and {@link #stateActionValues(State, List, double[])}, which evaluate the state features
+ * once into a reused primitive array. These methods are not thread safe.
  *  
  * @author James MacGlashan
  *
@@ -36,6 +42,17 @@ public class LinearVFA implements ValueFunctionApproximation {
 	 */
 	protected double								defaultWeight = 0.0;
 	
+	/**
+	 * The function weights indexed by feature id when the feature database is a {@link DenseFeatureDatabase}. Holds the same
+	 * objects as {@link #weights}; an entry is null if it has not been looked up since the weight was created.
+	 */
+	protected FunctionWeight []						denseWeights = new FunctionWeight[0];
+	
+	/**
+	 * The state feature values of the last primitive-array query
+	 */
+	protected double []								denseFeatures;
+	
 	
 	/**
 	 * Initializes with a feature database; the default weight value will be zero
@@ -120,11 +137,7 @@ public class LinearVFA implements ValueFunctionApproximation {
 		
 		double predictedValue = 0.;
 		for(StateFeature sf : features){
-			FunctionWeight fw = this.weights.get(sf.id);
-			if(fw == null){
-				fw = new FunctionWeight(sf.id, defaultWeight);
-				this.weights.put(fw.weightId(), fw);
-			}
+			FunctionWeight fw = this.functionWeightFor(sf.id);
 			predictedValue += sf.value*fw.weightValue();
 			activedWeights.add(fw);
 		}
@@ -136,9 +149,119 @@ public class LinearVFA implements ValueFunctionApproximation {
 	}
 	
 	
+	/**
+	 * Returns the value of a state computed from the primitive state feature values of a {@link DenseFeatureDatabase}. If the
+	 * feature database is not dense, the value is computed with {@link #getStateValue(State)}.
+	 * @param s the state
+	 * @return the approximate value of the state
+	 */
+	public double stateValue(State s){
+		
+		if(!(this.featureDatabase instanceof DenseFeatureDatabase)){
+			return this.getStateValue(s).predictedValue;
+		}
+		
+		double [] features = ((DenseFeatureDatabase)this.featureDatabase).getDenseStateFeatures(s, this.denseFeatures);
+		this.denseFeatures = features;
+		return this.denseValue(features, 0);
+	}
+	
+	
+	/**
+	 * Computes the values of the given actions in a state. If the feature database is a {@link DenseFeatureDatabase}, the state features
+	 * are evaluated once into a reused primitive array and combined with each action's weights; otherwise the values are computed
+	 * with {@link #getStateActionValues(State, List)}.
+	 * @param s the state
+	 * @param gas the actions
+	 * @param values an array to hold the value of each action, in the order of gas; may be null
+	 * @return the approximate value of each action, in the order of gas
+	 */
+	public double [] stateActionValues(State s, List<GroundedAction> gas, double [] values){
+		
+		if(values == null || values.length != gas.size()){
+			values = new double[gas.size()];
+		}
+		
+		if(!(this.featureDatabase instanceof DenseFeatureDatabase)){
+			List<ActionApproximationResult> results = this.getStateActionValues(s, gas);
+			for(int i = 0; i < values.length; i++){
+				values[i] = results.get(i).approximationResult.predictedValue;
+			}
+			return values;
+		}
+		
+		DenseFeatureDatabase db = (DenseFeatureDatabase)this.featureDatabase;
+		double [] features = db.getDenseStateFeatures(s, this.denseFeatures);
+		this.denseFeatures = features;
+		for(int i = 0; i < values.length; i++){
+			values[i] = this.denseValue(features, db.getActionFeatureOffset(gas.get(i)));
+		}
+		
+		return values;
+	}
+	
+	
+	/**
+	 * Computes the linear function of dense feature values with the weights of the features with ids offset to offset + features.length - 1.
+	 * @param features the feature values
+	 * @param offset the id of the first feature
+	 * @return the linear function value
+	 */
+	protected double denseValue(double [] features, int offset){
+		
+		if(this.denseWeights.length < offset + features.length){
+			this.denseWeights = Arrays.copyOf(this.denseWeights, Math.max(offset + features.length, 2*this.denseWeights.length));
+		}
+		
+		FunctionWeight [] dw = this.denseWeights;
+		double sum = 0.;
+		for(int j = 0; j < features.length; j++){
+			FunctionWeight fw = dw[offset + j];
+			if(fw == null){
+				fw = this.functionWeightFor(offset + j);
+			}
+			sum += features[j] * fw.weightValue();
+		}
+		
+		return sum;
+	}
+	
+	
+	/**
+	 * Returns the function weight for a feature id, creating it with the default weight value if it does not exist.
+	 * @param featureId the feature id
+	 * @return the function weight of the feature
+	 */
+	protected FunctionWeight functionWeightFor(int featureId){
+		
+		if(featureId < this.denseWeights.length){
+			FunctionWeight fw = this.denseWeights[featureId];
+			if(fw != null){
+				return fw;
+			}
+		}
+		
+		FunctionWeight fw = this.weights.get(featureId);
+		if(fw == null){
+			fw = new FunctionWeight(featureId, defaultWeight);
+			this.weights.put(featureId, fw);
+		}
+		
+		if(this.featureDatabase instanceof DenseFeatureDatabase){
+			if(featureId >= this.denseWeights.length){
+				this.denseWeights = Arrays.copyOf(this.denseWeights, Math.max(featureId + 1, 2*this.denseWeights.length));
+			}
+			this.denseWeights[featureId] = fw;
+		}
+		
+		return fw;
+	}
+	
+	
 	@Override
 	public void resetWeights(){
 		this.weights.clear();
+		this.denseWeights = new FunctionWeight[0];
 	}
 
 
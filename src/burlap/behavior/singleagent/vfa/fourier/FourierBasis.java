@@ -26,6 +26,14 @@ import java.util.Map;
  * <p/>
  * When using a learning algorithm like {@link GradientDescentSarsaLam} with Fourier basis functions, it is typically a good idea to use the {@link FourierBasisLearningRateWrapper}, which scales the normal learning rate by the inverse of the norm
  * of a basis function's coefficient vector. 
+ * <p/>
+ * The coefficient vectors are compiled into a contiguous array of their non-zero entries, and all basis function values of a state
+ * are computed in a single pass with {@link #basisValues(double[], double[])}. Rather than calling a cosine function for each basis function,
+ * the cosine and sine of pi*c*x are tabulated once per state variable x and coefficient value c, and each basis function value is
+ * assembled from the table with the angle sum identity, so the number of trigonometric evaluations per state grows with the number
+ * of state variables and the order rather than with the number of basis functions. The state features are computed once per query
+ * and shared by all actions. This class is a {@link DenseFeatureDatabase}, so a {@link LinearVFA} over it can compute values from a
+ * reused primitive array (see {@link LinearVFA#stateActionValues(State, java.util.List, double[])}).
  * 
  * <p/>
  * 1. G.D. Konidaris, S. Osentoski and P.S. Thomas. Value Function Approximation in Reinforcement Learning using the Fourier Basis. In Proceedings of the Twenty-Fifth Conference on Artificial Intelligence, pages 380-385, August 2011.
@@ -33,7 +41,7 @@ import java.util.Map;
  * @author James MacGlashan
  *
  */
-public class FourierBasis implements FeatureDatabase {
+public class FourierBasis implements DenseFeatureDatabase {
 
 	/**
 	 * The number of state varibles on which the produced basis functions operate
@@ -71,6 +79,39 @@ public class FourierBasis implements FeatureDatabase {
 	 * The next action Fourier basis function size multiplier to use for the next newly seen action.
 	 */
 	protected int nextActionMultiplier = 0;
+	
+	
+	/**
+	 * The index of the first non-zero coefficient entry of each basis function in {@link #coefficientTableIndex}; entry m holds
+	 * the total number of non-zero entries. Null until the coefficient vectors are compiled.
+	 */
+	protected int []							coefficientStart;
+	
+	/**
+	 * For each non-zero coefficient entry, the index of its state variable and value in the cosine and sine tables:
+	 * variable * {@link #tableWidth} + (value - {@link #minCoefficient}).
+	 */
+	protected int []							coefficientTableIndex;
+	
+	/**
+	 * The smallest coefficient value of any entry
+	 */
+	protected int								minCoefficient;
+	
+	/**
+	 * The number of distinct coefficient values tabulated for each state variable
+	 */
+	protected int								tableWidth;
+	
+	/**
+	 * Whether any basis function has more than one non-zero coefficient, in which case sines must be tabulated
+	 */
+	protected boolean							hasCoupledBasisFunctions;
+	
+	/**
+	 * The norm of each coefficient vector
+	 */
+	protected double []							coefficientNorms;
 
 
 
@@ -108,6 +149,8 @@ public class FourierBasis implements FeatureDatabase {
 	 */
 	public void setCoefficientVectors(List<short[]> coefficientVectors){
 		this.coefficientVectors = coefficientVectors;
+		this.numStateVariables = coefficientVectors.get(0).length;
+		this.compileCoefficientVectors();
 	}
 	
 	
@@ -136,24 +179,91 @@ public class FourierBasis implements FeatureDatabase {
 		return sum;
 	}
 	
-	@Override
-	public List<StateFeature> getStateFeatures(State s) {
+	/**
+	 * Computes the values of all basis functions for the given state input. If the given array has the length of the number of
+	 * coefficient vectors, the values are written into it and it is returned; otherwise a new array is returned. Basis function i
+	 * is the one associated with the coefficient vector at index i.
+	 * @param input the state variables
+	 * @param values an array to hold the basis function values; may be null
+	 * @return the values of all basis functions for the given input state variables
+	 */
+	public double [] basisValues(double [] input, double [] values){
 		
-		double [] input = this.featureVectorGenerator.generateFeatureVectorFrom(s);
-		if(this.coefficientVectors == null){
-			this.numStateVariables = input.length;
-			if(this.maxNonZeroCoefficents == -1){
-				this.maxNonZeroCoefficents = this.numStateVariables;
+		this.initializeCoefficientVectors(input.length);
+		if(input.length != this.numStateVariables){
+			throw new RuntimeException("Error in Fourier Basis function evaluation: expected input state variable vector of size " + this.numStateVariables + ", but received one of dimension " + input.length);
+		}
+		
+		int m = this.coefficientStart.length-1;
+		if(values == null || values.length != m){
+			values = new double[m];
+		}
+		
+		//tabulate cos(pi*c*x) (and sin(pi*c*x) if needed) for each state variable x and coefficient value c
+		int w = this.tableWidth;
+		double [] cosTable = new double[this.numStateVariables * w];
+		double [] sinTable = this.hasCoupledBasisFunctions ? new double[cosTable.length] : null;
+		for(int i = 0; i < this.numStateVariables; i++){
+			for(int c = 0; c < w; c++){
+				double angle = Math.PI * (c + this.minCoefficient) * input[i];
+				cosTable[i*w + c] = Math.cos(angle);
+				if(sinTable != null){
+					sinTable[i*w + c] = Math.sin(angle);
+				}
 			}
-			this.generateCoefficientVectors();
 		}
 		
-		List<StateFeature> res = new ArrayList<StateFeature>(this.coefficientVectors.size());
+		int [] start = this.coefficientStart;
+		int [] tableIndex = this.coefficientTableIndex;
+		for(int j = 0; j < m; j++){
+			int k = start[j];
+			int end = start[j+1];
+			if(k == end){
+				values[j] = 1.;
+				continue;
+			}
+			int t = tableIndex[k];
+			double cos = cosTable[t];
+			if(end - k > 1){
+				//cos and sin of a sum of angles, one term at a time
+				double sin = sinTable[t];
+				for(k++; k < end; k++){
+					t = tableIndex[k];
+					double ct = cosTable[t];
+					double st = sinTable[t];
+					double ncos = cos*ct - sin*st;
+					sin = sin*ct + cos*st;
+					cos = ncos;
+				}
+			}
+			values[j] = cos;
+		}
+		
+		return values;
+	}
+	
+	@Override
+	public double [] getDenseStateFeatures(State s, double [] features) {
+		return this.basisValues(this.featureVectorGenerator.generateFeatureVectorFrom(s), features);
+	}
+	
+	@Override
+	public int getActionFeatureOffset(GroundedAction ga) {
+		if(this.coefficientVectors == null){
+			throw new RuntimeException("Fourier Basis action feature offsets are not defined until the coefficient vectors are generated by a state feature query.");
+		}
+		return this.getActionMultiplier(ga)*this.coefficientVectors.size();
+	}
+	
+	@Override
+	public List<StateFeature> getStateFeatures(State s) {
+		
+		double [] values = this.getDenseStateFeatures(s, null);
 		
-		for(int i = 0; i < this.coefficientVectors.size(); i++){
-			double value = this.basisValue(input, i);
-			StateFeature sf = new StateFeature(i, value);
-			res.add(sf);
+		List<StateFeature> res = new ArrayList<StateFeature>(values.length);
+		
+		for(int i = 0; i < values.length; i++){
+			res.add(new StateFeature(i, values[i]));
 		}
 		
 		
@@ -164,17 +274,18 @@ public class FourierBasis implements FeatureDatabase {
 	public List<ActionFeaturesQuery> getActionFeaturesSets(State s,
 			List<GroundedAction> actions) {
 		
-		List<ActionFeaturesQuery> lstAFQ = new ArrayList<ActionFeaturesQuery>();
+		List<ActionFeaturesQuery> lstAFQ = new ArrayList<ActionFeaturesQuery>(actions.size());
 		
-		List<StateFeature> sfs = this.getStateFeatures(s);
+		//state features are computed once and shared by all actions
+		double [] values = this.getDenseStateFeatures(s, null);
 		
 		for(GroundedAction ga : actions){
-			int actionMult = this.getActionMultiplier(ga);
-			int indexOffset = actionMult*this.coefficientVectors.size();
+			int indexOffset = this.getActionFeatureOffset(ga);
 			
 			ActionFeaturesQuery afq = new ActionFeaturesQuery(ga);
-			for(StateFeature sf : sfs){
-				afq.addFeature(new StateFeature(sf.id + indexOffset, sf.value));
+			afq.features = new ArrayList<StateFeature>(values.length);
+			for(int i = 0; i < values.length; i++){
+				afq.addFeature(new StateFeature(i + indexOffset, values[i]));
 			}
 			
 			lstAFQ.add(afq);
@@ -222,13 +333,7 @@ public class FourierBasis implements FeatureDatabase {
 	 * @return the norm of the coefficient vector for the given basis function
 	 */
 	public double coefficientNorm(int i){
-		short [] vector = this.coefficientVectors.get(i % this.coefficientVectors.size());
-		double sum = 0.;
-		for(short c : vector){
-			sum += (double)c*(double)c;
-		}
-		sum = Math.sqrt(sum);
-		return sum;
+		return this.coefficientNorms[i % this.coefficientNorms.length];
 	}
 	
 	
@@ -250,6 +355,77 @@ public class FourierBasis implements FeatureDatabase {
 		this.coefficientVectors = new ArrayList<short[]>();
 		short [] tempVector = new short[this.numStateVariables];
 		this.generateCoefficientVectorsHelper(0, tempVector, 0);
+		this.compileCoefficientVectors();
+	}
+	
+	
+	/**
+	 * Generates the coefficient vectors for the given number of state variables if they have not been generated or set.
+	 * @param numStateVariables the number of state variables
+	 */
+	protected void initializeCoefficientVectors(int numStateVariables){
+		if(this.coefficientVectors == null){
+			this.numStateVariables = numStateVariables;
+			if(this.maxNonZeroCoefficents == -1){
+				this.maxNonZeroCoefficents = this.numStateVariables;
+			}
+			this.generateCoefficientVectors();
+		}
+	}
+	
+	
+	/**
+	 * Compiles the coefficient vectors into the contiguous non-zero entry arrays used by {@link #basisValues(double[], double[])} and
+	 * computes the norm of each coefficient vector.
+	 */
+	protected void compileCoefficientVectors(){
+		
+		int m = this.coefficientVectors.size();
+		int nnz = 0;
+		int min = 0;
+		int max = 0;
+		for(short [] vector : this.coefficientVectors){
+			if(vector.length != this.numStateVariables){
+				throw new RuntimeException("Fourier Basis coefficient vectors must all have dimension " + this.numStateVariables + ", but one has dimension " + vector.length);
+			}
+			for(short c : vector){
+				if(c != 0){
+					nnz++;
+					min = Math.min(min, c);
+					max = Math.max(max, c);
+				}
+			}
+		}
+		
+		int [] start = new int[m+1];
+		int [] tableIndex = new int[nnz];
+		double [] norms = new double[m];
+		int w = max - min + 1;
+		boolean coupled = false;
+		int k = 0;
+		for(int j = 0; j < m; j++){
+			short [] vector = this.coefficientVectors.get(j);
+			start[j] = k;
+			double sum = 0.;
+			for(int i = 0; i < vector.length; i++){
+				if(vector[i] != 0){
+					tableIndex[k] = i*w + (vector[i] - min);
+					k++;
+					sum += (double)vector[i]*(double)vector[i];
+				}
+			}
+			coupled = coupled || k - start[j] > 1;
+			norms[j] = Math.sqrt(sum);
+		}
+		start[m] = k;
+		
+		this.minCoefficient = min;
+		this.tableWidth = w;
+		this.hasCoupledBasisFunctions = coupled;
+		this.coefficientTableIndex = tableIndex;
+		this.coefficientNorms = norms;
+		this.coefficientStart = start; //set last; it marks the compiled arrays as ready
+		
 	}
 	
 	
@@ -317,7 +493,11 @@ public class FourierBasis implements FeatureDatabase {
 	public FourierBasis copy() {
 		FourierBasis fb = new FourierBasis(this.featureVectorGenerator, this.order, this.maxNonZeroCoefficents);
 		fb.numStateVariables = this.numStateVariables;
-		fb.coefficientVectors = new ArrayList<short[]>(this.coefficientVectors);
+		if(this.coefficientVectors != null){
+			fb.coefficientVectors = new ArrayList<short[]>(this.coefficientVectors);
+			fb.compileCoefficientVectors();
+		}
+		fb.nextActionMultiplier = this.nextActionMultiplier;
 		fb.actionFeatureMultiplier = new HashMap<GroundedAction, Integer>(this.actionFeatureMultiplier);
 
 		return fb;
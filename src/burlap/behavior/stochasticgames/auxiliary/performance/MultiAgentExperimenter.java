@@ -223,7 +223,7 @@ public class MultiAgentExperimenter {
 		
 		for(int i = 0; i < this.nTrials; i++){
 			
-			DPrint.cl(this.debugCode, "Beginning trial " + (i+1) + "/" + this.nTrials);
+			DPrint.cf(this.debugCode, "Beginning trial %d/%d\n", i+1, this.nTrials);
 			
 			World w = worldGenerator.generateWorld();
 
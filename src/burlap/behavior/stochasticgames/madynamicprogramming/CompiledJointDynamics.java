@@ -0,0 +1,425 @@
+package burlap.behavior.stochasticgames.madynamicprogramming;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MaxQ;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.TransitionProbability;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.stochasticgames.JointAction;
+import burlap.oomdp.stochasticgames.SGAgentType;
+
+
+/**
+ * A frozen, array-based representation of the joint action transition dynamics and joint rewards of a set of reachable states, for use by
+ * {@link burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.MAValueIteration}. Each state and agent is assigned a dense int index,
+ * the joint actions of every state are enumerated once, and their transitions are stored in compressed sparse row (CSR) form: the joint actions
+ * of state i are the indices [jointActionOffsets[i], jointActionOffsets[i+1]) and the transitions of joint action j are the indices
+ * [transitionOffsets[j], transitionOffsets[j+1]) of the {@link #successors}, {@link #probabilities} arrays. The reward of agent k for
+ * transition t is stored in rewards[t*numAgents + k]. The value function of each agent is a double array indexed by state.
+ * <p/>
+ * A backup of a state therefore computes joint action Q-values q_k(s,ja) = sum_{s'} p(s'|s,ja) (r_k(s,ja,s') + discount * v_k(s')) purely from
+ * primitive arrays, without querying the {@link burlap.oomdp.stochasticgames.JointActionModel} or the
+ * {@link burlap.oomdp.stochasticgames.JointReward}. The dynamics are compiled from the {@link MADynamicProgramming.JointActionTransitions}
+ * of each state, which the planner can record while it finds the reachable states so that the model is only queried once per joint action. Backups with the {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MaxQ}
+ * operator are computed directly on the arrays; other {@link SGBackupOperator}s are given an {@link AgentQSourceMap} that answers their Q-value
+ * queries from the compiled arrays. Backups only read the value arrays passed to them, so different states may be backed up concurrently.
+ * <p/>
+ * Because transitions and rewards are precomputed, the joint action model and joint reward function are assumed to be stationary
+ * for the lifetime of the compiled object.
+ * @author James MacGlashan
+ *
+ */
+public class CompiledJointDynamics {
+
+	/**
+	 * The hashed states, indexed by their dense int index.
+	 */
+	protected HashableState []					states;
+
+	/**
+	 * Map from hashed states to their dense int index.
+	 */
+	protected Map<HashableState, Integer>		stateIndex;
+
+	/**
+	 * Whether each state is a terminal state.
+	 */
+	protected boolean []						terminal;
+
+	/**
+	 * The agent names, indexed by their dense int index.
+	 */
+	protected String []							agents;
+
+	/**
+	 * Map from agent names to their dense int index.
+	 */
+	protected Map<String, Integer>				agentIndex;
+
+	/**
+	 * The agent definitions of the compiled problem.
+	 */
+	protected Map<String, SGAgentType>			agentDefinitions;
+
+	/**
+	 * The joint actions of state i are the indices [jointActionOffsets[i], jointActionOffsets[i+1]).
+	 */
+	protected int []							jointActionOffsets;
+
+	/**
+	 * The joint action of each state-joint action pair.
+	 */
+	protected JointAction []					jointActions;
+
+	/**
+	 * Map from each state's joint actions to their offset from the state's first joint action.
+	 */
+	protected List<Map<JointAction, Integer>>	jointActionIndex;
+
+	/**
+	 * The transitions of state-joint action pair j are the indices [transitionOffsets[j], transitionOffsets[j+1]).
+	 */
+	protected int []							transitionOffsets;
+
+	/**
+	 * The successor state index of each transition.
+	 */
+	protected int []							successors;
+
+	/**
+	 * The probability of each transition.
+	 */
+	protected double []							probabilities;
+
+	/**
+	 * The reward of agent k for transition t is rewards[t*numAgents + k].
+	 */
+	protected double []							rewards;
+
+	/**
+	 * The discount factor.
+	 */
+	protected double							discount;
+
+
+	/**
+	 * Compiles the joint action dynamics of the given states. Every successor of a compiled state must be one of the given states.
+	 * @param sourceStates the states to compile
+	 * @param transitions the transitions and joint rewards of every joint action of each non-terminal source state
+	 * @param agentDefinitions the agents involved in the problem
+	 * @param tf the terminal state function
+	 * @param discount the discount factor
+	 * @param hashingFactory the hashing factory with which the source states were hashed
+	 */
+	public CompiledJointDynamics(Collection<HashableState> sourceStates, Map<HashableState, List<MADynamicProgramming.JointActionTransitions>> transitions,
+								 Map<String, SGAgentType> agentDefinitions, TerminalFunction tf, double discount, HashableStateFactory hashingFactory){
+
+		this.discount = discount;
+		this.agentDefinitions = agentDefinitions;
+
+		int n = sourceStates.size();
+		this.states = new HashableState[n];
+		this.stateIndex = new HashMap<HashableState, Integer>(n*2);
+		this.terminal = new boolean[n];
+		int i = 0;
+		for(HashableState sh : sourceStates){
+			this.states[i] = sh;
+			this.stateIndex.put(sh, i);
+			this.terminal[i] = tf.isTerminal(sh.s);
+			i++;
+		}
+
+		this.agents = agentDefinitions.keySet().toArray(new String[agentDefinitions.size()]);
+		this.agentIndex = new HashMap<String, Integer>(this.agents.length*2);
+		for(int k = 0; k < this.agents.length; k++){
+			this.agentIndex.put(this.agents[k], k);
+		}
+		int na = this.agents.length;
+
+		//terminal states keep their joint actions, but have no transitions so that all their Q-values are 0
+		this.jointActionOffsets = new int[n+1];
+		List<JointAction> allJAs = new ArrayList<JointAction>();
+		List<MADynamicProgramming.JointActionTransitions> allJATs = new ArrayList<MADynamicProgramming.JointActionTransitions>();
+		this.jointActionIndex = new ArrayList<Map<JointAction, Integer>>(n);
+		int numTransitions = 0;
+		for(i = 0; i < n; i++){
+			this.jointActionOffsets[i] = allJAs.size();
+			List<JointAction> jas;
+			List<MADynamicProgramming.JointActionTransitions> jats = null;
+			if(this.terminal[i]){
+				jas = JointAction.getAllJointActions(this.states[i].s, agentDefinitions);
+			}
+			else{
+				jats = transitions.get(this.states[i]);
+				if(jats == null){
+					throw new RuntimeException("Cannot compile joint action dynamics because the transitions of a non-terminal state were not provided.");
+				}
+				jas = new ArrayList<JointAction>(jats.size());
+				for(MADynamicProgramming.JointActionTransitions jat : jats){
+					jas.add(jat.ja);
+				}
+			}
+			Map<JointAction, Integer> jaIndex = new HashMap<JointAction, Integer>(jas.size()*2);
+			for(int j = 0; j < jas.size(); j++){
+				jaIndex.put(jas.get(j), j);
+				allJAs.add(jas.get(j));
+				MADynamicProgramming.JointActionTransitions jat = jats != null ? jats.get(j) : null;
+				allJATs.add(jat);
+				if(jat != null){
+					numTransitions += jat.tps.size();
+				}
+			}
+			this.jointActionIndex.add(jaIndex);
+		}
+		this.jointActionOffsets[n] = allJAs.size();
+
+		this.jointActions = allJAs.toArray(new JointAction[allJAs.size()]);
+		this.transitionOffsets = new int[this.jointActions.length+1];
+		this.successors = new int[numTransitions];
+		this.probabilities = new double[numTransitions];
+		this.rewards = new double[numTransitions*na];
+		int t = 0;
+		for(int j = 0; j < this.jointActions.length; j++){
+			this.transitionOffsets[j] = t;
+			MADynamicProgramming.JointActionTransitions jat = allJATs.get(j);
+			if(jat == null){
+				continue;
+			}
+			for(int tpi = 0; tpi < jat.tps.size(); tpi++){
+				TransitionProbability tp = jat.tps.get(tpi);
+				Integer sp = this.stateIndex.get(hashingFactory.hashState(tp.s));
+				if(sp == null){
+					throw new RuntimeException("Cannot compile joint action dynamics because a successor state was not among the compiled states.");
+				}
+				this.successors[t] = sp;
+				this.probabilities[t] = tp.p;
+				Map<String, Double> jr = jat.jrs.get(tpi);
+				for(int k = 0; k < na; k++){
+					this.rewards[t*na + k] = jr.get(this.agents[k]);
+				}
+				t++;
+			}
+		}
+		this.transitionOffsets[this.jointActions.length] = t;
+
+	}
+
+
+	/**
+	 * Returns the number of compiled states.
+	 * @return the number of compiled states.
+	 */
+	public int numStates(){
+		return this.states.length;
+	}
+
+
+	/**
+	 * Returns the number of agents.
+	 * @return the number of agents.
+	 */
+	public int numAgents(){
+		return this.agents.length;
+	}
+
+
+	/**
+	 * Returns the number of compiled state-joint action pairs.
+	 * @return the number of compiled state-joint action pairs.
+	 */
+	public int numStateJointActions(){
+		return this.jointActions.length;
+	}
+
+
+	/**
+	 * Returns the dense index of the given hashed state, or -1 if the state was not compiled.
+	 * @param sh the hashed state
+	 * @return the dense index of the state, or -1 if the state was not compiled.
+	 */
+	public int stateIndex(HashableState sh){
+		Integer ind = this.stateIndex.get(sh);
+		if(ind == null){
+			return -1;
+		}
+		return ind;
+	}
+
+
+	/**
+	 * Returns the hashed state with the given index.
+	 * @param i the state index
+	 * @return the hashed state with the given index.
+	 */
+	public HashableState state(int i){
+		return this.states[i];
+	}
+
+
+	/**
+	 * Returns the name of the agent with the given index.
+	 * @param k the agent index
+	 * @return the name of the agent
+	 */
+	public String agent(int k){
+		return this.agents[k];
+	}
+
+
+	/**
+	 * Returns the index of the agent with the given name.
+	 * @param agentName the agent name
+	 * @return the index of the agent
+	 */
+	public int agentIndex(String agentName){
+		return this.agentIndex.get(agentName);
+	}
+
+
+	/**
+	 * Creates value arrays for all agents initialized from the current values of the given Q-sources.
+	 * @param sources the Q-sources whose current state values are loaded, keyed by agent name.
+	 * @return the value array of each agent, indexed by agent index and then state index.
+	 */
+	public double [][] loadValues(Map<String, MADynamicProgramming.BackupBasedQSource> sources){
+		double [][] v = new double[this.agents.length][this.states.length];
+		for(int k = 0; k < this.agents.length; k++){
+			MADynamicProgramming.BackupBasedQSource qs = sources.get(this.agents[k]);
+			for(int i = 0; i < this.states.length; i++){
+				v[k][i] = qs.getValue(this.states[i]);
+			}
+		}
+		return v;
+	}
+
+
+	/**
+	 * Writes value arrays into the value functions of the given Q-sources.
+	 * @param v the value array of each agent
+	 * @param sources the Q-sources to which the values are written, keyed by agent name.
+	 */
+	public void writeValues(double [][] v, Map<String, MADynamicProgramming.BackupBasedQSource> sources){
+		for(int k = 0; k < this.agents.length; k++){
+			MADynamicProgramming.BackupBasedQSource qs = sources.get(this.agents[k]);
+			for(int i = 0; i < this.states.length; i++){
+				qs.setValue(this.states[i], v[k][i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Computes the Q-value of an agent for a state-joint action pair.
+	 * @param k the agent index
+	 * @param sja the state-joint action pair index
+	 * @param v the value array of each agent
+	 * @return the Q-value
+	 */
+	public double q(int k, int sja, double [][] v){
+		int na = this.agents.length;
+		double [] vk = v[k];
+		double sum = 0.;
+		int end = this.transitionOffsets[sja+1];
+		for(int t = this.transitionOffsets[sja]; t < end; t++){
+			sum += this.probabilities[t] * (this.rewards[t*na + k] + this.discount * vk[this.successors[t]]);
+		}
+		return sum;
+	}
+
+
+	/**
+	 * Computes the new value of every agent in a state with the given backup operator, reading values from v and writing the new values into next.
+	 * @param s the state index
+	 * @param operator the backup operator
+	 * @param v the value array of each agent from which values are read
+	 * @param next the value array of each agent into which the new values are written
+	 * @return the maximum change in value of any agent
+	 */
+	public double backup(int s, SGBackupOperator operator, double [][] v, double [][] next){
+		double maxChange = 0.;
+		if(operator instanceof MaxQ){
+			int start = this.jointActionOffsets[s];
+			int end = this.jointActionOffsets[s+1];
+			for(int k = 0; k < this.agents.length; k++){
+				double max = Double.NEGATIVE_INFINITY;
+				for(int j = start; j < end; j++){
+					max = Math.max(max, this.q(k, j, v));
+				}
+				next[k][s] = max;
+				maxChange = Math.max(maxChange, Math.abs(max - v[k][s]));
+			}
+		}
+		else{
+			StateQSourceMap qSources = new StateQSourceMap(s, v);
+			for(int k = 0; k < this.agents.length; k++){
+				double nv = operator.performBackup(this.states[s].s, this.agents[k], this.agentDefinitions, qSources);
+				next[k][s] = nv;
+				maxChange = Math.max(maxChange, Math.abs(nv - v[k][s]));
+			}
+		}
+		return maxChange;
+	}
+
+
+	/**
+	 * An {@link AgentQSourceMap} that answers the Q-value queries of a backup operator for a single compiled state from the compiled arrays.
+	 * Q-values are computed on first request and cached for the lifetime of this object.
+	 */
+	protected class StateQSourceMap implements AgentQSourceMap{
+
+		protected int s;
+		protected double [][] v;
+		protected StateQSource [] sources;
+
+		public StateQSourceMap(int s, double [][] v){
+			this.s = s;
+			this.v = v;
+			int nja = CompiledJointDynamics.this.jointActionOffsets[s+1] - CompiledJointDynamics.this.jointActionOffsets[s];
+			this.sources = new StateQSource[CompiledJointDynamics.this.agents.length];
+			for(int k = 0; k < this.sources.length; k++){
+				this.sources[k] = new StateQSource(k, nja);
+			}
+		}
+
+		@Override
+		public QSourceForSingleAgent agentQSource(String agentName) {
+			return this.sources[CompiledJointDynamics.this.agentIndex(agentName)];
+		}
+
+
+		protected class StateQSource implements QSourceForSingleAgent{
+
+			protected int k;
+			protected double [] q;
+			protected boolean [] computed;
+
+			public StateQSource(int k, int nja){
+				this.k = k;
+				this.q = new double[nja];
+				this.computed = new boolean[nja];
+			}
+
+			@Override
+			public JAQValue getQValueFor(State state, JointAction ja) {
+				Integer j = CompiledJointDynamics.this.jointActionIndex.get(StateQSourceMap.this.s).get(ja);
+				if(j == null){
+					throw new RuntimeException("Joint action " + ja.toString() + " was not compiled for the state being backed up.");
+				}
+				if(!this.computed[j]){
+					this.q[j] = CompiledJointDynamics.this.q(this.k, CompiledJointDynamics.this.jointActionOffsets[StateQSourceMap.this.s] + j, StateQSourceMap.this.v);
+					this.computed[j] = true;
+				}
+				return new JAQValue(state, ja, this.q[j]);
+			}
+		}
+
+	}
+
+}
@@ -8,16 +8,22 @@ import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgen
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver;
 import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver.CorrelatedEquilibriumObjective;
+import burlap.behavior.stochasticgames.solvers.EquilibriumSolutionCache;
 import burlap.behavior.stochasticgames.solvers.GeneralBimatrixSolverTools;
 import burlap.oomdp.core.states.State;
 import burlap.oomdp.stochasticgames.SGAgentType;
 import burlap.oomdp.stochasticgames.agentactions.GroundedSGAgentAction;
 import burlap.oomdp.stochasticgames.JointAction;
 import burlap.oomdp.stochasticgames.agentactions.SGAgentAction;
+import burlap.oomdp.statehashing.HashableStateFactory;
 
 
 /**
  * A correlated Q backup operator [1] for using in stochastic game multi-agent Q-learning or dynamic programming.
+ * <p/>
+ * If the operator is given an {@link burlap.behavior.stochasticgames.solvers.EquilibriumSolutionCache}, the equilibrium of each state
+ * and agent is only re-solved when its Q-values have changed by more than the cache's tolerance since it was last solved; otherwise
+ * the previous equilibrium is evaluated with the current Q-values. The operator may be used from multiple threads at once.
  * 
  * <p/>
  * 1. Greenwald, Amy, Keith Hall, and Roberto Serrano. "Correlated Q-learning." ICML. Vol. 3. 2003.
@@ -32,6 +38,17 @@ public class CorrelatedQ implements SGBackupOperator {
 	protected CorrelatedEquilibriumObjective objectiveType = CorrelatedEquilibriumObjective.UTILITARIAN;
 	
 	
+	/**
+	 * The hashing factory used to key cached equilibria by state; null if equilibria are not cached.
+	 */
+	protected HashableStateFactory hashingFactory;
+	
+	/**
+	 * The cache of equilibrium solutions; null if equilibria are not cached.
+	 */
+	protected EquilibriumSolutionCache solutionCache;
+	
+	
 	/**
 	 * Initializes an operator for the given correlated equilibrium objective.
 	 * @param objectiveType the correlated equilibrium objective being solved.
@@ -40,6 +57,38 @@ public class CorrelatedQ implements SGBackupOperator {
 		this.objectiveType = objectiveType;
 	}
 	
+	
+	/**
+	 * Initializes an operator for the given correlated equilibrium objective that caches the equilibrium of each state.
+	 * @param objectiveType the correlated equilibrium objective being solved.
+	 * @param hashingFactory the hashing factory used to key cached equilibria by state
+	 * @param solutionCache the cache of equilibrium solutions
+	 */
+	public CorrelatedQ(CorrelatedEquilibriumObjective objectiveType, HashableStateFactory hashingFactory, EquilibriumSolutionCache solutionCache){
+		this.objectiveType = objectiveType;
+		this.setSolutionCache(hashingFactory, solutionCache);
+	}
+	
+	
+	/**
+	 * Sets the cache of equilibrium solutions.
+	 * @param hashingFactory the hashing factory used to key cached equilibria by state
+	 * @param solutionCache the cache of equilibrium solutions; null to solve every equilibrium
+	 */
+	public void setSolutionCache(HashableStateFactory hashingFactory, EquilibriumSolutionCache solutionCache){
+		this.hashingFactory = hashingFactory;
+		this.solutionCache = solutionCache;
+	}
+	
+	
+	/**
+	 * Returns the cache of equilibrium solutions.
+	 * @return the cache of equilibrium solutions; null if equilibria are not cached.
+	 */
+	public EquilibriumSolutionCache getSolutionCache(){
+		return this.solutionCache;
+	}
+	
 	@Override
 	public double performBackup(State s, String forAgent,
 			Map<String, SGAgentType> agentDefinitions, AgentQSourceMap qSourceMap) {
@@ -82,7 +131,14 @@ public class CorrelatedQ implements SGBackupOperator {
 			}
 		}
 		
-		double [][] jointActionProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategy(this.objectiveType, forPlayerPaoyff, otherPlayerPaoyff);
+		double [][] jointActionProbs;
+		if(this.solutionCache != null){
+			jointActionProbs = this.solutionCache.getCorrelatedEQJointStrategy(new EquilibriumSolutionCache.StateAgentKey(this.hashingFactory.hashState(s), forAgent),
+					this.objectiveType, forPlayerPaoyff, otherPlayerPaoyff);
+		}
+		else{
+			jointActionProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategy(this.objectiveType, forPlayerPaoyff, otherPlayerPaoyff);
+		}
 		double [] expectedValue = GeneralBimatrixSolverTools.expectedPayoffs(forPlayerPaoyff, otherPlayerPaoyff, jointActionProbs);
 		
 		
@@ -6,6 +6,7 @@ import java.util.Map;
 import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
 import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgent;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
+import burlap.behavior.stochasticgames.solvers.EquilibriumSolutionCache;
 import burlap.behavior.stochasticgames.solvers.GeneralBimatrixSolverTools;
 import burlap.behavior.stochasticgames.solvers.MinMaxSolver;
 import burlap.oomdp.core.states.State;
@@ -13,17 +14,72 @@ import burlap.oomdp.stochasticgames.SGAgentType;
 import burlap.oomdp.stochasticgames.agentactions.GroundedSGAgentAction;
 import burlap.oomdp.stochasticgames.JointAction;
 import burlap.oomdp.stochasticgames.agentactions.SGAgentAction;
+import burlap.oomdp.statehashing.HashableStateFactory;
 
 
 /**
  * A minmax operator. This operator is useful for zero sum two player games. If there are more than two players in the game, a runtime exception will be thrown.
  * Before solving the minmax strategy, the Q-values are transformed into a minmax game. Then the resulting minmax strategy is used to compute
  * the expected "payoff" using the true Q-values of the query agent, which is then returned as the new Q-value.
+ * <p/>
+ * If the operator is given an {@link burlap.behavior.stochasticgames.solvers.EquilibriumSolutionCache}, the minmax strategies of each state
+ * and agent are only re-solved when the minmax game has changed by more than the cache's tolerance since it was last solved and the
+ * previous strategies are no longer a saddle point of the game within the tolerance; otherwise the previous strategies are evaluated
+ * with the current Q-values. The operator may be used from multiple threads at once.
  * @author James MacGlashan
  *
  */
 public class MinMaxQ implements SGBackupOperator {
 
+	/**
+	 * The hashing factory used to key cached strategies by state; null if strategies are not cached.
+	 */
+	protected HashableStateFactory hashingFactory;
+	
+	/**
+	 * The cache of minmax solutions; null if strategies are not cached.
+	 */
+	protected EquilibriumSolutionCache solutionCache;
+	
+	
+	/**
+	 * Initializes an operator that solves the minmax strategies of every backup.
+	 */
+	public MinMaxQ(){
+		
+	}
+	
+	
+	/**
+	 * Initializes an operator that caches the minmax strategies of each state.
+	 * @param hashingFactory the hashing factory used to key cached strategies by state
+	 * @param solutionCache the cache of minmax solutions
+	 */
+	public MinMaxQ(HashableStateFactory hashingFactory, EquilibriumSolutionCache solutionCache){
+		this.setSolutionCache(hashingFactory, solutionCache);
+	}
+	
+	
+	/**
+	 * Sets the cache of minmax solutions.
+	 * @param hashingFactory the hashing factory used to key cached strategies by state
+	 * @param solutionCache the cache of minmax solutions; null to solve the strategies of every backup
+	 */
+	public void setSolutionCache(HashableStateFactory hashingFactory, EquilibriumSolutionCache solutionCache){
+		this.hashingFactory = hashingFactory;
+		this.solutionCache = solutionCache;
+	}
+	
+	
+	/**
+	 * Returns the cache of minmax solutions.
+	 * @return the cache of minmax solutions; null if strategies are not cached.
+	 */
+	public EquilibriumSolutionCache getSolutionCache(){
+		return this.solutionCache;
+	}
+	
+
 	@Override
 	public double performBackup(State s, String forAgent,
 			Map<String, SGAgentType> agentDefinitions, AgentQSourceMap qSourceMap) {
@@ -67,8 +123,17 @@ public class MinMaxQ implements SGBackupOperator {
 		}
 		
 		
-		double [] forAgentStrat = MinMaxSolver.getRowPlayersStrategy(payout1);
-		double [] otherAgentStrat = MinMaxSolver.getColPlayersStrategy(GeneralBimatrixSolverTools.getNegatedMatrix(payout1));
+		double [] forAgentStrat;
+		double [] otherAgentStrat;
+		if(this.solutionCache != null){
+			double [][] strats = this.solutionCache.getMinMaxStrategies(new EquilibriumSolutionCache.StateAgentKey(this.hashingFactory.hashState(s), forAgent), payout1);
+			forAgentStrat = strats[0];
+			otherAgentStrat = strats[1];
+		}
+		else{
+			forAgentStrat = MinMaxSolver.getRowPlayersStrategy(payout1);
+			otherAgentStrat = MinMaxSolver.getColPlayersStrategy(GeneralBimatrixSolverTools.getNegatedMatrix(payout1));
+		}
 		
 		//we can use true payoff for player 1 for both players, because we're ignoring the payout for the second player.
 		double expectedpayoffforPlayer1 = GeneralBimatrixSolverTools.expectedPayoffs(truePayout1, truePayout1, forAgentStrat, otherAgentStrat)[0];
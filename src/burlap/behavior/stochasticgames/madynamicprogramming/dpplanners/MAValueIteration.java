@@ -1,14 +1,19 @@
 package burlap.behavior.stochasticgames.madynamicprogramming.dpplanners;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import burlap.behavior.valuefunction.ValueFunctionInitialization;
 import burlap.oomdp.statehashing.HashableStateFactory;
 import burlap.oomdp.statehashing.HashableState;
+import burlap.behavior.stochasticgames.madynamicprogramming.CompiledJointDynamics;
 import burlap.behavior.stochasticgames.madynamicprogramming.MADynamicProgramming;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.debugtools.DPrint;
@@ -33,6 +38,14 @@ import burlap.oomdp.stochasticgames.SGDomain;
  * <p/>
  * Value iteration will continue until either the maximum change in Q-value is less than some user provided threshold or until a max number
  * of iterations have passed. 
+ * <p/>
+ * Calling {@link #toggleUseCompiledDynamics(boolean)} with true causes the joint actions, transitions and per-agent rewards of the reachable
+ * states to be enumerated once into a {@link burlap.behavior.stochasticgames.madynamicprogramming.CompiledJointDynamics} object, and VI sweeps
+ * to run over its primitive arrays with a value array per agent instead of rebuilding the joint action transitions of every state on every sweep.
+ * Compiled sweeps are synchronous (Jacobi) sweeps: every backup reads the values of the previous sweep. They may be run in parallel over
+ * blocks of states with {@link #setParallelism(int)}, in which case the backup operator must be safe to call from multiple threads (all provided
+ * operators are); the results do not depend on the number of threads. After the sweeps, the values are written back into the agents' value
+ * functions, so Q-value queries behave exactly as without compilation.
  * 
  * @author James MacGlashan
  *
@@ -59,6 +72,36 @@ public class MAValueIteration extends MADynamicProgramming {
 	 */
 	protected int debugCode = 88934789;
 	
+	/**
+	 * Whether sweeps are performed over compiled joint action dynamics.
+	 */
+	protected boolean useCompiledDynamics = false;
+	
+	/**
+	 * The compiled joint action dynamics of the found states; null if they have not been compiled since states were last found.
+	 */
+	protected CompiledJointDynamics compiledDynamics;
+	
+	/**
+	 * The joint action transitions of the found non-terminal states, recorded while finding states when compiled dynamics are used.
+	 */
+	protected Map<HashableState, List<JointActionTransitions>> foundTransitions = new HashMap<HashableState, List<JointActionTransitions>>();
+	
+	/**
+	 * The number of worker threads used for compiled sweeps.
+	 */
+	protected int parallelism = 1;
+	
+	/**
+	 * The number of states backed up by a single task of a parallel sweep.
+	 */
+	protected int blockSize = 256;
+	
+	/**
+	 * The pool in which parallel sweeps are run; created lazily.
+	 */
+	protected ForkJoinPool pool;
+	
 	
 	
 	/**
@@ -154,6 +197,58 @@ public class MAValueIteration extends MADynamicProgramming {
 	
 	
 
+	/**
+	 * Sets whether VI sweeps are performed over compiled joint action dynamics.
+	 * @param useCompiledDynamics true if sweeps should use compiled joint action dynamics; false if they should query the joint action model on every backup.
+	 */
+	public void toggleUseCompiledDynamics(boolean useCompiledDynamics){
+		this.useCompiledDynamics = useCompiledDynamics;
+		if(!useCompiledDynamics){
+			this.compiledDynamics = null;
+			this.foundTransitions.clear();
+		}
+	}
+	
+	
+	/**
+	 * Sets the number of worker threads used for compiled sweeps. Takes effect the next time VI is run.
+	 * @param parallelism the number of worker threads.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism != this.parallelism && this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Returns the number of worker threads used for compiled sweeps.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+	
+	
+	/**
+	 * Returns the compiled joint action dynamics of the found states, compiling them if necessary.
+	 * @return the compiled joint action dynamics of the found states
+	 */
+	public CompiledJointDynamics getCompiledJointDynamics(){
+		if(this.compiledDynamics == null){
+			for(HashableState sh : this.states){
+				if(!this.foundTransitions.containsKey(sh) && !this.terminalFunction.isTerminal(sh.s)){
+					this.foundTransitions.put(sh, this.jointActionTransitions(sh.s));
+				}
+			}
+			this.compiledDynamics = new CompiledJointDynamics(this.states, this.foundTransitions, this.agentDefinitions,
+					this.terminalFunction, this.discount, this.hashingFactory);
+		}
+		return this.compiledDynamics;
+	}
+	
+	
 	@Override
 	public void planFromState(State s) {
 		
@@ -178,6 +273,11 @@ public class MAValueIteration extends MADynamicProgramming {
 			throw new RuntimeException("No states to iterate over. Note that state reacability needs to be performed before runVI() can be called. Consider using planFromState(State s) method instead or using the performStateReachabilityFrom(State s) method first.");
 		}
 		
+		if(this.useCompiledDynamics){
+			this.runCompiledVI();
+			return;
+		}
+		
 		int i;
 		for(i = 0; i < this.maxIterations; i++){
 			
@@ -215,6 +315,7 @@ public class MAValueIteration extends MADynamicProgramming {
 		}
 		
 		this.states.add(shi);
+		this.compiledDynamics = null;
 		
 		LinkedList<HashableState> openQueue = new LinkedList<HashableState>();
 		openQueue.add(shi);
@@ -223,10 +324,23 @@ public class MAValueIteration extends MADynamicProgramming {
 			
 			HashableState sh = openQueue.poll();
 			
-			//expand
+			//expand; when sweeps are compiled, record the transitions so that the model is not queried again to compile them
 			List<JointAction> jas = JointAction.getAllJointActions(sh.s, this.agentDefinitions);
+			List<JointActionTransitions> jats = null;
+			if(this.useCompiledDynamics && !this.terminalFunction.isTerminal(sh.s)){
+				jats = new ArrayList<JointActionTransitions>(jas.size());
+				this.foundTransitions.put(sh, jats);
+			}
 			for(JointAction ja : jas){
-				List<TransitionProbability> tps = this.jointActionModel.transitionProbsFor(sh.s, ja);
+				List<TransitionProbability> tps;
+				if(jats != null){
+					JointActionTransitions jat = new JointActionTransitions(sh.s, ja);
+					jats.add(jat);
+					tps = jat.tps;
+				}
+				else{
+					tps = this.jointActionModel.transitionProbsFor(sh.s, ja);
+				}
 				for(TransitionProbability tp : tps){
 					HashableState shp = this.hashingFactory.hashState(tp.s);
 					if(!this.states.contains(shp)){
@@ -245,4 +359,126 @@ public class MAValueIteration extends MADynamicProgramming {
 		return true;
 	}
 	
+	
+	/**
+	 * Returns the transitions and joint rewards of every joint action in a state.
+	 * @param s the state
+	 * @return the transitions and joint rewards of every joint action in the state
+	 */
+	protected List<JointActionTransitions> jointActionTransitions(State s){
+		List<JointAction> jas = JointAction.getAllJointActions(s, this.agentDefinitions);
+		List<JointActionTransitions> jats = new ArrayList<JointActionTransitions>(jas.size());
+		for(JointAction ja : jas){
+			jats.add(new JointActionTransitions(s, ja));
+		}
+		return jats;
+	}
+	
+	
+	/**
+	 * Runs VI over the compiled joint action dynamics of the found states and writes the resulting values into the agents' value functions.
+	 */
+	protected void runCompiledVI(){
+		
+		CompiledJointDynamics compiled = this.getCompiledJointDynamics();
+		Map<String, BackupBasedQSource> sources = new HashMap<String, BackupBasedQSource>(this.agentDefinitions.size());
+		for(String agentName : this.agentDefinitions.keySet()){
+			sources.put(agentName, (BackupBasedQSource)this.qSources.agentQSource(agentName));
+		}
+		
+		double [][] v = compiled.loadValues(sources);
+		double [][] next = new double[compiled.numAgents()][compiled.numStates()];
+		if(this.parallelism > 1 && this.pool == null){
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+		
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+			
+			double maxChange;
+			if(this.parallelism > 1){
+				maxChange = this.pool.invoke(new SweepTask(compiled, v, next, 0, compiled.numStates()));
+			}
+			else{
+				maxChange = new SweepTask(compiled, v, next, 0, compiled.numStates()).sweep();
+			}
+			double [][] tmp = v;
+			v = next;
+			next = tmp;
+			
+			DPrint.cl(this.debugCode, "Finished pass: " + i + " with max change: " + maxChange);
+			
+			if(maxChange < this.maxDelta){
+				break ;
+			}
+			
+		}
+		
+		compiled.writeValues(v, sources);
+		
+		DPrint.cl(this.debugCode, "Performed " + i + " passes.");
+		
+	}
+	
+	
+	/**
+	 * A fork-join task that backs up the compiled states in an index range, splitting the range in half until it is no larger than the block size.
+	 * Returns the maximum change in value over the range.
+	 */
+	protected class SweepTask extends RecursiveTask<Double>{
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected CompiledJointDynamics compiled;
+		protected double [][] prev;
+		protected double [][] next;
+		protected int start;
+		protected int end;
+		
+		/**
+		 * Initializes.
+		 * @param compiled the compiled joint action dynamics
+		 * @param prev the values of each agent from the previous sweep
+		 * @param next the arrays into which new values are written
+		 * @param start the first state index to back up (inclusive)
+		 * @param end the last state index to back up (exclusive)
+		 */
+		public SweepTask(CompiledJointDynamics compiled, double [][] prev, double [][] next, int start, int end){
+			this.compiled = compiled;
+			this.prev = prev;
+			this.next = next;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected Double compute(){
+			
+			if(this.end - this.start > MAValueIteration.this.blockSize){
+				int mid = (this.start + this.end) >>> 1;
+				SweepTask left = new SweepTask(this.compiled, this.prev, this.next, this.start, mid);
+				SweepTask right = new SweepTask(this.compiled, this.prev, this.next, mid, this.end);
+				left.fork();
+				double rightDelta = right.compute();
+				double leftDelta = left.join();
+				return Math.max(leftDelta, rightDelta);
+			}
+			
+			return this.sweep();
+		}
+		
+		/**
+		 * Backs up every state in this task's range on the calling thread.
+		 * @return the maximum change in value over the range
+		 */
+		public double sweep(){
+			double delta = 0.;
+			for(int s = this.start; s < this.end; s++){
+				delta = Math.max(delta, this.compiled.backup(s, MAValueIteration.this.backupOperator, this.prev, this.next));
+			}
+			return delta;
+		}
+		
+	}
+	
 }
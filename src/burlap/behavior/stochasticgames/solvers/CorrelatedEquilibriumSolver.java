@@ -6,7 +6,6 @@ import org.apache.log4j.LogManager;
 import scpsolver.constraints.LinearBiggerThanEqualsConstraint;
 import scpsolver.constraints.LinearEqualsConstraint;
 import scpsolver.lpsolver.LinearProgramSolver;
-import scpsolver.lpsolver.SolverFactory;
 import scpsolver.problems.LinearProgram;
 
 import com.joptimizer.optimizers.LPOptimizationRequest;
@@ -288,7 +287,7 @@ public class CorrelatedEquilibriumSolver {
 		int nn = nRows*nCols;
 		
 		lp.setMinProblem(false); 
-		LinearProgramSolver solver = SolverFactory.newDefault(); 
+		LinearProgramSolver solver = GeneralBimatrixSolverTools.lpSolver(); 
 		double[] sol = solver.solve(lp);
 		
 		double [][] jointActionProbs = new double[nRows][nCols];
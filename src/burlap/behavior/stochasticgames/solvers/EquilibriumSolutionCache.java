@@ -0,0 +1,352 @@
+package burlap.behavior.stochasticgames.solvers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver.CorrelatedEquilibriumObjective;
+
+
+/**
+ * A cache of bimatrix equilibrium solutions that avoids re-solving the linear program of a game whose payoffs have barely changed
+ * since it was last solved. This is useful in value iteration with equilibrium backup operators (e.g.,
+ * {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CorrelatedQ}), which solve the game of every state on
+ * every sweep even though most of those games change very little from one sweep to the next once the values begin to converge.
+ * <p/>
+ * Each solution is stored under a key that identifies the game being solved (typically a state and the agent whose backup is
+ * being computed) along with the payoff matrices it was solved for. When the same key is queried again with payoffs of the same
+ * shape, the previous solution is returned without solving if every payoff differs from the solved payoffs by no more than
+ * the tolerance. For minmax games, a previous solution that fails that test is still returned if it remains a saddle point of the
+ * new game within the tolerance (that is, the previous solution is used as a warm start that is verified before any LP is solved).
+ * With a tolerance of 0, solutions are reused only for identical payoffs and the results are exactly those of solving every game.
+ * <p/>
+ * Callers should compute the value of a returned strategy with the current payoffs, so that the only approximation is the strategy
+ * itself. Returned strategies are shared with the cache and must not be modified.
+ * <p/>
+ * The cache may be used from multiple threads at once, and games with different keys may be solved concurrently.
+ * @author James MacGlashan
+ *
+ */
+public class EquilibriumSolutionCache {
+
+	/**
+	 * The cached solutions
+	 */
+	protected ConcurrentHashMap<Object, CachedSolution>		solutions = new ConcurrentHashMap<Object, CachedSolution>();
+
+	/**
+	 * The maximum payoff change for which a previous solution is reused
+	 */
+	protected double										tolerance;
+
+	/**
+	 * The number of linear programs solved through this cache
+	 */
+	protected AtomicLong									numSolves = new AtomicLong();
+
+	/**
+	 * The number of queries answered with a previous solution
+	 */
+	protected AtomicLong									numReuses = new AtomicLong();
+
+
+	/**
+	 * Initializes.
+	 * @param tolerance the maximum change of any payoff for which a previous solution is reused; 0 reuses solutions only for identical payoffs.
+	 */
+	public EquilibriumSolutionCache(double tolerance){
+		if(tolerance < 0.){
+			throw new RuntimeException("The tolerance of an EquilibriumSolutionCache cannot be negative.");
+		}
+		this.tolerance = tolerance;
+	}
+
+
+	/**
+	 * Returns the maximum change of any payoff for which a previous solution is reused.
+	 * @return the maximum change of any payoff for which a previous solution is reused.
+	 */
+	public double getTolerance(){
+		return this.tolerance;
+	}
+
+
+	/**
+	 * Sets the maximum change of any payoff for which a previous solution is reused.
+	 * @param tolerance the maximum change of any payoff for which a previous solution is reused; 0 reuses solutions only for identical payoffs.
+	 */
+	public void setTolerance(double tolerance){
+		if(tolerance < 0.){
+			throw new RuntimeException("The tolerance of an EquilibriumSolutionCache cannot be negative.");
+		}
+		this.tolerance = tolerance;
+	}
+
+
+	/**
+	 * Returns the correlated equilibrium joint strategy for the given game, solving it with
+	 * {@link CorrelatedEquilibriumSolver#getCorrelatedEQJointStrategy(CorrelatedEquilibriumObjective, double[][], double[][])}
+	 * only if no sufficiently close solution is cached for the key.
+	 * @param key the key identifying the game
+	 * @param objectiveType the maximizing objective for the correlated equilibrium being solved.
+	 * @param payoffRow the payoff for the player whose actions correspond to the rows of the matrix
+	 * @param payoffCol the payoff for the player whose actions correspond to the columns of the matrix
+	 * @return the correlated equilibrium joint strategy as a 2D double matrix.
+	 */
+	public double [][] getCorrelatedEQJointStrategy(Object key, CorrelatedEquilibriumObjective objectiveType, double [][] payoffRow, double [][] payoffCol){
+
+		CachedSolution cached = this.solutions.get(key);
+		if(cached != null && cached.objectiveType == objectiveType
+				&& withinTolerance(cached.payoffRow, payoffRow, this.tolerance) && withinTolerance(cached.payoffCol, payoffCol, this.tolerance)){
+			this.numReuses.incrementAndGet();
+			return cached.strategy;
+		}
+
+		double [][] jointActionProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategy(objectiveType, payoffRow, payoffCol);
+		this.numSolves.incrementAndGet();
+		this.solutions.put(key, new CachedSolution(objectiveType, copy(payoffRow), copy(payoffCol), jointActionProbs));
+
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Returns the minmax strategies of both players of the zero sum game with the given row player payoffs (the column player's payoffs
+	 * are their negation), solving them with {@link MinMaxSolver} only if no sufficiently close solution is cached for the key and the
+	 * cached solution is not a saddle point of the game within the tolerance.
+	 * @param key the key identifying the game
+	 * @param payoffRow the payoffs for the row player
+	 * @return a 2D array whose first element is the row player's strategy and whose second element is the column player's strategy.
+	 */
+	public double [][] getMinMaxStrategies(Object key, double [][] payoffRow){
+
+		CachedSolution cached = this.solutions.get(key);
+		if(cached != null && cached.objectiveType == null && sameShape(cached.payoffRow, payoffRow)){
+			if(withinTolerance(cached.payoffRow, payoffRow, this.tolerance)){
+				this.numReuses.incrementAndGet();
+				return cached.strategy;
+			}
+			if(saddlePointGap(payoffRow, cached.strategy[0], cached.strategy[1]) <= this.tolerance){
+				//keep the verified solution and compare future games against these payoffs
+				this.numReuses.incrementAndGet();
+				this.solutions.put(key, new CachedSolution(null, copy(payoffRow), null, cached.strategy));
+				return cached.strategy;
+			}
+		}
+
+		double [] rowStrategy = MinMaxSolver.getRowPlayersStrategy(payoffRow);
+		double [] colStrategy = MinMaxSolver.getColPlayersStrategy(GeneralBimatrixSolverTools.getNegatedMatrix(payoffRow));
+		this.numSolves.incrementAndGet();
+
+		double [][] strategies = new double[][]{rowStrategy, colStrategy};
+		this.solutions.put(key, new CachedSolution(null, copy(payoffRow), null, strategies));
+
+		return strategies;
+	}
+
+
+	/**
+	 * Returns the number of linear program solutions computed through this cache (a correlated equilibrium or pair of minmax strategies counts as one).
+	 * @return the number of solutions computed through this cache.
+	 */
+	public long getNumSolves(){
+		return this.numSolves.get();
+	}
+
+
+	/**
+	 * Returns the number of queries answered with a previous solution.
+	 * @return the number of queries answered with a previous solution.
+	 */
+	public long getNumReuses(){
+		return this.numReuses.get();
+	}
+
+
+	/**
+	 * Returns the number of games with a cached solution.
+	 * @return the number of games with a cached solution.
+	 */
+	public int size(){
+		return this.solutions.size();
+	}
+
+
+	/**
+	 * Removes all cached solutions and resets the solve and reuse counts.
+	 */
+	public void clear(){
+		this.solutions.clear();
+		this.numSolves.set(0);
+		this.numReuses.set(0);
+	}
+
+
+	/**
+	 * Returns the difference between the best response payoff of the row player to the column player's strategy and the payoff
+	 * the row player's strategy guarantees against any column player action in a zero sum game. The gap is 0 if and only if the
+	 * strategies are a saddle point.
+	 * @param payoffRow the payoffs of the row player
+	 * @param rowStrategy the row player's strategy
+	 * @param colStrategy the column player's strategy
+	 * @return the saddle point gap of the strategies
+	 */
+	public static double saddlePointGap(double [][] payoffRow, double [] rowStrategy, double [] colStrategy){
+
+		double bestRowResponse = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < payoffRow.length; i++){
+			bestRowResponse = Math.max(bestRowResponse, GeneralBimatrixSolverTools.dot(payoffRow[i], colStrategy));
+		}
+
+		double guaranteed = Double.POSITIVE_INFINITY;
+		for(int j = 0; j < payoffRow[0].length; j++){
+			double v = 0.;
+			for(int i = 0; i < payoffRow.length; i++){
+				v += rowStrategy[i] * payoffRow[i][j];
+			}
+			guaranteed = Math.min(guaranteed, v);
+		}
+
+		return bestRowResponse - guaranteed;
+	}
+
+
+	/**
+	 * Returns whether two matrices have the same shape and no entries that differ by more than the tolerance.
+	 * @param a the first matrix
+	 * @param b the second matrix
+	 * @param tolerance the maximum difference
+	 * @return true if the matrices have the same shape and no entries differ by more than the tolerance; false otherwise.
+	 */
+	protected static boolean withinTolerance(double [][] a, double [][] b, double tolerance){
+		if(!sameShape(a, b)){
+			return false;
+		}
+		for(int i = 0; i < a.length; i++){
+			for(int j = 0; j < a[i].length; j++){
+				if(Math.abs(a[i][j] - b[i][j]) > tolerance){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns whether two matrices have the same shape.
+	 * @param a the first matrix
+	 * @param b the second matrix
+	 * @return true if the matrices have the same shape; false otherwise.
+	 */
+	protected static boolean sameShape(double [][] a, double [][] b){
+		if(a.length != b.length){
+			return false;
+		}
+		for(int i = 0; i < a.length; i++){
+			if(a[i].length != b[i].length){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns a deep copy of a matrix.
+	 * @param m the matrix to copy
+	 * @return a deep copy of the matrix.
+	 */
+	protected static double [][] copy(double [][] m){
+		double [][] c = new double[m.length][];
+		for(int i = 0; i < m.length; i++){
+			c[i] = m[i].clone();
+		}
+		return c;
+	}
+
+
+
+	/**
+	 * A key for the game of a state from the perspective of one agent. The state should be an object with value-based
+	 * equality, such as a {@link burlap.oomdp.statehashing.HashableState}.
+	 * @author James MacGlashan
+	 *
+	 */
+	public static class StateAgentKey{
+
+		/**
+		 * The state
+		 */
+		public final Object state;
+
+		/**
+		 * The name of the agent
+		 */
+		public final String agentName;
+
+
+		/**
+		 * Initializes.
+		 * @param state the state, which should have value-based equality
+		 * @param agentName the name of the agent
+		 */
+		public StateAgentKey(Object state, String agentName){
+			this.state = state;
+			this.agentName = agentName;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.state.hashCode() + this.agentName.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj){
+				return true;
+			}
+			if(!(obj instanceof StateAgentKey)){
+				return false;
+			}
+			StateAgentKey o = (StateAgentKey)obj;
+			return this.agentName.equals(o.agentName) && this.state.equals(o.state);
+		}
+	}
+
+
+
+	/**
+	 * A cached solution and the payoffs for which it was solved.
+	 */
+	protected static class CachedSolution{
+
+		/**
+		 * The correlated equilibrium objective of the solution, or null for minmax strategies
+		 */
+		protected final CorrelatedEquilibriumObjective objectiveType;
+
+		/**
+		 * The row player payoffs for which the solution was solved
+		 */
+		protected final double [][] payoffRow;
+
+		/**
+		 * The column player payoffs for which the solution was solved; null for minmax strategies
+		 */
+		protected final double [][] payoffCol;
+
+		/**
+		 * The solution
+		 */
+		protected final double [][] strategy;
+
+
+		protected CachedSolution(CorrelatedEquilibriumObjective objectiveType, double [][] payoffRow, double [][] payoffCol, double [][] strategy){
+			this.objectiveType = objectiveType;
+			this.payoffRow = payoffRow;
+			this.payoffCol = payoffCol;
+			this.strategy = strategy;
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package burlap.behavior.stochasticgames.solvers;
 
+import scpsolver.lpsolver.LinearProgramSolver;
+import scpsolver.lpsolver.SolverFactory;
 
 /**
  * A class holding static methods for performing common operations on bimatrix games.
@@ -9,6 +11,27 @@ package burlap.behavior.stochasticgames.solvers;
 public class GeneralBimatrixSolverTools {
 	
 	
+	/**
+	 * The LP solver of each thread. Looking up the default SCPSolver solver is expensive relative to solving the small
+	 * LPs of bimatrix games, and a solver instance only holds the problem while it is being solved, so each thread reuses one.
+	 */
+	protected static final ThreadLocal<LinearProgramSolver> threadSolver = new ThreadLocal<LinearProgramSolver>(){
+		@Override
+		protected LinearProgramSolver initialValue() {
+			return SolverFactory.newDefault();
+		}
+	};
+	
+	
+	/**
+	 * Returns the default SCPSolver LP solver of the calling thread, creating it on the first call from the thread.
+	 * @return the default LP solver of the calling thread.
+	 */
+	public static LinearProgramSolver lpSolver(){
+		return threadSolver.get();
+	}
+	
+	
 	/**
 	 * Computes the expected payoff for each player in a bimatrix game according to their strategies. 
 	 * @param payoffRowPlayer the payoff for player 1. Rows are player 1's actions; columns player 2's.
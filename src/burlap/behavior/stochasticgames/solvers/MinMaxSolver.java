@@ -2,7 +2,6 @@ package burlap.behavior.stochasticgames.solvers;
 
 import scpsolver.constraints.LinearBiggerThanEqualsConstraint;
 import scpsolver.lpsolver.LinearProgramSolver;
-import scpsolver.lpsolver.SolverFactory;
 import scpsolver.problems.LinearProgram;
 
 public class MinMaxSolver {
@@ -52,7 +51,7 @@ public class MinMaxSolver {
 		
 		//solve it
 		lp.setMinProblem(true);
-		LinearProgramSolver solver = SolverFactory.newDefault(); 
+		LinearProgramSolver solver = GeneralBimatrixSolverTools.lpSolver(); 
 		double[] sol = solver.solve(lp);
 		
 		//convert LP solution into probability vector.
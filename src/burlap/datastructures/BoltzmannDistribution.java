@@ -50,7 +50,7 @@ public class BoltzmannDistribution {
 	/**
 	 * The random object to use for sampling.
 	 */
-	protected Random		rand = RandomFactory.getMapped(0);
+	protected Random		rand = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
 	
 	
 	/**
@@ -1,28 +1,42 @@
 package burlap.debugtools;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 
 /**
  * A class for managing debug print statements. Different debug print statements can be associated with different debug ids and enabling or disabling
  * print commands for that debug id can be performed from any class
+ * <br/><br/>
+ * Print calls made from frequently executed code should not build their message unless it will be printed. For that, the
+ * {@link #c(int, Object)} and {@link #cl(int, Object)} methods only call the object's {@link Object#toString()} method, the
+ * {@link #c(int, java.util.function.Supplier)} and {@link #cl(int, java.util.function.Supplier)} methods only ask the supplier for the message,
+ * and the {@link #cf(int, String, Object...)} method only formats its arguments, when the debug code is allowed to print. Checking
+ * whether a debug code can print does not allocate. Setting {@link #ENABLED} to false and recompiling removes all debug printing.
  * @author James MacGlashan
  *
  */
 public class DPrint {
+
 	/**
-	 * data structure keeping track of which debugCodes are allowed to print
+	 * Compile-time switch for all debug printing. If false, every print method returns immediately and the compiler and JIT
+	 * can remove guarded print calls entirely.
 	 */
-	static Map<Integer, Boolean> 	debugCodes = new HashMap<Integer, Boolean>();
-	
+	public static final boolean		ENABLED = true;
+
+	/**
+	 * data structure keeping track of which debugCodes are allowed to print. It is replaced, rather than modified, when a code is toggled
+	 * so that it can be read without locking.
+	 */
+	static volatile CodeModes		debugCodes = new CodeModes(new int[0], new boolean[0]);
+
 	/**
 	 * Boolean which indicates that previously unset debug codes will by default be allowed to print
 	 * Setting this value to false will cause all otherwise unspecified debug values to not print
 	 */
-	static boolean					universalPrint = true;
-	
-	
+	static volatile boolean			universalPrint = true;
+
+
 	/**
 	 * Specify whether previously unset debug codes will by default be allowed to print or not.
 	 * @param mode whether to enable default printing or default suppression.
@@ -30,18 +44,18 @@ public class DPrint {
 	public static void toggleUniversal(boolean mode){
 		universalPrint = mode;
 	}
-	
-	
+
+
 	/**
 	 * Enables/disables print commands to the given debug code
 	 * @param c the print debug code to set
 	 * @param mode true indicates that print calls to that code will print; false means that they will not
 	 */
-	public static void toggleCode(int c, boolean mode){
-		debugCodes.put(c, mode);
+	public static synchronized void toggleCode(int c, boolean mode){
+		debugCodes = debugCodes.with(c, mode);
 	}
-	
-	
+
+
 	/**
 	 * A universal print line whose behavior is determined by the <code>universalPrint</code> field
 	 * @param s the string to print
@@ -49,88 +63,173 @@ public class DPrint {
 	public static void ul(String s){
 		u(s+"\n");
 	}
-	
-	
+
+
 	/**
 	 * A universal print whose behavior is determined by the <code>universalPrint</code> field
 	 * @param s the string to print
 	 */
 	public static void u(String s){
-		if(universalPrint){
+		if(ENABLED && universalPrint){
 			System.out.print(s);
 		}
 	}
-	
-	
+
+
 	/**
 	 * A universal printf whose behavior is determined by the <code>universalPrint</code> field
 	 * @param s the format string
 	 * @param args the arguments for the formatted string
 	 */
 	public static void uf(String s, Object...args){
-		if(universalPrint){
+		if(ENABLED && universalPrint){
 			System.out.printf(s, args);
 		}
 	}
-	
+
 	/**
 	 * A print line command for the given debug code. If that debug code is set to false, then the print will not occur.
 	 * @param c the debug code under which printing should be performed
 	 * @param s the string to print
 	 */
 	public static void cl(int c, String s){
-		c(c, s+"\n");
+		if(ENABLED && mode(c)){
+			System.out.print(s+"\n");
+		}
 	}
-	
-	
+
+
 	/**
 	 * A print command for the given debug code. If that debug code is set to false, then the print will not occur.
 	 * @param c the debug code under which printing should be performed
 	 * @param s the string to print
 	 */
 	public static void c(int c, String s){
-		Boolean m = debugCodes.get(c);
-		boolean mb = universalPrint;
-		if(m != null){
-			mb = m;
-		}
-		if(mb){
+		if(ENABLED && mode(c)){
 			System.out.print(s);
 		}
 	}
-	
-	
-	
+
+
+	/**
+	 * A print line command for the given debug code that only converts the object to a string if the debug code is allowed to print.
+	 * @param c the debug code under which printing should be performed
+	 * @param o the object whose {@link Object#toString()} value is printed
+	 */
+	public static void cl(int c, Object o){
+		if(ENABLED && mode(c)){
+			System.out.print(o+"\n");
+		}
+	}
+
+
+	/**
+	 * A print command for the given debug code that only converts the object to a string if the debug code is allowed to print.
+	 * @param c the debug code under which printing should be performed
+	 * @param o the object whose {@link Object#toString()} value is printed
+	 */
+	public static void c(int c, Object o){
+		if(ENABLED && mode(c)){
+			System.out.print(o);
+		}
+	}
+
+
 	/**
-	 * A printf command for the given debug code. If that debug code is set to false, then the print will not occur.
+	 * A print line command for the given debug code that only asks the supplier for the message if the debug code is allowed to print.
+	 * @param c the debug code under which printing should be performed
+	 * @param message the supplier of the string to print
+	 */
+	public static void cl(int c, Supplier<String> message){
+		if(ENABLED && mode(c)){
+			System.out.print(message.get()+"\n");
+		}
+	}
+
+
+	/**
+	 * A print command for the given debug code that only asks the supplier for the message if the debug code is allowed to print.
+	 * @param c the debug code under which printing should be performed
+	 * @param message the supplier of the string to print
+	 */
+	public static void c(int c, Supplier<String> message){
+		if(ENABLED && mode(c)){
+			System.out.print(message.get());
+		}
+	}
+
+
+
+	/**
+	 * A printf command for the given debug code. If that debug code is set to false, then the print will not occur and the
+	 * arguments are not formatted.
 	 * @param c the debug code under which printing should be performed
 	 * @param s the format string
 	 * @param args the arguments for the formatted string
 	 */
 	public static void cf(int c, String s, Object...args){
-		Boolean m = debugCodes.get(c);
-		boolean mb = universalPrint;
-		if(m != null){
-			mb = m;
-		}
-		if(mb){
+		if(ENABLED && mode(c)){
 			System.out.printf(s,args);
 		}
 	}
-	
-	
+
+
 	/**
 	 * Returns the print mode for a given debug code
 	 * @param c the code to query.
 	 * @return true if printing to that debug code is allowed; false if it is not allowed.
 	 */
 	public static boolean mode(int c){
-		Boolean m = debugCodes.get(c);
-		boolean mb = universalPrint;
-		if(m != null){
-			mb = m;
+		if(!ENABLED){
+			return false;
+		}
+		CodeModes codes = debugCodes;
+		int i = Arrays.binarySearch(codes.codes, c);
+		if(i >= 0){
+			return codes.modes[i];
+		}
+		return universalPrint;
+	}
+
+
+	/**
+	 * An immutable set of debug codes, in sorted order, and their print modes.
+	 */
+	static final class CodeModes {
+
+		final int [] codes;
+		final boolean [] modes;
+
+		CodeModes(int [] codes, boolean [] modes){
+			this.codes = codes;
+			this.modes = modes;
+		}
+
+		/**
+		 * Returns a copy of this set with the mode of the given code set.
+		 * @param c the debug code
+		 * @param mode the print mode of the code
+		 * @return a copy of this set with the mode of the given code set.
+		 */
+		CodeModes with(int c, boolean mode){
+			int i = Arrays.binarySearch(this.codes, c);
+			if(i >= 0){
+				boolean [] nModes = this.modes.clone();
+				nModes[i] = mode;
+				return new CodeModes(this.codes, nModes);
+			}
+			int ins = -i - 1;
+			int [] nCodes = new int[this.codes.length+1];
+			boolean [] nModes = new boolean[this.modes.length+1];
+			System.arraycopy(this.codes, 0, nCodes, 0, ins);
+			System.arraycopy(this.modes, 0, nModes, 0, ins);
+			nCodes[ins] = c;
+			nModes[ins] = mode;
+			System.arraycopy(this.codes, ins, nCodes, ins+1, this.codes.length - ins);
+			System.arraycopy(this.modes, ins, nModes, ins+1, this.modes.length - ins);
+			return new CodeModes(nCodes, nModes);
 		}
-		return mb;
+
 	}
 
 }
@@ -1,7 +1,9 @@
 package burlap.debugtools;
 
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 
@@ -14,6 +16,18 @@ import java.util.*;
  * To synchronize, just seed either a mapped random generator or the default in the
  * main method and use the get method to retrieve the random object for all other
  * classes. To break the fixed sequence, just construct it without a seed
+ * <br/><br/>
+ * The mapped and default generators are shared by every thread that uses them. For code that may run concurrently, such as the domains
+ * and policies used in parallel trials and rollouts, this class also provides per-thread random streams. Each thread draws from
+ * a {@link StreamContext} that holds an independent {@link SplittableRandom} stream for each named component (e.g., {@link #DOMAINSTREAM}
+ * or {@link #POLICYSTREAM}), seeded deterministically from an experiment seed, a trial index and the component name.
+ * The {@link Random} objects returned by {@link #getStream(String)} can be shared freely between threads: every call is
+ * forwarded to the component stream of the calling thread's current context, so there is no contention between threads and
+ * code run in a context created with {@link #seedThread(long, long)} produces the same random sequence regardless of which thread runs it.
+ * Threads that have not been given a context use one derived from the seed set with {@link #seedStreams(long)} (or a time-based
+ * seed if it was never set) and the order in which the threads first drew from a stream. Seeding the default generator or the
+ * mapped generator with id 0 also sets that seed, so a program that seeds either of them in its main method remains reproducible
+ * when its classes draw from streams.
  * 
  * 
  * @author James MacGlashan
@@ -22,6 +36,48 @@ import java.util.*;
 public class RandomFactory {
 
 	private static RandomFactory factory = new RandomFactory();
+
+
+	/**
+	 * The name of the random stream component used by domains to sample transitions and states.
+	 */
+	public static final String DOMAINSTREAM = "domain";
+
+	/**
+	 * The name of the random stream component used by policies to sample actions.
+	 */
+	public static final String POLICYSTREAM = "policy";
+
+	/**
+	 * The name of the random stream component used by environments.
+	 */
+	public static final String ENVIRONMENTSTREAM = "environment";
+
+
+	/**
+	 * The experiment seed from which the contexts of threads that have not been given a context are derived.
+	 */
+	private static volatile long rootSeed = mix64(System.nanoTime() ^ 0x5DEECE66DL);
+
+	/**
+	 * The number of threads that have been given a context derived from {@link #rootSeed}.
+	 */
+	private static final AtomicLong defaultContexts = new AtomicLong();
+
+	/**
+	 * The current stream context of each thread.
+	 */
+	private static final ThreadLocal<StreamContext> threadContexts = new ThreadLocal<StreamContext>(){
+		@Override
+		protected StreamContext initialValue() {
+			return new StreamContext(rootSeed, defaultContexts.getAndIncrement());
+		}
+	};
+
+	/**
+	 * The shared {@link Random} views of each stream component.
+	 */
+	private static final ConcurrentMap<String, Random> streamViews = new ConcurrentHashMap<String, Random>();
 	
 	/**
 	 * A default random number generator
@@ -71,11 +127,12 @@ public class RandomFactory {
 	}
 	
 	/**
-	 * Sets the seed of the default random number generator
+	 * Sets the seed of the default random number generator and, with {@link #seedStreams(long)}, of the random streams.
 	 * @param seed the seed to use
 	 * @return the default random number generator
 	 */
 	public static Random seedDefault(long seed){
+		seedStreams(seed);
 		return factory.inseedDefault(seed);
 	}
 	
@@ -100,12 +157,16 @@ public class RandomFactory {
 	
 	
 	/**
-	 * Seeds and returns the random generator with the associated id or creates it if it does not yet exist
+	 * Seeds and returns the random generator with the associated id or creates it if it does not yet exist. Seeding the generator
+	 * with id 0 also sets the seed of the random streams with {@link #seedStreams(long)}.
 	 * @param id the id of the random generator
 	 * @param seed the seed to use
 	 * @return the random generator
 	 */
 	public static Random seedMapped(int id, long seed){
+		if(id == 0){
+			seedStreams(seed);
+		}
 		return factory.inseedMapped(id, seed);
 	}
 	
@@ -163,6 +224,104 @@ public class RandomFactory {
 	
 	
 	
+	/**
+	 * Returns a {@link Random} that draws from the calling thread's stream for the given component. The returned object may be shared
+	 * between threads and cached in fields: each call is forwarded to the stream of whichever thread makes it, in that thread's
+	 * current {@link StreamContext}. The returned object cannot be reseeded; use {@link #seedThread(long, long)} instead.
+	 * @param component the name of the stream component, e.g., {@link #DOMAINSTREAM} or {@link #POLICYSTREAM}
+	 * @return a {@link Random} drawing from the calling thread's stream for the component
+	 */
+	public static Random getStream(String component){
+		Random r = streamViews.get(component);
+		if(r == null){
+			Random nr = new StreamRandom(component);
+			r = streamViews.putIfAbsent(component, nr);
+			if(r == null){
+				r = nr;
+			}
+		}
+		return r;
+	}
+
+
+	/**
+	 * Sets the stream context of the calling thread to a new context for the given experiment seed and trial, so that all streams
+	 * subsequently drawn on this thread are a deterministic function of the experiment seed, trial and component.
+	 * @param experimentSeed the seed of the experiment
+	 * @param trial the index of the trial (or any other independent unit of work) in the experiment
+	 * @return the previous context of the calling thread, which can be restored with {@link #setThreadContext(StreamContext)}.
+	 */
+	public static StreamContext seedThread(long experimentSeed, long trial){
+		return setThreadContext(new StreamContext(experimentSeed, trial));
+	}
+
+
+	/**
+	 * Sets the stream context of the calling thread. A context holds the state of its streams, so setting a context that was
+	 * previously used continues its streams where they left off. A context should only be used by one thread at a time.
+	 * @param context the stream context to use on the calling thread
+	 * @return the previous context of the calling thread.
+	 */
+	public static StreamContext setThreadContext(StreamContext context){
+		if(context == null){
+			throw new RuntimeException("The stream context of a thread cannot be null.");
+		}
+		StreamContext previous = threadContexts.get();
+		threadContexts.set(context);
+		return previous;
+	}
+
+
+	/**
+	 * Returns the current stream context of the calling thread.
+	 * @return the current stream context of the calling thread.
+	 */
+	public static StreamContext getThreadContext(){
+		return threadContexts.get();
+	}
+
+
+	/**
+	 * Sets the experiment seed from which the contexts of threads that have not been given a context are derived and resets the calling
+	 * thread to a context derived from it. Threads that already drew from a stream keep their current context.
+	 * Calling this in the main method of a single-threaded program makes every stream of the program reproducible.
+	 * @param seed the experiment seed
+	 */
+	public static void seedStreams(long seed){
+		rootSeed = seed;
+		defaultContexts.set(1);
+		threadContexts.set(new StreamContext(seed, 0));
+	}
+
+
+	/**
+	 * Returns the seed of the stream of a component in a given experiment trial.
+	 * @param experimentSeed the seed of the experiment
+	 * @param trial the index of the trial
+	 * @param component the name of the stream component
+	 * @return the seed of the stream
+	 */
+	public static long streamSeed(long experimentSeed, long trial, String component){
+		long h = mix64(experimentSeed);
+		h = mix64(h ^ mix64(trial + 0x9E3779B97F4A7C15L));
+		h = mix64(h ^ component.hashCode());
+		return h;
+	}
+
+
+	/**
+	 * The 64-bit finalizer of the SplitMix64 generator; a bijection with good avalanche properties.
+	 * @param z the value to mix
+	 * @return the mixed value
+	 */
+	protected static long mix64(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+
+
 	/**
 	 * Initializes the map structures
 	 */
@@ -177,7 +336,7 @@ public class RandomFactory {
 	 * Returns the default random number generator.
 	 * @return the default random number generator.
 	 */
-	public Random ingetDefault(){
+	public synchronized Random ingetDefault(){
 		if(defaultRandom_ == null){
 			defaultRandom_ = new Random();
 		}
@@ -190,7 +349,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the default random number generator
 	 */
-	public Random inseedDefault(long seed){
+	public synchronized Random inseedDefault(long seed){
 		defaultRandom_ = new Random(seed);
 		return defaultRandom_;
 	}
@@ -201,7 +360,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the default random generator
 	 */
-	public Random ingetOrSeedDefault(long seed){
+	public synchronized Random ingetOrSeedDefault(long seed){
 		if(defaultRandom_ == null){
 			defaultRandom_ = new Random(seed);
 		}
@@ -215,7 +374,7 @@ public class RandomFactory {
 	 * @param id the id of the random generator
 	 * @return the random generator
 	 */
-	public Random ingetMapped(int id){
+	public synchronized Random ingetMapped(int id){
 		Random r = intMapped.get(id);
 		if(r != null){
 			return r;
@@ -234,7 +393,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the random generator
 	 */
-	public Random inseedMapped(int id, long seed){
+	public synchronized Random inseedMapped(int id, long seed){
 		Random r = new Random(seed);
 		intMapped.put(id, r);
 		return r;
@@ -247,7 +406,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the random generator
 	 */
-	public Random ingetOrSeedMapped(int id, long seed){
+	public synchronized Random ingetOrSeedMapped(int id, long seed){
 		Random r = intMapped.get(id);
 		if(r != null){
 			return r;
@@ -266,8 +425,8 @@ public class RandomFactory {
 	 * @param id the id of the random generator
 	 * @return the random generator
 	 */
-	public Random ingetMapped(String id){
-		Random r = intMapped.get(id);
+	public synchronized Random ingetMapped(String id){
+		Random r = stringMapped.get(id);
 		if(r != null){
 			return r;
 		}
@@ -285,7 +444,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the random generator
 	 */
-	public Random inseedMapped(String id, long seed){
+	public synchronized Random inseedMapped(String id, long seed){
 		Random r = new Random(seed);
 		stringMapped.put(id, r);
 		return r;
@@ -298,7 +457,7 @@ public class RandomFactory {
 	 * @param seed the seed to use
 	 * @return the random generator
 	 */
-	public Random ingetOrSeedMapped(String id, long seed){
+	public synchronized Random ingetOrSeedMapped(String id, long seed){
 		Random r = stringMapped.get(id);
 		if(r != null){
 			return r;
@@ -311,4 +470,145 @@ public class RandomFactory {
 	}
 	
 	
+
+	/**
+	 * A set of independent random streams, one for each named component, whose seeds are a deterministic function of
+	 * an experiment seed, a trial index and the component name. A context is not thread safe and should only be the current
+	 * context of one thread at a time; see {@link RandomFactory#setThreadContext(StreamContext)}.
+	 */
+	public static class StreamContext {
+
+		/**
+		 * The seed of the experiment
+		 */
+		protected final long experimentSeed;
+
+		/**
+		 * The index of the trial in the experiment
+		 */
+		protected final long trial;
+
+		/**
+		 * The streams of this context that have been used
+		 */
+		protected final Map<String, SplittableRandom> streams = new HashMap<String, SplittableRandom>();
+
+
+		/**
+		 * Initializes for an experiment seed and trial.
+		 * @param experimentSeed the seed of the experiment
+		 * @param trial the index of the trial in the experiment
+		 */
+		public StreamContext(long experimentSeed, long trial){
+			this.experimentSeed = experimentSeed;
+			this.trial = trial;
+		}
+
+		public long getExperimentSeed() {
+			return experimentSeed;
+		}
+
+		public long getTrial() {
+			return trial;
+		}
+
+		/**
+		 * Returns the stream of the given component, creating it if it has not been used in this context.
+		 * @param component the name of the stream component
+		 * @return the stream of the component
+		 */
+		public SplittableRandom getStream(String component){
+			SplittableRandom stream = this.streams.get(component);
+			if(stream == null){
+				stream = new SplittableRandom(streamSeed(this.experimentSeed, this.trial, component));
+				this.streams.put(component, stream);
+			}
+			return stream;
+		}
+
+	}
+
+
+	/**
+	 * A {@link Random} that forwards each call to the calling thread's stream for a component.
+	 */
+	protected static class StreamRandom extends Random {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The name of the stream component
+		 */
+		protected final String component;
+
+		/**
+		 * Initializes for a stream component.
+		 * @param component the name of the stream component
+		 */
+		protected StreamRandom(String component){
+			super(0L);
+			this.component = component;
+		}
+
+		/**
+		 * Returns the calling thread's stream for this component.
+		 * @return the calling thread's stream for this component.
+		 */
+		protected SplittableRandom stream(){
+			return threadContexts.get().getStream(this.component);
+		}
+
+		@Override
+		public synchronized void setSeed(long seed) {
+			//the super constructor sets the seed before the component is set
+			if(this.component != null){
+				throw new RuntimeException("Random streams cannot be reseeded; use RandomFactory.seedThread to set the context of the thread.");
+			}
+		}
+
+		@Override
+		protected int next(int bits) {
+			return this.stream().nextInt() >>> (32 - bits);
+		}
+
+		@Override
+		public int nextInt() {
+			return this.stream().nextInt();
+		}
+
+		@Override
+		public int nextInt(int bound) {
+			return this.stream().nextInt(bound);
+		}
+
+		@Override
+		public long nextLong() {
+			return this.stream().nextLong();
+		}
+
+		@Override
+		public boolean nextBoolean() {
+			return this.stream().nextBoolean();
+		}
+
+		@Override
+		public double nextDouble() {
+			return this.stream().nextDouble();
+		}
+
+		@Override
+		public double nextGaussian() {
+			//polar method without caching the second value, which would otherwise be shared between threads
+			SplittableRandom stream = this.stream();
+			double v1, v2, s;
+			do{
+				v1 = 2 * stream.nextDouble() - 1;
+				v2 = 2 * stream.nextDouble() - 1;
+				s = v1 * v1 + v2 * v2;
+			}while(s >= 1 || s == 0);
+			return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		}
+
+	}
+	
 }
@@ -289,7 +289,7 @@ public class InvertedPendulum implements DomainGenerator {
 		@Override
 		protected State performActionHelper(State s,  GroundedAction groundedAction) {
 			
-			double roll = RandomFactory.getMapped(0).nextDouble() * (2 * physParams.actionNoise) - physParams.actionNoise;
+			double roll = RandomFactory.getStream(RandomFactory.DOMAINSTREAM).nextDouble() * (2 * physParams.actionNoise) - physParams.actionNoise;
 			double force = this.baseForce + roll;
 			InvertedPendulum.updateState(s, force, this.physParams);
 			return s;
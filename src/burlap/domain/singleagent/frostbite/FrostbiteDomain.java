@@ -615,7 +615,7 @@ public class FrostbiteDomain implements DomainGenerator{
 		public MovementAction(String name, Domain domain, double[] directions) {
 			super(name, domain);
 			this.directionProbs = directions.clone();
-			this.rand = RandomFactory.getMapped(0);
+			this.rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 		}
 
 		@Override
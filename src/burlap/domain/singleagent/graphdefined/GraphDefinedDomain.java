@@ -493,7 +493,7 @@ public class GraphDefinedDomain implements DomainGenerator {
 		public GraphAction(Domain domain, int aId, Map<Integer, Map<Integer, Set<NodeTransitionProbability>>> transitionDynamics){
 			super(BASEACTIONNAME+aId, domain);
 			this.aId = aId;
-			rand = RandomFactory.getMapped(0);
+			rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 			this.transitionDynamics = transitionDynamics;
 		}
 		
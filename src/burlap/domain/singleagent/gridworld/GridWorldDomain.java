@@ -744,7 +744,7 @@ public class GridWorldDomain implements DomainGenerator {
 		public MovementAction(String name, Domain domain, double [] directions, int [][] map){
 			super(name, domain);
 			this.directionProbs = directions.clone();
-			this.rand = RandomFactory.getMapped(0);
+			this.rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 			this.map = map;
 		}
 
@@ -138,7 +138,7 @@ public class MacroCellGridWorld extends GridWorldDomain {
 	 * @return a state with the agent in a random free position.
 	 */
 	public static State getRandomInitialState(GridWorldDomain gridWorldGenerator, Domain d) {
-		Random r = RandomFactory.getMapped(0);
+		Random r = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 		State s = new MutableState();
 		int [][] map = gridWorldGenerator.getMap();
 		
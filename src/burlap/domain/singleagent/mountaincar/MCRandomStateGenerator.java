@@ -44,7 +44,7 @@ public class MCRandomStateGenerator implements StateGenerator {
 		this.vmin = vatt.lowerLim;
 		this.vmax = vatt.upperLim;
 		
-		this.rand = RandomFactory.getMapped(0);
+		this.rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 	}
 	
 	/**
@@ -61,6 +61,7 @@ public class MCRandomStateGenerator implements StateGenerator {
 		this.xmax = xmax;
 		this.vmin = vmin;
 		this.vmax = vmax;
+		this.rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 	}
 	
 	
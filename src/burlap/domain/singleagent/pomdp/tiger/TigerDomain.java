@@ -243,7 +243,7 @@ public class TigerDomain implements DomainGenerator {
 		return new StateGenerator() {
 			@Override
 			public State generateState() {
-				double roll = RandomFactory.getMapped(0).nextDouble();
+				double roll = RandomFactory.getStream(RandomFactory.DOMAINSTREAM).nextDouble();
 				return roll < probLeft ? tigerLeftState(domain) : tigerRightState(domain);
 			}
 		};
@@ -275,7 +275,7 @@ public class TigerDomain implements DomainGenerator {
 		@Override
 		protected State performActionHelper(State s, GroundedAction ga) {
 			
-			Random random = RandomFactory.getMapped(0);
+			Random random = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 			double r = random.nextDouble();
 			
 			if(r < 0.5){
@@ -347,7 +347,7 @@ public class TigerDomain implements DomainGenerator {
 			}
 			else if(action.actionName().equals(ACTIONLISTEN)){
 				String tigerVal = state.getFirstObjectOfClass(CLASSTIGER).getStringValForAttribute(ATTTIGERDOOR);
-				double r = RandomFactory.getMapped(0).nextDouble();
+				double r = RandomFactory.getStream(RandomFactory.DOMAINSTREAM).nextDouble();
 				if(r < this.listenAccuracy){
 					if(tigerVal.equals(VALLEFT)){
 						return this.observationLeft();
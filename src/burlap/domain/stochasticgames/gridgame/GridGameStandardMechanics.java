@@ -40,7 +40,7 @@ public class GridGameStandardMechanics extends JointActionModel {
 	 * @param d the domain object
 	 */
 	public GridGameStandardMechanics(Domain d){
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 		domain = d;
 		pMoveThroughSWall = 0.5;
 	}
@@ -52,7 +52,7 @@ public class GridGameStandardMechanics extends JointActionModel {
 	 * @param semiWallPassThroughProb the probability that an agent will pass through a semi-wall.
 	 */
 	public GridGameStandardMechanics(Domain d, double semiWallPassThroughProb){
-		rand = RandomFactory.getMapped(0);
+		rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 		domain = d;
 		pMoveThroughSWall = semiWallPassThroughProb;
 	}
@@ -80,8 +80,8 @@ public interface AbstractObjectParameterizedGroundedAction extends AbstractGroun
 						continue;
 					}
 					if(o.valueEquals(cand)) {
-						nparams[i] = o.getName();
-						matchedObjects.add(o.getName());
+						nparams[i] = cand.getName();
+						matchedObjects.add(cand.getName());
 						break;
 					}
 				}
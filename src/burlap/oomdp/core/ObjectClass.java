@@ -20,6 +20,7 @@ public class ObjectClass {
 	public Map <String, Attribute>			attributeMap;					//map from attribute name to the defining attribute
 	public List <Attribute>					attributeList;					//definitions of object attributes
 	public boolean							hidden;							//whether this is a hidden object class from the agent, but defines the state space
+	protected boolean						hasRelationalAttributes;		//whether any attribute is relational
 	
 	
 	/**
@@ -96,6 +97,7 @@ public class ObjectClass {
 		attributeList.clear();
 		attributeMap.clear();
 		attributeIndex.clear();
+		hasRelationalAttributes = false;
 		
 		for(Attribute att: atts){
 			this.addAttribute(att);
@@ -120,6 +122,9 @@ public class ObjectClass {
 		attributeList.add(att);
 		attributeMap.put(att.name, att);
 		attributeIndex.put(att.name, ind);
+		if(att.type == Attribute.AttributeType.RELATIONAL || att.type == Attribute.AttributeType.MULTITARGETRELATIONAL){
+			hasRelationalAttributes = true;
+		}
 
 		
 	}
@@ -165,6 +170,15 @@ public class ObjectClass {
 	public int numAttributes(){
 		return attributeList.size();
 	}
+	
+	
+	/**
+	 * Returns whether any of the attributes that define this object class are relational.
+	 * @return true if any attribute is of type {@link burlap.oomdp.core.Attribute.AttributeType#RELATIONAL} or {@link burlap.oomdp.core.Attribute.AttributeType#MULTITARGETRELATIONAL}; false otherwise.
+	 */
+	public boolean hasRelationalAttributes(){
+		return hasRelationalAttributes;
+	}
 
 	
 	
@@ -29,6 +29,7 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	private final String						name;				//name of the object for disambiguation
 	private final ImmutableList <Value>			values;				//the values for each attribute
 	private final int							hashCode;
+	private final int							valueHash;			//see OOMDPObjectInstance.valueHash()
 	private final boolean 						identifierIndependent;
 	
 	/**
@@ -41,6 +42,7 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 		this.obClass = obClass;
 		this.name = name;
 		this.values = ImmutableList.copyOf(this.initializeValueObjects());
+		this.valueHash = OOMDPObjectInstance.valueHash(this.values);
 		this.hashCode = 0;
 		this.identifierIndependent = false;
 	}
@@ -58,20 +60,27 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 			ImmutableObjectInstance immutable = (ImmutableObjectInstance)o;
 			this.hashCode = immutable.hashCode;
 			this.values = immutable.values;
+			this.valueHash = immutable.valueHash;
 			this.identifierIndependent = immutable.identifierIndependent; 
 					
 		} else {
 			this.hashCode = 0;
 			this.values = ImmutableList.copyOf(o.getValues());
+			this.valueHash = o instanceof OOMDPObjectInstance ? ((OOMDPObjectInstance)o).valueHash() : OOMDPObjectInstance.valueHash(this.values);
 			this.identifierIndependent = false;
 		}
 			
 	}
 	
 	public ImmutableObjectInstance(ObjectClass obClass, String name, ImmutableList<Value> newValues, int hashCode, boolean identifierIndependent) {
+		this(obClass, name, newValues, OOMDPObjectInstance.valueHash(newValues), hashCode, identifierIndependent);
+	}
+	
+	private ImmutableObjectInstance(ObjectClass obClass, String name, ImmutableList<Value> newValues, int valueHash, int hashCode, boolean identifierIndependent) {
 		this.obClass = obClass;
 		this.name = name;
 		this.values = newValues;
+		this.valueHash = valueHash;
 		this.hashCode = hashCode;
 		this.identifierIndependent = identifierIndependent;
 	}
@@ -81,6 +90,7 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 		this.obClass = objectInstance.obClass;
 		this.name = name;
 		this.values = objectInstance.values;
+		this.valueHash = objectInstance.valueHash;
 		this.hashCode = 0;
 		this.identifierIndependent = objectInstance.identifierIndependent;
 	}
@@ -93,8 +103,23 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 		return new ImmutableObjectInstance(this);
 	}
 	
-	private static ImmutableObjectInstance construct(ObjectClass obClass, String name, List<Value> values, boolean identifierIndependent) {
-		return new ImmutableObjectInstance(obClass, name, ImmutableList.copyOf(values), 0, identifierIndependent);
+	private static ImmutableObjectInstance construct(ObjectClass obClass, String name, ImmutableList<Value> values, int valueHash, boolean identifierIndependent) {
+		return new ImmutableObjectInstance(obClass, name, values, valueHash, 0, identifierIndependent);
+	}
+	
+	/**
+	 * Returns a copy of this object instance in which the value of the attribute with the given index is replaced. The value hash
+	 * of the copy is updated from this object's value hash rather than recomputed.
+	 * @param ind the index of the attribute
+	 * @param newValue the new value of the attribute
+	 * @return a copy of this object instance with the new value.
+	 */
+	private ImmutableObjectInstance replaceValue(int ind, Value newValue) {
+		Value[] arry = this.values.toArray(new Value[this.values.size()]);
+		Value oldValue = arry[ind];
+		arry[ind] = newValue;
+		int newValueHash = this.valueHash + OOMDPObjectInstance.attributeValueHash(ind, newValue) - OOMDPObjectInstance.attributeValueHash(ind, oldValue);
+		return ImmutableObjectInstance.construct(this.obClass, this.name, ImmutableList.copyOf(arry), newValueHash, this.identifierIndependent);
 	}
 	
 	/**
@@ -114,11 +139,11 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param name the name for this object instance.
 	 */
 	public ImmutableObjectInstance setName(String name){
-		return ImmutableObjectInstance.construct(this.obClass, name, this.values, this.identifierIndependent);
+		return ImmutableObjectInstance.construct(this.obClass, name, this.values, this.valueHash, this.identifierIndependent);
 	}
 		
 	public ImmutableObjectInstance setHashCode(int code, boolean identifierIndependent) {
-		return new ImmutableObjectInstance(this.obClass, name, this.values, code, identifierIndependent);
+		return new ImmutableObjectInstance(this.obClass, name, this.values, this.valueHash, code, identifierIndependent);
 	}
 	
 	/**
@@ -127,11 +152,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the string rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, String v){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.setValue(v));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 		
 	}
 	
@@ -141,11 +163,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the double rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, double v){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.setValue(v));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 	}
 	
 	/**
@@ -154,10 +173,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the int rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, int v){
-		Value[] arry = this.values.toArray(new Value[this.values.size()]);
 		int ind = obClass.attributeIndex(attName);
-		arry[ind] = arry[ind].setValue(v);
-		return ImmutableObjectInstance.construct(obClass, name, ImmutableList.copyOf(arry), this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 	}
 	
 	/**
@@ -166,11 +183,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the int rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, boolean v){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.setValue(v));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 	}
 	
 	/**
@@ -179,11 +193,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the int array rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, int [] v){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.setValue(v));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 	}
 	
 	/**
@@ -192,11 +203,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param v the double array rep value to which the attribute of this object instance should be set.
 	 */
 	public ImmutableObjectInstance setValue(String attName, double [] v){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.setValue(v));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).setValue(v));
 	}
 	
 	
@@ -207,11 +215,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param target the name of the object reference that is to be added as a target.
 	 */
 	public ImmutableObjectInstance addRelationalTarget(String attName, String target){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.addRelationalTarget(target));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).addRelationalTarget(target));
 	}
 	
 	/**
@@ -221,11 +226,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param targets the names of the object references that are to be added as a targets.
 	 */
 	public ImmutableObjectInstance addAllRelationalTargets(String attName, Collection<String> targets) {
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.addAllRelationalTargets(targets));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).addAllRelationalTargets(targets));
 	}
 	
 	/**
@@ -233,11 +235,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param attName
 	 */
 	public ImmutableObjectInstance clearRelationalTargets(String attName){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.clearRelationTargets());
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).clearRelationTargets());
 	}
 	
 	/**
@@ -246,11 +245,8 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 	 * @param target the target to remove from the relational attribute value.
 	 */
 	public ImmutableObjectInstance removeRelationalTarget(String attName, String target){
-		List<Value> values = new ArrayList<Value>(this.values);
 		int ind = obClass.attributeIndex(attName);
-		Value value = values.get(ind);
-		values.set(ind, value.removeRelationalTarget(target));
-		return ImmutableObjectInstance.construct(this.obClass, this.name, values, this.identifierIndependent);
+		return this.replaceValue(ind, this.values.get(ind).removeRelationalTarget(target));
 	}
 	
 	
@@ -391,6 +387,21 @@ public final class ImmutableObjectInstance extends OOMDPObjectInstance implement
 		return this.values;
 	}
 	
+	@Override
+	public int valueHash() {
+		return this.valueHash;
+	}
+	
+	@Override
+	protected int numValues() {
+		return this.values.size();
+	}
+	
+	@Override
+	protected Value valueAt(int index) {
+		return this.values.get(index);
+	}
+	
 	public StringBuilder buildObjectDescription(StringBuilder builder) {
 		builder = builder.append(name).append(" (").append(this.getClassName()).append(")");
 		for(Value v : values){
@@ -32,6 +32,11 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 	 * The value assignment for this {@link ObjectInstance}
 	 */
 	protected List <Value>					values;
+
+	/**
+	 * The hash of the value assignment, updated whenever a value is set. See {@link #valueHash()}.
+	 */
+	protected int							valueHash;
 	
 	
 	
@@ -47,6 +52,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		this.name = name;
 		
 		this.values = this.initializeValueObjects();
+		this.valueHash = OOMDPObjectInstance.valueHash(this.values);
 		
 	}
 	
@@ -61,6 +67,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		this.name = o.name;
 		
 		this.values = new ArrayList <Value>(o.values);
+		this.valueHash = o.valueHash;
 			
 	}
 	
@@ -88,6 +95,17 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 	}
 	
 	
+	/**
+	 * Replaces the value of the attribute with the given index and updates the value hash accordingly.
+	 * @param ind the index of the attribute
+	 * @param newValue the new value of the attribute
+	 */
+	protected void replaceValue(int ind, Value newValue){
+		Value oldValue = this.values.set(ind, newValue);
+		this.valueHash += OOMDPObjectInstance.attributeValueHash(ind, newValue) - OOMDPObjectInstance.attributeValueHash(ind, oldValue);
+	}
+	
+	
 	/**
 	 * Sets the name of this object instance.
 	 * @param name the name for this object instance.
@@ -107,7 +125,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -121,7 +139,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -134,7 +152,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -147,7 +165,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -160,7 +178,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -173,7 +191,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.setValue(v);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -187,7 +205,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.addRelationalTarget(target);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -202,7 +220,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.addAllRelationalTargets(targets);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -214,7 +232,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.clearRelationTargets();
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -227,7 +245,7 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 		int ind = obClass.attributeIndex(attName);
 		Value value = values.get(ind);
 		Value newValue = value.removeRelationalTarget(target);
-		values.set(ind, newValue);
+		this.replaceValue(ind, newValue);
 		return this;
 	}
 	
@@ -358,6 +376,24 @@ public class MutableObjectInstance extends OOMDPObjectInstance implements Object
 	}
 	
 	
+	@Override
+	public int valueHash(){
+		return this.valueHash;
+	}
+
+
+	@Override
+	protected int numValues(){
+		return this.values.size();
+	}
+
+
+	@Override
+	protected Value valueAt(int index){
+		return this.values.get(index);
+	}
+
+
 	/**
 	 * Returns the list of value object assignments to all of this object instance's attributes.
 	 * @return the list of value object assignments to all of this object instance's attributes.
@@ -1,5 +1,11 @@
 package burlap.oomdp.core.objects;
 
+import java.util.List;
+import java.util.Set;
+
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.values.Value;
+
 public abstract class OOMDPObjectInstance implements ObjectInstance{
 
 	public OOMDPObjectInstance() {
@@ -43,4 +49,168 @@ public abstract class OOMDPObjectInstance implements ObjectInstance{
 
 	}
 
+
+	/**
+	 * Returns a hash code of this object's value assignment that does not depend on the object's name or class. The hash
+	 * is the sum of {@link #attributeValueHash(int, burlap.oomdp.core.values.Value)} over all attributes and is maintained
+	 * as values are set, so it is returned in constant time. Objects of the same class with equal values have the same value hash.
+	 * @return the hash code of this object's value assignment.
+	 */
+	public abstract int valueHash();
+
+
+	/**
+	 * Returns the number of values stored by this object.
+	 * @return the number of values stored by this object.
+	 */
+	protected abstract int numValues();
+
+
+	/**
+	 * Returns the value of the attribute with the given index without copying it. The returned value must not be modified.
+	 * @param index the attribute index
+	 * @return the value of the attribute with the given index.
+	 */
+	protected abstract Value valueAt(int index);
+
+
+	/**
+	 * Returns whether this object and another object are of the same object class and have equal value assignments. The
+	 * value hashes are compared first, so most unequal objects are rejected without comparing any values, and values are
+	 * compared in place without being copied.
+	 * @param other the object with which to compare
+	 * @return true if this object and other have the same object class and equal values; false otherwise.
+	 */
+	public boolean valuesEqual(OOMDPObjectInstance other){
+		if(this == other){
+			return true;
+		}
+		if(this.getObjectClass() != other.getObjectClass() || this.valueHash() != other.valueHash()){
+			return false;
+		}
+		int n = this.numValues();
+		if(n != other.numValues()){
+			return false;
+		}
+		for(int i = 0; i < n; i++){
+			if(!this.valueAt(i).equals(other.valueAt(i))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the value hash of a list of values, indexed by attribute.
+	 * @param values the values of an object
+	 * @return the value hash of the values.
+	 */
+	public static int valueHash(List<Value> values){
+		int h = 0;
+		for(int i = 0; i < values.size(); i++){
+			h += attributeValueHash(i, values.get(i));
+		}
+		return h;
+	}
+
+
+	/**
+	 * Returns the contribution of a single attribute value to an object's value hash. Because an object's value hash
+	 * is a sum of these contributions, changing the value of one attribute changes the value hash by the difference
+	 * of the old and new contributions.
+	 * @param index the index of the attribute
+	 * @param v the value of the attribute
+	 * @return the contribution of the value to the object's value hash.
+	 */
+	public static int attributeValueHash(int index, Value v){
+		return attributeContentHash(index, valueContentHash(v));
+	}
+
+
+	/**
+	 * Returns the contribution of an attribute to an object's value hash given the hash code of the attribute value's
+	 * content, as returned by {@link #valueContentHash(burlap.oomdp.core.values.Value)}. Unset values have a content hash of 0,
+	 * int valued attributes have a content hash of their value, and real valued attributes have the content hash
+	 * returned by {@link #doubleHash(double)}.
+	 * @param index the index of the attribute
+	 * @param contentHash the hash code of the attribute value's content
+	 * @return the contribution of the value to the object's value hash.
+	 */
+	public static int attributeContentHash(int index, int contentHash){
+		int h = contentHash * 0x9E3779B1 + index;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+
+	/**
+	 * Returns a hash code of the content of a value that is consistent with the value's equals method.
+	 * @param v the value
+	 * @return a hash code of the value's content.
+	 */
+	protected static int valueContentHash(Value v){
+
+		if(!v.valueHasBeenSet()){
+			return 0;
+		}
+
+		Attribute.AttributeType type = v.getAttribute().type;
+		switch(type){
+			case INT:
+			case DISC:
+			case BOOLEAN:
+				return v.getDiscVal();
+			case REAL:
+			case REALUNBOUND:
+				return doubleHash(v.getRealVal());
+			case STRING:
+				return v.getStringVal().hashCode();
+			case INTARRAY:{
+				int h = 1;
+				for(int e : v.getIntArray()){
+					h = 31*h + e;
+				}
+				return h;
+			}
+			case DOUBLEARRAY:{
+				int h = 1;
+				for(double e : v.getDoubleArray()){
+					h = 31*h + doubleHash(e);
+				}
+				return h;
+			}
+			case RELATIONAL:
+			case MULTITARGETRELATIONAL:{
+				int h = 0;
+				Set<String> targets = v.getAllRelationalTargets();
+				for(String t : targets){
+					h += t.hashCode();
+				}
+				return h;
+			}
+			default:
+				throw new RuntimeException("Cannot hash value for attribute of type " + type);
+		}
+
+	}
+
+
+	/**
+	 * Returns a hash code of a double for which 0.0 and -0.0 hash to the same value, since they are equal under ==.
+	 * @param d the double
+	 * @return the hash code of the double.
+	 */
+	public static int doubleHash(double d){
+		if(d == 0.){
+			return 0;
+		}
+		long bits = Double.doubleToLongBits(d);
+		return (int)(bits ^ (bits >>> 32));
+	}
+
 }
@@ -0,0 +1,448 @@
+package burlap.oomdp.core.objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.Attribute.AttributeType;
+import burlap.oomdp.core.ObjectClass;
+import burlap.oomdp.core.states.PackedState;
+import burlap.oomdp.core.states.PackedStateSchema;
+import burlap.oomdp.core.values.UnsetValueException;
+import burlap.oomdp.core.values.Value;
+
+
+/**
+ * An {@link burlap.oomdp.core.objects.ObjectInstance} view of one object of a {@link burlap.oomdp.core.states.PackedState}. Values
+ * are read from and written to the arrays of the state, so setting a value of this object changes the state (and the state's
+ * copies do not see the change). int, discrete, boolean and real values are read and written directly; other accessors
+ * go through a {@link burlap.oomdp.core.values.Value} object created from the stored value, which gives them the same
+ * behavior as the corresponding methods of {@link burlap.oomdp.core.objects.MutableObjectInstance}.
+ * <br/><br/>
+ * The name of the object is fixed by the state's {@link burlap.oomdp.core.states.PackedStateSchema}, so {@link #setName(String)} throws a
+ * runtime exception, as do the methods for setting relational, string-only and array values, which the schema does not support.
+ * {@link #copy()} returns a {@link burlap.oomdp.core.objects.MutableObjectInstance} that is independent of the state.
+ * @author James MacGlashan
+ *
+ */
+public class PackedObjectInstance extends OOMDPObjectInstance implements ObjectInstance {
+
+	/**
+	 * The state whose values this object views.
+	 */
+	protected PackedState					state;
+
+	/**
+	 * The index of this object in the state's schema.
+	 */
+	protected int							index;
+
+
+	/**
+	 * Initializes.
+	 * @param state the state whose values this object views
+	 * @param index the index of this object in the state's schema
+	 */
+	public PackedObjectInstance(PackedState state, int index){
+		this.state = state;
+		this.index = index;
+	}
+
+
+	/**
+	 * Returns the state whose values this object views.
+	 * @return the state whose values this object views.
+	 */
+	public PackedState getState(){
+		return this.state;
+	}
+
+
+	/**
+	 * Returns the index of this object in its state's schema.
+	 * @return the index of this object in its state's schema.
+	 */
+	public int getIndex(){
+		return this.index;
+	}
+
+
+	/**
+	 * Returns a {@link burlap.oomdp.core.objects.MutableObjectInstance} with the same name, class and values as this object.
+	 * @return a {@link burlap.oomdp.core.objects.MutableObjectInstance} copy of this object.
+	 */
+	@Override
+	public MutableObjectInstance copy() {
+		MutableObjectInstance o = new MutableObjectInstance(this.getObjectClass(), this.getName());
+		for(int i = 0; i < this.numValues(); i++){
+			o.replaceValue(i, this.valueAt(i));
+		}
+		return o;
+	}
+
+	@Override
+	public ObjectInstance setName(String name) {
+		throw new RuntimeException("Cannot rename objects of a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, String v) {
+		int ind = this.attributeIndex(attName);
+		return this.store(ind, this.getObjectClass().attributeList.get(ind).valueConstructor().setValue(v));
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, double v) {
+		int ind = this.attributeIndex(attName);
+		if(this.schema().isReal(this.index, ind)){
+			this.state.setReal(this.index, ind, v);
+		}
+		else{
+			this.state.setInt(this.index, ind, (int)v);
+		}
+		return this;
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, int v) {
+		int ind = this.attributeIndex(attName);
+		if(this.schema().isReal(this.index, ind)){
+			this.state.setReal(this.index, ind, v);
+		}
+		else{
+			this.state.setInt(this.index, ind, v);
+		}
+		return this;
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, boolean v) {
+		int ind = this.attributeIndex(attName);
+		return this.store(ind, this.getObjectClass().attributeList.get(ind).valueConstructor().setValue(v));
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, int[] v) {
+		throw new RuntimeException("PackedObjectInstance does not support int array values.");
+	}
+
+	@Override
+	public ObjectInstance setValue(String attName, double[] v) {
+		throw new RuntimeException("PackedObjectInstance does not support double array values.");
+	}
+
+	@Override
+	public ObjectInstance addRelationalTarget(String attName, String target) {
+		throw new RuntimeException("PackedObjectInstance does not support relational values.");
+	}
+
+	@Override
+	public ObjectInstance addAllRelationalTargets(String attName, Collection<String> targets) {
+		throw new RuntimeException("PackedObjectInstance does not support relational values.");
+	}
+
+	@Override
+	public ObjectInstance clearRelationalTargets(String attName) {
+		throw new RuntimeException("PackedObjectInstance does not support relational values.");
+	}
+
+	@Override
+	public ObjectInstance removeRelationalTarget(String attName, String target) {
+		throw new RuntimeException("PackedObjectInstance does not support relational values.");
+	}
+
+	@Override
+	public String getName() {
+		return this.schema().objectName(this.index);
+	}
+
+	@Override
+	public ObjectClass getObjectClass() {
+		return this.schema().objectClass(this.index);
+	}
+
+	@Override
+	public String getClassName() {
+		return this.getObjectClass().name;
+	}
+
+	@Override
+	public Value getValueForAttribute(String attName) {
+		return this.valueAt(this.attributeIndex(attName));
+	}
+
+	@Override
+	public double getRealValForAttribute(String attName) {
+		int ind = this.attributeIndex(attName);
+		if(this.schema().isReal(this.index, ind)){
+			double v = this.state.getReal(this.index, ind);
+			if(Double.isNaN(v)){
+				throw new UnsetValueException();
+			}
+			return v;
+		}
+		return this.valueAt(ind).getRealVal();
+	}
+
+	@Override
+	public double getNumericValForAttribute(String attName) {
+		int ind = this.attributeIndex(attName);
+		this.checkSet(ind);
+		return this.state.getNumeric(this.index, ind);
+	}
+
+	@Override
+	public String getStringValForAttribute(String attName) {
+		return this.valueAt(this.attributeIndex(attName)).getStringVal();
+	}
+
+	@Override
+	public int getIntValForAttribute(String attName) {
+		int ind = this.attributeIndex(attName);
+		if(!this.schema().isReal(this.index, ind)){
+			this.checkSet(ind);
+			return this.state.getInt(this.index, ind);
+		}
+		return this.valueAt(ind).getDiscVal();
+	}
+
+	@Override
+	public Set<String> getAllRelationalTargets(String attName) {
+		return this.valueAt(this.attributeIndex(attName)).getAllRelationalTargets();
+	}
+
+	@Override
+	public boolean getBooleanValForAttribute(String attName) {
+		int ind = this.attributeIndex(attName);
+		if(!this.schema().isReal(this.index, ind)){
+			return this.state.getInt(this.index, ind) != 0;
+		}
+		return this.valueAt(ind).getBooleanValue();
+	}
+
+	@Override
+	public int[] getIntArrayValForAttribute(String attName) {
+		return this.valueAt(this.attributeIndex(attName)).getIntArray();
+	}
+
+	@Override
+	public double[] getDoubleArrayValForAttribute(String attName) {
+		return this.valueAt(this.attributeIndex(attName)).getDoubleArray();
+	}
+
+	@Override
+	public List<Value> getValues() {
+		int n = this.numValues();
+		List<Value> values = new ArrayList<Value>(n);
+		for(int i = 0; i < n; i++){
+			values.add(this.valueAt(i));
+		}
+		return values;
+	}
+
+	@Override
+	public List<String> unsetAttributes() {
+		LinkedList<String> unsetAtts = new LinkedList<String>();
+		for(int i = 0; i < this.numValues(); i++){
+			if(!this.isSet(i)){
+				unsetAtts.add(this.getObjectClass().attributeList.get(i).name);
+			}
+		}
+		return unsetAtts;
+	}
+
+	@Override
+	public StringBuilder buildObjectDescription(StringBuilder builder) {
+		builder = builder.append(this.getName()).append(" (").append(this.getClassName()).append(")");
+		for(int i = 0; i < this.numValues(); i++){
+			Value v = this.valueAt(i);
+			builder = builder.append("\n\t").append(v.attName()).append(":\t");
+			builder = v.buildStringVal(builder);
+		}
+		return builder;
+	}
+
+	@Override
+	public String getObjectDescriptionWithNullForUnsetAttributes() {
+		StringBuilder builder = new StringBuilder();
+		builder = builder.append(this.getName()).append(" (").append(this.getClassName()).append(")\n");
+		for(int i = 0; i < this.numValues(); i++){
+			Value v = this.valueAt(i);
+			builder = builder.append("\t").append(v.attName()).append(":\t");
+			if(v.valueHasBeenSet()){
+				builder = v.buildStringVal(builder).append("\n");
+			}
+			else{
+				builder = builder.append("null\n");
+			}
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public double[] getFeatureVec() {
+		double [] obsFeatureVec = new double[this.numValues()];
+		for(int i = 0; i < obsFeatureVec.length; i++){
+			this.checkSet(i);
+			obsFeatureVec[i] = this.state.getNumeric(this.index, i);
+		}
+		return obsFeatureVec;
+	}
+
+	@Override
+	public double[] getNormalizedFeatureVec() {
+		double [] obsFeatureVec = new double[this.numValues()];
+		for(int i = 0; i < obsFeatureVec.length; i++){
+			Attribute a = this.getObjectClass().attributeList.get(i);
+			if(a.type != AttributeType.REAL && a.type != AttributeType.INT){
+				throw new RuntimeException("Cannot get a normalized numeric value for attribute " + a.name + " because it is not a REAL or INT type.");
+			}
+			this.checkSet(i);
+			double dv = this.state.getNumeric(this.index, i);
+			obsFeatureVec[i] = (dv - a.lowerLim) / (a.upperLim - a.lowerLim);
+		}
+		return obsFeatureVec;
+	}
+
+	@Override
+	public boolean valueEquals(ObjectInstance obj) {
+		if(obj instanceof OOMDPObjectInstance){
+			return this.valuesEqual((OOMDPObjectInstance)obj);
+		}
+		if(!this.getClassName().equals(obj.getClassName())){
+			return false;
+		}
+		for(int i = 0; i < this.numValues(); i++){
+			Value v = this.valueAt(i);
+			if(!v.equals(obj.getValueForAttribute(v.attName()))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Compares the stored values directly when the other object is a {@link burlap.oomdp.core.objects.PackedObjectInstance} of a state with the same schema.
+	 * @param other the object with which to compare
+	 * @return true if this object and other have the same object class and equal values; false otherwise.
+	 */
+	@Override
+	public boolean valuesEqual(OOMDPObjectInstance other) {
+		if(!(other instanceof PackedObjectInstance) || ((PackedObjectInstance)other).schema() != this.schema()){
+			return super.valuesEqual(other);
+		}
+		PackedObjectInstance po = (PackedObjectInstance)other;
+		if(this.getObjectClass() != po.getObjectClass() || this.valueHash() != po.valueHash()){
+			return false;
+		}
+		for(int i = 0; i < this.numValues(); i++){
+			if(this.schema().isReal(this.index, i)){
+				//== so that unset (NaN) values are never equal, as with RealValue
+				if(this.state.getReal(this.index, i) != po.state.getReal(po.index, i)){
+					return false;
+				}
+			}
+			else if(this.state.getInt(this.index, i) != po.state.getInt(po.index, i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int valueHash() {
+		return this.state.valueHash(this.index);
+	}
+
+	@Override
+	protected int numValues() {
+		return this.getObjectClass().numAttributes();
+	}
+
+	@Override
+	protected Value valueAt(int index) {
+		Value v = this.getObjectClass().attributeList.get(index).valueConstructor();
+		if(!this.isSet(index)){
+			return v;
+		}
+		if(this.schema().isReal(this.index, index)){
+			return v.setValue(this.state.getReal(this.index, index));
+		}
+		return v.setValue(this.state.getInt(this.index, index));
+	}
+
+
+	@Override
+	public boolean equals(Object obj){
+		if(!(obj instanceof ObjectInstance)){
+			return false;
+		}
+		return this.getName().equals(((ObjectInstance)obj).getName());
+	}
+
+	@Override
+	public int hashCode(){
+		return this.getName().hashCode();
+	}
+
+
+	/**
+	 * Returns the schema of the state.
+	 * @return the schema of the state.
+	 */
+	protected PackedStateSchema schema(){
+		return this.state.getSchema();
+	}
+
+	/**
+	 * Returns the index of the attribute with the given name.
+	 * @param attName the name of the attribute
+	 * @return the index of the attribute.
+	 */
+	protected int attributeIndex(String attName){
+		return this.getObjectClass().attributeIndex(attName);
+	}
+
+	/**
+	 * Returns whether the value of the attribute with the given index is set.
+	 * @param ind the attribute index
+	 * @return true if the value is set; false otherwise.
+	 */
+	protected boolean isSet(int ind){
+		if(this.schema().isReal(this.index, ind)){
+			return !Double.isNaN(this.state.getReal(this.index, ind));
+		}
+		return !this.schema().isUnsettable(this.index, ind) || this.state.getInt(this.index, ind) != -1;
+	}
+
+	/**
+	 * Throws an {@link burlap.oomdp.core.values.UnsetValueException} if the value of the attribute with the given index is not set.
+	 * @param ind the attribute index
+	 */
+	protected void checkSet(int ind){
+		if(!this.isSet(ind)){
+			throw new UnsetValueException();
+		}
+	}
+
+	/**
+	 * Stores the primitive content of a value in the attribute with the given index.
+	 * @param ind the attribute index
+	 * @param v the value to store
+	 * @return this object.
+	 */
+	protected ObjectInstance store(int ind, Value v){
+		if(this.schema().isReal(this.index, ind)){
+			this.state.setReal(this.index, ind, v.valueHasBeenSet() ? v.getRealVal() : Double.NaN);
+		}
+		else{
+			this.state.setInt(this.index, ind, v.valueHasBeenSet() ? v.getDiscVal() : -1);
+		}
+		return this;
+	}
+
+}
@@ -0,0 +1,419 @@
+package burlap.oomdp.core.states;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import burlap.oomdp.core.objects.OOMDPObjectInstance;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.objects.PackedObjectInstance;
+
+
+/**
+ * A {@link burlap.oomdp.core.states.State} for domains whose objects never change, in which the attribute values of all objects are
+ * stored in one int array and one double array laid out by a {@link burlap.oomdp.core.states.PackedStateSchema}. Copies share the arrays
+ * of their source state until either state is modified, at which point the modified state copies them (copy-on-write), so
+ * {@link burlap.oomdp.singleagent.Action#performAction(burlap.oomdp.core.states.State, burlap.oomdp.singleagent.GroundedAction)} allocates a single
+ * copy of the arrays and no {@link burlap.oomdp.core.values.Value} objects. The typed accessors {@link #getInt(int, int)},
+ * {@link #getReal(int, int)}, {@link #setInt(int, int, int)} and {@link #setReal(int, int, double)} read and write values directly.
+ * <br/><br/>
+ * The objects of the state are {@link burlap.oomdp.core.objects.PackedObjectInstance} views that read and write this state's arrays, so
+ * code written against the {@link burlap.oomdp.core.objects.ObjectInstance} interface, such as the actions of
+ * {@link burlap.domain.singleagent.gridworld.GridWorldDomain}, works unchanged. Each object's value hash
+ * (see {@link burlap.oomdp.core.objects.OOMDPObjectInstance#valueHash()}) is maintained as values are set. Because the set of objects
+ * is fixed by the schema, methods that add, remove or rename objects throw a runtime exception.
+ * <br/><br/>
+ * Packed states are created with {@link burlap.oomdp.core.states.PackedStateSchema#pack(State)}.
+ * @author James MacGlashan
+ *
+ */
+public class PackedState extends OOMDPState implements State {
+
+	/**
+	 * The schema defining the objects and the layout of their values.
+	 */
+	protected PackedStateSchema					schema;
+
+	/**
+	 * The values of int, discrete and boolean attributes.
+	 */
+	protected int []							ints;
+
+	/**
+	 * The values of real valued attributes.
+	 */
+	protected double []							reals;
+
+	/**
+	 * The value hash of each object.
+	 */
+	protected int []							valueHashes;
+
+	/**
+	 * Whether the value arrays may be shared with another state, in which case they are copied before they are modified.
+	 * Volatile because a state may be copied on a different thread than the one that later modifies it; once set, it is only
+	 * cleared by the owning thread after it copies the arrays.
+	 */
+	protected volatile boolean					shared;
+
+	/**
+	 * The object views of this state; created lazily.
+	 */
+	protected PackedObjectInstance []			objects;
+
+
+	/**
+	 * Initializes. The arrays are used directly, not copied.
+	 * @param schema the schema defining the objects and the layout of their values
+	 * @param ints the values of int, discrete and boolean attributes
+	 * @param reals the values of real valued attributes
+	 * @param valueHashes the value hash of each object
+	 */
+	protected PackedState(PackedStateSchema schema, int [] ints, double [] reals, int [] valueHashes){
+		this.schema = schema;
+		this.ints = ints;
+		this.reals = reals;
+		this.valueHashes = valueHashes;
+	}
+
+
+	/**
+	 * Returns a copy of this state that shares its value arrays with this state until either is modified.
+	 * @return a copy of this state.
+	 */
+	@Override
+	public PackedState copy(){
+		if(!this.shared){
+			this.shared = true;
+		}
+		PackedState c = new PackedState(this.schema, this.ints, this.reals, this.valueHashes);
+		c.shared = true;
+		return c;
+	}
+
+
+	/**
+	 * Returns the schema of this state.
+	 * @return the schema of this state.
+	 */
+	public PackedStateSchema getSchema(){
+		return this.schema;
+	}
+
+
+	/**
+	 * Returns the value of an int, discrete or boolean attribute. Unset discrete and boolean values are -1.
+	 * @param object the object index in the schema
+	 * @param attribute the attribute index in the object's class
+	 * @return the value of the attribute.
+	 */
+	public int getInt(int object, int attribute){
+		return this.ints[this.schema.slots[object][attribute]];
+	}
+
+
+	/**
+	 * Returns the value of a real valued attribute. Unset values are NaN.
+	 * @param object the object index in the schema
+	 * @param attribute the attribute index in the object's class
+	 * @return the value of the attribute.
+	 */
+	public double getReal(int object, int attribute){
+		return this.reals[this.schema.slots[object][attribute]];
+	}
+
+
+	/**
+	 * Returns the value of an attribute as a double, regardless of whether it is stored as an int or double.
+	 * @param object the object index in the schema
+	 * @param attribute the attribute index in the object's class
+	 * @return the value of the attribute.
+	 */
+	public double getNumeric(int object, int attribute){
+		int slot = this.schema.slots[object][attribute];
+		return this.schema.real[object][attribute] ? this.reals[slot] : this.ints[slot];
+	}
+
+
+	/**
+	 * Sets the value of an int, discrete or boolean attribute.
+	 * @param object the object index in the schema
+	 * @param attribute the attribute index in the object's class
+	 * @param v the new value
+	 */
+	public void setInt(int object, int attribute, int v){
+		int slot = this.schema.slots[object][attribute];
+		int old = this.ints[slot];
+		if(old == v){
+			return;
+		}
+		this.ensureOwned();
+		this.ints[slot] = v;
+		this.valueHashes[object] += OOMDPObjectInstance.attributeContentHash(attribute, this.schema.intContentHash(object, attribute, v))
+				- OOMDPObjectInstance.attributeContentHash(attribute, this.schema.intContentHash(object, attribute, old));
+	}
+
+
+	/**
+	 * Sets the value of a real valued attribute.
+	 * @param object the object index in the schema
+	 * @param attribute the attribute index in the object's class
+	 * @param v the new value
+	 */
+	public void setReal(int object, int attribute, double v){
+		int slot = this.schema.slots[object][attribute];
+		double old = this.reals[slot];
+		if(Double.doubleToLongBits(old) == Double.doubleToLongBits(v)){
+			return;
+		}
+		this.ensureOwned();
+		this.reals[slot] = v;
+		this.valueHashes[object] += OOMDPObjectInstance.attributeContentHash(attribute, this.schema.realContentHash(v))
+				- OOMDPObjectInstance.attributeContentHash(attribute, this.schema.realContentHash(old));
+	}
+
+
+	/**
+	 * Returns the value hash of an object.
+	 * @param object the object index in the schema
+	 * @return the value hash of the object.
+	 */
+	public int valueHash(int object){
+		return this.valueHashes[object];
+	}
+
+
+	/**
+	 * Returns whether the values of this state are identical to those of another state with the same schema.
+	 * @param other the state with which to compare
+	 * @return true if other has the same schema and identical values; false otherwise.
+	 */
+	public boolean valuesIdentical(PackedState other){
+		if(this == other){
+			return true;
+		}
+		if(this.schema != other.schema){
+			return false;
+		}
+		if(this.ints != other.ints && !Arrays.equals(this.ints, other.ints)){
+			return false;
+		}
+		//compares bit patterns, so unset (NaN) values are identical to each other
+		if(this.reals != other.reals && !Arrays.equals(this.reals, other.reals)){
+			return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Copies the value arrays if they may be shared with another state.
+	 */
+	protected void ensureOwned(){
+		if(this.shared){
+			this.ints = this.ints.clone();
+			this.reals = this.reals.clone();
+			this.valueHashes = this.valueHashes.clone();
+			this.shared = false;
+		}
+	}
+
+
+	/**
+	 * Returns the object view for the object with the given index.
+	 * @param object the object index in the schema
+	 * @return the object view.
+	 */
+	public PackedObjectInstance getObject(int object){
+		if(this.objects == null){
+			this.objects = new PackedObjectInstance[this.schema.numObjects()];
+		}
+		PackedObjectInstance o = this.objects[object];
+		if(o == null){
+			o = new PackedObjectInstance(this, object);
+			this.objects[object] = o;
+		}
+		return o;
+	}
+
+
+	/**
+	 * Returns a {@link burlap.oomdp.core.states.MutableState} whose objects are the object views of this state. Changes to the values
+	 * of its objects change this state.
+	 * @return a {@link burlap.oomdp.core.states.MutableState} containing this state's object views.
+	 */
+	protected MutableState objectView(){
+		MutableState s = new MutableState();
+		for(int i = 0; i < this.schema.numObjects(); i++){
+			s.addObject(this.getObject(i));
+		}
+		return s;
+	}
+
+
+	@Override
+	public State addObject(ObjectInstance o) {
+		throw new RuntimeException("Cannot add objects to a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public State addAllObjects(Collection<ObjectInstance> objects) {
+		throw new RuntimeException("Cannot add objects to a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public State removeObject(String oname) {
+		throw new RuntimeException("Cannot remove objects from a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public State removeObject(ObjectInstance o) {
+		throw new RuntimeException("Cannot remove objects from a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public State removeAllObjects(Collection<ObjectInstance> objects) {
+		throw new RuntimeException("Cannot remove objects from a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public State renameObject(ObjectInstance o, String newName) {
+		throw new RuntimeException("Cannot rename objects of a PackedState; its objects are fixed by its PackedStateSchema.");
+	}
+
+	@Override
+	public Map<String, String> getObjectMatchingTo(State so, boolean enforceStateExactness) {
+		return this.objectView().getObjectMatchingTo(so, enforceStateExactness);
+	}
+
+	@Override
+	public int numTotalObjects() {
+		return this.schema.numObjects();
+	}
+
+	@Override
+	public ObjectInstance getObject(String oname) {
+		int ind = this.schema.objectIndex(oname);
+		if(ind == -1){
+			return null;
+		}
+		return this.getObject(ind);
+	}
+
+	@Override
+	public List<ObjectInstance> getAllObjects() {
+		int n = this.schema.numObjects();
+		List<ObjectInstance> obs = new ArrayList<ObjectInstance>(n);
+		for(int i = 0; i < n; i++){
+			obs.add(this.getObject(i));
+		}
+		return obs;
+	}
+
+	@Override
+	public List<ObjectInstance> getObjectsOfClass(String oclass) {
+		int [] inds = this.schema.objectsOfClass(oclass);
+		if(inds == null){
+			return new ArrayList<ObjectInstance>();
+		}
+		List<ObjectInstance> obs = new ArrayList<ObjectInstance>(inds.length);
+		for(int i : inds){
+			obs.add(this.getObject(i));
+		}
+		return obs;
+	}
+
+	@Override
+	public ObjectInstance getFirstObjectOfClass(String oclass) {
+		int [] inds = this.schema.objectsOfClass(oclass);
+		if(inds == null){
+			return null;
+		}
+		return this.getObject(inds[0]);
+	}
+
+	@Override
+	public Set<String> getObjectClassesPresent() {
+		return new LinkedHashSet<String>(this.schema.objectClassNames());
+	}
+
+	@Override
+	public List<List<ObjectInstance>> getAllObjectsByClass() {
+		List<String> classes = this.schema.objectClassNames();
+		List<List<ObjectInstance>> obs = new ArrayList<List<ObjectInstance>>(classes.size());
+		for(String c : classes){
+			obs.add(this.getObjectsOfClass(c));
+		}
+		return obs;
+	}
+
+	@Override
+	public String getCompleteStateDescription() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < this.schema.numObjects(); i++){
+			this.getObject(i).buildObjectDescription(builder).append("\n");
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public Map<String, List<String>> getAllUnsetAttributes() {
+		Map<String, List<String>> unset = new HashMap<String, List<String>>();
+		for(int i = 0; i < this.schema.numObjects(); i++){
+			List<String> unsetA = this.getObject(i).unsetAttributes();
+			if(unsetA.size() > 0){
+				unset.put(this.schema.objectName(i), unsetA);
+			}
+		}
+		return unset;
+	}
+
+	@Override
+	public String getCompleteStateDescriptionWithUnsetAttributesAsNull() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < this.schema.numObjects(); i++){
+			builder.append(this.getObject(i).getObjectDescriptionWithNullForUnsetAttributes()).append("\n");
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public List<List<String>> getPossibleBindingsGivenParamOrderGroups(String[] paramClasses, String[] paramOrderGroups) {
+		return this.objectView().getPossibleBindingsGivenParamOrderGroups(paramClasses, paramOrderGroups);
+	}
+
+
+	@Override
+	public boolean equals(Object other){
+		if(this == other){
+			return true;
+		}
+		if(other instanceof PackedState && ((PackedState)other).schema == this.schema && this.valuesIdentical((PackedState)other)){
+			return true;
+		}
+		if(!(other instanceof State)){
+			return false;
+		}
+		State so = (State)other;
+		if(so.numTotalObjects() != this.numTotalObjects()){
+			return false;
+		}
+		return this.getObjectMatchingTo(so, true).size() == this.numTotalObjects();
+	}
+
+
+	@Override
+	public int hashCode(){
+		int h = 0;
+		for(int i = 0; i < this.valueHashes.length; i++){
+			h += 31*this.valueHashes[i] + this.schema.objectClass(i).name.hashCode();
+		}
+		return h;
+	}
+
+}
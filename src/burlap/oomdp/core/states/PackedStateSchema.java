@@ -0,0 +1,368 @@
+package burlap.oomdp.core.states;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.ObjectClass;
+import burlap.oomdp.core.objects.OOMDPObjectInstance;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.values.Value;
+
+
+/**
+ * Defines the fixed set of objects of a {@link burlap.oomdp.core.states.PackedState} and where the value of each of their
+ * attributes is stored. The values of int, discrete and boolean attributes of all objects are stored in a single int array
+ * and the values of real valued attributes in a single double array. The slot of each attribute value is
+ * computed once, when the schema is created, from the object's position in the schema and the attribute's index in its
+ * {@link burlap.oomdp.core.ObjectClass}, so values can be read and written without any map lookups other than resolving
+ * the attribute name.
+ * <br/><br/>
+ * A schema is created from a template state and can then pack any state with objects of the same names and classes
+ * using {@link #pack(burlap.oomdp.core.states.State)}. Attributes of type string, relational, int array or double array are not supported.
+ * A schema may be shared by any number of states.
+ * @author James MacGlashan
+ *
+ */
+public class PackedStateSchema {
+
+	/**
+	 * The names of the objects, in object index order.
+	 */
+	protected String []								objectNames;
+
+	/**
+	 * The object class of each object.
+	 */
+	protected ObjectClass []						objectClasses;
+
+	/**
+	 * Map from object names to object indices.
+	 */
+	protected Map<String, Integer>					objectIndex;
+
+	/**
+	 * Map from object class names to the indices of the objects of that class, in order of first appearance.
+	 */
+	protected Map<String, int []>					objectsByClass;
+
+	/**
+	 * For each object, the slot of each of its attributes in either the int or double array.
+	 */
+	protected int [][]								slots;
+
+	/**
+	 * For each object, whether each of its attributes is stored in the double array.
+	 */
+	protected boolean [][]							real;
+
+	/**
+	 * For each object, whether each of its int attributes uses -1 to indicate that the value is unset (discrete and boolean attributes).
+	 */
+	protected boolean [][]							unsettable;
+
+	/**
+	 * The size of the int array.
+	 */
+	protected int									numInts;
+
+	/**
+	 * The size of the double array.
+	 */
+	protected int									numReals;
+
+
+	/**
+	 * Initializes with the objects of a template state, in the order returned by {@link burlap.oomdp.core.states.State#getAllObjects()}.
+	 * Only the names and object classes of the template's objects are used.
+	 * @param template the state defining the objects of this schema
+	 */
+	public PackedStateSchema(State template){
+
+		List<ObjectInstance> objects = template.getAllObjects();
+		int n = objects.size();
+
+		this.objectNames = new String[n];
+		this.objectClasses = new ObjectClass[n];
+		this.objectIndex = new HashMap<String, Integer>(n*2);
+		this.slots = new int[n][];
+		this.real = new boolean[n][];
+		this.unsettable = new boolean[n][];
+
+		Map<String, List<Integer>> byClass = new LinkedHashMap<String, List<Integer>>();
+		Map<ObjectClass, boolean[]> realByClass = new IdentityHashMap<ObjectClass, boolean[]>();
+		Map<ObjectClass, boolean[]> unsettableByClass = new IdentityHashMap<ObjectClass, boolean[]>();
+
+		for(int i = 0; i < n; i++){
+
+			ObjectInstance o = objects.get(i);
+			ObjectClass oc = o.getObjectClass();
+			this.objectNames[i] = o.getName();
+			this.objectClasses[i] = oc;
+			this.objectIndex.put(o.getName(), i);
+
+			List<Integer> classObjects = byClass.get(oc.name);
+			if(classObjects == null){
+				classObjects = new ArrayList<Integer>();
+				byClass.put(oc.name, classObjects);
+			}
+			classObjects.add(i);
+
+			boolean [] classReal = realByClass.get(oc);
+			if(classReal == null){
+				classReal = new boolean[oc.numAttributes()];
+				boolean [] classUnsettable = new boolean[oc.numAttributes()];
+				for(int j = 0; j < classReal.length; j++){
+					Attribute att = oc.attributeList.get(j);
+					if(att.type == Attribute.AttributeType.REAL || att.type == Attribute.AttributeType.REALUNBOUND){
+						classReal[j] = true;
+					}
+					else if(att.type == Attribute.AttributeType.DISC || att.type == Attribute.AttributeType.BOOLEAN){
+						classUnsettable[j] = true;
+					}
+					else if(att.type != Attribute.AttributeType.INT){
+						throw new RuntimeException("PackedStateSchema only supports int, discrete, boolean and real valued attributes; attribute " +
+								att.name + " of object class " + oc.name + " is of type " + att.type);
+					}
+				}
+				realByClass.put(oc, classReal);
+				unsettableByClass.put(oc, classUnsettable);
+			}
+			this.real[i] = classReal;
+			this.unsettable[i] = unsettableByClass.get(oc);
+
+			int [] objectSlots = new int[classReal.length];
+			for(int j = 0; j < classReal.length; j++){
+				objectSlots[j] = classReal[j] ? this.numReals++ : this.numInts++;
+			}
+			this.slots[i] = objectSlots;
+
+		}
+
+		this.objectsByClass = new LinkedHashMap<String, int[]>(byClass.size()*2);
+		for(Map.Entry<String, List<Integer>> e : byClass.entrySet()){
+			int [] inds = new int[e.getValue().size()];
+			for(int i = 0; i < inds.length; i++){
+				inds[i] = e.getValue().get(i);
+			}
+			this.objectsByClass.put(e.getKey(), inds);
+		}
+
+	}
+
+
+	/**
+	 * Returns a {@link burlap.oomdp.core.states.PackedState} with the same values as the given state, which must contain an object with
+	 * the same name and object class for each object of this schema, and no other objects.
+	 * @param s the state to pack
+	 * @return a {@link burlap.oomdp.core.states.PackedState} with the same values as s.
+	 */
+	public PackedState pack(State s){
+
+		if(s.numTotalObjects() != this.objectNames.length){
+			throw new RuntimeException("Cannot pack state with " + s.numTotalObjects() + " objects into a PackedStateSchema with " + this.objectNames.length + " objects.");
+		}
+
+		int [] ints = new int[this.numInts];
+		double [] reals = new double[this.numReals];
+		int [] hashes = new int[this.objectNames.length];
+
+		for(int i = 0; i < this.objectNames.length; i++){
+			ObjectInstance o = s.getObject(this.objectNames[i]);
+			if(o == null || o.getObjectClass() != this.objectClasses[i]){
+				throw new RuntimeException("Cannot pack state; it does not have an object named " + this.objectNames[i] + " of class " + this.objectClasses[i].name);
+			}
+			List<Value> values = o.getValues();
+			int [] objectSlots = this.slots[i];
+			for(int j = 0; j < objectSlots.length; j++){
+				Value v = values.get(j);
+				if(this.real[i][j]){
+					reals[objectSlots[j]] = v.valueHasBeenSet() ? v.getRealVal() : Double.NaN;
+				}
+				else{
+					ints[objectSlots[j]] = v.valueHasBeenSet() ? v.getDiscVal() : -1;
+				}
+			}
+			hashes[i] = this.computeValueHash(i, ints, reals);
+		}
+
+		return new PackedState(this, ints, reals, hashes);
+	}
+
+
+	/**
+	 * Returns a {@link burlap.oomdp.core.states.PackedState} for this schema with every discrete, boolean and real value unset and every int value 0.
+	 * @return a new {@link burlap.oomdp.core.states.PackedState} with unset values.
+	 */
+	public PackedState newState(){
+		int [] ints = new int[this.numInts];
+		double [] reals = new double[this.numReals];
+		int [] hashes = new int[this.objectNames.length];
+		for(int i = 0; i < this.objectNames.length; i++){
+			for(int j = 0; j < this.slots[i].length; j++){
+				if(this.real[i][j]){
+					reals[this.slots[i][j]] = Double.NaN;
+				}
+				else if(this.unsettable[i][j]){
+					ints[this.slots[i][j]] = -1;
+				}
+			}
+			hashes[i] = this.computeValueHash(i, ints, reals);
+		}
+		return new PackedState(this, ints, reals, hashes);
+	}
+
+
+	/**
+	 * Returns the number of objects.
+	 * @return the number of objects.
+	 */
+	public int numObjects(){
+		return this.objectNames.length;
+	}
+
+	/**
+	 * Returns the index of the object with the given name, or -1 if there is no such object.
+	 * @param oname the name of the object
+	 * @return the index of the object with the given name, or -1 if there is no such object.
+	 */
+	public int objectIndex(String oname){
+		Integer ind = this.objectIndex.get(oname);
+		if(ind == null){
+			return -1;
+		}
+		return ind;
+	}
+
+	/**
+	 * Returns the name of the object with the given index.
+	 * @param object the object index
+	 * @return the name of the object.
+	 */
+	public String objectName(int object){
+		return this.objectNames[object];
+	}
+
+	/**
+	 * Returns the object class of the object with the given index.
+	 * @param object the object index
+	 * @return the object class of the object.
+	 */
+	public ObjectClass objectClass(int object){
+		return this.objectClasses[object];
+	}
+
+	/**
+	 * Returns the indices of the objects of the given class, or null if there are none. The returned array must not be modified.
+	 * @param oclass the name of the object class
+	 * @return the indices of the objects of the given class, or null if there are none.
+	 */
+	public int [] objectsOfClass(String oclass){
+		return this.objectsByClass.get(oclass);
+	}
+
+	/**
+	 * Returns the names of the object classes that have objects, in order of first appearance.
+	 * @return the names of the object classes that have objects.
+	 */
+	public List<String> objectClassNames(){
+		return new ArrayList<String>(this.objectsByClass.keySet());
+	}
+
+	/**
+	 * Returns the slot in the int or double array of an object's attribute.
+	 * @param object the object index
+	 * @param attribute the attribute index in the object's class
+	 * @return the slot of the attribute value.
+	 */
+	public int slot(int object, int attribute){
+		return this.slots[object][attribute];
+	}
+
+	/**
+	 * Returns whether an object's attribute is stored in the double array.
+	 * @param object the object index
+	 * @param attribute the attribute index in the object's class
+	 * @return true if the attribute is real valued; false if it is stored in the int array.
+	 */
+	public boolean isReal(int object, int attribute){
+		return this.real[object][attribute];
+	}
+
+	/**
+	 * Returns whether an object's attribute is a discrete or boolean attribute, for which a value of -1 indicates that it is unset.
+	 * @param object the object index
+	 * @param attribute the attribute index in the object's class
+	 * @return true if a value of -1 indicates the attribute is unset; false otherwise.
+	 */
+	public boolean isUnsettable(int object, int attribute){
+		return this.unsettable[object][attribute];
+	}
+
+	/**
+	 * Returns the size of the int array of a state.
+	 * @return the size of the int array of a state.
+	 */
+	public int numInts(){
+		return this.numInts;
+	}
+
+	/**
+	 * Returns the size of the double array of a state.
+	 * @return the size of the double array of a state.
+	 */
+	public int numReals(){
+		return this.numReals;
+	}
+
+
+	/**
+	 * Returns the hash code of the content of an int attribute value, consistent with {@link burlap.oomdp.core.objects.OOMDPObjectInstance#valueHash()}.
+	 * @param object the object index
+	 * @param attribute the attribute index
+	 * @param v the stored value
+	 * @return the hash code of the value's content.
+	 */
+	protected int intContentHash(int object, int attribute, int v){
+		if(v == -1 && this.unsettable[object][attribute]){
+			return 0;
+		}
+		return v;
+	}
+
+
+	/**
+	 * Returns the hash code of the content of a real attribute value, consistent with {@link burlap.oomdp.core.objects.OOMDPObjectInstance#valueHash()}.
+	 * @param v the stored value
+	 * @return the hash code of the value's content.
+	 */
+	protected int realContentHash(double v){
+		if(Double.isNaN(v)){
+			return 0;
+		}
+		return OOMDPObjectInstance.doubleHash(v);
+	}
+
+
+	/**
+	 * Computes the value hash of an object from the stored values.
+	 * @param object the object index
+	 * @param ints the int values
+	 * @param reals the double values
+	 * @return the value hash of the object.
+	 */
+	protected int computeValueHash(int object, int [] ints, double [] reals){
+		int h = 0;
+		int [] objectSlots = this.slots[object];
+		for(int j = 0; j < objectSlots.length; j++){
+			int ch = this.real[object][j] ? this.realContentHash(reals[objectSlots[j]]) : this.intContentHash(object, j, ints[objectSlots[j]]);
+			h += OOMDPObjectInstance.attributeContentHash(j, ch);
+		}
+		return h;
+	}
+
+}
@@ -61,7 +61,7 @@ public interface FullActionModel {
 			}
 
 			List<TransitionProbability> tps = action.getTransitions(previousState);
-			double roll = RandomFactory.getMapped(0).nextDouble();
+			double roll = RandomFactory.getStream(RandomFactory.DOMAINSTREAM).nextDouble();
 			double sum = 0.;
 			for(TransitionProbability tp : tps){
 				sum += tp.p;
@@ -0,0 +1,19 @@
+package burlap.oomdp.singleagent.environment;
+
+
+/**
+ * A factory interface for generating {@link burlap.oomdp.singleagent.environment.Environment} instances. This is useful
+ * when independent copies of an environment are needed, such as when learning trials are run concurrently and each
+ * must interact with its own environment.
+ * @author James MacGlashan
+ *
+ */
+public interface EnvironmentFactory {
+
+	/**
+	 * Generates a new {@link burlap.oomdp.singleagent.environment.Environment} that does not share any mutable state with
+	 * previously generated environments.
+	 * @return a new {@link burlap.oomdp.singleagent.environment.Environment}
+	 */
+	public Environment generateEnvironment();
+}
@@ -1,5 +1,6 @@
 package burlap.oomdp.singleagent.environment;
 
+import burlap.debugtools.RandomFactory;
 import burlap.oomdp.auxiliary.StateGenerator;
 import burlap.oomdp.auxiliary.common.ConstantStateGenerator;
 import burlap.oomdp.core.Domain;
@@ -26,6 +27,11 @@ import burlap.oomdp.singleagent.RewardFunction;
  * In this case, the environment state will have to be manually changed with {@link #resetEnvironment()} or {@link #setCurStateTo(burlap.oomdp.core.states.State)}
  * to a non-terminal state before actions will affect the state again. Alternatively, you can allow actions to affect the state from
  * terminal states with the {@link #setAllowActionFromTerminalStates(boolean)} method.
+ * <br/><br/>
+ * By default, the domain samples transitions and initial states from the random streams of whichever thread interacts with this environment
+ * (see {@link burlap.debugtools.RandomFactory#getStream(String)}). If the environment is given its own
+ * {@link burlap.debugtools.RandomFactory.StreamContext} with {@link #setRandomStreams(long, long)}, all of its sampling is instead
+ * drawn from that context, so the environment's dynamics are reproducible independently of the threads and policies that use it.
  * @author James MacGlashan.
  */
 public class SimulatedEnvironment implements StateSettableEnvironment, TaskSettableEnvironment{
@@ -69,6 +75,12 @@ public class SimulatedEnvironment implements StateSettableEnvironment, TaskSetta
 	 */
 	protected boolean allowActionFromTerminalStates = false;
 
+	/**
+	 * The random stream context from which this environment's transitions and initial states are sampled. If null, the
+	 * context of the calling thread is used.
+	 */
+	protected RandomFactory.StreamContext streamContext = null;
+
 	public SimulatedEnvironment(Domain domain, RewardFunction rf, TerminalFunction tf){
 		this.domain = domain;
 		this.rf = rf;
@@ -132,7 +144,68 @@ public class SimulatedEnvironment implements StateSettableEnvironment, TaskSetta
 	 * @param allowActionFromTerminalStates if false, then actions are not allowed from terminal states; if true, then they are allowed.
 	 */
 	public void setAllowActionFromTerminalStates(boolean allowActionFromTerminalStates){
-		this.allowActionFromTerminalStates = true;
+		this.allowActionFromTerminalStates = allowActionFromTerminalStates;
+	}
+
+	/**
+	 * Returns whether the environment will respond to actions from a terminal state.
+	 * @return true if actions are carried out from terminal states; false if they are ignored.
+	 */
+	public boolean getAllowActionFromTerminalStates(){
+		return this.allowActionFromTerminalStates;
+	}
+
+
+	/**
+	 * Gives this environment its own random stream context for the given experiment seed and trial, from which all of its transitions and
+	 * initial states are subsequently sampled.
+	 * @param experimentSeed the seed of the experiment
+	 * @param trial the index of the trial in the experiment
+	 */
+	public void setRandomStreams(long experimentSeed, long trial){
+		this.streamContext = new RandomFactory.StreamContext(experimentSeed, trial);
+	}
+
+	/**
+	 * Sets the random stream context from which this environment's transitions and initial states are sampled.
+	 * @param streamContext the stream context to use; if null, the context of the calling thread is used.
+	 */
+	public void setStreamContext(RandomFactory.StreamContext streamContext){
+		this.streamContext = streamContext;
+	}
+
+	/**
+	 * Returns the random stream context from which this environment's transitions and initial states are sampled.
+	 * @return the stream context of this environment; null if the context of the calling thread is used.
+	 */
+	public RandomFactory.StreamContext getStreamContext(){
+		return this.streamContext;
+	}
+
+
+	/**
+	 * Returns an {@link EnvironmentFactory} that generates new {@link SimulatedEnvironment}s with this environment's domain, reward function,
+	 * terminal function, state generator and terminal state action setting, so that independent copies of this environment can be used
+	 * concurrently. This environment must have a state generator.
+	 * @return an {@link EnvironmentFactory} that generates copies of this environment.
+	 */
+	public EnvironmentFactory copyFactory(){
+		if(this.stateGenerator == null){
+			throw new RuntimeException("Only a SimulatedEnvironment that has a state generator can be copied.");
+		}
+		final Domain domain = this.domain;
+		final RewardFunction rf = this.rf;
+		final TerminalFunction tf = this.tf;
+		final StateGenerator stateGenerator = this.stateGenerator;
+		final boolean allowActionFromTerminalStates = this.allowActionFromTerminalStates;
+		return new EnvironmentFactory() {
+			@Override
+			public Environment generateEnvironment() {
+				SimulatedEnvironment env = new SimulatedEnvironment(domain, rf, tf, stateGenerator);
+				env.setAllowActionFromTerminalStates(allowActionFromTerminalStates);
+				return env;
+			}
+		};
 	}
 
 	@Override
@@ -158,7 +231,12 @@ public class SimulatedEnvironment implements StateSettableEnvironment, TaskSetta
 		}
 		State nextState;
 		if(this.allowActionFromTerminalStates || !this.isInTerminalState()) {
-			nextState = simGA.executeIn(this.curState);
+			RandomFactory.StreamContext threadContext = this.enterStreamContext();
+			try{
+				nextState = simGA.executeIn(this.curState);
+			} finally{
+				this.exitStreamContext(threadContext);
+			}
 			this.lastReward = this.rf.reward(this.curState, simGA, nextState);
 		}
 		else{
@@ -186,6 +264,33 @@ public class SimulatedEnvironment implements StateSettableEnvironment, TaskSetta
 	@Override
 	public void resetEnvironment() {
 		this.lastReward = 0.;
-		this.curState = stateGenerator.generateState();
+		RandomFactory.StreamContext threadContext = this.enterStreamContext();
+		try{
+			this.curState = stateGenerator.generateState();
+		} finally{
+			this.exitStreamContext(threadContext);
+		}
+	}
+
+
+	/**
+	 * Makes this environment's stream context, if it has one, the context of the calling thread.
+	 * @return the previous context of the calling thread; null if this environment does not have its own context.
+	 */
+	protected RandomFactory.StreamContext enterStreamContext(){
+		if(this.streamContext == null){
+			return null;
+		}
+		return RandomFactory.setThreadContext(this.streamContext);
+	}
+
+	/**
+	 * Restores the context of the calling thread returned by {@link #enterStreamContext()}.
+	 * @param threadContext the previous context of the calling thread; null if this environment does not have its own context.
+	 */
+	protected void exitStreamContext(RandomFactory.StreamContext threadContext){
+		if(threadContext != null){
+			RandomFactory.setThreadContext(threadContext);
+		}
 	}
 }
@@ -0,0 +1,451 @@
+package burlap.oomdp.singleagent.pomdp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import burlap.behavior.singleagent.auxiliary.StateEnumerator;
+import burlap.oomdp.core.AbstractGroundedAction;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.TransitionProbability;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * A flat, array based compilation of a finite {@link burlap.oomdp.singleagent.pomdp.PODomain} for algorithms that operate on dense
+ * belief vectors. States are indexed by the domain's {@link burlap.behavior.singleagent.auxiliary.StateEnumerator}, so the
+ * index of a state is the same as its index in a {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState}
+ * vector, and the enumeration is closed under the transition dynamics when the model is compiled. Actions are the grounded actions
+ * applicable in the first enumerated state and observations are those enumerated by the domain's {@link burlap.oomdp.singleagent.pomdp.ObservationFunction},
+ * which therefore must be able to enumerate its observations. The action set is assumed to be the same in every state.
+ * <br/><br/>
+ * For each action, the transition dynamics are stored in compressed sparse rows (the successor indices and probabilities
+ * of state s are in the range [transitionOffsets[a][s], transitionOffsets[a][s+1])), the expected reward of every state is stored
+ * in a dense vector and the observation probabilities are stored in a dense vector over next states for each observation. Terminal states
+ * have no transitions and zero reward.
+ * <br/><br/>
+ * A compiled model is immutable and may be shared by threads.
+ * @author James MacGlashan
+ *
+ */
+public class CompiledPOMDPModel {
+
+	/**
+	 * The states of the model in enumeration order
+	 */
+	protected List<State>					states;
+
+	/**
+	 * The actions of the model
+	 */
+	protected List<GroundedAction>			actions;
+
+	/**
+	 * The observations of the model
+	 */
+	protected List<State>					observations;
+
+	/**
+	 * The index of each observation
+	 */
+	protected Map<HashableState, Integer>	observationIndex;
+
+	/**
+	 * The hashing factory used to index observations
+	 */
+	protected HashableStateFactory			observationHashingFactory = new SimpleHashableStateFactory();
+
+	/**
+	 * Whether each state is terminal
+	 */
+	protected boolean []					terminal;
+
+	/**
+	 * The expected reward of each action in each state, indexed [action][state]
+	 */
+	protected double [][]					expectedRewards;
+
+	/**
+	 * The offsets of the transitions of each state, indexed [action][state]
+	 */
+	protected int [][]						transitionOffsets;
+
+	/**
+	 * The successor state indices of each action's transitions
+	 */
+	protected int [][]						successors;
+
+	/**
+	 * The probabilities of each action's transitions
+	 */
+	protected double [][]					probabilities;
+
+	/**
+	 * The probability of each observation in each next state, indexed [action][observation][next state]
+	 */
+	protected double [][][]					observationProbabilities;
+
+
+	/**
+	 * Compiles the model of a POMDP domain. The domain must provide a {@link burlap.behavior.singleagent.auxiliary.StateEnumerator}
+	 * with at least one enumerated state, its actions must implement {@link burlap.oomdp.singleagent.FullActionModel} and its observation
+	 * function must be able to enumerate the observations.
+	 * @param domain the POMDP domain
+	 * @param rf the hidden state reward function
+	 * @param tf the hidden state terminal function; may be null if there are no terminal states
+	 */
+	public CompiledPOMDPModel(PODomain domain, RewardFunction rf, TerminalFunction tf){
+
+		if(!domain.providesStateEnumerator()){
+			throw new RuntimeException("A CompiledPOMDPModel requires a PODomain that provides a StateEnumerator.");
+		}
+		StateEnumerator senum = domain.getStateEnumerator();
+		if(senum.numStatesEnumerated() == 0){
+			throw new RuntimeException("A CompiledPOMDPModel requires the StateEnumerator of the PODomain to have enumerated at least one state.");
+		}
+		ObservationFunction of = domain.getObservationFunction();
+		if(!of.canEnumerateObservations()){
+			throw new RuntimeException("A CompiledPOMDPModel requires an ObservationFunction that can enumerate its observations.");
+		}
+
+		this.actions = Action.getAllApplicableGroundedActionsFromActionList(domain.getActions(), senum.getStateForEnumerationId(0));
+		int nA = this.actions.size();
+
+		//enumerate transitions, growing the enumeration until it is closed
+		List<List<List<TransitionProbability>>> transitions = new ArrayList<List<List<TransitionProbability>>>(nA);
+		for(int a = 0; a < nA; a++){
+			transitions.add(new ArrayList<List<TransitionProbability>>());
+		}
+		List<Boolean> terminalList = new ArrayList<Boolean>();
+		this.states = new ArrayList<State>();
+		for(int s = 0; s < senum.numStatesEnumerated(); s++){
+			State state = senum.getStateForEnumerationId(s);
+			this.states.add(state);
+			boolean isTerminal = tf != null && tf.isTerminal(state);
+			terminalList.add(isTerminal);
+			for(int a = 0; a < nA; a++){
+				List<TransitionProbability> tps = isTerminal ? new ArrayList<TransitionProbability>(0) : this.actions.get(a).getTransitions(state);
+				for(TransitionProbability tp : tps){
+					senum.getEnumeratedID(tp.s);
+				}
+				transitions.get(a).add(tps);
+			}
+		}
+
+		int nS = this.states.size();
+		this.terminal = new boolean[nS];
+		for(int s = 0; s < nS; s++){
+			this.terminal[s] = terminalList.get(s);
+		}
+
+		this.expectedRewards = new double[nA][nS];
+		this.transitionOffsets = new int[nA][nS+1];
+		this.successors = new int[nA][];
+		this.probabilities = new double[nA][];
+		for(int a = 0; a < nA; a++){
+			GroundedAction ga = this.actions.get(a);
+			int n = 0;
+			for(int s = 0; s < nS; s++){
+				n += transitions.get(a).get(s).size();
+			}
+			this.successors[a] = new int[n];
+			this.probabilities[a] = new double[n];
+			int t = 0;
+			for(int s = 0; s < nS; s++){
+				this.transitionOffsets[a][s] = t;
+				double r = 0.;
+				for(TransitionProbability tp : transitions.get(a).get(s)){
+					this.successors[a][t] = senum.getEnumeratedID(tp.s);
+					this.probabilities[a][t] = tp.p;
+					r += tp.p * rf.reward(this.states.get(s), ga, tp.s);
+					t++;
+				}
+				this.expectedRewards[a][s] = r;
+			}
+			this.transitionOffsets[a][nS] = t;
+		}
+
+		this.observations = new ArrayList<State>(of.getAllPossibleObservations());
+		int nO = this.observations.size();
+		this.observationIndex = new HashMap<HashableState, Integer>(nO);
+		for(int o = 0; o < nO; o++){
+			this.observationIndex.put(this.observationHashingFactory.hashState(this.observations.get(o)), o);
+		}
+		this.observationProbabilities = new double[nA][nO][nS];
+		for(int a = 0; a < nA; a++){
+			GroundedAction ga = this.actions.get(a);
+			for(int o = 0; o < nO; o++){
+				State obs = this.observations.get(o);
+				for(int sp = 0; sp < nS; sp++){
+					this.observationProbabilities[a][o][sp] = of.getObservationProbability(obs, this.states.get(sp), ga);
+				}
+			}
+		}
+
+	}
+
+
+	public int numStates(){
+		return this.states.size();
+	}
+
+	public int numActions(){
+		return this.actions.size();
+	}
+
+	public int numObservations(){
+		return this.observations.size();
+	}
+
+	public State getState(int s){
+		return this.states.get(s);
+	}
+
+	public GroundedAction getAction(int a){
+		return this.actions.get(a);
+	}
+
+	public State getObservation(int o){
+		return this.observations.get(o);
+	}
+
+	public boolean isTerminal(int s){
+		return this.terminal[s];
+	}
+
+	/**
+	 * Returns the vector of expected rewards of an action in each state. The returned array should not be modified.
+	 * @param a the action index
+	 * @return the vector of expected rewards of the action in each state.
+	 */
+	public double [] getExpectedRewards(int a){
+		return this.expectedRewards[a];
+	}
+
+
+	/**
+	 * Returns the index of an action of this model.
+	 * @param ga the action
+	 * @return the index of the action; -1 if it is not an action of this model.
+	 */
+	public int actionIndex(AbstractGroundedAction ga){
+		for(int a = 0; a < this.actions.size(); a++){
+			if(this.actions.get(a).equals(ga)){
+				return a;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Returns the index of an observation of this model.
+	 * @param observation the observation
+	 * @return the index of the observation; -1 if it is not an observation of this model.
+	 */
+	public int observationIndex(State observation){
+		Integer o = this.observationIndex.get(this.observationHashingFactory.hashState(observation));
+		if(o == null){
+			return -1;
+		}
+		return o;
+	}
+
+
+	/**
+	 * Computes the unnormalized updated belief after taking an action in a belief and receiving an observation:
+	 * result[s'] = O(o | s', a) * sum_s b(s) T(s, a, s'). The sum of the result is the probability of the observation.
+	 * @param b the belief vector
+	 * @param a the action index
+	 * @param o the observation index
+	 * @param result the array into which the unnormalized updated belief is written
+	 * @return the probability of receiving the observation; the sum of the result.
+	 */
+	public double unnormalizedBeliefUpdate(double [] b, int a, int o, double [] result){
+		this.predict(b, a, result);
+		return this.correct(result, a, o, result);
+	}
+
+
+	/**
+	 * Computes the distribution over next states after taking an action in a belief: result[s'] = sum_s b(s) T(s, a, s').
+	 * @param b the belief vector
+	 * @param a the action index
+	 * @param result the array into which the predicted distribution is written
+	 */
+	public void predict(double [] b, int a, double [] result){
+		int [] offsets = this.transitionOffsets[a];
+		int [] succ = this.successors[a];
+		double [] probs = this.probabilities[a];
+		Arrays.fill(result, 0.);
+		for(int s = 0; s < b.length; s++){
+			double bs = b[s];
+			if(bs == 0.){
+				continue;
+			}
+			for(int t = offsets[s]; t < offsets[s+1]; t++){
+				result[succ[t]] += bs * probs[t];
+			}
+		}
+	}
+
+
+	/**
+	 * Weights a predicted next state distribution by the probability of an observation: result[s'] = O(o | s', a) * predicted[s'].
+	 * The result may be the predicted array.
+	 * @param predicted the predicted next state distribution
+	 * @param a the action index
+	 * @param o the observation index
+	 * @param result the array into which the weighted distribution is written
+	 * @return the probability of the observation; the sum of the result.
+	 */
+	public double correct(double [] predicted, int a, int o, double [] result){
+		double [] op = this.observationProbabilities[a][o];
+		double sum = 0.;
+		for(int s = 0; s < predicted.length; s++){
+			double v = op[s] * predicted[s];
+			result[s] = v;
+			sum += v;
+		}
+		return sum;
+	}
+
+
+	/**
+	 * Back projects a vector over next states through an action and observation: result[s] = sum_s' T(s, a, s') O(o | s', a) alpha[s'].
+	 * @param alpha the vector over next states
+	 * @param a the action index
+	 * @param o the observation index
+	 * @param result the array into which the back projected vector is written
+	 */
+	public void backProject(double [] alpha, int a, int o, double [] result){
+		int [] offsets = this.transitionOffsets[a];
+		int [] succ = this.successors[a];
+		double [] probs = this.probabilities[a];
+		double [] op = this.observationProbabilities[a][o];
+		for(int s = 0; s < result.length; s++){
+			double sum = 0.;
+			for(int t = offsets[s]; t < offsets[s+1]; t++){
+				int sp = succ[t];
+				sum += probs[t] * op[sp] * alpha[sp];
+			}
+			result[s] = sum;
+		}
+	}
+
+
+	/**
+	 * Samples a state index from a belief vector.
+	 * @param b the belief vector
+	 * @param rand the random generator to use
+	 * @return a sampled state index
+	 */
+	public int sampleState(double [] b, Random rand){
+		return sampleIndex(b, 0, b.length, null, rand);
+	}
+
+
+	/**
+	 * Samples the next state index after taking an action in a state.
+	 * @param s the state index
+	 * @param a the action index
+	 * @param rand the random generator to use
+	 * @return a sampled next state index; -1 if the state is terminal.
+	 */
+	public int sampleSuccessor(int s, int a, Random rand){
+		int start = this.transitionOffsets[a][s];
+		int end = this.transitionOffsets[a][s+1];
+		if(start == end){
+			return -1;
+		}
+		return sampleIndex(this.probabilities[a], start, end, this.successors[a], rand);
+	}
+
+
+	/**
+	 * Samples an observation index given the next state and the action that led to it.
+	 * @param sp the next state index
+	 * @param a the action index
+	 * @param rand the random generator to use
+	 * @return a sampled observation index
+	 */
+	public int sampleObservation(int sp, int a, Random rand){
+		double roll = rand.nextDouble();
+		double sum = 0.;
+		int last = -1;
+		for(int o = 0; o < this.observations.size(); o++){
+			double p = this.observationProbabilities[a][o][sp];
+			if(p > 0.){
+				sum += p;
+				last = o;
+				if(roll < sum){
+					return o;
+				}
+			}
+		}
+		return last;
+	}
+
+
+	/**
+	 * Samples an index from a range of probabilities.
+	 * @param probs the probabilities
+	 * @param start the first index of the range (inclusive)
+	 * @param end the last index of the range (exclusive)
+	 * @param values the values returned for each index; if null, the index itself is returned
+	 * @param rand the random generator to use
+	 * @return the sampled index or its value
+	 */
+	protected static int sampleIndex(double [] probs, int start, int end, int [] values, Random rand){
+		double roll = rand.nextDouble();
+		double sum = 0.;
+		int last = -1;
+		for(int i = start; i < end; i++){
+			if(probs[i] > 0.){
+				sum += probs[i];
+				last = i;
+				if(roll < sum){
+					break;
+				}
+			}
+		}
+		if(last == -1){
+			throw new RuntimeException("Could not sample from a distribution with no probability mass.");
+		}
+		return values == null ? last : values[last];
+	}
+
+
+	/**
+	 * Returns the dot product of two vectors of the same length. The sum is accumulated in four independent lanes so that the
+	 * loop can be pipelined or vectorized.
+	 * @param a the first vector
+	 * @param b the second vector
+	 * @return the dot product of the vectors
+	 */
+	public static double dot(double [] a, double [] b){
+		int n = a.length;
+		int n4 = n & ~3;
+		double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+		for(int i = 0; i < n4; i += 4){
+			s0 += a[i] * b[i];
+			s1 += a[i+1] * b[i+1];
+			s2 += a[i+2] * b[i+2];
+			s3 += a[i+3] * b[i+3];
+		}
+		for(int i = n4; i < n; i++){
+			s0 += a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+}
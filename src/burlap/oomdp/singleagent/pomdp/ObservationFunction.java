@@ -151,7 +151,7 @@ public abstract class ObservationFunction {
 	 */
 	protected final State sampleObservationByEnumeration(State state, GroundedAction action){
 		List<ObservationProbability> obProbs = this.getObservationProbabilities(state, action);
-		Random rand = RandomFactory.getMapped(0);
+		Random rand = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
 		double r = rand.nextDouble();
 		double sumProb = 0.;
 		for(ObservationProbability op : obProbs){
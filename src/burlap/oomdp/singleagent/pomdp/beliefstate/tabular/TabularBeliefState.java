@@ -9,7 +9,6 @@ import burlap.oomdp.core.states.State;
 import burlap.oomdp.singleagent.GroundedAction;
 import burlap.oomdp.singleagent.SADomain;
 import burlap.oomdp.singleagent.pomdp.beliefstate.BeliefState;
-import burlap.oomdp.singleagent.pomdp.ObservationFunction;
 import burlap.oomdp.singleagent.pomdp.PODomain;
 import burlap.oomdp.singleagent.pomdp.beliefstate.DenseBeliefVector;
 import burlap.oomdp.singleagent.pomdp.beliefstate.EnumerableBeliefState;
@@ -69,6 +68,12 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 	protected PODomain domain;
 
 
+	/**
+	 * The compiled belief update model, shared by the belief states copied or updated from this belief state.
+	 */
+	protected TabularBeliefUpdater beliefUpdater;
+
+
 	/**
 	 * Constructs a new {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState} from a source
 	 * {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState}. Changes to the new state or source
@@ -76,7 +81,7 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 	 * @param srcBeliefState the source {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState} to copy.
 	 */
 	public TabularBeliefState(TabularBeliefState srcBeliefState){
-		this(srcBeliefState.domain, srcBeliefState.stateEnumerator);
+		this(srcBeliefState.domain, srcBeliefState.stateEnumerator, srcBeliefState.beliefUpdater);
 		this.beliefValues = new HashMap<Integer, Double>(srcBeliefState.beliefValues.size());
 		for(Map.Entry<Integer, Double> e : srcBeliefState.beliefValues.entrySet()){
 			this.beliefValues.put(e.getKey(), e.getValue());
@@ -94,6 +99,7 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 		}
 		this.domain = domain;
 		this.stateEnumerator = domain.getStateEnumerator();
+		this.beliefUpdater = new TabularBeliefUpdater(domain, this.stateEnumerator);
 	}
 
 	/**
@@ -102,8 +108,22 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 	 * @param stateEnumerator a {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} to index the states in the belief vector.
 	 */
 	public TabularBeliefState(PODomain domain, StateEnumerator stateEnumerator){
+		this(domain, stateEnumerator, new TabularBeliefUpdater(domain, stateEnumerator));
+	}
+
+
+	/**
+	 * Constructs a new {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState} that updates with
+	 * a given {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater}. Belief states that share an updater share
+	 * its compiled model.
+	 * @param domain the {@link burlap.oomdp.singleagent.pomdp.PODomain} domain to which the belief state is associated.
+	 * @param stateEnumerator a {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} to index the states in the belief vector.
+	 * @param beliefUpdater the {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater} used to update this belief state.
+	 */
+	public TabularBeliefState(PODomain domain, StateEnumerator stateEnumerator, TabularBeliefUpdater beliefUpdater){
 		this.domain = domain;
 		this.stateEnumerator = stateEnumerator;
+		this.beliefUpdater = beliefUpdater;
 	}
 
 	@Override
@@ -129,7 +149,7 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 	@Override
 	public State sampleStateFromBelief() {
 		double sumProb = 0.;
-		double r = RandomFactory.getMapped(0).nextDouble();
+		double r = RandomFactory.getStream(RandomFactory.DOMAINSTREAM).nextDouble();
 		for(Map.Entry<Integer, Double> e : this.beliefValues.entrySet()){
 			sumProb += e.getValue();
 			if(r < sumProb){
@@ -140,35 +160,17 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 		throw new RuntimeException("Error; could not sample from belief state because the beliefs did not sum to 1; they summed to: " + sumProb);
 	}
 
+	/**
+	 * Returns the updated belief state after taking an action and receiving an observation. The update is a sparse
+	 * matrix-vector product with the transition and observation models compiled by this belief state's
+	 * {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater}, which is shared with the returned belief state.
+	 * @param observation the received observation
+	 * @param ga the action taken
+	 * @return the updated belief state
+	 */
 	@Override
 	public BeliefState getUpdatedBeliefState(State observation, GroundedAction ga) {
-		ObservationFunction of = this.domain.getObservationFunction();
-		double [] newBeliefStateVector = new double[this.numStates()];
-		double sum = 0.;
-		for(int i = 0; i < newBeliefStateVector.length; i++){
-			State ns = this.stateForId(i);
-			double op = of.getObservationProbability(observation, ns, ga);
-			double transitionSum = 0.;
-			for(Map.Entry<Integer, Double> srcStateEntry : this.beliefValues.entrySet()){
-				double srcB = srcStateEntry.getValue();
-				State srcState = this.stateEnumerator.getStateForEnumerationId(srcStateEntry.getKey());
-				double tp = this.getTransitionProb(srcState, ga, ns);
-				transitionSum += srcB * tp;
-			}
-			double numerator = op * transitionSum;
-			sum += numerator;
-			newBeliefStateVector[i] = numerator;
-
-		}
-
-		TabularBeliefState newBeliefState = new TabularBeliefState(this.domain, this.stateEnumerator);
-		for(int i = 0; i < newBeliefStateVector.length; i++){
-			double nb = newBeliefStateVector[i] / sum;
-			newBeliefState.setBelief(i, nb);
-		}
-
-
-		return newBeliefState;
+		return this.beliefUpdater.update(this, observation, ga);
 	}
 
 	@Override
@@ -190,6 +192,25 @@ public class TabularBeliefState implements BeliefState, EnumerableBeliefState, D
 	}
 
 
+	/**
+	 * Returns the {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater} used to update this belief state.
+	 * @return the {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater} used to update this belief state.
+	 */
+	public TabularBeliefUpdater getBeliefUpdater(){
+		return this.beliefUpdater;
+	}
+
+
+	/**
+	 * Sets the {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater} used to update this belief state.
+	 * Setting the same updater on belief states created independently lets them share its compiled model.
+	 * @param beliefUpdater the {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefUpdater} used to update this belief state.
+	 */
+	public void setBeliefUpdater(TabularBeliefUpdater beliefUpdater){
+		this.beliefUpdater = beliefUpdater;
+	}
+
+
 	/**
 	 * Returns the corresponding MDP state for the provided unique identifier.
 	 * @param id the MDP state identifier
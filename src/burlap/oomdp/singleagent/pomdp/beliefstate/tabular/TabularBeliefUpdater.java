@@ -0,0 +1,251 @@
+package burlap.oomdp.singleagent.pomdp.beliefstate.tabular;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import burlap.behavior.singleagent.auxiliary.StateEnumerator;
+import burlap.oomdp.core.TransitionProbability;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.pomdp.ObservationFunction;
+import burlap.oomdp.singleagent.pomdp.PODomain;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+
+/**
+ * Performs {@link burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState} updates with compiled, sparse
+ * transition and observation models. The model is compiled lazily: the first time a belief with mass on state s is updated
+ * with grounded action a, the transitions of a from s are queried once, their successors are indexed with the
+ * {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} and the transition row is stored as parallel successor index
+ * and probability arrays. If the {@link burlap.oomdp.singleagent.pomdp.ObservationFunction} can enumerate its observations, the
+ * probability of each observation is likewise cached as a dense vector over next states the first time it is received after an action;
+ * otherwise observation probabilities are only queried for next states that have mass in the predicted belief.
+ * <br/><br/>
+ * A belief update is then a sparse matrix-vector product of the nonzero beliefs with the transition rows of the action, followed by
+ * an element-wise product with the observation vector, and costs time proportional to the number of transitions out of the
+ * believed states rather than the O(|S|^2) state comparisons of looking up each transition probability.
+ * <br/><br/>
+ * Because the model is queried lazily, it does not need to be applicable in every state and the state enumeration does not need
+ * to be complete in advance; successor states that have not been enumerated are added to the enumeration. Updaters are shared by
+ * the belief states that are copied or updated from the same belief state. Access to the compiled model is synchronized so that beliefs
+ * sharing an updater may be updated from different threads.
+ * @author James MacGlashan
+ *
+ */
+public class TabularBeliefUpdater {
+
+	/**
+	 * The POMDP domain whose observation function is used
+	 */
+	protected PODomain						domain;
+
+	/**
+	 * The state enumerator that indexes the belief vector
+	 */
+	protected StateEnumerator				stateEnumerator;
+
+	/**
+	 * The hashing factory used to cache observation vectors
+	 */
+	protected HashableStateFactory			observationHashingFactory = new SimpleHashableStateFactory();
+
+	/**
+	 * The compiled model of each grounded action, keyed by the action's string representation
+	 */
+	protected Map<String, CompiledAction>	compiledActions = new HashMap<String, CompiledAction>();
+
+
+	/**
+	 * Initializes.
+	 * @param domain the POMDP domain whose actions and observation function define the belief update
+	 * @param stateEnumerator the state enumerator that indexes the belief vector
+	 */
+	public TabularBeliefUpdater(PODomain domain, StateEnumerator stateEnumerator){
+		this.domain = domain;
+		this.stateEnumerator = stateEnumerator;
+	}
+
+
+	/**
+	 * Returns the belief that results from taking an action in a belief and then receiving an observation.
+	 * If the observation has zero probability in the belief, a runtime exception is thrown.
+	 * @param belief the source belief
+	 * @param observation the received observation
+	 * @param ga the action taken
+	 * @return the updated belief
+	 */
+	public TabularBeliefState update(TabularBeliefState belief, State observation, GroundedAction ga){
+
+		int nnz = belief.beliefValues.size();
+		double [] mass = new double[nnz];
+		int [][] successors = new int[nnz][];
+		double [][] probabilities = new double[nnz][];
+		double [] observationProbs;
+		State [] nextStates = null;
+		int n;
+
+		synchronized(this){
+			CompiledAction ca = this.compiledAction(ga);
+			int i = 0;
+			for(Map.Entry<Integer, Double> e : belief.beliefValues.entrySet()){
+				int s = e.getKey();
+				mass[i] = e.getValue();
+				ca.compileRow(s);
+				successors[i] = ca.successors[s];
+				probabilities[i] = ca.probabilities[s];
+				i++;
+			}
+			n = this.stateEnumerator.numStatesEnumerated();
+			observationProbs = ca.observationVector(observation, n);
+			if(observationProbs == null){
+				nextStates = new State[n];
+				for(int sp = 0; sp < n; sp++){
+					nextStates[sp] = this.stateEnumerator.getStateForEnumerationId(sp);
+				}
+			}
+		}
+
+		//predict with the sparse transition rows of the nonzero beliefs
+		double [] next = new double[n];
+		for(int i = 0; i < nnz; i++){
+			double b = mass[i];
+			int [] succ = successors[i];
+			double [] probs = probabilities[i];
+			for(int t = 0; t < succ.length; t++){
+				next[succ[t]] += b * probs[t];
+			}
+		}
+
+		//correct with the observation probabilities
+		ObservationFunction of = this.domain.getObservationFunction();
+		double sum = 0.;
+		for(int sp = 0; sp < n; sp++){
+			if(next[sp] == 0.){
+				continue;
+			}
+			double op = observationProbs != null ? observationProbs[sp] : of.getObservationProbability(observation, nextStates[sp], ga);
+			next[sp] *= op;
+			sum += next[sp];
+		}
+
+		if(sum == 0.){
+			throw new RuntimeException("Cannot update belief state because the observation has zero probability after taking action " + ga.toString());
+		}
+
+		TabularBeliefState updated = new TabularBeliefState(belief.domain, belief.stateEnumerator, this);
+		for(int sp = 0; sp < n; sp++){
+			if(next[sp] != 0.){
+				updated.beliefValues.put(sp, next[sp] / sum);
+			}
+		}
+
+		return updated;
+	}
+
+
+	/**
+	 * Returns the compiled model of a grounded action, creating it if it does not yet exist.
+	 * @param ga the grounded action
+	 * @return the compiled model of the grounded action
+	 */
+	protected CompiledAction compiledAction(GroundedAction ga){
+		String key = ga.toString();
+		CompiledAction ca = this.compiledActions.get(key);
+		if(ca == null){
+			ca = new CompiledAction(ga.copy());
+			this.compiledActions.put(key, ca);
+		}
+		return ca;
+	}
+
+
+	/**
+	 * The lazily compiled transition rows and observation vectors of a single grounded action.
+	 */
+	protected class CompiledAction {
+
+		/**
+		 * The grounded action
+		 */
+		GroundedAction ga;
+
+		/**
+		 * The successor state indices of each compiled state; null for states that have not been compiled
+		 */
+		int [][] successors = new int[16][];
+
+		/**
+		 * The transition probabilities of each compiled state; null for states that have not been compiled
+		 */
+		double [][] probabilities = new double[16][];
+
+		/**
+		 * The cached probability of each observation in each next state
+		 */
+		Map<HashableState, double[]> observationVectors = new HashMap<HashableState, double[]>();
+
+
+		CompiledAction(GroundedAction ga){
+			this.ga = ga;
+		}
+
+
+		/**
+		 * Compiles the transition row of a state if it has not yet been compiled.
+		 * @param s the state index
+		 */
+		void compileRow(int s){
+			if(s >= this.successors.length){
+				int size = Math.max(s+1, this.successors.length*2);
+				this.successors = Arrays.copyOf(this.successors, size);
+				this.probabilities = Arrays.copyOf(this.probabilities, size);
+			}
+			if(this.successors[s] != null){
+				return;
+			}
+			State state = TabularBeliefUpdater.this.stateEnumerator.getStateForEnumerationId(s);
+			List<TransitionProbability> tps = this.ga.getTransitions(state);
+			int [] succ = new int[tps.size()];
+			double [] probs = new double[tps.size()];
+			int t = 0;
+			for(TransitionProbability tp : tps){
+				succ[t] = TabularBeliefUpdater.this.stateEnumerator.getEnumeratedID(tp.s);
+				probs[t] = tp.p;
+				t++;
+			}
+			this.successors[s] = succ;
+			this.probabilities[s] = probs;
+		}
+
+
+		/**
+		 * Returns the cached probability of an observation in each of the first n enumerated states, computing it if necessary.
+		 * @param observation the observation
+		 * @param n the number of enumerated states
+		 * @return the probability of the observation in each next state; null if the observation function cannot enumerate its observations.
+		 */
+		double [] observationVector(State observation, int n){
+			ObservationFunction of = TabularBeliefUpdater.this.domain.getObservationFunction();
+			if(!of.canEnumerateObservations()){
+				return null;
+			}
+			HashableState key = TabularBeliefUpdater.this.observationHashingFactory.hashState(observation);
+			double [] vec = this.observationVectors.get(key);
+			if(vec == null || vec.length < n){
+				int start = vec == null ? 0 : vec.length;
+				vec = vec == null ? new double[n] : Arrays.copyOf(vec, n);
+				for(int sp = start; sp < n; sp++){
+					vec[sp] = of.getObservationProbability(observation, TabularBeliefUpdater.this.stateEnumerator.getStateForEnumerationId(sp), this.ga);
+				}
+				this.observationVectors.put(TabularBeliefUpdater.this.observationHashingFactory.hashState(observation.copy()), vec);
+			}
+			return vec;
+		}
+
+	}
+
+}
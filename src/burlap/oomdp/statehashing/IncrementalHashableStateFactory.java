@@ -0,0 +1,172 @@
+package burlap.oomdp.statehashing;
+
+import burlap.oomdp.core.objects.OOMDPObjectInstance;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.states.ImmutableState;
+import burlap.oomdp.core.states.PackedState;
+import burlap.oomdp.core.states.State;
+
+import java.util.List;
+
+/**
+ * A {@link burlap.oomdp.statehashing.SimpleHashableStateFactory} that uses the value hashes maintained by
+ * {@link burlap.oomdp.core.objects.MutableObjectInstance} and {@link burlap.oomdp.core.objects.ImmutableObjectInstance}
+ * objects (see {@link burlap.oomdp.core.objects.OOMDPObjectInstance#valueHash()}) rather than recomputing the hash code
+ * of every value each time a state is hashed. Because objects update their value hash whenever one of their
+ * values is set, a successor state that was produced by copying a state and changing a few attributes
+ * can be hashed in time proportional to its number of objects, without visiting any values. The object hash codes are
+ * combined by summation, so no sorting is needed for invariance to object order.
+ * <br/><br/>
+ * State equality first compares the hash codes of the two {@link burlap.oomdp.statehashing.HashableState} instances, and
+ * object value equality first compares the objects' value hashes, after which values are compared in place without
+ * being copied. The {@link burlap.oomdp.statehashing.HashableState} instances produced by this factory always cache their
+ * hash code. States that are both {@link burlap.oomdp.core.states.PackedState} instances with the same schema are first
+ * compared by their value arrays.
+ * <br/><br/>
+ * Equality and identifier (in)dependence are otherwise the same as for {@link burlap.oomdp.statehashing.SimpleHashableStateFactory}.
+ * States whose objects are not {@link burlap.oomdp.core.objects.OOMDPObjectInstance} objects are supported, but their
+ * value hashes are computed from their values each time they are hashed. The hash codes produced by this factory differ
+ * from those of {@link burlap.oomdp.statehashing.SimpleHashableStateFactory}, so the two should not be mixed in the same
+ * hashed data structure.
+ * @author James MacGlashan.
+ */
+public class IncrementalHashableStateFactory extends SimpleHashableStateFactory {
+
+
+	/**
+	 * Default constructor: object identifier independent.
+	 */
+	public IncrementalHashableStateFactory(){
+		super(true, true);
+	}
+
+	/**
+	 * Initializes.
+	 * @param identifierIndependent if true then state evaluations are object identifier independent; if false then dependent.
+	 */
+	public IncrementalHashableStateFactory(boolean identifierIndependent){
+		super(identifierIndependent, true);
+	}
+
+
+	@Override
+	public HashableState hashState(State s) {
+		if(s instanceof IncrementalHashableState && ((IncrementalHashableState)s).getParentHashingFactory() == this){
+			return (HashableState)s; //asking to hash what we've already hashed so just return it
+		}
+		return new IncrementalHashableState(s);
+	}
+
+
+	@Override
+	protected int computeHashCode(State s) {
+
+		int h = 0;
+		if(s instanceof ImmutableState){
+			ImmutableState sTimm = (ImmutableState)s;
+			int n = sTimm.numTotalObjects();
+			for(int i = 0; i < n; i++){
+				h += this.computeHashCode(sTimm.getObject(i));
+			}
+		}
+		else{
+			List<ObjectInstance> objects = s.getAllObjects();
+			for(ObjectInstance o : objects){
+				h += this.computeHashCode(o);
+			}
+		}
+
+		return mix(h);
+	}
+
+
+	@Override
+	protected int computeHashCode(ObjectInstance o) {
+
+		if(this.identifierIndependent && o.getObjectClass().hasRelationalAttributes()){
+			throw new RuntimeException("IncrementalHashableStateFactory is set to be identifier independent, but object class " + o.getClassName() + " has " +
+					"relational attributes which require identifier dependence. Instead, set IncrementalHashableStateFactory to be identifier dependent.");
+		}
+
+		int h = o instanceof OOMDPObjectInstance ? ((OOMDPObjectInstance)o).valueHash() : OOMDPObjectInstance.valueHash(o.getValues());
+		h = 31*h + o.getClassName().hashCode();
+		if(!this.identifierIndependent){
+			h = 31*h + o.getName().hashCode();
+		}
+
+		return mix(h);
+	}
+
+
+	@Override
+	protected boolean statesEqual(State s1, State s2) {
+		if(s1 instanceof PackedState && s2 instanceof PackedState && ((PackedState)s1).getSchema() == ((PackedState)s2).getSchema()){
+			if(((PackedState)s1).valuesIdentical((PackedState)s2)){
+				return true;
+			}
+			if(!this.identifierIndependent){
+				return false;
+			}
+		}
+		return super.statesEqual(s1, s2);
+	}
+
+
+	@Override
+	protected boolean objectValuesEqual(ObjectInstance o1, ObjectInstance o2) {
+		if(o1 instanceof OOMDPObjectInstance && o2 instanceof OOMDPObjectInstance){
+			return ((OOMDPObjectInstance)o1).valuesEqual((OOMDPObjectInstance)o2);
+		}
+		return super.objectValuesEqual(o1, o2);
+	}
+
+
+	/**
+	 * Scrambles the bits of a hash code so that sums of hash codes remain well distributed.
+	 * @param h the hash code
+	 * @return the scrambled hash code.
+	 */
+	protected static int mix(int h){
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+
+	/**
+	 * A {@link burlap.oomdp.statehashing.HashableState} that caches its hash code and compares hash codes before
+	 * testing the equality of states hashed by the same factory.
+	 */
+	protected class IncrementalHashableState extends SimpleCachedHashableState {
+
+		public IncrementalHashableState(State s) {
+			super(s);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(this == other){
+				return true;
+			}
+			if(!(other instanceof HashableState)){
+				return false;
+			}
+			if(other instanceof IncrementalHashableState && ((IncrementalHashableState)other).getParentHashingFactory() == IncrementalHashableStateFactory.this
+					&& other.hashCode() != this.hashCode()){
+				return false;
+			}
+			HashableState o = (HashableState)other;
+			return statesEqual(this.s, o.s);
+		}
+
+		@Override
+		public State copy() {
+			return new IncrementalHashableState(this.s.copy());
+		}
+
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import burlap.behavior.stochasticgames.GameAnalysis;
 import burlap.behavior.stochasticgames.JointPolicy;
@@ -54,6 +55,16 @@ public class World {
 	
 	protected int								debugId;
 
+	/**
+	 * Supplies the description of the current state to debug printing so that it is only built when it is printed.
+	 */
+	protected final Supplier<String>			currentStateDescription = new Supplier<String>() {
+		@Override
+		public String get() {
+			return currentState.getCompleteStateDescription();
+		}
+	};
+
 
 
 
@@ -236,7 +247,7 @@ public class World {
 			wob.gameEnding(this.currentState);
 		}
 		
-		DPrint.cl(debugId, currentState.getCompleteStateDescription());
+		DPrint.cl(debugId, this.currentStateDescription);
 		
 		this.isRecordingGame = false;
 		
@@ -276,7 +287,7 @@ public class World {
 			wob.gameEnding(this.currentState);
 		}
 		
-		DPrint.cl(debugId, currentState.getCompleteStateDescription());
+		DPrint.cl(debugId, this.currentStateDescription);
 		
 		this.isRecordingGame = false;
 		
@@ -349,7 +360,7 @@ public class World {
 		this.lastJointAction = ja;
 		
 		
-		DPrint.cl(debugId, ja.toString());
+		DPrint.cl(debugId, ja);
 		
 		
 		//now that we have the joint action, perform it
@@ -357,7 +368,7 @@ public class World {
 		State abstractedPrime = this.abstractionForAgents.abstraction(sp);
 		Map<String, Double> jointReward = jointRewardModel.reward(currentState, ja, sp);
 		
-		DPrint.cl(debugId, jointReward.toString());
+		DPrint.cl(debugId, jointReward);
 		
 		//index reward
 		for(String aname : jointReward.keySet()){
@@ -398,14 +409,14 @@ public class World {
 		
 		this.lastJointAction = (JointAction)jp.getAction(this.currentState);
 		
-		DPrint.cl(debugId, this.lastJointAction.toString());
+		DPrint.cl(debugId, this.lastJointAction);
 		
 		
 		//now that we have the joint action, perform it
 		State sp = worldModel.performJointAction(currentState, this.lastJointAction);
 		Map<String, Double> jointReward = jointRewardModel.reward(currentState, this.lastJointAction, sp);
 		
-		DPrint.cl(debugId, jointReward.toString());
+		DPrint.cl(debugId, jointReward);
 		
 		//index reward
 		for(String aname : jointReward.keySet()){
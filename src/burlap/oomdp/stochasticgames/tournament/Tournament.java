@@ -5,6 +5,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import burlap.debugtools.DPrint;
 import burlap.debugtools.RandomFactory;
@@ -20,6 +26,18 @@ import burlap.oomdp.stochasticgames.WorldGenerator;
  * running a tournament of many agents in 2-player games like iterated prisoner's dilemma. The Tournament class requires
  * a list of agents, a world generator and a match selector. The MatchSelector determines which agents will be matched up
  * in a game, which {@link burlap.oomdp.stochasticgames.SGAgentType} role they will play as and how many matches there will be.
+ * <p/>
+ * Each match is played in its own {@link burlap.oomdp.stochasticgames.World} by agents freshly generated for it, so matches are independent
+ * and may be played concurrently by setting {@link #setParallelism(int)} to more than one. The games of a match are always played
+ * one after another, because agents may learn from one game to the next. The world generator and agent factories are never called
+ * concurrently. The cumulative rewards of each match are added to the tournament totals in match order once the match's results
+ * are collected, so the totals do not depend on the order in which concurrent matches finish.
+ * <p/>
+ * If a match seed is set with {@link #setMatchSeed(long)}, match i is played in the {@link burlap.debugtools.RandomFactory} stream
+ * context of trial i of the seed: the shuffling of its entrants and all randomness its world and agents draw from
+ * {@link burlap.debugtools.RandomFactory#getStream(String)} streams are determined by the seed and the match number, so the results are
+ * the same for any parallelism. Randomness drawn from the shared mapped or default generators of {@link burlap.debugtools.RandomFactory}
+ * is not made reproducible by the match seed.
  * @author James MacGlashan
  *
  */
@@ -38,6 +56,22 @@ public class Tournament {
 	
 	protected int							debugId = 25633;
 	
+	/**
+	 * The number of matches that are played concurrently
+	 */
+	protected int							parallelism = 1;
+	
+	/**
+	 * The seed from which the random stream context of each match is derived; null if matches are not seeded
+	 */
+	protected Long							matchSeed = null;
+	
+	
+	/**
+	 * The name of the {@link burlap.debugtools.RandomFactory} stream used to shuffle the entrants of a match when a match seed is set.
+	 */
+	public static final String				MATCHSTREAM = "tournamentMatch";
+	
 	
 	
 	/**
@@ -133,6 +167,43 @@ public class Tournament {
 	}
 	
 	
+	/**
+	 * Sets the number of matches that are played concurrently. The default is 1, which plays every match on the calling thread.
+	 * @param parallelism the number of matches that are played concurrently
+	 */
+	public void setParallelism(int parallelism){
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	
+	/**
+	 * Returns the number of matches that are played concurrently.
+	 * @return the number of matches that are played concurrently.
+	 */
+	public int getParallelism(){
+		return this.parallelism;
+	}
+	
+	
+	/**
+	 * Sets the seed from which the {@link burlap.debugtools.RandomFactory} stream context of each match is derived; match i is
+	 * played in the context of trial i of the seed.
+	 * @param seed the seed of the matches
+	 */
+	public void setMatchSeed(long seed){
+		this.matchSeed = seed;
+	}
+	
+	
+	/**
+	 * Removes the match seed, so that matches draw from the stream context of the thread that plays them and entrants are shuffled
+	 * with {@link burlap.debugtools.RandomFactory#getMapped(int)} 0.
+	 */
+	public void clearMatchSeed(){
+		this.matchSeed = null;
+	}
+	
+	
 	/**
 	 * Returns the number of agents who are playing in this tournament
 	 * @return the number of agents who are playing in this tournament
@@ -179,24 +250,82 @@ public class Tournament {
 		
 		selector.resetMatchSelections();
 		
-		List<MatchEntry> match = null;
-		while((match = selector.getNextMatch()) != null){
+		if(this.parallelism == 1){
+			List<MatchEntry> match = null;
+			int matchIndex = 0;
+			while((match = selector.getNextMatch()) != null){
+				this.recordMatchResults(this.runMatch(matchIndex, match));
+				matchIndex++;
+			}
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		try{
 			
-			World w = worldGenerator.generateWorld();
+			List<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+			List<MatchEntry> match = null;
+			while((match = selector.getNextMatch()) != null){
+				final int matchIndex = futures.size();
+				final List<MatchEntry> fmatch = new ArrayList<MatchEntry>(match);
+				futures.add(executor.submit(new Callable<double[]>() {
+					@Override
+					public double[] call() throws Exception {
+						return Tournament.this.runMatch(matchIndex, fmatch);
+					}
+				}));
+			}
 			
-			//shuffle entrants
-			Collections.shuffle(match, RandomFactory.getMapped(0));
+			for(Future<double[]> f : futures){
+				this.recordMatchResults(f.get());
+			}
+			
+		} catch(InterruptedException e){
+			throw new RuntimeException("Interrupted while waiting for tournament matches to complete.", e);
+		} catch(ExecutionException e){
+			throw new RuntimeException("A tournament match failed.", e.getCause());
+		} finally{
+			executor.shutdownNow();
+		}
+		
+	}
+	
+	
+	/**
+	 * Plays a match in a newly generated world with newly generated agents and returns the cumulative reward each agent of the
+	 * tournament received in it. If a match seed is set, the match is played in the random stream context of its match index.
+	 * @param matchIndex the index of the match in the tournament
+	 * @param match the entrants of the match
+	 * @return the cumulative reward received in the match, indexed by the tournament index of each agent.
+	 */
+	protected double [] runMatch(int matchIndex, List<MatchEntry> match){
+		
+		RandomFactory.StreamContext threadContext = this.matchSeed != null ? RandomFactory.seedThread(this.matchSeed, matchIndex) : null;
+		try{
 			
+			World w;
 			Map<String, Integer> agentNameToId = new HashMap<String, Integer>();
+			StringBuilder entrants = new StringBuilder();
 			
-			//have the matched agents join the world
-			for(MatchEntry me : match){
-				SGAgent a = agents.get(me.agentId).generateAgent();
-				a.joinWorld(w, me.agentType);
-				agentNameToId.put(a.getAgentName(), me.agentId);
-				DPrint.c(debugId, me.agentId + " ");
+			//the world generator and agent factories are not required to be thread safe
+			synchronized(this.agents){
+				
+				w = worldGenerator.generateWorld();
+				
+				//shuffle entrants
+				Random shuffleRand = this.matchSeed != null ? RandomFactory.getStream(MATCHSTREAM) : RandomFactory.getMapped(0);
+				Collections.shuffle(match, shuffleRand);
+				
+				//have the matched agents join the world
+				for(MatchEntry me : match){
+					SGAgent a = agents.get(me.agentId).generateAgent();
+					a.joinWorld(w, me.agentType);
+					agentNameToId.put(a.getAgentName(), me.agentId);
+					entrants.append(me.agentId).append(" ");
+				}
+				
 			}
-			DPrint.cl(debugId, "");
+			DPrint.cl(debugId, entrants.toString());
 			
 			//run the game
 			for(int i = 0; i < this.numGames; i++){
@@ -204,15 +333,33 @@ public class Tournament {
 			}
 			
 			//record results
+			double [] matchReward = new double[this.agents.size()];
 			for(String aname : agentNameToId.keySet()){
 				int aId = agentNameToId.get(aname);
-				double gameCumR = w.getCumulativeRewardForAgent(aname);
-				double tournCumR = tournamentCumulatedReward.get(aId);
-				tournamentCumulatedReward.set(aId, gameCumR+tournCumR);
+				matchReward[aId] += w.getCumulativeRewardForAgent(aname);
 			}
 			
+			return matchReward;
+			
+		} finally{
+			if(threadContext != null){
+				RandomFactory.setThreadContext(threadContext);
+			}
 		}
 		
 	}
+	
+	
+	/**
+	 * Adds the cumulative rewards of a match to the tournament totals.
+	 * @param matchReward the cumulative reward received in the match, indexed by the tournament index of each agent.
+	 */
+	protected void recordMatchResults(double [] matchReward){
+		for(int i = 0; i < matchReward.length; i++){
+			if(matchReward[i] != 0.){
+				tournamentCumulatedReward.set(i, tournamentCumulatedReward.get(i) + matchReward[i]);
+			}
+		}
+	}
 
 }
@@ -0,0 +1,142 @@
+package burlap.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import burlap.behavior.policy.RandomPolicy;
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.auxiliary.BinaryEpisodeReader;
+import burlap.behavior.singleagent.auxiliary.BinaryEpisodeWriter;
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.debugtools.DPrint;
+import burlap.domain.singleagent.blocksworld.BlocksWorld;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.oomdp.auxiliary.common.NullTermination;
+import burlap.oomdp.auxiliary.common.SinglePFTF;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.common.UniformCostRF;
+import burlap.oomdp.singleagent.environment.EnvironmentServer;
+import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+public class TestBinaryEpisodes {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Domain domain;
+	RewardFunction rf;
+	TerminalFunction tf;
+	State initialState;
+
+	@Before
+	public void setup() {
+		GridWorldDomain gw = new GridWorldDomain(11, 11);
+		gw.setMapToFourRooms();
+		this.domain = gw.generateDomain();
+		this.rf = new UniformCostRF();
+		this.tf = new SinglePFTF(this.domain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		this.initialState = GridWorldDomain.getOneAgentOneLocationState(this.domain);
+		GridWorldDomain.setAgent(this.initialState, 0, 0);
+		GridWorldDomain.setLocation(this.initialState, 0, 10, 10);
+		DPrint.toggleUniversal(false);
+	}
+
+	@Test
+	public void testObservedLearningEpisodes() throws IOException {
+		String path = this.folder.newFile("learning.bep").getAbsolutePath();
+		BinaryEpisodeWriter writer = new BinaryEpisodeWriter(path, this.domain);
+
+		SimulatedEnvironment senv = new SimulatedEnvironment(this.domain, this.rf, this.tf, this.initialState);
+		EnvironmentServer env = new EnvironmentServer(senv, writer);
+		QLearning agent = new QLearning(this.domain, 0.99, new SimpleHashableStateFactory(), 0., 1.);
+		List<EpisodeAnalysis> episodes = new ArrayList<EpisodeAnalysis>();
+		for(int i = 0; i < 20; i++){
+			episodes.add(agent.runLearningEpisode(env));
+			env.resetEnvironment();
+		}
+		//an unfinished episode is not read until the writer is closed
+		EpisodeAnalysis partial = agent.runLearningEpisode(env, 5);
+		writer.flush();
+
+		Assert.assertEquals(20, writer.numEpisodes());
+		this.assertSameEpisodes(episodes, BinaryEpisodeReader.readAll(path, this.domain));
+		writer.close();
+		episodes.add(partial);
+		this.assertSameEpisodes(episodes, BinaryEpisodeReader.readAll(path, this.domain));
+	}
+
+	@Test
+	public void testSmallMappingWindow() throws IOException {
+		String path = this.folder.newFile("window.bep").getAbsolutePath();
+		BinaryEpisodeWriter writer = new BinaryEpisodeWriter(path, this.domain);
+		RandomPolicy p = new RandomPolicy(this.domain);
+		List<EpisodeAnalysis> episodes = new ArrayList<EpisodeAnalysis>();
+		for(int i = 0; i < 10; i++){
+			EpisodeAnalysis ea = p.evaluateBehavior(this.initialState, this.rf, this.tf, 200);
+			episodes.add(ea);
+			writer.writeEpisode(ea);
+		}
+		writer.close();
+
+		BinaryEpisodeReader reader = new BinaryEpisodeReader(path, this.domain);
+		reader.setMappingWindow(64);
+		List<EpisodeAnalysis> read = new ArrayList<EpisodeAnalysis>();
+		for(EpisodeAnalysis ea : reader){
+			read.add(ea);
+		}
+		this.assertSameEpisodes(episodes, read);
+	}
+
+	@Test
+	public void testRelationalEpisodesAndYAMLConversion() throws IOException {
+		Domain bw = new BlocksWorld().generateDomain();
+		State s = BlocksWorld.getNewState(bw, 4);
+		RandomPolicy p = new RandomPolicy(bw);
+		List<EpisodeAnalysis> episodes = new ArrayList<EpisodeAnalysis>();
+		for(int i = 0; i < 5; i++){
+			episodes.add(p.evaluateBehavior(s, new UniformCostRF(), new NullTermination(), 15));
+		}
+
+		File yaml = this.folder.newFolder("yaml");
+		EpisodeAnalysis.writeEpisodesToDisk(episodes, yaml.getAbsolutePath(), "ep");
+		String path = new File(this.folder.getRoot(), "bw.bep").getAbsolutePath();
+		Assert.assertEquals(5, BinaryEpisodeWriter.convertEpisodeFiles(yaml.getAbsolutePath(), bw, path));
+		this.assertSameEpisodes(episodes, BinaryEpisodeReader.readAll(path, bw));
+
+		File back = this.folder.newFolder("back");
+		Assert.assertEquals(5, BinaryEpisodeReader.convertToEpisodeFiles(path, bw, back.getAbsolutePath(), "ep"));
+		for(int i = 0; i < 5; i++){
+			List<EpisodeAnalysis> single = new ArrayList<EpisodeAnalysis>();
+			single.add(EpisodeAnalysis.parseFileIntoEA(back.getAbsolutePath() + "/ep" + i + ".episode", bw));
+			this.assertSameEpisodes(episodes.subList(i, i+1), single);
+		}
+	}
+
+	protected void assertSameEpisodes(List<EpisodeAnalysis> expected, List<EpisodeAnalysis> actual){
+		Assert.assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++){
+			EpisodeAnalysis e = expected.get(i);
+			EpisodeAnalysis a = actual.get(i);
+			Assert.assertEquals(e.numTimeSteps(), a.numTimeSteps());
+			for(int t = 0; t < e.numTimeSteps(); t++){
+				Assert.assertEquals(e.getState(t), a.getState(t));
+			}
+			for(int t = 0; t < e.maxTimeStep(); t++){
+				Assert.assertEquals(e.getAction(t).toString(), a.getAction(t).toString());
+				Assert.assertEquals(e.getReward(t+1), a.getReward(t+1), 0.);
+			}
+		}
+	}
+}
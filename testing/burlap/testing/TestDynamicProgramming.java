@@ -0,0 +1,214 @@
+package burlap.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import burlap.behavior.singleagent.auxiliary.StateReachability;
+import burlap.behavior.singleagent.planning.stochastic.DPIterationListener;
+import burlap.behavior.singleagent.planning.stochastic.SparsePolicyEvaluator;
+import burlap.behavior.singleagent.planning.stochastic.ValueFunctionSnapshot;
+import burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ParallelValueIteration;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
+import burlap.behavior.valuefunction.ValueFunction;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.oomdp.auxiliary.common.SinglePFTF;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.SADomain;
+import burlap.oomdp.singleagent.common.UniformCostRF;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+public class TestDynamicProgramming {
+	public static final double delta = 0.000001;
+	GridWorldDomain gw;
+	Domain domain;
+	RewardFunction rf;
+	TerminalFunction tf;
+	SimpleHashableStateFactory hashingFactory;
+	State initialState;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setProbSucceedTransitionDynamics(0.8);
+		this.domain = this.gw.generateDomain();
+		this.rf = new UniformCostRF();
+		this.tf = new SinglePFTF(this.domain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		this.hashingFactory = new SimpleHashableStateFactory();
+		this.initialState = GridWorldDomain.getOneAgentOneLocationState(domain);
+		GridWorldDomain.setAgent(this.initialState, 0, 0);
+		GridWorldDomain.setLocation(this.initialState, 0, 10, 10);
+	}
+
+	@Test
+	public void testCompiledValueIteration() {
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 200);
+		vi.planFromState(this.initialState);
+
+		ValueIteration cvi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 200);
+		cvi.toggleUseCompiledDynamics(true);
+		cvi.planFromState(this.initialState);
+
+		this.assertSameValues(vi.getAllStates(), vi, cvi);
+	}
+
+	@Test
+	public void testCompiledPolicyIteration() {
+		PolicyIteration pi = new PolicyIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 100, 50);
+		pi.planFromState(this.initialState);
+
+		PolicyIteration cpi = new PolicyIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 100, 50);
+		cpi.toggleUseCompiledDynamics(true);
+		cpi.planFromState(this.initialState);
+
+		this.assertSameValues(pi.getAllStates(), pi, cpi);
+	}
+
+	@Test
+	public void testSparsePolicyEvaluation() {
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 1e-8, 5000);
+		vi.planFromState(this.initialState);
+
+		PolicyIteration lpi = new PolicyIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 1e-8, 100, 50);
+		lpi.setPolicyEvaluationSolver(SparsePolicyEvaluator.Solver.LU);
+		lpi.planFromState(this.initialState);
+		this.assertSameValues(vi.getAllStates(), vi, lpi);
+		Assert.assertEquals(lpi.getTotalPolicyIterations(), lpi.getTotalValueIterations());
+
+		PolicyIteration bpi = new PolicyIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 1e-8, 1000, 50);
+		bpi.setPolicyEvaluationSolver(SparsePolicyEvaluator.Solver.BICGSTAB);
+		bpi.planFromState(this.initialState);
+		this.assertSameValues(vi.getAllStates(), vi, bpi);
+	}
+
+	@Test
+	public void testIterationSnapshots() {
+		final List<ValueFunctionSnapshot> snapshots = new ArrayList<ValueFunctionSnapshot>();
+		DPIterationListener listener = new DPIterationListener() {
+			@Override
+			public void iterationComplete(ValueFunctionSnapshot snapshot) {
+				snapshots.add(snapshot);
+			}
+		};
+
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, -1, 10);
+		vi.addIterationListener(listener);
+		vi.planFromState(this.initialState);
+		Assert.assertEquals(10, snapshots.size());
+
+		//resuming continues from the current values
+		ValueIteration resumed = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, -1, 5);
+		resumed.toggleUseCompiledDynamics(true);
+		resumed.addIterationListener(listener);
+		resumed.planFromState(this.initialState);
+		Assert.assertEquals(5, resumed.runVI(5));
+		Assert.assertEquals(10, resumed.getTotalIterations());
+		Assert.assertEquals(20, snapshots.size());
+		this.assertSameValues(vi.getAllStates(), vi, resumed);
+
+		for(int budget : new int[]{1, 5}){
+			ValueIteration fresh = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, -1, budget);
+			fresh.planFromState(this.initialState);
+			ValueFunctionSnapshot snapshot = snapshots.get(budget-1);
+			Assert.assertEquals(budget, snapshot.getIteration());
+			Assert.assertEquals(vi.getAllStates().size(), snapshot.numStates());
+			this.assertSameValues(vi.getAllStates(), fresh, snapshot.getValueFunction());
+			this.assertSameValues(vi.getAllStates(), fresh, snapshots.get(10 + budget - 1).getValueFunction());
+		}
+		Assert.assertTrue(snapshots.get(9).getPlanningTime() >= snapshots.get(4).getPlanningTime());
+
+		snapshots.clear();
+		PolicyIteration pi = new PolicyIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 100, 50);
+		pi.setPolicyEvaluationSolver(SparsePolicyEvaluator.Solver.LU);
+		pi.addIterationListener(listener);
+		pi.planFromState(this.initialState);
+		Assert.assertEquals(pi.getTotalPolicyIterations(), snapshots.size());
+		ValueFunctionSnapshot last = snapshots.get(snapshots.size()-1);
+		Assert.assertEquals(pi.getTotalPolicyIterations(), last.getIteration());
+		Assert.assertSame(pi.getComputedPolicy(), last.getGreedyPolicy());
+		this.assertSameValues(pi.getAllStates(), pi, last.getValueFunction());
+	}
+
+	@Test
+	public void testParallelValueIterationJacobi() {
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, delta, 500);
+		vi.planFromState(this.initialState);
+		List<State> states = vi.getAllStates();
+
+		ParallelValueIteration reference = new ParallelValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, delta, 500, 1, ParallelValueIteration.SweepMode.JACOBI);
+		reference.setBlockSize(7);
+		reference.planFromState(this.initialState);
+		this.assertSameValues(states, vi, reference, convergenceTolerance(0.99, delta));
+
+		//Jacobi sweeps only read the previous values, so every run must produce bit-identical values regardless of parallelism
+		for(int parallelism : new int[]{1, 2, 4}){
+			for(int run = 0; run < 2; run++){
+				ParallelValueIteration pvi = new ParallelValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, delta, 500, parallelism, ParallelValueIteration.SweepMode.JACOBI);
+				pvi.setBlockSize(7);
+				pvi.planFromState(this.initialState);
+				Assert.assertEquals(reference.getTotalIterations(), pvi.getTotalIterations());
+				for(State s : states){
+					Assert.assertEquals(Double.doubleToLongBits(reference.value(s)), Double.doubleToLongBits(pvi.value(s)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParallelValueIterationBlockGaussSeidel() {
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, delta, 500);
+		vi.planFromState(this.initialState);
+
+		ParallelValueIteration pvi = new ParallelValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, delta, 500, 4, ParallelValueIteration.SweepMode.BLOCK_GAUSS_SEIDEL);
+		pvi.setBlockSize(7);
+		pvi.planFromState(this.initialState);
+
+		this.assertSameValues(vi.getAllStates(), vi, pvi, convergenceTolerance(0.99, delta));
+	}
+
+	@Test
+	public void testParallelReachability() {
+		Set<HashableState> sequential = StateReachability.getReachableHashedStates(this.initialState, (SADomain)this.domain, this.hashingFactory, this.tf);
+		Set<HashableState> parallel = StateReachability.getReachableHashedStates(this.initialState, (SADomain)this.domain, this.hashingFactory, this.tf, 4);
+		Assert.assertEquals(sequential, parallel);
+
+		ValueIteration vi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 200);
+		vi.planFromState(this.initialState);
+
+		ValueIteration pvi = new ValueIteration(this.domain, this.rf, this.tf, 0.99, this.hashingFactory, 0.0001, 200);
+		pvi.setReachabilityParallelism(4);
+		pvi.planFromState(this.initialState);
+
+		Assert.assertEquals(vi.getAllStates().size(), pvi.getAllStates().size());
+		this.assertSameValues(vi.getAllStates(), vi, pvi);
+	}
+
+	public void assertSameValues(List<State> states, ValueFunction expected, ValueFunction actual) {
+		this.assertSameValues(states, expected, actual, 0.001);
+	}
+
+	public void assertSameValues(List<State> states, ValueFunction expected, ValueFunction actual, double tolerance) {
+		Assert.assertTrue(states.size() > 0);
+		for(State s : states){
+			Assert.assertEquals(expected.value(s), actual.value(s), tolerance);
+		}
+	}
+
+	/**
+	 * Returns the maximum difference between two value functions whose value iteration stopped once the maximum change
+	 * was below maxDelta: each is within maxDelta * gamma / (1 - gamma) of the optimal value function.
+	 */
+	public static double convergenceTolerance(double gamma, double maxDelta) {
+		return 2. * maxDelta * gamma / (1. - gamma);
+	}
+}
@@ -22,6 +22,7 @@ import burlap.oomdp.singleagent.GroundedAction;
 import burlap.oomdp.singleagent.SADomain;
 import burlap.oomdp.statehashing.HashableState;
 import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
 import burlap.oomdp.statehashing.SimpleHashableStateFactory;
 
 public class TestHashing {
@@ -107,6 +108,64 @@ public class TestHashing {
 		assert(hashedStates.size() == 104);
 	}
 	
+	@Test
+	public void testIncrementalHashFactory() {
+		SADomain domain = (SADomain)this.gridWorldTest.getDomain();
+		State startState = this.gridWorldTest.generateState();
+		HashableStateFactory factory = new IncrementalHashableStateFactory();
+		Set<HashableState> hashedStates = this.getReachableHashedStates(startState, domain, factory);
+		assert(hashedStates.size() == 104);
+		
+		Set<HashableState> renamedStates = new HashSet<HashableState>();
+		for (HashableState state : hashedStates) {
+			State renamed = this.renameObjects(state.getSourceState().copy());
+			renamedStates.add(factory.hashState(renamed));
+		}
+		hashedStates.addAll(renamedStates);
+		assert(hashedStates.size() == 104);
+		
+		HashableStateFactory dependentFactory = new IncrementalHashableStateFactory(false);
+		Set<HashableState> dependentStates = this.getReachableHashedStates(startState, domain, dependentFactory);
+		assert(dependentStates.size() == 104);
+		for (HashableState state : this.getReachableHashedStates(startState, domain, dependentFactory)) {
+			State renamed = this.renameObjects(state.getSourceState().copy());
+			dependentStates.add(dependentFactory.hashState(renamed));
+		}
+		assert(dependentStates.size() == 208);
+		
+		Set<HashableState> immutableStates = this.getReachableHashedStates(new ImmutableState(startState), domain, factory);
+		assert(immutableStates.size() == 104);
+	}
+	
+	@Test
+	public void testIncrementalHashMatchesRecomputed() {
+		State startState = this.gridWorldTest.generateState();
+		HashableStateFactory factory = new IncrementalHashableStateFactory();
+		
+		State changed = startState.copy();
+		ObjectInstance agent = changed.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT);
+		agent.setValue(GridWorldDomain.ATTX, 3);
+		agent.setValue(GridWorldDomain.ATTY, 4);
+		agent.setValue(GridWorldDomain.ATTX, 2);
+		
+		State built = startState.copy();
+		ObjectInstance builtAgent = built.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT);
+		GridWorldDomain.setAgent(built, 2, 4);
+		
+		HashableState hChanged = factory.hashState(changed);
+		HashableState hBuilt = factory.hashState(built);
+		assert(hChanged.hashCode() == hBuilt.hashCode());
+		assert(hChanged.equals(hBuilt));
+		assert(!hChanged.equals(factory.hashState(startState)));
+		
+		ImmutableState immutable = new ImmutableState(startState);
+		ObjectInstance immutableAgent = immutable.getObject(builtAgent.getName());
+		ImmutableState immutableChanged = immutable.replaceObject(immutableAgent, 
+				immutableAgent.setValue(GridWorldDomain.ATTX, 2).setValue(GridWorldDomain.ATTY, 4));
+		assert(factory.hashState(immutableChanged).hashCode() == hBuilt.hashCode());
+		assert(factory.hashState(immutableChanged).equals(hBuilt));
+	}
+	
 	@Test
 	public void testSimpleHashFactoryLargeState() {
 		HashableStateFactory factory = new SimpleHashableStateFactory();
@@ -0,0 +1,411 @@
+package burlap.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import burlap.behavior.policy.EpsilonGreedy;
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.auxiliary.performance.HyperParameterSweep;
+import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.lspi.LSPI;
+import burlap.behavior.singleagent.learning.lspi.SARSCollector;
+import burlap.behavior.singleagent.learning.lspi.SARSData;
+import burlap.behavior.singleagent.learning.lspi.SparseLSTDQ;
+import burlap.behavior.singleagent.learning.tdmethods.ArrayQLearning;
+import burlap.behavior.singleagent.learning.tdmethods.AsynchronousQLearning;
+import burlap.behavior.singleagent.learning.tdmethods.ConcurrentQLearning;
+import burlap.behavior.singleagent.learning.tdmethods.ConcurrentQTable;
+import burlap.behavior.valuefunction.QValue;
+import burlap.behavior.valuefunction.ValueFunctionInitialization;
+import burlap.behavior.singleagent.vfa.ActionApproximationResult;
+import burlap.behavior.singleagent.vfa.StateFeature;
+import burlap.behavior.singleagent.vfa.cmac.CMACFeatureDatabase;
+import burlap.behavior.singleagent.vfa.cmac.FVCMACFeatureDatabase;
+import burlap.behavior.singleagent.vfa.common.ConcatenatedObjectFeatureVectorGenerator;
+import burlap.behavior.singleagent.vfa.common.LinearVFA;
+import burlap.behavior.singleagent.vfa.fourier.FourierBasis;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.oomdp.auxiliary.common.ConstantStateGenerator;
+import burlap.oomdp.auxiliary.common.SinglePFTF;
+import burlap.oomdp.core.AbstractObjectParameterizedGroundedAction;
+import burlap.oomdp.core.Attribute;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.ObjectClass;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.objects.MutableObjectInstance;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.states.MutableState;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.ObjectParameterizedAction;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.SADomain;
+import burlap.oomdp.singleagent.common.UniformCostRF;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentFactory;
+import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+public class TestLearning {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	GridWorldDomain gw;
+	Domain domain;
+	RewardFunction rf;
+	TerminalFunction tf;
+	SimpleHashableStateFactory hashingFactory;
+	State initialState;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setProbSucceedTransitionDynamics(1.0);
+		this.domain = this.gw.generateDomain();
+		this.rf = new UniformCostRF();
+		this.tf = new SinglePFTF(this.domain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		this.hashingFactory = new SimpleHashableStateFactory();
+		this.initialState = GridWorldDomain.getOneAgentOneLocationState(domain);
+		GridWorldDomain.setAgent(this.initialState, 0, 0);
+		GridWorldDomain.setLocation(this.initialState, 0, 10, 10);
+	}
+
+	@Test
+	public void testArrayQLearning() {
+		ArrayQLearning agent = new ArrayQLearning(this.domain, 0.99, this.hashingFactory, 0., 1.);
+		SimulatedEnvironment env = new SimulatedEnvironment(this.domain, this.rf, this.tf, this.initialState);
+		for(int i = 0; i < 500; i++){
+			agent.runLearningEpisode(env);
+			env.resetEnvironment();
+		}
+		Policy p = new GreedyQPolicy(agent);
+
+		List<QValue> qs = agent.getQs(this.initialState);
+		Assert.assertEquals(4, qs.size());
+		for(QValue q : qs){
+			Assert.assertEquals(q.q, agent.getQ(this.initialState, q.a).q, 0.);
+		}
+
+		EpisodeAnalysis ea = p.evaluateBehavior(this.initialState, this.rf, this.tf, 100);
+		Assert.assertTrue(this.tf.isTerminal(ea.getState(ea.numTimeSteps()-1)));
+		Assert.assertEquals(this.gw.getWidth() + this.gw.getHeight() - 2, ea.numTimeSteps()-1);
+	}
+
+	@Test
+	public void testSeedMappedReproducesLearning() {
+		RandomFactory.StreamContext previous = RandomFactory.getThreadContext();
+		List<Integer> first = this.seededEpisodeLengths(3);
+		List<Integer> second = this.seededEpisodeLengths(3);
+		RandomFactory.setThreadContext(previous);
+		Assert.assertEquals(first, second);
+	}
+
+	protected List<Integer> seededEpisodeLengths(long seed) {
+		RandomFactory.seedMapped(0, seed);
+		ArrayQLearning agent = new ArrayQLearning(this.domain, 0.99, this.hashingFactory, 0., 1.);
+		SimulatedEnvironment env = new SimulatedEnvironment(this.domain, this.rf, this.tf, this.initialState);
+		List<Integer> lengths = new ArrayList<Integer>();
+		for(int i = 0; i < 20; i++){
+			lengths.add(agent.runLearningEpisode(env).numTimeSteps());
+			env.resetEnvironment();
+		}
+		return lengths;
+	}
+
+	@Test
+	public void testAsynchronousQLearning() {
+		EnvironmentFactory envFactory = new EnvironmentFactory() {
+			@Override
+			public Environment generateEnvironment() {
+				return new SimulatedEnvironment(domain, rf, tf, initialState);
+			}
+		};
+		AsynchronousQLearning learner = new AsynchronousQLearning(this.domain, 0.99, this.hashingFactory,
+				new ValueFunctionInitialization.ConstantValueFunctionInitialization(0.), 1., envFactory, 3);
+		DPrint.toggleCode(learner.getDebugCode(), false);
+		learner.setRandomStreamSeed(7);
+		learner.runEpisodes(500);
+		Assert.assertEquals(500, learner.getNumEpisodesRun());
+
+		ConcurrentQTable.Snapshot snapshot = learner.snapshot();
+		Assert.assertEquals(learner.getQTable().numStates(), snapshot.numStates());
+		for(QValue q : snapshot.getQs(this.initialState)){
+			Assert.assertEquals(q.q, learner.getQ(this.initialState, q.a).q, 0.);
+		}
+
+		//the snapshot is unaffected by further learning
+		double v = snapshot.value(this.initialState);
+		learner.runEpisodes(10);
+		Assert.assertEquals(v, snapshot.value(this.initialState), 0.);
+
+		EpisodeAnalysis ea = new GreedyQPolicy(snapshot).evaluateBehavior(this.initialState, this.rf, this.tf, 100);
+		Assert.assertTrue(this.tf.isTerminal(ea.getState(ea.numTimeSteps()-1)));
+		Assert.assertEquals(this.gw.getWidth() + this.gw.getHeight() - 2, ea.numTimeSteps()-1);
+	}
+
+	@Test
+	public void testConcurrentQTableTranslatesParameterizedActions() {
+		Domain lights = this.lightsDomain();
+		State s = this.lightsState(lights, "light0", "light1");
+		State renamed = this.lightsState(lights, "b", "a");
+		TerminalFunction allOn = new TerminalFunction() {
+			@Override
+			public boolean isTerminal(State s) {
+				for(ObjectInstance o : s.getObjectsOfClass("light")){
+					if(o.getIntValForAttribute("on") == 0){
+						return false;
+					}
+				}
+				return true;
+			}
+		};
+
+		//the row is created from the renamed state, so its actions name the objects of that state
+		ConcurrentQTable table = new ConcurrentQTable(lights.getActions(), new ValueFunctionInitialization.ConstantValueFunctionInitialization(0.), 1);
+		ConcurrentQTable.Row row = table.rowFor(this.hashingFactory.hashState(renamed));
+		Assert.assertEquals(2, row.numActions());
+		for(int a = 0; a < row.numActions(); a++){
+			if(((AbstractObjectParameterizedGroundedAction)row.actions[a]).getObjectParameters()[0].equals("b")){
+				table.update(row, a, 1., 5.);
+			}
+		}
+
+		GroundedAction toggle0 = new ObjectParameterizedAction.ObjectParameterizedGroundedAction(lights.getAction("toggle"), new String[]{"light0"});
+		this.assertTranslatedQs(s, table.getQs(table.rowFor(this.hashingFactory.hashState(s)), s));
+		this.assertTranslatedQs(s, table.snapshot(this.hashingFactory).getQs(s));
+
+		ConcurrentQLearning agent = new ConcurrentQLearning(lights, 0.99, this.hashingFactory, table, 1.);
+		this.assertTranslatedQs(s, agent.getQs(s));
+		Assert.assertEquals(5., agent.getQ(s, toggle0).q, 0.);
+
+		EpisodeAnalysis ea = agent.runLearningEpisode(new SimulatedEnvironment(lights, this.rf, allOn, s));
+		Assert.assertEquals(2, ea.numTimeSteps()-1);
+		Assert.assertTrue(allOn.isTerminal(ea.getState(2)));
+	}
+
+	/**
+	 * Asserts that the Q-values of a lights state name its objects and that only toggling the light at position 0 has a Q-value of 5.
+	 */
+	protected void assertTranslatedQs(State s, List<QValue> qs){
+		Assert.assertEquals(2, qs.size());
+		for(QValue q : qs){
+			String light = ((AbstractObjectParameterizedGroundedAction)q.a).getObjectParameters()[0];
+			ObjectInstance o = s.getObject(light);
+			Assert.assertNotNull(o);
+			Assert.assertEquals(o.getIntValForAttribute("pos") == 0 ? 5. : 0., q.q, 0.);
+		}
+	}
+
+	/**
+	 * Returns a domain of lights with an object identifier independent toggle action that turns on the light it is given.
+	 */
+	protected Domain lightsDomain(){
+		Domain d = new SADomain();
+		d.setObjectIdentiferDependence(false);
+		Attribute pos = new Attribute(d, "pos", Attribute.AttributeType.INT);
+		pos.setLims(0, 1);
+		Attribute on = new Attribute(d, "on", Attribute.AttributeType.INT);
+		on.setLims(0, 1);
+		ObjectClass light = new ObjectClass(d, "light");
+		light.addAttribute(pos);
+		light.addAttribute(on);
+		new ObjectParameterizedAction("toggle", d, new String[]{"light"}) {
+			@Override
+			public boolean parametersAreObjectIdentifierIndependent() {
+				return true;
+			}
+
+			@Override
+			public boolean applicableInState(State s, GroundedAction groundedAction) {
+				String light = ((AbstractObjectParameterizedGroundedAction)groundedAction).getObjectParameters()[0];
+				return s.getObject(light).getIntValForAttribute("on") == 0;
+			}
+
+			@Override
+			public boolean isPrimitive() {
+				return true;
+			}
+
+			@Override
+			protected State performActionHelper(State s, GroundedAction groundedAction) {
+				String light = ((AbstractObjectParameterizedGroundedAction)groundedAction).getObjectParameters()[0];
+				s.getObject(light).setValue("on", 1);
+				return s;
+			}
+		};
+		return d;
+	}
+
+	/**
+	 * Returns a lights state in which every light is off and the light with the ith name is at position i.
+	 */
+	protected State lightsState(Domain d, String...names){
+		State s = new MutableState();
+		for(int i = 0; i < names.length; i++){
+			ObjectInstance o = new MutableObjectInstance(d.getObjectClass("light"), names[i]);
+			o.setValue("pos", i);
+			o.setValue("on", 0);
+			s.addObject(o);
+		}
+		return s;
+	}
+
+	@Test
+	public void testSparseLSTDQ() {
+		GridWorldDomain smallGW = new GridWorldDomain(5, 5);
+		smallGW.setProbSucceedTransitionDynamics(1.0);
+		Domain smallDomain = smallGW.generateDomain();
+		TerminalFunction smallTF = new SinglePFTF(smallDomain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		State s = GridWorldDomain.getOneAgentOneLocationState(smallDomain);
+		GridWorldDomain.setAgent(s, 0, 0);
+		GridWorldDomain.setLocation(s, 0, 4, 4);
+
+		SARSData dataset = new SARSCollector.UniformRandomSARSCollector(smallDomain)
+				.collectNInstances(new ConstantStateGenerator(s), this.rf, 3000, 50, smallTF, null);
+
+		//one tile per cell makes the features tabular
+		FVCMACFeatureDatabase fd = new FVCMACFeatureDatabase(new ConcatenatedObjectFeatureVectorGenerator(false, GridWorldDomain.CLASSAGENT));
+		fd.addTilingsForAllDimensionsWithWidths(new double[]{1., 1.}, 1, CMACFeatureDatabase.TilingArrangement.UNIFORM);
+
+		//both solve modes must agree on the same samples
+		List<SparseLSTDQ.Sample> samples = new ArrayList<SparseLSTDQ.Sample>(dataset.size());
+		SparseLSTDQ incremental = new SparseLSTDQ();
+		List<List<StateFeature>> phis = new ArrayList<List<StateFeature>>(2*dataset.size());
+		for(SARSData.SARS sars : dataset.dataset){
+			phis.add(fd.getActionFeaturesSets(sars.s, Arrays.asList(sars.a)).get(0).features);
+			phis.add(fd.getActionFeaturesSets(sars.sp, Arrays.asList(sars.a)).get(0).features);
+		}
+		int nf = fd.numberOfFeatures();
+		for(int i = 0; i < dataset.size(); i++){
+			samples.add(incremental.sample(phis.get(2*i), phis.get(2*i+1), dataset.get(i).r, nf));
+		}
+		double [] wIncremental = incremental.solve(samples, nf, 0.95, 100.);
+		double [] wBatch = new SparseLSTDQ(SparseLSTDQ.SolveMode.BATCH, 3).solve(samples, nf, 0.95, 100.);
+		for(int i = 0; i < nf; i++){
+			Assert.assertEquals(wIncremental[i], wBatch[i], 1e-6 * Math.max(1., Math.abs(wIncremental[i])));
+		}
+
+		LSPI batch = new LSPI(smallDomain, 0.95, fd, dataset);
+		batch.setLSTDQSolver(new SparseLSTDQ(SparseLSTDQ.SolveMode.BATCH, 3));
+		DPrint.toggleCode(0, false);
+		Policy p = batch.runPolicyIteration(20, 1e-6);
+		DPrint.toggleCode(0, true);
+		EpisodeAnalysis ea = p.evaluateBehavior(s, this.rf, smallTF, 100);
+		Assert.assertEquals(8, ea.numTimeSteps()-1);
+	}
+
+	@Test
+	public void testHyperParameterSweep() throws IOException {
+		DPrint.toggleUniversal(false);
+		String sequential = new File(this.folder.getRoot(), "sequential.csv").getAbsolutePath();
+		String concurrent = new File(this.folder.getRoot(), "concurrent.csv").getAbsolutePath();
+
+		List<HyperParameterSweep.Result> expected = this.sweep(1).run(sequential);
+		Assert.assertEquals(2*2*2*2*2, expected.size());
+		this.assertSameResults(expected, this.sweep(3).run(concurrent));
+		Assert.assertEquals(1 + expected.size(), this.read(concurrent).size());
+
+		//an interrupted sweep resumes from the configurations completed in the file
+		List<String> lines = this.read(sequential);
+		Files.write(new File(concurrent).toPath(), lines.subList(0, 6), Charset.forName("UTF-8"));
+		HyperParameterSweep resumed = this.sweep(2);
+		this.assertSameResults(expected, resumed.run(concurrent));
+		Assert.assertEquals(1 + expected.size(), this.read(concurrent).size());
+	}
+
+	@Test
+	public void testFourierBasisDenseValues() {
+		FourierBasis fb = new FourierBasis(new ConcatenatedObjectFeatureVectorGenerator(true, GridWorldDomain.CLASSAGENT), 3);
+		LinearVFA vfa = new LinearVFA(fb, 0.);
+		List<GroundedAction> actions = Action.getAllApplicableGroundedActionsFromActionList(this.domain.getActions(), this.initialState);
+
+		State s = this.initialState.copy();
+		GridWorldDomain.setAgent(s, 3, 7);
+		List<ActionApproximationResult> results = vfa.getStateActionValues(s, actions);
+		Random rand = new Random(1);
+		for(int i = 0; i < fb.numberOfFeatures(); i++){
+			vfa.setWeight(i, rand.nextDouble() - 0.5);
+		}
+
+		double [] values = null;
+		for(int x = 0; x <= 10; x += 5){
+			GridWorldDomain.setAgent(s, x, 10 - x);
+			double [] input = new ConcatenatedObjectFeatureVectorGenerator(true, GridWorldDomain.CLASSAGENT).generateFeatureVectorFrom(s);
+			double [] basis = fb.basisValues(input, null);
+			Assert.assertEquals(16, basis.length);
+			for(int j = 0; j < basis.length; j++){
+				Assert.assertEquals(fb.basisValue(input, j), basis[j], 1e-12);
+			}
+
+			results = vfa.getStateActionValues(s, actions);
+			values = vfa.stateActionValues(s, actions, values);
+			for(int i = 0; i < actions.size(); i++){
+				Assert.assertEquals(results.get(i).approximationResult.predictedValue, values[i], 1e-12);
+			}
+		}
+
+		//weights changed through the object interface are seen by the primitive-array path
+		results.get(0).approximationResult.functionWeights.get(1).setWeight(5.);
+		Assert.assertEquals(vfa.getStateActionValues(s, actions).get(0).approximationResult.predictedValue,
+				vfa.stateActionValues(s, actions, values)[0], 1e-12);
+	}
+
+	protected HyperParameterSweep sweep(int parallelism){
+		SimulatedEnvironment env = new SimulatedEnvironment(this.domain, this.rf, this.tf, this.initialState);
+		HyperParameterSweep sweep = new HyperParameterSweep(env.copyFactory(), new HyperParameterSweep.ConfigurationAgentFactory() {
+			@Override
+			public LearningAgent generateAgent(HyperParameterSweep.Configuration c, Random rand) {
+				EpsilonGreedy learningPolicy = new EpsilonGreedy(c.getEpsilon());
+				learningPolicy.setRandomGenerator(rand);
+				ArrayQLearning agent = new ArrayQLearning(TestLearning.this.domain, c.getGamma(), TestLearning.this.hashingFactory, c.getQInit(),
+						c.getLearningRate(), learningPolicy, Integer.MAX_VALUE);
+				learningPolicy.setSolver(agent);
+				return agent;
+			}
+		});
+		sweep.setLearningRates(0.5, 1.);
+		sweep.setGammas(0.9, 0.99);
+		sweep.setEpsilons(0.05, 0.2);
+		sweep.addQInitialization("0", new ValueFunctionInitialization.ConstantValueFunctionInitialization(0.));
+		sweep.addQInitialization("10", new ValueFunctionInitialization.ConstantValueFunctionInitialization(10.));
+		sweep.setEpisodeBudgets(20, 5);
+		sweep.setSeed(7);
+		sweep.setParallelism(parallelism);
+		return sweep;
+	}
+
+	protected void assertSameResults(List<HyperParameterSweep.Result> expected, List<HyperParameterSweep.Result> actual){
+		Assert.assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++){
+			HyperParameterSweep.Result e = expected.get(i);
+			HyperParameterSweep.Result a = actual.get(i);
+			Assert.assertEquals(e.getConfiguration().getIndex(), a.getConfiguration().getIndex());
+			Assert.assertEquals(e.getEpisodes(), a.getEpisodes());
+			Assert.assertEquals(e.getLastEpisodeReward(), a.getLastEpisodeReward(), 0.);
+			Assert.assertEquals(e.getAverageEpisodeReward(), a.getAverageEpisodeReward(), 0.);
+			Assert.assertEquals(e.getTotalSteps(), a.getTotalSteps());
+		}
+	}
+
+	protected List<String> read(String path) throws IOException {
+		return Files.readAllLines(new File(path).toPath(), Charset.forName("UTF-8"));
+	}
+}
@@ -0,0 +1,110 @@
+package burlap.testing;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.pomdp.BeliefPolicyAgent;
+import burlap.behavior.singleagent.pomdp.pointbased.PointBasedValueIteration;
+import burlap.debugtools.DPrint;
+import burlap.domain.singleagent.pomdp.tiger.TigerDomain;
+import burlap.oomdp.auxiliary.common.NullTermination;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.pomdp.PODomain;
+import burlap.oomdp.singleagent.pomdp.SimulatedPOEnvironment;
+import burlap.oomdp.singleagent.pomdp.beliefstate.tabular.TabularBeliefState;
+
+public class TestPOMDP {
+
+	PODomain domain;
+	TabularBeliefState initialBelief;
+
+	@Before
+	public void setup() {
+		this.domain = (PODomain)new TigerDomain(false).generateDomain();
+		this.initialBelief = TigerDomain.getInitialBeliefState(this.domain);
+		DPrint.toggleUniversal(false);
+	}
+
+	@Test
+	public void testPointBasedValueIteration() {
+
+		PointBasedValueIteration sequential = this.planner(PointBasedValueIteration.BackupMode.PBVI, 1);
+		sequential.planFromState(this.initialBelief);
+
+		//the optimal value of the uniform belief in the discount 0.95 tiger problem is 19.37
+		Assert.assertEquals(19.37, sequential.value(this.initialBelief), 0.01);
+
+		//parallel backups of the same belief points compute the same alpha vectors
+		PointBasedValueIteration parallel = this.planner(PointBasedValueIteration.BackupMode.PBVI, 3);
+		for(double [] b : sequential.getBeliefPoints()){
+			parallel.addBeliefPoint(b);
+		}
+		parallel.planFromState(this.initialBelief);
+		Assert.assertEquals(sequential.getTotalIterations(), parallel.getTotalIterations());
+		Assert.assertArrayEquals(sequential.getAlphaVectors(), parallel.getAlphaVectors());
+
+		PointBasedValueIteration perseus = this.planner(PointBasedValueIteration.BackupMode.PERSEUS, 3);
+		perseus.planFromState(this.initialBelief);
+		Assert.assertEquals(sequential.value(this.initialBelief), perseus.value(this.initialBelief), 0.01);
+
+		//listen when uncertain; open the door away from the tiger when fairly sure where it is
+		TabularBeliefState tigerLeft = new TabularBeliefState(this.initialBelief);
+		tigerLeft.setBelief(TigerDomain.tigerLeftState(this.domain), 0.97);
+		tigerLeft.setBelief(TigerDomain.tigerRightState(this.domain), 0.03);
+		Policy p = new GreedyQPolicy(perseus);
+		Assert.assertEquals(TigerDomain.ACTIONLISTEN, p.getAction(this.initialBelief).actionName());
+		Assert.assertEquals(TigerDomain.ACTIONRIGHT, p.getAction(tigerLeft).actionName());
+
+		SimulatedPOEnvironment env = new SimulatedPOEnvironment(this.domain, new TigerDomain.TigerRF(), new NullTermination(),
+				TigerDomain.randomSideStateGenerator(this.domain));
+		BeliefPolicyAgent agent = new BeliefPolicyAgent(this.domain, env, p);
+		agent.setBeliefState(this.initialBelief);
+		EpisodeAnalysis ea = agent.actUntilTerminalOrMaxSteps(20);
+		Assert.assertEquals(TigerDomain.ACTIONLISTEN, ea.getAction(0).actionName());
+	}
+
+	@Test
+	public void testTabularBeliefUpdate() {
+
+		List<State> observations = this.domain.getObservationFunction().getAllPossibleObservations();
+		State hearLeft = observations.get(0);
+		State reset = observations.get(2);
+		GroundedAction listen = this.domain.getAction(TigerDomain.ACTIONLISTEN).getAssociatedGroundedAction();
+		GroundedAction openLeft = this.domain.getAction(TigerDomain.ACTIONLEFT).getAssociatedGroundedAction();
+		State left = TigerDomain.tigerLeftState(this.domain);
+
+		TabularBeliefState b = (TabularBeliefState)this.initialBelief.getUpdatedBeliefState(hearLeft, listen);
+		Assert.assertEquals(0.85, b.belief(left), 1e-10);
+		Assert.assertSame(this.initialBelief.getBeliefUpdater(), b.getBeliefUpdater());
+
+		//the second update reuses the compiled rows and observation vector
+		b = (TabularBeliefState)b.getUpdatedBeliefState(hearLeft, listen);
+		Assert.assertEquals(0.85*0.85 / (0.85*0.85 + 0.15*0.15), b.belief(left), 1e-10);
+
+		b = (TabularBeliefState)b.getUpdatedBeliefState(reset, openLeft);
+		Assert.assertEquals(0.5, b.belief(left), 1e-10);
+
+		try{
+			b.getUpdatedBeliefState(reset, listen);
+			Assert.fail("an observation with zero probability should not update the belief");
+		}catch(RuntimeException e){
+			//expected
+		}
+	}
+
+	protected PointBasedValueIteration planner(PointBasedValueIteration.BackupMode mode, int parallelism){
+		PointBasedValueIteration planner = new PointBasedValueIteration(this.domain, new TigerDomain.TigerRF(), new NullTermination(), 0.95, 100, 1e-6, 1000);
+		planner.setBackupMode(mode);
+		planner.setParallelism(parallelism);
+		planner.setRandomGenerator(new Random(3));
+		return planner;
+	}
+}
@@ -0,0 +1,120 @@
+package burlap.testing;
+
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import burlap.behavior.singleagent.auxiliary.StateReachability;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.mountaincar.MountainCar;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.objects.ObjectInstance;
+import burlap.oomdp.core.states.PackedState;
+import burlap.oomdp.core.states.PackedStateSchema;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.SADomain;
+import burlap.oomdp.statehashing.HashableState;
+import burlap.oomdp.statehashing.HashableStateFactory;
+import burlap.oomdp.statehashing.IncrementalHashableStateFactory;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+public class TestPackedState {
+	TestGridWorld gridWorldTest;
+
+	@Before
+	public void setup() {
+		this.gridWorldTest = new TestGridWorld();
+		this.gridWorldTest.setup();
+	}
+
+	@Test
+	public void testPackedStateGridWorld() {
+		State s = this.gridWorldTest.generateState();
+		this.gridWorldTest.testGridWorld(new PackedStateSchema(s).pack(s));
+	}
+
+	@Test
+	public void testPackedStateReachability() {
+		SADomain domain = (SADomain)this.gridWorldTest.getDomain();
+		State s = this.gridWorldTest.generateState();
+		PackedState packed = new PackedStateSchema(s).pack(s);
+
+		Set<HashableState> simple = StateReachability.getReachableHashedStates(packed, domain, new SimpleHashableStateFactory());
+		Assert.assertEquals(104, simple.size());
+
+		HashableStateFactory factory = new IncrementalHashableStateFactory();
+		Set<HashableState> incremental = StateReachability.getReachableHashedStates(packed, domain, factory);
+		Assert.assertEquals(104, incremental.size());
+
+		//packed and mutable states with the same values are equal and hash the same
+		HashableState hPacked = factory.hashState(packed);
+		HashableState hMutable = factory.hashState(s);
+		Assert.assertEquals(hMutable.hashCode(), hPacked.hashCode());
+		Assert.assertTrue(hPacked.equals(hMutable));
+		Assert.assertTrue(hMutable.equals(hPacked));
+		Assert.assertTrue(incremental.contains(hMutable));
+	}
+
+	@Test
+	public void testPackedStateCopyOnWrite() {
+		State s = this.gridWorldTest.generateState();
+		PackedState packed = new PackedStateSchema(s).pack(s);
+		HashableStateFactory factory = new IncrementalHashableStateFactory();
+		int originalHash = factory.hashState(packed).hashCode();
+
+		PackedState copy = packed.copy();
+		ObjectInstance agent = copy.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT);
+		agent.setValue(GridWorldDomain.ATTX, 1);
+
+		Assert.assertEquals(1, agent.getIntValForAttribute(GridWorldDomain.ATTX));
+		Assert.assertEquals(0, packed.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT).getIntValForAttribute(GridWorldDomain.ATTX));
+		Assert.assertEquals(originalHash, factory.hashState(packed).hashCode());
+		Assert.assertFalse(factory.hashState(packed).equals(factory.hashState(copy)));
+
+		agent.setValue(GridWorldDomain.ATTX, 0);
+		Assert.assertEquals(originalHash, factory.hashState(copy).hashCode());
+		Assert.assertTrue(factory.hashState(packed).equals(factory.hashState(copy)));
+		Assert.assertEquals(packed, copy);
+
+		ObjectInstance mutableAgent = copy.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT).copy();
+		mutableAgent.setValue(GridWorldDomain.ATTY, 5);
+		Assert.assertEquals(0, copy.getFirstObjectOfClass(GridWorldDomain.CLASSAGENT).getIntValForAttribute(GridWorldDomain.ATTY));
+	}
+
+	@Test
+	public void testPackedStateMountainCar() {
+		MountainCar mc = new MountainCar();
+		Domain domain = mc.generateDomain();
+		State s = mc.getCleanState(domain);
+		State packed = new PackedStateSchema(s).pack(s);
+
+		Action forward = domain.getAction(MountainCar.ACTIONFORWARD);
+		for(int i = 0; i < 50; i++){
+			s = forward.performAction(s, forward.getAssociatedGroundedAction());
+			packed = forward.performAction(packed, forward.getAssociatedGroundedAction());
+			ObjectInstance a = s.getFirstObjectOfClass(MountainCar.CLASSAGENT);
+			ObjectInstance pa = packed.getFirstObjectOfClass(MountainCar.CLASSAGENT);
+			Assert.assertEquals(a.getRealValForAttribute(MountainCar.ATTX), pa.getRealValForAttribute(MountainCar.ATTX), 0.);
+			Assert.assertEquals(a.getRealValForAttribute(MountainCar.ATTV), pa.getRealValForAttribute(MountainCar.ATTV), 0.);
+		}
+		Assert.assertTrue(packed instanceof PackedState);
+
+		//unset (NaN) real values of separately owned arrays are identical
+		PackedState unsetA = ((PackedState)packed).copy();
+		unsetA.setReal(0, 0, Double.NaN);
+		PackedState unsetB = ((PackedState)packed).copy();
+		unsetB.setReal(0, 0, Double.NaN);
+		Assert.assertTrue(unsetA.valuesIdentical(unsetB));
+		Assert.assertFalse(unsetA.valuesIdentical((PackedState)packed));
+	}
+
+	@After
+	public void teardown() {
+		this.gridWorldTest.teardown();
+		this.gridWorldTest = null;
+	}
+}
@@ -1,5 +1,13 @@
 package burlap.testing;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -13,7 +21,22 @@ import burlap.behavior.singleagent.planning.deterministic.informed.Heuristic;
 import burlap.behavior.singleagent.planning.deterministic.informed.astar.AStar;
 import burlap.behavior.singleagent.planning.deterministic.uninformed.bfs.BFS;
 import burlap.behavior.singleagent.planning.deterministic.uninformed.dfs.DFS;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.ParallelUCT;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCTActionNode;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCTStateNode;
+import burlap.behavior.singleagent.planning.stochastic.sparsesampling.SparseSampling;
+import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MaxQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CorrelatedQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MinMaxQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
+import burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.MAValueIteration;
+import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver.CorrelatedEquilibriumObjective;
+import burlap.behavior.stochasticgames.solvers.EquilibriumSolutionCache;
+import burlap.debugtools.DPrint;
+import burlap.behavior.valuefunction.QValue;
 import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.stochasticgames.gridgame.GridGame;
 import burlap.oomdp.auxiliary.common.SinglePFTF;
 import burlap.oomdp.auxiliary.stateconditiontest.StateConditionTest;
 import burlap.oomdp.auxiliary.stateconditiontest.TFGoalCondition;
@@ -22,8 +45,12 @@ import burlap.oomdp.core.TerminalFunction;
 import burlap.oomdp.core.objects.ObjectInstance;
 import burlap.oomdp.core.states.State;
 import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.common.GoalBasedRF;
 import burlap.oomdp.singleagent.common.UniformCostRF;
 import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+import burlap.oomdp.stochasticgames.JointAction;
+import burlap.oomdp.stochasticgames.SGAgentType;
+import burlap.oomdp.stochasticgames.SGDomain;
 
 public class TestPlanning {
 	public static final double delta = 0.000001;
@@ -114,6 +141,97 @@ public class TestPlanning {
 		this.evaluateEpisode(analysis, true);
 	}
 	
+	@Test
+	public void testParallelUCT() {
+		GridWorldDomain open = new GridWorldDomain(4, 4);
+		Domain openDomain = open.generateDomain();
+		TerminalFunction openTF = new SinglePFTF(openDomain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		RewardFunction goalRF = new GoalBasedRF(openTF, 10., 0.);
+		State initialState = GridWorldDomain.getOneAgentOneLocationState(openDomain);
+		GridWorldDomain.setAgent(initialState, 0, 0);
+		GridWorldDomain.setLocation(initialState, 0, 3, 3);
+
+		for(ParallelUCT.ParallelMode mode : ParallelUCT.ParallelMode.values()){
+			ParallelUCT planner = new ParallelUCT(openDomain, goalRF, openTF, 0.9, this.hashingFactory, 20, 3000, 2, mode, 3);
+			DPrint.toggleCode(planner.getDebugCode(), false);
+			planner.setRandomGenerator(new Random(1));
+			planner.planFromState(initialState);
+			Assert.assertEquals(3000, planner.getRoot().n);
+
+			//every virtual loss was replaced by a nonnegative sample return
+			Set<UCTStateNode> visited = new HashSet<UCTStateNode>();
+			LinkedList<UCTStateNode> queue = new LinkedList<UCTStateNode>();
+			queue.add(planner.getRoot());
+			while(!queue.isEmpty()){
+				UCTStateNode snode = queue.poll();
+				if(!visited.add(snode)){
+					continue;
+				}
+				int n = 0;
+				for(UCTActionNode anode : snode.actionNodes){
+					n += anode.n;
+					Assert.assertTrue(anode.n == 0 || anode.sumReturn >= 0.);
+					queue.addAll(anode.getAllSuccessors());
+				}
+				Assert.assertEquals(snode.n, n);
+			}
+			Assert.assertTrue(planner.value(initialState) > 0.);
+		}
+
+		//merged root parallel trees are reproducible
+		List<QValue> first = this.rootParallelQs(openDomain, goalRF, openTF, initialState);
+		List<QValue> second = this.rootParallelQs(openDomain, goalRF, openTF, initialState);
+		for(int i = 0; i < first.size(); i++){
+			Assert.assertEquals(first.get(i).q, second.get(i).q, 0.);
+		}
+
+		//an unlimited number of rollouts is bounded by the time budget
+		ParallelUCT timed = new ParallelUCT(openDomain, goalRF, openTF, 0.9, this.hashingFactory, 20, -1, 2, ParallelUCT.ParallelMode.TREE, 2);
+		DPrint.toggleCode(timed.getDebugCode(), false);
+		timed.setTimeBudget(100);
+		long start = System.currentTimeMillis();
+		timed.planFromState(initialState);
+		Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+		Assert.assertTrue(timed.getRoot().n > 0);
+	}
+
+	@Test
+	public void testParallelSparseSampling() {
+		GridWorldDomain open = new GridWorldDomain(4, 4);
+		open.setProbSucceedTransitionDynamics(0.8);
+		Domain openDomain = open.generateDomain();
+		TerminalFunction openTF = new SinglePFTF(openDomain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		RewardFunction goalRF = new GoalBasedRF(openTF, 10., 0.);
+		State initialState = GridWorldDomain.getOneAgentOneLocationState(openDomain);
+		GridWorldDomain.setAgent(initialState, 0, 0);
+		GridWorldDomain.setLocation(initialState, 0, 3, 3);
+
+		SparseSampling serial = new SparseSampling(openDomain, goalRF, openTF, 0.9, this.hashingFactory, 7, -1);
+		DPrint.toggleCode(serial.getDebugCode(), false);
+		List<QValue> expected = serial.getQs(initialState);
+
+		//parallel expansion with a bounded cache computes the same exact finite horizon values
+		SparseSampling parallel = new SparseSampling(openDomain, goalRF, openTF, 0.9, this.hashingFactory, 7, -1);
+		parallel.setParallelism(3);
+		parallel.setMinForkHeight(4);
+		parallel.setMaxCachedNodes(40);
+		List<QValue> actual = parallel.getQs(initialState);
+		Assert.assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++){
+			Assert.assertEquals(expected.get(i).q, actual.get(i).q, 1e-10);
+		}
+		Assert.assertTrue(parallel.getNumberOfStateNodesCreated() <= 41);
+		Assert.assertTrue(parallel.getNumberOfValueEsitmates() > serial.getNumberOfValueEsitmates());
+	}
+
+	protected List<QValue> rootParallelQs(Domain domain, RewardFunction rf, TerminalFunction tf, State initialState){
+		ParallelUCT planner = new ParallelUCT(domain, rf, tf, 0.9, this.hashingFactory, 20, 500, 2, ParallelUCT.ParallelMode.ROOT, 4);
+		DPrint.toggleCode(planner.getDebugCode(), false);
+		planner.setRandomGenerator(new Random(7));
+		planner.planFromState(initialState);
+		return planner.getQs(initialState);
+	}
+
 	public void evaluateEpisode(EpisodeAnalysis analysis) {
 		this.evaluateEpisode(analysis, false);
 	}
@@ -134,4 +252,110 @@ public class TestPlanning {
 	public void teardown() {
 		
 	}
+
+	@Test
+	public void testCompiledMAValueIteration() {
+		SGDomain ggDomain = (SGDomain)new GridGame().generateDomain();
+		State s = GridGame.getSimpleGameInitialState(ggDomain);
+		SGAgentType at = GridGame.getStandardGridGameAgentType(ggDomain);
+		Map<String, SGAgentType> agentDefinitions = new HashMap<String, SGAgentType>();
+		agentDefinitions.put(GridGame.CLASSAGENT + "0", at);
+		agentDefinitions.put(GridGame.CLASSAGENT + "1", at);
+
+		//the second operator is not recognized as MaxQ, so its Q-values are queried through the compiled Q-sources
+		SGBackupOperator wrappedMaxQ = new SGBackupOperator() {
+			@Override
+			public double performBackup(State s, String forAgent, Map<String, SGAgentType> agentDefinitions, AgentQSourceMap qSourceMap) {
+				return new MaxQ().performBackup(s, forAgent, agentDefinitions, qSourceMap);
+			}
+		};
+
+		for(SGBackupOperator operator : new SGBackupOperator[]{new MaxQ(), wrappedMaxQ}){
+			MAValueIteration vi = this.gridGameVI(ggDomain, agentDefinitions, operator);
+			vi.planFromState(s);
+
+			MAValueIteration compiled = this.gridGameVI(ggDomain, agentDefinitions, operator);
+			compiled.toggleUseCompiledDynamics(true);
+			compiled.setParallelism(3);
+			compiled.planFromState(s);
+			Assert.assertTrue(compiled.getCompiledJointDynamics().numStates() > 1);
+
+			for(JointAction ja : JointAction.getAllJointActions(s, agentDefinitions)){
+				for(String agentName : agentDefinitions.keySet()){
+					Assert.assertEquals(vi.getQSources().agentQSource(agentName).getQValueFor(s, ja).q,
+							compiled.getQSources().agentQSource(agentName).getQValueFor(s, ja).q, 1e-4);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCachedEquilibriumBackups() {
+		SGDomain ggDomain = (SGDomain)new GridGame().generateDomain();
+		State s = GridGame.getSimpleGameInitialState(ggDomain);
+		SGAgentType at = GridGame.getStandardGridGameAgentType(ggDomain);
+		Map<String, SGAgentType> agentDefinitions = new HashMap<String, SGAgentType>();
+		agentDefinitions.put(GridGame.CLASSAGENT + "0", at);
+		agentDefinitions.put(GridGame.CLASSAGENT + "1", at);
+
+		MAValueIteration vi = this.gridGameVI(ggDomain, agentDefinitions, new MinMaxQ());
+		vi.toggleUseCompiledDynamics(true);
+		vi.planFromState(s);
+
+		//with a tolerance of 0, solutions are only reused for identical games, so the values must be exactly those of solving every game
+		EquilibriumSolutionCache cache = new EquilibriumSolutionCache(0.);
+		MAValueIteration cached = this.gridGameVI(ggDomain, agentDefinitions, new MinMaxQ(new SimpleHashableStateFactory(), cache));
+		cached.toggleUseCompiledDynamics(true);
+		cached.setParallelism(2);
+		cached.planFromState(s);
+		Assert.assertTrue(cache.getNumReuses() > 0);
+		Assert.assertEquals(cached.getCompiledJointDynamics().numStates() * agentDefinitions.size(), cache.size());
+
+		for(JointAction ja : JointAction.getAllJointActions(s, agentDefinitions)){
+			for(String agentName : agentDefinitions.keySet()){
+				Assert.assertEquals(vi.getQSources().agentQSource(agentName).getQValueFor(s, ja).q,
+						cached.getQSources().agentQSource(agentName).getQValueFor(s, ja).q, 1e-10);
+			}
+		}
+
+		//the same holds for correlated equilibria; a few sweeps suffice since each one solves a linear program per state and agent
+		MAValueIteration ce = this.gridGameVI(ggDomain, agentDefinitions, new CorrelatedQ(CorrelatedEquilibriumObjective.UTILITARIAN), 5);
+		ce.toggleUseCompiledDynamics(true);
+		ce.planFromState(s);
+
+		EquilibriumSolutionCache ceCache = new EquilibriumSolutionCache(0.);
+		MAValueIteration cachedCE = this.gridGameVI(ggDomain, agentDefinitions,
+				new CorrelatedQ(CorrelatedEquilibriumObjective.UTILITARIAN, new SimpleHashableStateFactory(), ceCache), 5);
+		cachedCE.toggleUseCompiledDynamics(true);
+		cachedCE.planFromState(s);
+		Assert.assertTrue(ceCache.getNumReuses() > 0);
+
+		for(JointAction ja : JointAction.getAllJointActions(s, agentDefinitions)){
+			for(String agentName : agentDefinitions.keySet()){
+				Assert.assertEquals(ce.getQSources().agentQSource(agentName).getQValueFor(s, ja).q,
+						cachedCE.getQSources().agentQSource(agentName).getQValueFor(s, ja).q, 1e-10);
+			}
+		}
+
+		//a previous minmax solution is reused without solving when it is still a saddle point of the changed game
+		double [][] payoffs = new double[][]{{3., 1.}, {0., 2.}};
+		EquilibriumSolutionCache warm = new EquilibriumSolutionCache(1e-8);
+		double [][] strategies = warm.getMinMaxStrategies("g", payoffs);
+		Assert.assertEquals(0., EquilibriumSolutionCache.saddlePointGap(payoffs, strategies[0], strategies[1]), 1e-8);
+		Assert.assertTrue(warm.getMinMaxStrategies("g", new double[][]{{6., 2.}, {0., 4.}}) == strategies);
+		Assert.assertEquals(1, warm.getNumSolves());
+		Assert.assertTrue(warm.getMinMaxStrategies("g", new double[][]{{0., 3.}, {1., 0.}}) != strategies);
+		Assert.assertEquals(2, warm.getNumSolves());
+	}
+
+	protected MAValueIteration gridGameVI(SGDomain ggDomain, Map<String, SGAgentType> agentDefinitions, SGBackupOperator operator){
+		return this.gridGameVI(ggDomain, agentDefinitions, operator, 1000);
+	}
+
+	protected MAValueIteration gridGameVI(SGDomain ggDomain, Map<String, SGAgentType> agentDefinitions, SGBackupOperator operator, int maxIterations){
+		MAValueIteration vi = new MAValueIteration(ggDomain, agentDefinitions, new GridGame.GGJointRewardFunction(ggDomain, -1, 100, false),
+				new GridGame.GGTerminalFunction(ggDomain), 0.95, new SimpleHashableStateFactory(), 0., operator, 1e-6, maxIterations);
+		DPrint.toggleCode(88934789, false);
+		return vi;
+	}
 }
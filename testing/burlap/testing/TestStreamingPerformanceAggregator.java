@@ -0,0 +1,338 @@
+package burlap.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import burlap.behavior.singleagent.EpisodeAnalysis;
+import burlap.behavior.singleagent.auxiliary.performance.LearningAlgorithmExperimenter;
+import burlap.behavior.singleagent.auxiliary.performance.PerformanceDataCollector;
+import burlap.behavior.singleagent.auxiliary.performance.PerformanceMetric;
+import burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter;
+import burlap.behavior.singleagent.auxiliary.performance.StreamingPerformanceAggregator;
+import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.LearningAgentFactory;
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.oomdp.auxiliary.common.SinglePFTF;
+import burlap.oomdp.auxiliary.stateconditiontest.TFGoalCondition;
+import burlap.oomdp.core.Domain;
+import burlap.oomdp.core.TerminalFunction;
+import burlap.oomdp.core.states.State;
+import burlap.oomdp.singleagent.Action;
+import burlap.oomdp.singleagent.GroundedAction;
+import burlap.oomdp.singleagent.RewardFunction;
+import burlap.oomdp.singleagent.common.GoalBasedRF;
+import burlap.oomdp.singleagent.environment.Environment;
+import burlap.oomdp.singleagent.environment.EnvironmentOutcome;
+import burlap.oomdp.singleagent.environment.SimulatedEnvironment;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+
+public class TestStreamingPerformanceAggregator {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Domain domain;
+	RewardFunction rf;
+	TerminalFunction tf;
+	State initialState;
+
+	@Before
+	public void setup() {
+		GridWorldDomain gw = new GridWorldDomain(5, 5);
+		gw.setProbSucceedTransitionDynamics(1.0);
+		this.domain = gw.generateDomain();
+		this.tf = new SinglePFTF(this.domain.getPropFunction(GridWorldDomain.PFATLOCATION));
+		this.rf = new GoalBasedRF(new TFGoalCondition(this.tf), 10., -1.);
+		this.initialState = GridWorldDomain.getOneAgentOneLocationState(this.domain);
+		GridWorldDomain.setAgent(this.initialState, 0, 0);
+		GridWorldDomain.setLocation(this.initialState, 0, 4, 4);
+		DPrint.toggleUniversal(false);
+	}
+
+	@Test
+	public void testConcurrentTrialsWriteSameData() throws IOException {
+		String sequential = this.runExperiment(1, 5, false);
+		String concurrent = this.runExperiment(3, 5, false);
+
+		Assert.assertEquals(this.read(sequential + "Steps.csv"), this.read(concurrent + "Steps.csv"));
+		Assert.assertEquals(this.read(sequential + "Episodes.csv"), this.read(concurrent + "Episodes.csv"));
+		Assert.assertEquals(1 + 2*5*6, this.read(sequential + "Episodes.csv").size());
+	}
+
+	@Test
+	public void testConcurrentTrialsAggregateSameResults() throws IOException {
+		GridWorldDomain gw = new GridWorldDomain(5, 5);
+		gw.setProbSucceedTransitionDynamics(0.7);
+		final Domain stochasticDomain = gw.generateDomain();
+		LearningAgentFactory ql = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "ql";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				return new QLearning(stochasticDomain, 0.9, new SimpleHashableStateFactory(), 0., 0.5);
+			}
+		};
+		LearningAgentFactory optimisticQL = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "optimisticQL";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				return new QLearning(stochasticDomain, 0.9, new SimpleHashableStateFactory(), 10., 0.1);
+			}
+		};
+
+		List<StreamingPerformanceAggregator> aggregators = new ArrayList<StreamingPerformanceAggregator>();
+		for(int parallelism : new int[]{1, 4}){
+			File dir = this.folder.newFolder();
+			SimulatedEnvironment env = new SimulatedEnvironment(stochasticDomain, this.rf, this.tf, this.initialState);
+			LearningAlgorithmExperimenter exp = new LearningAlgorithmExperimenter(env, 6, 8, ql, optimisticQL);
+			exp.setUpStreamingAggregation(new File(dir, "spill").getAbsolutePath());
+			exp.setTrialParallelism(parallelism);
+			exp.setRandomStreamSeed(11);
+			exp.startExperiment();
+			aggregators.add(exp.getStreamingAggregator());
+		}
+
+		StreamingPerformanceAggregator sequential = aggregators.get(0);
+		StreamingPerformanceAggregator concurrent = aggregators.get(1);
+		Assert.assertEquals(sequential.getAgentNames(), concurrent.getAgentNames());
+		for(String agent : sequential.getAgentNames()){
+			Assert.assertEquals(6, concurrent.numTrials(agent));
+			for(PerformanceMetric metric : PerformanceMetric.values()){
+				double [][] expected = sequential.getAverages(agent, metric);
+				double [][] actual = concurrent.getAverages(agent, metric);
+				Assert.assertTrue(expected.length > 0);
+				Assert.assertEquals(expected.length, actual.length);
+				for(int i = 0; i < expected.length; i++){
+					Assert.assertArrayEquals(expected[i], actual[i], 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyCompletedTrialsAreAggregated() throws IOException {
+		File dir = this.folder.newFolder();
+		StreamingPerformanceAggregator aggregator = new StreamingPerformanceAggregator("a", new File(dir, "spill").getAbsolutePath());
+		GroundedAction ga = this.domain.getActions().get(0).getAssociatedGroundedAction();
+		EnvironmentOutcome eo = new EnvironmentOutcome(this.initialState, ga, this.initialState, -1., false);
+
+		//a trial that is still running does not affect the statistics
+		PerformanceDataCollector.TrialRecorder running = aggregator.newTrialRecorder("a");
+		for(int i = 0; i < 5; i++){
+			running.observeEnvironmentInteraction(eo);
+		}
+		running.endEpisode();
+
+		//steps after the last ended episode are still part of a completed trial
+		PerformanceDataCollector.TrialRecorder completed = aggregator.newTrialRecorder("a");
+		for(int i = 0; i < 3; i++){
+			completed.observeEnvironmentInteraction(eo);
+		}
+		completed.endEpisode();
+		completed.observeEnvironmentInteraction(eo);
+		aggregator.addCompletedTrial(completed);
+
+		Assert.assertEquals(1, aggregator.numTrials("a"));
+		double [][] steps = aggregator.getAverages("a", PerformanceMetric.STEPSPEREPISODE);
+		Assert.assertEquals(1, steps.length);
+		Assert.assertEquals(3., steps[0][1], 0.);
+		double [][] cumulative = aggregator.getAverages("a", PerformanceMetric.CUMULATIVEREWARDPERSTEP);
+		Assert.assertEquals(4, cumulative.length);
+		Assert.assertEquals(-4., cumulative[3][1], 0.);
+
+		String base = new File(dir, "results").getAbsolutePath();
+		aggregator.writeStepDataToCSV(base + "Steps.csv");
+		Assert.assertEquals(1 + 4, this.read(base + "Steps.csv").size());
+	}
+
+	@Test
+	public void testAveragesMatchTrialData() throws IOException {
+		String base = this.runExperiment(1, 6, true);
+		List<String> episodes = this.read(base + "Episodes.csv");
+
+		StreamingPerformanceAggregator aggregator = StreamingPerformanceAggregator.load(new File(base).getParent() + "/spill", 1, 1);
+		Assert.assertEquals(6, aggregator.numTrials("walk1"));
+
+		double [][] avgs = aggregator.getAverages("walk1", PerformanceMetric.STEPSPEREPISODE);
+		Assert.assertEquals(6, avgs.length);
+		double [][] cumulative = aggregator.getAverages("walk1", PerformanceMetric.CUMULTAIVEREWARDPEREPISODE);
+		for(int j = 0; j < 6; j++){
+			DescriptiveStatistics steps = new DescriptiveStatistics();
+			DescriptiveStatistics reward = new DescriptiveStatistics();
+			for(String line : episodes){
+				String [] comps = line.split(",");
+				if(comps[0].equals("walk1") && comps[2].equals("" + j)){
+					reward.addValue(Double.parseDouble(comps[3]));
+					steps.addValue(Double.parseDouble(comps[6]));
+				}
+			}
+			double [] ci = PerformancePlotter.getCI(steps, 0.05);
+			Assert.assertEquals(j, avgs[j][0], 0.);
+			Assert.assertEquals(ci[0], avgs[j][1], 1e-9);
+			Assert.assertEquals(ci[1], avgs[j][2], 1e-9);
+			Assert.assertEquals(ci[2], avgs[j][3], 1e-9);
+			Assert.assertEquals(reward.getMean(), cumulative[j][1], 1e-9);
+		}
+
+		//buckets of two episodes average each trial's two episodes first
+		StreamingPerformanceAggregator bucketed = StreamingPerformanceAggregator.load(new File(base).getParent() + "/spill", 1, 2);
+		double [][] bucketAvgs = bucketed.getAverages("walk1", PerformanceMetric.STEPSPEREPISODE);
+		Assert.assertEquals(3, bucketAvgs.length);
+		Assert.assertEquals(2, bucketAvgs[1][0], 0.);
+		Assert.assertEquals((avgs[2][1] + avgs[3][1]) / 2., bucketAvgs[1][1], 1e-9);
+
+		//reloaded spill files write the same csv data
+		String reloaded = this.folder.getRoot().getAbsolutePath() + "/reloaded";
+		aggregator.writeStepAndEpisodeDataToCSV(reloaded);
+		Assert.assertEquals(episodes, this.read(reloaded + "Episodes.csv"));
+		Assert.assertEquals(this.read(base + "Steps.csv"), this.read(reloaded + "Steps.csv"));
+
+		File charts = this.folder.newFolder("charts");
+		aggregator.saveAverageCharts(charts.getAbsolutePath(), 400, 200, PerformanceMetric.CUMULATIVEREWARDPERSTEP, PerformanceMetric.STEPSPEREPISODE);
+		Assert.assertTrue(new File(charts, PerformanceMetric.STEPSPEREPISODE.name() + ".png").length() > 0);
+	}
+
+	@Test
+	public void testRandomStreamsReproducibleAcrossThreads() throws Exception {
+		GridWorldDomain gw = new GridWorldDomain(5, 5);
+		gw.setProbSucceedTransitionDynamics(0.7);
+		final Domain stochasticDomain = gw.generateDomain();
+
+		//q-learning draws from the policy stream and the grid world from the domain stream of the thread running the trial
+		LearningAgentFactory ql = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "ql";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				return new QLearning(stochasticDomain, 0.9, new SimpleHashableStateFactory(), 0., 0.5);
+			}
+		};
+
+		List<List<String>> runs = new ArrayList<List<String>>();
+		for(int parallelism : new int[]{1, 3}){
+			File dir = this.folder.newFolder();
+			SimulatedEnvironment env = new SimulatedEnvironment(stochasticDomain, this.rf, this.tf, this.initialState);
+			LearningAlgorithmExperimenter exp = new LearningAlgorithmExperimenter(env, 5, 8, ql);
+			exp.setUpStreamingAggregation(new File(dir, "spill").getAbsolutePath());
+			exp.setTrialParallelism(parallelism);
+			exp.setRandomStreamSeed(17);
+			exp.startExperiment();
+			String base = new File(dir, "results").getAbsolutePath();
+			exp.writeStepAndEpisodeDataToCSV(base);
+			runs.add(this.read(base + "Episodes.csv"));
+		}
+		Assert.assertEquals(runs.get(0), runs.get(1));
+
+		//the streams of a context depend only on the experiment seed, trial and component
+		final double [] otherThread = new double[3];
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				RandomFactory.seedThread(3, 4);
+				Random policy = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
+				for(int i = 0; i < otherThread.length; i++){
+					otherThread[i] = policy.nextDouble();
+				}
+			}
+		});
+		t.start();
+		t.join();
+
+		RandomFactory.StreamContext previous = RandomFactory.seedThread(3, 4);
+		Random domainStream = RandomFactory.getStream(RandomFactory.DOMAINSTREAM);
+		Random policyStream = RandomFactory.getStream(RandomFactory.POLICYSTREAM);
+		double domainDraw = domainStream.nextDouble();
+		for(int i = 0; i < otherThread.length; i++){
+			Assert.assertEquals(otherThread[i], policyStream.nextDouble(), 0.);
+		}
+		Assert.assertNotEquals(otherThread[0], domainDraw, 0.);
+		RandomFactory.setThreadContext(previous);
+	}
+
+	protected String runExperiment(int parallelism, int nTrials, boolean seedPerTrial) throws IOException {
+		File dir = this.folder.newFolder();
+		SimulatedEnvironment env = new SimulatedEnvironment(this.domain, this.rf, this.tf, this.initialState);
+		LearningAlgorithmExperimenter exp = new LearningAlgorithmExperimenter(env, nTrials, 6,
+				new RandomWalkFactory("walk1", 1, seedPerTrial), new RandomWalkFactory("walk2", 2, seedPerTrial));
+		exp.setUpStreamingAggregation(new File(dir, "spill").getAbsolutePath());
+		exp.setTrialParallelism(parallelism);
+		exp.startExperiment();
+		String base = new File(dir, "results").getAbsolutePath();
+		exp.writeStepAndEpisodeDataToCSV(base);
+		return base;
+	}
+
+	protected List<String> read(String path) throws IOException {
+		return Files.readAllLines(new File(path).toPath(), Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * Generates agents that take uniformly random actions from their own seeded random number generator.
+	 */
+	class RandomWalkFactory implements LearningAgentFactory {
+		String name;
+		long seed;
+		boolean seedPerTrial;
+
+		RandomWalkFactory(String name, long seed, boolean seedPerTrial) {
+			this.name = name;
+			this.seed = seed;
+			this.seedPerTrial = seedPerTrial;
+		}
+
+		@Override
+		public String getAgentName() {
+			return this.name;
+		}
+
+		@Override
+		public LearningAgent generateAgent() {
+			final Random rand = new Random(this.seedPerTrial ? this.seed++ : this.seed);
+			final List<Action> actions = new ArrayList<Action>(TestStreamingPerformanceAggregator.this.domain.getActions());
+			return new LearningAgent() {
+				@Override
+				public EpisodeAnalysis runLearningEpisode(Environment env) {
+					return this.runLearningEpisode(env, -1);
+				}
+
+				@Override
+				public EpisodeAnalysis runLearningEpisode(Environment env, int maxSteps) {
+					EpisodeAnalysis ea = new EpisodeAnalysis(env.getCurrentObservation());
+					int steps = 0;
+					while(!env.isInTerminalState() && (steps < maxSteps || maxSteps == -1)){
+						GroundedAction ga = actions.get(rand.nextInt(actions.size())).getAssociatedGroundedAction();
+						EnvironmentOutcome eo = env.executeAction(ga);
+						ea.recordTransitionTo(ga, eo.op, eo.r);
+						steps++;
+					}
+					return ea;
+				}
+			};
+		}
+	}
+}
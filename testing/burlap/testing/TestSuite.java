@@ -10,7 +10,14 @@ import org.junit.runners.Suite;
 	TestPlanning.class,
 	TestBlockDude.class,
 	TestImmutableState.class,
-	TestHashing.class
+	TestHashing.class,
+	TestDynamicProgramming.class,
+	TestLearning.class,
+	TestPackedState.class,
+	TestStreamingPerformanceAggregator.class,
+	TestBinaryEpisodes.class,
+	TestPOMDP.class,
+	TestTournament.class
 })
 public class TestSuite {
 
@@ -0,0 +1,135 @@
+package burlap.testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import burlap.behavior.stochasticgames.agents.naiveq.SGNaiveQFactory;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.stochasticgames.gridgame.GridGame;
+import burlap.oomdp.statehashing.SimpleHashableStateFactory;
+import burlap.oomdp.stochasticgames.AgentFactory;
+import burlap.oomdp.stochasticgames.SGAgent;
+import burlap.oomdp.stochasticgames.SGDomain;
+import burlap.oomdp.stochasticgames.World;
+import burlap.oomdp.stochasticgames.WorldGenerator;
+import burlap.oomdp.stochasticgames.common.ConstantSGStateGenerator;
+import burlap.oomdp.stochasticgames.tournament.MatchEntry;
+import burlap.oomdp.stochasticgames.tournament.MatchSelector;
+import burlap.oomdp.stochasticgames.tournament.Tournament;
+import burlap.oomdp.stochasticgames.tournament.common.AllPairWiseSameTypeMS;
+import burlap.oomdp.stochasticgames.tournament.common.ConstantWorldGenerator;
+
+public class TestTournament {
+	public static final int numAgents = 5;
+	public static final int maxStages = 30;
+	public static final int numGames = 5;
+
+	SGDomain domain;
+	WorldGenerator worldGenerator;
+
+	@Before
+	public void setup() {
+		this.domain = (SGDomain)new GridGame().generateDomain();
+		this.worldGenerator = new ConstantWorldGenerator(this.domain, new GridGame.GGJointRewardFunction(this.domain),
+				new GridGame.GGTerminalFunction(this.domain), new ConstantSGStateGenerator(GridGame.getSimpleGameInitialState(this.domain)));
+		DPrint.toggleUniversal(false);
+	}
+
+	@After
+	public void teardown() {
+		DPrint.toggleUniversal(true);
+	}
+
+	@Test
+	public void testSeededTournamentIndependentOfParallelism() {
+		List<Double> sequential = this.runSeededTournament(1);
+		List<Double> concurrent = this.runSeededTournament(4);
+		Assert.assertEquals(sequential, concurrent);
+	}
+
+	@Test
+	public void testUnseededSequentialTournamentUnchanged() {
+		RandomFactory.StreamContext previous = RandomFactory.getThreadContext();
+
+		RandomFactory.seedMapped(0, 31);
+		Tournament tournament = this.tournament();
+		tournament.runTournament();
+		List<Double> actual = new ArrayList<Double>();
+		for(int i = 0; i < numAgents; i++){
+			actual.add(tournament.getCumulativeRewardFor(i));
+		}
+
+		RandomFactory.seedMapped(0, 31);
+		List<Double> expected = this.runReferenceTournament();
+
+		RandomFactory.setThreadContext(previous);
+		Assert.assertEquals(expected, actual);
+	}
+
+	protected List<Double> runSeededTournament(int parallelism) {
+		Tournament tournament = this.tournament();
+		tournament.setParallelism(parallelism);
+		tournament.setMatchSeed(7);
+		tournament.runTournament();
+		List<Double> totals = new ArrayList<Double>();
+		for(int i = 0; i < numAgents; i++){
+			totals.add(tournament.getCumulativeRewardFor(i));
+		}
+		return totals;
+	}
+
+	protected Tournament tournament() {
+		return new Tournament(this.agentFactories(), maxStages, numGames,
+				new AllPairWiseSameTypeMS(GridGame.getStandardGridGameAgentType(this.domain), numAgents), this.worldGenerator);
+	}
+
+	protected List<AgentFactory> agentFactories() {
+		List<AgentFactory> factories = new ArrayList<AgentFactory>();
+		for(int i = 0; i < numAgents; i++){
+			factories.add(new SGNaiveQFactory(this.domain, 0.95, 0.1, 0., new SimpleHashableStateFactory()));
+		}
+		return factories;
+	}
+
+	/**
+	 * Plays the tournament one match after another on the calling thread, as the tournament did before matches could be played concurrently.
+	 */
+	protected List<Double> runReferenceTournament() {
+		List<AgentFactory> agents = this.agentFactories();
+		List<Double> totals = new ArrayList<Double>();
+		for(int i = 0; i < numAgents; i++){
+			totals.add(0.);
+		}
+
+		MatchSelector selector = new AllPairWiseSameTypeMS(GridGame.getStandardGridGameAgentType(this.domain), numAgents);
+		selector.resetMatchSelections();
+		List<MatchEntry> match;
+		while((match = selector.getNextMatch()) != null){
+			World w = this.worldGenerator.generateWorld();
+			Collections.shuffle(match, RandomFactory.getMapped(0));
+			Map<String, Integer> agentNameToId = new HashMap<String, Integer>();
+			for(MatchEntry me : match){
+				SGAgent a = agents.get(me.agentId).generateAgent();
+				a.joinWorld(w, me.agentType);
+				agentNameToId.put(a.getAgentName(), me.agentId);
+			}
+			for(int i = 0; i < numGames; i++){
+				w.runGame(maxStages);
+			}
+			for(String aname : agentNameToId.keySet()){
+				int aId = agentNameToId.get(aname);
+				totals.set(aId, w.getCumulativeRewardForAgent(aname) + totals.get(aId));
+			}
+		}
+		return totals;
+	}
+}